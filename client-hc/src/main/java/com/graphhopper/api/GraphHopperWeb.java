@@ -26,6 +26,7 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathBinaryFormat;
 import com.graphhopper.jackson.ResponsePathDeserializerHelper;
 import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.Helper;
@@ -63,6 +64,7 @@ public class GraphHopperWeb {
     private boolean elevation = false;
     private String optimize = "false";
     private boolean postRequest = true;
+    private boolean binaryResponse = false;
     private int maxUnzippedLength = 1000;
     private final Set<String> ignoreSetForGet;
     private final Set<String> ignoreSetForPost;
@@ -145,6 +147,15 @@ public class GraphHopperWeb {
         return this;
     }
 
+    /**
+     * If true the route is requested in the compact binary format of {@link ResponsePathBinaryFormat} instead of JSON,
+     * which is faster to create and to parse. The default is false.
+     */
+    public GraphHopperWeb setBinaryResponse(boolean binaryResponse) {
+        this.binaryResponse = binaryResponse;
+        return this;
+    }
+
     /**
      * Enable or disable calculating points for the way. The default is true.
      */
@@ -192,6 +203,15 @@ public class GraphHopperWeb {
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
             Response rsp = getClientForRequest(ghRequest).newCall(okRequest).execute();
             rspBody = rsp.body();
+            // errors are always returned as JSON
+            MediaType contentType = rspBody.contentType();
+            if (contentType != null && ResponsePathBinaryFormat.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype())) {
+                GHResponse res = ResponsePathBinaryFormat.read(rspBody.byteStream(), tmpTurnDescription);
+                for (Map.Entry<String, List<String>> entry : rsp.headers().toMultimap().entrySet()) {
+                    res.getHints().putObject(entry.getKey(), entry.getValue());
+                }
+                return res;
+            }
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
@@ -248,6 +268,8 @@ public class GraphHopperWeb {
         }
         Request.Builder builder = new Request.Builder().url(url).post(RequestBody.create(MT_JSON, body));
         builder.header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN);
+        if (binaryResponse)
+            builder.header("Accept", ResponsePathBinaryFormat.MEDIA_TYPE + ", application/json;q=0.5");
         // force avoiding our GzipRequestInterceptor for smaller requests ~30 locations
         if (body.length() < maxUnzippedLength)
             builder.header("Content-Encoding", "identity");
@@ -382,9 +404,11 @@ public class GraphHopperWeb {
             }
         }
 
-        return new Request.Builder().url(url)
-                .header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN)
-                .build();
+        Request.Builder builder = new Request.Builder().url(url)
+                .header(X_GH_CLIENT_VERSION, GH_VERSION_FROM_MAVEN);
+        if (binaryResponse)
+            builder.header("Accept", ResponsePathBinaryFormat.MEDIA_TYPE + ", application/json;q=0.5");
+        return builder.build();
     }
 
     public String export(GHRequest ghRequest) {
@@ -68,9 +68,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -91,6 +94,9 @@ public class GraphHopper {
     private final TranslationMap trMap = new TranslationMap().doImport();
     boolean removeZipped = true;
     boolean calcChecksums = false;
+    private volatile boolean checksumsCancelled = false;
+    private volatile Thread checksumThread;
+    private volatile List<String> checksumProblems = List.of();
     // for country rules:
     private CountryRuleFactory countryRuleFactory = null;
     // for custom areas:
@@ -105,6 +111,10 @@ public class GraphHopper {
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
     private boolean sortGraph = true;
+    private boolean compressGeometry = false;
+    private boolean splitEdges = false;
+    private boolean csrAdjacency = false;
+    private final Set<String> prepareOnlyProfiles = new LinkedHashSet<>();
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -119,6 +129,7 @@ public class GraphHopper {
     // subnetworks
     private int minNetworkSize = 200;
     private int subnetworksThreads = 1;
+    private boolean subnetworksParallelSCC = false;
     // residential areas
     private double residentialAreaRadius = 400;
     private double residentialAreaSensitivity = 6000;
@@ -130,6 +141,8 @@ public class GraphHopper {
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    private int chUpperHierarchySize = 0;
+    private final Map<String, int[]> chNodesByLevel = new ConcurrentHashMap<>();
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
 
     // for data reader
@@ -195,6 +208,16 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Copies the edges of the given number of highest-ranked nodes of every CH graph into a dense block that is
+     * ordered by rank, see {@link com.graphhopper.storage.CHUpperHierarchy}. Zero (the default) disables it.
+     */
+    public GraphHopper setCHUpperHierarchySize(int chUpperHierarchySize) {
+        ensureNotLoaded();
+        this.chUpperHierarchySize = chUpperHierarchySize;
+        return this;
+    }
+
     public GraphHopper setMinNetworkSize(int minNetworkSize) {
         ensureNotLoaded();
         this.minNetworkSize = minNetworkSize;
@@ -366,6 +389,54 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Stores the key-values and geometry references of the edges of newly imported graphs separately from the fields
+     * needed for routing, see {@link BaseGraph#isSplitEdges()}
+     */
+    public GraphHopper setSplitEdges(boolean splitEdges) {
+        this.splitEdges = splitEdges;
+        return this;
+    }
+
+    /**
+     * Copies the adjacency lists of a graph that is loaded without write access into a compact in-memory array to
+     * speed up the edge exploration, see {@link BaseGraph#buildCSRAdjacency()}. This needs 16 bytes per edge on the heap.
+     */
+    public GraphHopper setCSRAdjacency(boolean csrAdjacency) {
+        this.csrAdjacency = csrAdjacency;
+        return this;
+    }
+
+    /**
+     * Restricts the CH and LM preparations that are loaded (or prepared if they do not exist yet) to the given profiles.
+     * The base graph is still shared by all profiles, so several instances that serve different profiles can use the
+     * same graph folder. An empty collection means all CH and LM profiles.
+     */
+    public GraphHopper setPrepareOnlyProfiles(Collection<String> profiles) {
+        ensureNotLoaded();
+        prepareOnlyProfiles.clear();
+        prepareOnlyProfiles.addAll(profiles);
+        return this;
+    }
+
+    /**
+     * Stores checksums of the edge weights of every profile during the import and verifies them in the background
+     * when the graph is loaded, see {@link #getChecksumProblems()}.
+     */
+    public GraphHopper setCalcChecksums(boolean calcChecksums) {
+        ensureNotLoaded();
+        this.calcChecksums = calcChecksums;
+        return this;
+    }
+
+    /**
+     * Stores the way geometry of newly imported graphs in a compressed format, see {@link BaseGraph#compressWayGeometry()}
+     */
+    public GraphHopper setCompressGeometry(boolean compressGeometry) {
+        this.compressGeometry = compressGeometry;
+        return this;
+    }
+
     /**
      * The underlying graph used in algorithms.
      *
@@ -395,6 +466,17 @@ public class GraphHopper {
         return chGraphs;
     }
 
+    /**
+     * @return the contracted nodes of the CH graph of the given profile in ascending level order, as needed for
+     * one-to-all searches with {@link PHAST}. The order is calculated when it is requested for the first time.
+     */
+    public int[] getCHNodesByLevel(String profile) {
+        RoutingCHGraph chGraph = chGraphs.get(profile);
+        if (chGraph == null)
+            throw new IllegalArgumentException("There is no CH graph for profile '" + profile + "'");
+        return chNodesByLevel.computeIfAbsent(profile, p -> PHAST.sortNodesByLevel(chGraph));
+    }
+
     /**
      * @return a mapping between profile names and according landmark preparations. The map will be empty before loading
      * or import.
@@ -515,6 +597,9 @@ public class GraphHopper {
         }
 
         sortGraph = ghConfig.getBool("graph.sort", sortGraph);
+        compressGeometry = ghConfig.getBool("graph.compress_geometry", compressGeometry);
+        splitEdges = ghConfig.getBool("graph.split_edges", splitEdges);
+        csrAdjacency = ghConfig.getBool("graph.csr_adjacency", csrAdjacency);
         if (ghConfig.getBool("max_speed_calculator.enabled", false))
             maxSpeedCalculator = new MaxSpeedCalculator(MaxSpeedCalculator.createLegalDefaultSpeeds());
 
@@ -564,10 +649,14 @@ public class GraphHopper {
         // optimizable prepare
         minNetworkSize = ghConfig.getInt("prepare.min_network_size", minNetworkSize);
         subnetworksThreads = ghConfig.getInt("prepare.subnetworks.threads", subnetworksThreads);
+        subnetworksParallelSCC = ghConfig.getBool("prepare.subnetworks.parallel_scc", subnetworksParallelSCC);
 
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
         lmPreparationHandler.init(ghConfig);
+        chUpperHierarchySize = ghConfig.getInt("routing.ch.upper_hierarchy_size", chUpperHierarchySize);
+        String prepareOnlyProfilesString = ghConfig.getString("prepare.only_profiles", "");
+        setPrepareOnlyProfiles(Arrays.stream(prepareOnlyProfilesString.split(",")).map(String::trim).filter(p -> !p.isEmpty()).toList());
 
         // osm import
         // We do a few checks for import.osm.ignored_highways to prevent configuration errors when migrating from an older
@@ -586,6 +675,8 @@ public class GraphHopper {
         osmReaderConfig.setPreferredLanguage(ghConfig.getString("datareader.preferred_language", osmReaderConfig.getPreferredLanguage()));
         osmReaderConfig.setMaxWayPointDistance(ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, osmReaderConfig.getMaxWayPointDistance()));
         osmReaderConfig.setWorkerThreads(ghConfig.getInt("datareader.worker_threads", osmReaderConfig.getWorkerThreads()));
+        osmReaderConfig.setExternalMemory(ghConfig.getBool("datareader.external_memory", osmReaderConfig.isExternalMemory()));
+        osmReaderConfig.setExternalMemoryBufferMB(ghConfig.getInt("datareader.external_memory_buffer_mb", osmReaderConfig.getExternalMemoryBufferMB()));
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
@@ -754,7 +845,11 @@ public class GraphHopper {
             provider
                     .setAutoRemoveTemporaryFiles(removeTempElevationFiles)
                     .setInterpolate(interpolate)
-                    .setDAType(elevationDAType);
+                    .setDAType(elevationDAType)
+                    .setPrefetchThreads(ghConfig.getInt("graph.elevation.prefetch_threads", 0));
+            int tileCacheMB = ghConfig.getInt("graph.elevation.tile_cache_mb", 0);
+            if (tileCacheMB > 0)
+                provider.setMaxTileCacheBytes(tileCacheMB * Helper.MB);
             if (!baseURL.isEmpty())
                 provider.setBaseURL(baseURL);
         }
@@ -828,6 +923,7 @@ public class GraphHopper {
                 .set3D(hasElevation())
                 .withTurnCosts(encodingManager.needsTurnCostsSupport())
                 .setSegmentSize(defaultSegmentSize)
+                .setSplitEdges(splitEdges)
                 .build();
         properties = new StorableProperties(directory);
         checkProfilesConsistency();
@@ -849,6 +945,7 @@ public class GraphHopper {
             properties.put("profiles", getProfilesString());
             writeEncodingManagerToProperties();
 
+            calcChecksums();
             postProcessing(closeEarly);
             flush();
         } finally {
@@ -914,18 +1011,40 @@ public class GraphHopper {
         // These are simply copies of real edges. Any further modifications of the graph edges must take care of keeping
         // the artificial edges in sync with their real counterparts. So if an edge attribute shall be changed this change
         // must also be applied to the corresponding artificial edge.
-        calculateUrbanDensity();
-
-        if (maxSpeedCalculator != null) {
-            maxSpeedCalculator.fillMaxSpeed(getBaseGraph(), encodingManager);
-            maxSpeedCalculator.close();
+        // the edge values that depend on the urban density are written in a single pass over all edges
+        ParallelEdgePass edgePass = new ParallelEdgePass();
+        calculateUrbanDensity(edgePass);
+        if (maxSpeedCalculator != null)
+            maxSpeedCalculator.addFillMaxSpeed(edgePass, baseGraph, encodingManager);
+        if (!edgePass.isEmpty()) {
+            StopWatch sw = StopWatch.started();
+            edgePass.run(baseGraph, urbanDensityCalculationThreads);
+            logger.info("Finished writing urban density and max speed values, took: " + sw.stop().getSeconds() + "s");
         }
+        if (maxSpeedCalculator != null)
+            maxSpeedCalculator.close();
 
         if (hasElevation())
             interpolateBridgesTunnelsAndFerries();
 
         if (sortGraph)
             sortGraphAlongHilbertCurve(baseGraph);
+
+        if (compressGeometry) {
+            StopWatch sw = new StopWatch().start();
+            long bytesBefore = baseGraph.getMaxGeoRef();
+            baseGraph.compressWayGeometry();
+            logger.info("compressing way geometry from {}MB to {}MB took: {}", bytesBefore / Helper.MB,
+                    baseGraph.getMaxGeoRef() / Helper.MB, sw.stop().getTimeString());
+        }
+
+        TurnCostStorage turnCostStorage = baseGraph.getTurnCostStorage();
+        if (turnCostStorage != null && turnCostStorage.getTurnCostsCount() > 0) {
+            // all turn costs are known now, so we can store them in the order that is faster for the lookups
+            StopWatch sw = new StopWatch().start();
+            turnCostStorage.sortForLookup();
+            logger.info("sorting " + Helper.nf(turnCostStorage.getTurnCostsCount()) + " turn cost entries took: " + sw.stop().getTimeString());
+        }
     }
 
     protected void importOSM() {
@@ -1053,7 +1172,7 @@ public class GraphHopper {
         return d;
     }
 
-    private void calculateUrbanDensity() {
+    private void calculateUrbanDensity(ParallelEdgePass edgePass) {
         if (encodingManager.hasEncodedValue(UrbanDensity.KEY)) {
             EnumEncodedValue<UrbanDensity> urbanDensityEnc = encodingManager.getEnumEncodedValue(UrbanDensity.KEY, UrbanDensity.class);
             if (!encodingManager.hasEncodedValue(RoadClass.KEY))
@@ -1062,7 +1181,7 @@ public class GraphHopper {
                 throw new IllegalArgumentException("Urban density calculation requires " + RoadClassLink.KEY);
             EnumEncodedValue<RoadClass> roadClassEnc = encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
             BooleanEncodedValue roadClassLinkEnc = encodingManager.getBooleanEncodedValue(RoadClassLink.KEY);
-            UrbanDensityCalculator.calcUrbanDensity(baseGraph, urbanDensityEnc, roadClassEnc,
+            UrbanDensityCalculator.addUrbanDensity(edgePass, baseGraph, urbanDensityEnc, roadClassEnc,
                     roadClassLinkEnc, residentialAreaRadius, residentialAreaSensitivity, cityAreaRadius, cityAreaSensitivity, urbanDensityCalculationThreads);
         }
     }
@@ -1121,6 +1240,14 @@ public class GraphHopper {
                             + " to " + ghLocation, ex);
                 }
             }
+            File archive = new File(ghLocation + ".gha");
+            if (archive.exists() && !archive.isDirectory()) {
+                StopWatch sw = StopWatch.started();
+                GraphArchive.unpack(archive, new File(ghLocation), Runtime.getRuntime().availableProcessors());
+                logger.info("Unpacked " + archive + " in " + sw.stop().getTimeString());
+                if (removeZipped)
+                    Helper.removeDir(archive);
+            }
         }
 
         // todo: this does not really belong here, we abuse the load method to derive the dataAccessDefaultType setting from others
@@ -1167,7 +1294,17 @@ public class GraphHopper {
 
             postProcessing(false);
             directory.loadMMap();
+            if (csrAdjacency && (!allowWrites || !directory.getDefaultType().isAllowWrites())) {
+                // the graph cannot change anymore, so we can replace the linked edge lists with a compact copy
+                if (baseGraph.supportsCSRAdjacency()) {
+                    long bytes = baseGraph.buildCSRAdjacency();
+                    logger.info("Created CSR adjacency, " + Helper.nf(bytes / Helper.MB) + "MB");
+                } else {
+                    logger.warn("Too many edges for the CSR adjacency (" + Helper.nf(baseGraph.getEdges()) + "), using the linked adjacency lists");
+                }
+            }
             setFullyLoaded();
+            startChecksumVerification();
             return true;
         } finally {
             if (lock != null)
@@ -1233,6 +1370,14 @@ public class GraphHopper {
                 throw new IllegalArgumentException("Cannot use '" + lmProfile.getPreparationProfile() + "' as preparation_profile for LM profile '" + lmProfile.getProfile() + "', because it uses another profile for preparation itself.");
             }
         }
+        for (String profile : prepareOnlyProfiles) {
+            if (!profilesByName.containsKey(profile)) {
+                throw new IllegalArgumentException("prepare.only_profiles references unknown profile '" + profile + "'");
+            }
+            if (!chProfileSet.contains(profile) && !lmProfileMap.containsKey(profile)) {
+                throw new IllegalArgumentException("prepare.only_profiles references profile '" + profile + "', but there is neither a CH nor an LM profile for it");
+            }
+        }
     }
 
     public final CHPreparationHandler getCHPreparationHandler() {
@@ -1279,7 +1424,6 @@ public class GraphHopper {
      * @param closeEarly release resources as early as possible
      */
     protected void postProcessing(boolean closeEarly) {
-        calcChecksums();
         initLocationIndex();
         importPublicTransit();
 
@@ -1374,31 +1518,108 @@ public class GraphHopper {
         if (!calcChecksums) return;
         logger.info("Calculating checksums for {} profiles", profilesByName.size());
         StopWatch sw = StopWatch.started();
-        double[] checksums_fwd = new double[profilesByName.size()];
-        double[] checksums_bwd = new double[profilesByName.size()];
+        double[][] checksums = doCalcChecksums();
+        int index = 0;
+        for (Profile profile : profilesByName.values()) {
+            properties.put("checksum.fwd." + profile.getName(), checksums[index][0]);
+            properties.put("checksum.bwd." + profile.getName(), checksums[index][1]);
+            logger.info("checksum.fwd." + profile.getName() + ": " + checksums[index][0]);
+            logger.info("checksum.bwd." + profile.getName() + ": " + checksums[index][1]);
+            index++;
+        }
+        logger.info("Calculating checksums took: " + sw.stop().getTimeString());
+    }
+
+    /**
+     * Calculating the checksums reads all edges, so for a loaded graph we do this in the background and compare
+     * the result with the checksums stored during the import. Use {@link #getChecksumProblems()} to get the result.
+     * With the {@link DAType#RAM_LAZY} data access type the edges are loaded by this thread unless a request needs
+     * them first.
+     */
+    private void startChecksumVerification() {
+        if (!calcChecksums) return;
+        Thread thread = new Thread(() -> {
+            try {
+                logger.info("Verifying checksums for {} profiles in the background", profilesByName.size());
+                StopWatch sw = StopWatch.started();
+                double[][] checksums = doCalcChecksums();
+                if (checksumsCancelled)
+                    return;
+                List<String> problems = new ArrayList<>();
+                int index = 0;
+                for (Profile profile : profilesByName.values()) {
+                    checkChecksum(problems, "checksum.fwd." + profile.getName(), checksums[index][0]);
+                    checkChecksum(problems, "checksum.bwd." + profile.getName(), checksums[index][1]);
+                    index++;
+                }
+                checksumProblems = problems;
+                if (problems.isEmpty())
+                    logger.info("Verifying checksums took: " + sw.stop().getTimeString());
+                else
+                    logger.error("Checksums do not match: " + problems);
+            } catch (Exception ex) {
+                logger.error("Could not verify checksums", ex);
+                checksumProblems = List.of("could not calculate checksums: " + ex.getMessage());
+            } finally {
+                checksumThread = null;
+            }
+        }, "checksums");
+        thread.setDaemon(true);
+        checksumThread = thread;
+        thread.start();
+    }
+
+    private void checkChecksum(List<String> problems, String key, double checksum) {
+        String stored = properties.get(key);
+        if (stored.isEmpty())
+            // the graph was imported without checksums
+            logger.info(key + ": " + checksum);
+        else if (Double.parseDouble(stored) != checksum)
+            problems.add(key + ": " + checksum + " (expected: " + stored + ")");
+    }
+
+    /**
+     * @return the forward and backward checksum of every profile. The profiles are calculated in parallel, but the
+     * edges of one profile are always summed up in the same order, so the result does not depend on the threads.
+     */
+    private double[][] doCalcChecksums() {
         List<Weighting> weightings = profilesByName.values().stream().map(profile -> createWeighting(profile, new PMap())).toList();
-        AllEdgesIterator edge = baseGraph.getAllEdges();
-        while (edge.next()) {
-            for (int i = 0; i < profilesByName.size(); i++) {
-                double weightFwd = weightings.get(i).calcEdgeWeight(edge, false);
+        double[][] checksums = new double[weightings.size()][2];
+        int threads = Math.max(1, Math.min(weightings.size(), Runtime.getRuntime().availableProcessors()));
+        Stream<Runnable> runnables = IntStream.range(0, weightings.size()).mapToObj(i -> () -> {
+            Weighting weighting = weightings.get(i);
+            AllEdgesIterator edge = baseGraph.getAllEdges();
+            while (edge.next()) {
+                // stop early if GraphHopper is closed while we are still reading the graph in the background
+                if (checksumsCancelled)
+                    return;
+                double weightFwd = weighting.calcEdgeWeight(edge, false);
                 if (Double.isInfinite(weightFwd)) weightFwd = -1;
                 weightFwd *= (i % 2 == 0) ? -1 : 1;
-                double weightBwd = weightings.get(i).calcEdgeWeight(edge, true);
+                double weightBwd = weighting.calcEdgeWeight(edge, true);
                 if (Double.isInfinite(weightBwd)) weightBwd = -1;
                 weightBwd *= (i % 2 == 0) ? -1 : 1;
-                checksums_fwd[i] += weightFwd;
-                checksums_bwd[i] += weightBwd;
+                checksums[i][0] += weightFwd;
+                checksums[i][1] += weightBwd;
             }
-        }
-        int index = 0;
-        for (Profile profile : profilesByName.values()) {
-            properties.put("checksum.fwd." + profile.getName(), checksums_fwd[index]);
-            properties.put("checksum.bwd." + profile.getName(), checksums_bwd[index]);
-            logger.info("checksum.fwd." + profile.getName() + ": " + checksums_fwd[index]);
-            logger.info("checksum.bwd." + profile.getName() + ": " + checksums_bwd[index]);
-            index++;
-        }
-        logger.info("Calculating checksums took: " + sw.stop().getTimeString());
+        });
+        GHUtility.runConcurrently(runnables, threads);
+        return checksums;
+    }
+
+    /**
+     * @return true while the checksums of a loaded graph are calculated in the background
+     */
+    public boolean isCalculatingChecksums() {
+        return checksumThread != null;
+    }
+
+    /**
+     * @return the checksums of a loaded graph that do not match the ones stored during the import. The list is empty
+     * if the checksums match, were not calculated (see graph.calc_checksums) or are still being calculated.
+     */
+    public List<String> getChecksumProblems() {
+        return checksumProblems;
     }
 
     /**
@@ -1428,20 +1649,21 @@ public class GraphHopper {
     }
 
     protected void loadOrPrepareCH(boolean closeEarly) {
-        for (CHProfile profile : chPreparationHandler.getCHProfiles())
+        List<CHProfile> chProfiles = chPreparationHandler.getCHProfiles().stream().filter(p -> isPrepareProfile(p.getProfile())).toList();
+        for (CHProfile profile : chProfiles)
             if (!getCHProfileVersion(profile.getProfile()).isEmpty()
                     && !getCHProfileVersion(profile.getProfile()).equals("" + getProfileHash(profilesByName.get(profile.getProfile()))))
                 throw new IllegalArgumentException("CH preparation of " + profile.getProfile() + " already exists in storage and doesn't match configuration");
 
         // we load ch graphs that already exist and prepare the other ones
-        List<CHConfig> chConfigs = createCHConfigs(chPreparationHandler.getCHProfiles());
+        List<CHConfig> chConfigs = createCHConfigs(chProfiles);
         Map<String, RoutingCHGraph> loaded = chPreparationHandler.load(baseGraph.getBaseGraph(), chConfigs);
         List<CHConfig> configsToPrepare = chConfigs.stream().filter(c -> !loaded.containsKey(c.getName())).collect(Collectors.toList());
         Map<String, PrepareContractionHierarchies.Result> prepared = prepareCH(closeEarly, configsToPrepare);
 
         // we map all profile names for which there is CH support to the according CH graphs
         chGraphs = new LinkedHashMap<>();
-        for (CHProfile profile : chPreparationHandler.getCHProfiles()) {
+        for (CHProfile profile : chProfiles) {
             if (loaded.containsKey(profile.getProfile()) && prepared.containsKey(profile.getProfile()))
                 throw new IllegalStateException("CH graph should be either loaded or prepared, but not both: " + profile.getProfile());
             else if (prepared.containsKey(profile.getProfile())) {
@@ -1453,6 +1675,15 @@ public class GraphHopper {
             } else
                 throw new IllegalStateException("CH graph should be either loaded or prepared: " + profile.getProfile());
         }
+        if (chUpperHierarchySize > 0)
+            chGraphs.replaceAll((profile, chGraph) -> {
+                if (!(chGraph instanceof RoutingCHGraphImpl))
+                    return chGraph;
+                RoutingCHGraphImpl result = ((RoutingCHGraphImpl) chGraph).withUpperHierarchy(chUpperHierarchySize);
+                logger.info("Created CH " + result.getUpperHierarchy() + " for profile '" + profile + "', "
+                        + Helper.nf(result.getUpperHierarchy().getCapacity() / Helper.MB) + "MB");
+                return result;
+            });
     }
 
     protected Map<String, PrepareContractionHierarchies.Result> prepareCH(boolean closeEarly, List<CHConfig> configsToPrepare) {
@@ -1467,13 +1698,16 @@ public class GraphHopper {
      * For landmarks it is required to always call this method: either it creates the landmark data or it loads it.
      */
     protected void loadOrPrepareLM(boolean closeEarly) {
-        for (LMProfile profile : lmPreparationHandler.getLMProfiles())
+        List<LMProfile> lmProfiles = lmPreparationHandler.getLMProfiles().stream().filter(p -> isPrepareProfile(p.getProfile())).toList();
+        // the preparations used by other profiles are needed as well
+        Set<String> preparationProfiles = lmProfiles.stream().map(p -> p.usesOtherPreparation() ? p.getPreparationProfile() : p.getProfile()).collect(Collectors.toSet());
+        for (LMProfile profile : lmProfiles)
             if (!getLMProfileVersion(profile.getProfile()).isEmpty()
                     && !getLMProfileVersion(profile.getProfile()).equals("" + getProfileHash(profilesByName.get(profile.getProfile()))))
                 throw new IllegalArgumentException("LM preparation of " + profile.getProfile() + " already exists in storage and doesn't match configuration");
 
         // we load landmark storages that already exist and prepare the other ones
-        List<LMConfig> lmConfigs = createLMConfigs(lmPreparationHandler.getLMProfiles());
+        List<LMConfig> lmConfigs = createLMConfigs(lmPreparationHandler.getLMProfiles().stream().filter(p -> preparationProfiles.contains(p.getProfile())).toList());
         List<LandmarkStorage> loaded = lmPreparationHandler.load(lmConfigs, baseGraph, encodingManager);
         List<LMConfig> loadedConfigs = loaded.stream().map(LandmarkStorage::getLMConfig).toList();
         List<LMConfig> configsToPrepare = lmConfigs.stream().filter(c -> !loadedConfigs.contains(c)).collect(Collectors.toList());
@@ -1481,7 +1715,7 @@ public class GraphHopper {
 
         // we map all profile names for which there is LM support to the according LM storages
         landmarks = new LinkedHashMap<>();
-        for (LMProfile lmp : lmPreparationHandler.getLMProfiles()) {
+        for (LMProfile lmp : lmProfiles) {
             // cross-querying
             String prepProfile = lmp.usesOtherPreparation() ? lmp.getPreparationProfile() : lmp.getProfile();
             Optional<LandmarkStorage> loadedLMS = loaded.stream().filter(lms -> lms.getLMConfig().getName().equals(prepProfile)).findFirst();
@@ -1496,6 +1730,10 @@ public class GraphHopper {
         }
     }
 
+    private boolean isPrepareProfile(String profile) {
+        return prepareOnlyProfiles.isEmpty() || prepareOnlyProfiles.contains(profile);
+    }
+
     protected List<PrepareLandmarks> prepareLM(boolean closeEarly, List<LMConfig> configsToPrepare) {
         if (!configsToPrepare.isEmpty())
             ensureWriteAccess();
@@ -1511,6 +1749,7 @@ public class GraphHopper {
         PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(baseGraph.getBaseGraph(), buildSubnetworkRemovalJobs());
         preparation.setMinNetworkSize(minNetworkSize);
         preparation.setThreads(subnetworksThreads);
+        preparation.setParallelSCC(subnetworksParallelSCC);
         preparation.doWork();
         logger.info("nodes: " + Helper.nf(baseGraph.getNodes()) + ", edges: " + Helper.nf(baseGraph.getEdges()));
     }
@@ -1539,6 +1778,15 @@ public class GraphHopper {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        Thread thread = checksumThread;
+        if (thread != null) {
+            checksumsCancelled = true;
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
         if (baseGraph != null)
             baseGraph.close();
         if (properties != null)
@@ -0,0 +1,249 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A map for non-negative keys that are dense, like the node ids of a sorted planet file. The key range is split into
+ * pages of 1024 keys. The values of the keys of a page are stored in key order, so a lookup is an array access and
+ * finding the position of the key in its page instead of a tree descent. A page with up to 64 keys stores their
+ * sorted offsets, a page with more keys uses a bitmap of the keys it contains and a few bit counts. Pages are only
+ * allocated when a key is added to them and only need space for the keys they contain.
+ * <p>
+ * The pages are grouped into chunks of 64 pages, which are also only allocated when they are used. So only the
+ * directory of the chunks grows with the largest key (4 bytes per 65536 keys) and key ranges with large gaps, like
+ * the node ids of an extract, are still stored reasonably compact.
+ * <p>
+ * Negative keys and keys that are too large for the pages are stored in a {@link GHLongLongBTree}.
+ */
+public class GHLongLongPagedArray implements LongLongMap {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int WORDS_PER_PAGE = PAGE_SIZE / 64;
+    // the sorted offsets of a sparse page need the same space as a bitmap for this number of keys
+    private static final int MAX_SPARSE_KEYS = 4 * WORDS_PER_PAGE;
+    private static final int CHUNK_BITS = 6;
+    private static final int PAGES_PER_CHUNK = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = PAGES_PER_CHUNK - 1;
+    // roughly the size of an empty chunk: object headers, three reference arrays and the counts
+    private static final int CHUNK_BYTES = 16 + 3 * (16 + 4 * PAGES_PER_CHUNK) + 16 + 4 * PAGES_PER_CHUNK;
+    // the chunk directory grows with the largest key, so we limit it to ~34 billion keys (currently there are ~13
+    // billion OSM node ids), this requires 2MB for the directory
+    private static final long MAX_PAGED_KEY = (1L << 35) - 1;
+
+    private final int bytesPerValue;
+    private final long emptyValue;
+    private final long maxValue;
+    private final GHLongLongBTree fallback;
+    private Chunk[] chunks;
+    private long pagedSize;
+    private long pagedBytes;
+
+    private static final class Chunk {
+        // per page either the sorted offsets of its keys (sparse) or the bitmap of its keys (dense) is set
+        final short[][] offsets = new short[PAGES_PER_CHUNK][];
+        final long[][] bitmaps = new long[PAGES_PER_CHUNK][];
+        final byte[][] values = new byte[PAGES_PER_CHUNK][];
+        final int[] counts = new int[PAGES_PER_CHUNK];
+    }
+
+    public GHLongLongPagedArray(int bytesPerValue, long emptyValue) {
+        if (bytesPerValue < 1 || bytesPerValue > 8)
+            throw new IllegalArgumentException("Values can have 1 to 8 bytes but requested was " + bytesPerValue);
+        this.bytesPerValue = bytesPerValue;
+        this.emptyValue = emptyValue;
+        // reserve one bit for negative values
+        this.maxValue = (1L << (bytesPerValue * 8 - 1)) - 1;
+        this.fallback = new GHLongLongBTree(200, bytesPerValue, emptyValue);
+        clear();
+    }
+
+    @Override
+    public long put(long key, long value) {
+        if (value > maxValue)
+            throw new IllegalArgumentException("Value " + value + " exceeded max value: " + maxValue
+                    + ". Increase bytesPerValue (" + bytesPerValue + ")");
+        if (value == emptyValue)
+            throw new IllegalArgumentException("Value cannot be the 'empty value' " + emptyValue);
+        if (key < 0 || key > MAX_PAGED_KEY)
+            return fallback.put(key, value);
+
+        int chunkIndex = (int) (key >>> (PAGE_BITS + CHUNK_BITS));
+        if (chunkIndex >= chunks.length) {
+            int newLength = (int) Math.min((MAX_PAGED_KEY >>> (PAGE_BITS + CHUNK_BITS)) + 1, Math.max(chunkIndex + 1L, (long) (chunks.length * 1.5)));
+            chunks = Arrays.copyOf(chunks, newLength);
+        }
+        Chunk chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = chunks[chunkIndex] = new Chunk();
+            pagedBytes += CHUNK_BYTES;
+        }
+        int page = (int) (key >>> PAGE_BITS) & CHUNK_MASK;
+        int offset = (int) key & PAGE_MASK;
+        int count = chunk.counts[page];
+        long[] bitmap = chunk.bitmaps[page];
+        int index;
+        if (bitmap != null) {
+            index = rank(bitmap, offset);
+            if ((bitmap[offset >>> 6] & (1L << offset)) != 0)
+                return replaceValue(chunk.values[page], index, value);
+        } else {
+            short[] offsets = chunk.offsets[page];
+            if (offsets == null) {
+                offsets = chunk.offsets[page] = new short[4];
+                chunk.values[page] = new byte[4 * bytesPerValue];
+                pagedBytes += 16 + 2 * 4 + 16 + 4 * bytesPerValue;
+            }
+            index = Arrays.binarySearch(offsets, 0, count, (short) offset);
+            if (index >= 0)
+                return replaceValue(chunk.values[page], index, value);
+            index = -index - 1;
+            if (count == MAX_SPARSE_KEYS) {
+                // switch to the bitmap, the index stays the same
+                bitmap = chunk.bitmaps[page] = new long[WORDS_PER_PAGE];
+                for (int i = 0; i < count; i++)
+                    bitmap[offsets[i] >>> 6] |= 1L << offsets[i];
+                chunk.offsets[page] = null;
+                pagedBytes += 8 * WORDS_PER_PAGE - 2 * offsets.length;
+            } else {
+                if (count == offsets.length) {
+                    int newLength = Math.min(MAX_SPARSE_KEYS, (int) (count * 1.5f));
+                    pagedBytes += 2 * (newLength - offsets.length);
+                    offsets = chunk.offsets[page] = Arrays.copyOf(offsets, newLength);
+                }
+                System.arraycopy(offsets, index, offsets, index + 1, count - index);
+                offsets[index] = (short) offset;
+            }
+        }
+        if (bitmap != null)
+            bitmap[offset >>> 6] |= 1L << offset;
+
+        byte[] pageValues = chunk.values[page];
+        if ((count + 1) * bytesPerValue > pageValues.length) {
+            // grow by 50% like the b-tree leafs do
+            int newLength = Math.min(PAGE_SIZE, Math.max(count + 1, (int) (count * 1.5f))) * bytesPerValue;
+            pagedBytes += newLength - pageValues.length;
+            pageValues = chunk.values[page] = Arrays.copyOf(pageValues, newLength);
+        }
+        System.arraycopy(pageValues, index * bytesPerValue, pageValues, (index + 1) * bytesPerValue, (count - index) * bytesPerValue);
+        setValue(pageValues, index, value);
+        chunk.counts[page] = count + 1;
+        pagedSize++;
+        return emptyValue;
+    }
+
+    private long replaceValue(byte[] pageValues, int index, long value) {
+        long old = getValue(pageValues, index);
+        setValue(pageValues, index, value);
+        return old;
+    }
+
+    @Override
+    public long get(long key) {
+        if (key < 0 || key > MAX_PAGED_KEY)
+            return fallback.get(key);
+        int chunkIndex = (int) (key >>> (PAGE_BITS + CHUNK_BITS));
+        if (chunkIndex >= chunks.length)
+            return emptyValue;
+        Chunk chunk = chunks[chunkIndex];
+        if (chunk == null)
+            return emptyValue;
+        int page = (int) (key >>> PAGE_BITS) & CHUNK_MASK;
+        int offset = (int) key & PAGE_MASK;
+        long[] bitmap = chunk.bitmaps[page];
+        if (bitmap != null) {
+            if ((bitmap[offset >>> 6] & (1L << offset)) == 0)
+                return emptyValue;
+            return getValue(chunk.values[page], rank(bitmap, offset));
+        }
+        short[] offsets = chunk.offsets[page];
+        if (offsets == null)
+            return emptyValue;
+        int index = Arrays.binarySearch(offsets, 0, chunk.counts[page], (short) offset);
+        return index < 0 ? emptyValue : getValue(chunk.values[page], index);
+    }
+
+    /**
+     * @return the number of keys in the page that are smaller than the key with the given offset
+     */
+    private static int rank(long[] bitmap, int offset) {
+        int word = offset >>> 6;
+        int rank = Long.bitCount(bitmap[word] & ((1L << offset) - 1));
+        for (int i = 0; i < word; i++)
+            rank += Long.bitCount(bitmap[i]);
+        return rank;
+    }
+
+    private long getValue(byte[] bytes, int index) {
+        int pos = index * bytesPerValue;
+        long res = 0;
+        for (int i = bytesPerValue - 1; i >= 0; i--)
+            res = (res << 8) | (bytes[pos + i] & 0xFF);
+        // restore the sign of negative values
+        int shift = 64 - 8 * bytesPerValue;
+        return (res << shift) >> shift;
+    }
+
+    private void setValue(byte[] bytes, int index, long value) {
+        int pos = index * bytesPerValue;
+        for (int i = 0; i < bytesPerValue; i++) {
+            bytes[pos + i] = (byte) value;
+            value >>= 8;
+        }
+    }
+
+    @Override
+    public long getSize() {
+        return pagedSize + fallback.getSize();
+    }
+
+    @Override
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    @Override
+    public void optimize() {
+        fallback.optimize();
+    }
+
+    /**
+     * @return memory usage in MB
+     */
+    @Override
+    public int getMemoryUsage() {
+        return Math.round((pagedBytes + 4L * chunks.length) / Helper.MB) + fallback.getMemoryUsage();
+    }
+
+    @Override
+    public void clear() {
+        chunks = new Chunk[0];
+        pagedSize = 0;
+        pagedBytes = 0;
+        fallback.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "paged entries: " + pagedSize + ", other entries: " + fallback.getSize();
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.carrotsearch.hppc.cursors.LongLongCursor;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.prep.PreparedPolygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A regular lat/lon grid of the values of a {@link ShortestPathTree}. The values are interpolated along the geometry
+ * of every edge of the tree and every grid point keeps the smallest value of the samples that fall into its cell.
+ * Isolines are computed with marching squares directly on the grid, which is much cheaper than a Delaunay
+ * triangulation of the reached nodes, see {@link JTSTriangulator}.
+ */
+public class IsochroneRaster {
+
+    /**
+     * The default limit for the number of grid cells of {@link #rasterize}. The values, a copy of them in
+     * {@link #fillGaps} and e.g. an image of the grid each take about 4 bytes per cell.
+     */
+    public static final int DEFAULT_MAX_CELLS = 1_000_000;
+
+    private final double minLon, minLat;
+    private final double cellLon, cellLat;
+    private final int width, height;
+    private final float[] values;
+
+    IsochroneRaster(double minLon, double minLat, double cellLon, double cellLat, int width, int height) {
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.cellLon = cellLon;
+        this.cellLat = cellLat;
+        this.width = width;
+        this.height = height;
+        this.values = new float[width * height];
+        Arrays.fill(values, Float.POSITIVE_INFINITY);
+    }
+
+    public static IsochroneRaster rasterize(QueryGraph queryGraph, ShortestPathTree shortestPathTree, int startNode,
+                                            ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double cellSizeInMeters) {
+        return rasterize(queryGraph, shortestPathTree, startNode, fz, cellSizeInMeters, DEFAULT_MAX_CELLS);
+    }
+
+    /**
+     * Runs the specified search and rasterizes all reached edges.
+     *
+     * @param cellSizeInMeters the edge length of the grid cells. The longitudinal size in degrees is derived
+     *                         at the latitude of the start node.
+     * @param maxCells         the grid is rejected with an IllegalArgumentException if it would have more cells
+     */
+    public static IsochroneRaster rasterize(QueryGraph queryGraph, ShortestPathTree shortestPathTree, int startNode,
+                                            ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double cellSizeInMeters, int maxCells) {
+        if (cellSizeInMeters <= 0)
+            throw new IllegalArgumentException("grid resolution must be positive but was " + cellSizeInMeters);
+        NodeAccess na = queryGraph.getNodeAccess();
+        double cellLat = cellSizeInMeters / DistanceCalcEarth.METERS_PER_DEGREE;
+        double cellLon = cellLat / Math.max(0.01, Math.cos(Math.toRadians(na.getLat(startNode))));
+        double step = 0.5 * Math.min(cellLat, cellLon);
+        // we do not know the extent of the grid before the search is done, so we keep the labels and determine the
+        // bounds from the edge geometries first. This way we can reject a grid that is too large before sampling.
+        List<ShortestPathTree.IsoLabel> labels = new ArrayList<>();
+        shortestPathTree.search(startNode, labels::add);
+        double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (ShortestPathTree.IsoLabel label : labels) {
+            if (label.parent == null) {
+                minLat = Math.min(minLat, na.getLat(label.node));
+                maxLat = Math.max(maxLat, na.getLat(label.node));
+                minLon = Math.min(minLon, na.getLon(label.node));
+                maxLon = Math.max(maxLon, na.getLon(label.node));
+                continue;
+            }
+            PointList points = queryGraph.getEdgeIteratorState(label.edge, label.node).fetchWayGeometry(FetchMode.ALL);
+            for (int i = 0; i < points.size(); i++) {
+                minLat = Math.min(minLat, points.getLat(i));
+                maxLat = Math.max(maxLat, points.getLat(i));
+                minLon = Math.min(minLon, points.getLon(i));
+                maxLon = Math.max(maxLon, points.getLon(i));
+            }
+        }
+        // one unreached grid point on every side, so that all isolines are closed
+        long width = (long) Math.ceil((maxLon - minLon) / cellLon) + 3;
+        long height = (long) Math.ceil((maxLat - minLat) / cellLat) + 3;
+        if (width * height > maxCells)
+            throw new IllegalArgumentException("Too many grid cells (" + width * height + "), the maximum is " + maxCells + ". Please use a coarser grid resolution.");
+        IsochroneRaster raster = new IsochroneRaster(minLon - cellLon, minLat - cellLat, cellLon, cellLat, (int) width, (int) height);
+
+        for (ShortestPathTree.IsoLabel label : labels) {
+            double z = fz.applyAsDouble(label);
+            if (label.parent == null) {
+                raster.addSample(na.getLat(label.node), na.getLon(label.node), z);
+                continue;
+            }
+            double parentZ = fz.applyAsDouble(label.parent);
+            EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edge, label.node);
+            PointList points = edge.fetchWayGeometry(FetchMode.ALL);
+            double[] cumulative = new double[points.size()];
+            for (int i = 1; i < points.size(); i++) {
+                cumulative[i] = cumulative[i - 1] + planeDistance(points, i - 1, i);
+            }
+            double length = cumulative[points.size() - 1];
+            for (int i = 0; i < points.size(); i++) {
+                int samples = i == 0 ? 1 : Math.max(1, (int) Math.ceil(planeDistance(points, i - 1, i) / step));
+                for (int s = samples - 1; s >= 0; s--) {
+                    // s == 0 is the point itself, the others lie on the segment towards the previous point
+                    double f = (double) s / samples;
+                    double lat = i == 0 ? points.getLat(0) : points.getLat(i) + f * (points.getLat(i - 1) - points.getLat(i));
+                    double lon = i == 0 ? points.getLon(0) : points.getLon(i) + f * (points.getLon(i - 1) - points.getLon(i));
+                    double position = i == 0 ? 0 : cumulative[i] - f * (cumulative[i] - cumulative[i - 1]);
+                    raster.addSample(lat, lon, length > 0 ? parentZ + (z - parentZ) * position / length : z);
+                }
+            }
+        }
+        return raster;
+    }
+
+    private void addSample(double lat, double lon, double z) {
+        int x = (int) Math.round((lon - minLon) / cellLon);
+        int y = (int) Math.round((lat - minLat) / cellLat);
+        int index = y * width + x;
+        values[index] = Math.min(values[index], (float) z);
+    }
+
+    private static double planeDistance(PointList points, int i, int j) {
+        double dLat = points.getLat(j) - points.getLat(i);
+        double dLon = (points.getLon(j) - points.getLon(i)) * Math.cos(Math.toRadians(points.getLat(i)));
+        return Math.sqrt(dLat * dLat + dLon * dLon);
+    }
+
+    /**
+     * Assigns the smallest value of its reached neighbours to every unreached grid point that is not on the border,
+     * and repeats this the specified number of times. This closes small gaps between roads that would otherwise
+     * show up as holes.
+     */
+    public void fillGaps(int passes) {
+        for (int pass = 0; pass < passes; pass++) {
+            float[] filled = values.clone();
+            for (int y = 1; y < height - 1; y++) {
+                for (int x = 1; x < width - 1; x++) {
+                    if (values[y * width + x] != Float.POSITIVE_INFINITY)
+                        continue;
+                    float min = Float.POSITIVE_INFINITY;
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dx = -1; dx <= 1; dx++) {
+                            min = Math.min(min, values[(y + dy) * width + x + dx]);
+                        }
+                    }
+                    filled[y * width + x] = min;
+                }
+            }
+            // keep the border unreached, so that all isolines stay closed
+            for (int x = 0; x < width; x++) {
+                filled[x] = Float.POSITIVE_INFINITY;
+                filled[(height - 1) * width + x] = Float.POSITIVE_INFINITY;
+            }
+            for (int y = 0; y < height; y++) {
+                filled[y * width] = Float.POSITIVE_INFINITY;
+                filled[y * width + width - 1] = Float.POSITIVE_INFINITY;
+            }
+            System.arraycopy(filled, 0, values, 0, values.length);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getMinLon() {
+        return minLon;
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getCellLon() {
+        return cellLon;
+    }
+
+    public double getCellLat() {
+        return cellLat;
+    }
+
+    /**
+     * @return the value at the specified grid point, x = 0 is the western and y = 0 the southern-most column
+     * or row. Unreached grid points have the value {@link Float#POSITIVE_INFINITY}.
+     */
+    public float getValue(int x, int y) {
+        return values[y * width + x];
+    }
+
+    void setValue(int x, int y, float value) {
+        values[y * width + x] = value;
+    }
+
+    /**
+     * Computes the area with values smaller than or equal to z with marching squares. Crossings are linearly
+     * interpolated between the grid points, or put in the middle if one of them is unreached, and saddle cells are
+     * resolved with the average value of the cell.
+     */
+    public MultiPolygon computeIsoline(double z, GeometryFactory geometryFactory) {
+        // Every segment connects two crossings on grid edges and has the inside on its left. Each crossing ends one
+        // segment and starts another one, so following the segments yields closed rings.
+        LongLongHashMap next = new LongLongHashMap();
+        long[] crossings = new long[4];
+        boolean[] leaving = new boolean[4];
+        for (int y = 0; y < height - 1; y++) {
+            for (int x = 0; x < width - 1; x++) {
+                // walk around the cell counterclockwise
+                boolean a = inside(x, y, z), b = inside(x + 1, y, z), c = inside(x + 1, y + 1, z), d = inside(x, y + 1, z);
+                if (a == b && b == c && c == d)
+                    continue;
+                int n = 0;
+                if (a != b) {
+                    crossings[n] = horizontalEdge(x, y);
+                    leaving[n++] = a;
+                }
+                if (b != c) {
+                    crossings[n] = verticalEdge(x + 1, y);
+                    leaving[n++] = b;
+                }
+                if (c != d) {
+                    crossings[n] = horizontalEdge(x, y + 1);
+                    leaving[n++] = c;
+                }
+                if (d != a) {
+                    crossings[n] = verticalEdge(x, y);
+                    leaving[n++] = d;
+                }
+                if (n == 2) {
+                    if (leaving[0])
+                        next.put(crossings[0], crossings[1]);
+                    else
+                        next.put(crossings[1], crossings[0]);
+                } else {
+                    // saddle: connect the two inside corners if the center is inside, otherwise separate them
+                    boolean centerInside = (getValue(x, y) + getValue(x + 1, y) + getValue(x + 1, y + 1) + getValue(x, y + 1)) / 4 <= z;
+                    for (int i = 0; i < 4; i++) {
+                        if (leaving[i])
+                            next.put(crossings[i], crossings[centerInside ? (i + 1) % 4 : (i + 3) % 4]);
+                    }
+                }
+            }
+        }
+
+        List<LinearRing> shells = new ArrayList<>();
+        List<LinearRing> holes = new ArrayList<>();
+        LongLongHashMap remaining = new LongLongHashMap(next);
+        for (LongLongCursor cursor : next) {
+            if (!remaining.containsKey(cursor.key))
+                continue;
+            List<Coordinate> coordinates = new ArrayList<>();
+            long crossing = cursor.key;
+            do {
+                coordinates.add(crossingCoordinate(crossing, z));
+                long following = remaining.get(crossing);
+                remaining.remove(crossing);
+                crossing = following;
+            } while (crossing != cursor.key);
+            coordinates.add(coordinates.get(0));
+            if (coordinates.size() < 4)
+                continue;
+            LinearRing ring = geometryFactory.createLinearRing(coordinates.toArray(new Coordinate[0]));
+            double signedArea = signedArea(coordinates);
+            if (signedArea > 0)
+                shells.add(ring);
+            else if (signedArea < 0)
+                holes.add(ring);
+        }
+        return geometryFactory.createMultiPolygon(punchHoles(shells, holes, geometryFactory));
+    }
+
+    private boolean inside(int x, int y, double z) {
+        return getValue(x, y) <= z;
+    }
+
+    private long horizontalEdge(int x, int y) {
+        return 2L * ((long) y * width + x);
+    }
+
+    private long verticalEdge(int x, int y) {
+        return 2L * ((long) y * width + x) + 1;
+    }
+
+    private Coordinate crossingCoordinate(long crossing, double z) {
+        long gridPoint = crossing / 2;
+        int x = (int) (gridPoint % width);
+        int y = (int) (gridPoint / width);
+        boolean vertical = crossing % 2 == 1;
+        float v0 = getValue(x, y);
+        float v1 = vertical ? getValue(x, y + 1) : getValue(x + 1, y);
+        double t = Float.isInfinite(v0) || Float.isInfinite(v1) ? 0.5 : (z - v0) / (v1 - v0);
+        double lon = minLon + (x + (vertical ? 0 : t)) * cellLon;
+        double lat = minLat + (y + (vertical ? t : 0)) * cellLat;
+        return new Coordinate(lon, lat);
+    }
+
+    /**
+     * @return the signed area of the ring, positive if it is counterclockwise
+     */
+    private static double signedArea(List<Coordinate> ring) {
+        double sum = 0;
+        for (int i = 0; i < ring.size() - 1; i++) {
+            sum += ring.get(i).x * ring.get(i + 1).y - ring.get(i + 1).x * ring.get(i).y;
+        }
+        return sum / 2;
+    }
+
+    private static Polygon[] punchHoles(List<LinearRing> shells, List<LinearRing> holes, GeometryFactory geometryFactory) {
+        List<PreparedPolygon> preparedShells = new ArrayList<>(shells.size());
+        List<List<LinearRing>> holesPerShell = new ArrayList<>(shells.size());
+        for (LinearRing shell : shells) {
+            preparedShells.add(new PreparedPolygon(geometryFactory.createPolygon(shell)));
+            holesPerShell.add(new ArrayList<>());
+        }
+        for (LinearRing hole : holes) {
+            // a hole can lie within an island within another hole, so we take the smallest shell that contains it
+            int best = -1;
+            for (int i = 0; i < preparedShells.size(); i++) {
+                if (preparedShells.get(i).contains(hole) && (best < 0 || preparedShells.get(i).getGeometry().getArea() < preparedShells.get(best).getGeometry().getArea()))
+                    best = i;
+            }
+            if (best < 0)
+                throw new IllegalStateException("Found a hole without a shell.");
+            holesPerShell.get(best).add(hole);
+        }
+        Polygon[] polygons = new Polygon[shells.size()];
+        for (int i = 0; i < shells.size(); i++) {
+            polygons[i] = geometryFactory.createPolygon(shells.get(i), holesPerShell.get(i).toArray(new LinearRing[0]));
+        }
+        return polygons;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntArrayDeque;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.routing.PHAST;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.WEIGHT;
+
+/**
+ * A {@link ShortestPathTree} for node-based CH graphs that is computed with {@link PHAST} instead of a Dijkstra
+ * search. The shortcuts of the resulting tree are replaced by their last original edge, so the labels form a tree on
+ * the original graph, like the ones of the flexible search. Only the weight can be used to limit the search, for time
+ * and distance limits the whole graph is explored.
+ */
+public class ShortestPathTreeCH extends ShortestPathTree {
+
+    private final RoutingCHGraph chGraph;
+    private final PHAST phast;
+    private final ArrayList<IsoLabel> labels = new ArrayList<>();
+
+    /**
+     * @param graph        the graph the CH graph is based on, i.e. the query graph if the start is a snap
+     * @param nodesByLevel see {@link PHAST#sortNodesByLevel}
+     */
+    public ShortestPathTreeCH(Graph graph, RoutingCHGraph chGraph, int[] nodesByLevel, boolean reverseFlow) {
+        super(graph, chGraph.getWeighting(), reverseFlow, TraversalMode.NODE_BASED);
+        this.chGraph = chGraph;
+        this.phast = new PHAST(chGraph, nodesByLevel, reverseFlow);
+    }
+
+    @Override
+    public void search(int from, Consumer<IsoLabel> consumer) {
+        checkAlreadyRun();
+        if (exploreType == WEIGHT)
+            phast.setWeightLimit(limit);
+        phast.calc(from);
+
+        int nodes = chGraph.getNodes();
+        int[] prevNodes = new int[nodes];
+        int[] prevEdges = new int[nodes];
+        Arrays.fill(prevNodes, -1);
+        IntArrayList reached = new IntArrayList();
+        for (int node = 0; node < nodes; node++) {
+            if (node == from || Double.isInfinite(phast.getWeight(node)))
+                continue;
+            reached.add(node);
+            RoutingCHEdgeIteratorState edge = chGraph.getEdgeIteratorState(phast.getParentEdge(node), node);
+            // the original edge of a shortcut next to the node is on the shortest path as well
+            while (edge.isShortcut()) {
+                RoutingCHEdgeIteratorState skipped = chGraph.getEdgeIteratorState(edge.getSkippedEdge2(), node);
+                edge = skipped != null ? skipped : chGraph.getEdgeIteratorState(edge.getSkippedEdge1(), node);
+            }
+            prevNodes[node] = edge.getBaseNode();
+            prevEdges[node] = edge.getOrigEdge();
+        }
+
+        long[] times = new long[nodes];
+        double[] distances = new double[nodes];
+        Arrays.fill(times, -1);
+        times[from] = 0;
+        IntArrayDeque stack = new IntArrayDeque();
+        for (int i = 0; i < reached.size(); i++) {
+            for (int node = reached.get(i); times[node] < 0; node = prevNodes[node]) {
+                stack.addLast(node);
+                if (stack.size() > nodes)
+                    throw new IllegalStateException("Shortest path tree contains a cycle at node " + node);
+            }
+            while (!stack.isEmpty()) {
+                int node = stack.removeLast();
+                EdgeIteratorState edge = graph.getEdgeIteratorState(prevEdges[node], node);
+                times[node] = times[prevNodes[node]] + weighting.calcEdgeMillis(edge, reverseFlow);
+                distances[node] = distances[prevNodes[node]] + edge.getDistance();
+            }
+        }
+
+        IntArrayList result = new IntArrayList();
+        result.add(from);
+        for (int i = 0; i < reached.size(); i++) {
+            int node = reached.get(i);
+            if (getExploreValue(node, times, distances) <= limit)
+                result.add(node);
+        }
+        // report the labels in the same order as the Dijkstra search, the parents always come first
+        int[] order = IndirectSort.mergesort(0, result.size(), (a, b) -> Double.compare(phast.getWeight(result.get(a)), phast.getWeight(result.get(b))));
+        IsoLabel[] labelsByNode = new IsoLabel[nodes];
+        for (int index : order) {
+            int node = result.get(index);
+            // with zero weight edges the parent can have the same weight
+            for (int n = node; labelsByNode[n] == null; n = prevNodes[n]) {
+                stack.addLast(n);
+                if (n == from)
+                    break;
+            }
+            while (!stack.isEmpty()) {
+                int n = stack.removeLast();
+                IsoLabel parent = n == from ? null : labelsByNode[prevNodes[n]];
+                labelsByNode[n] = new IsoLabel(n, n == from ? EdgeIterator.NO_EDGE : prevEdges[n], phast.getWeight(n), times[n], distances[n], parent);
+                labels.add(labelsByNode[n]);
+                consumer.accept(labelsByNode[n]);
+            }
+        }
+    }
+
+    private double getExploreValue(int node, long[] times, double[] distances) {
+        switch (exploreType) {
+            case TIME:
+                return times[node];
+            case DISTANCE:
+                return distances[node];
+            default:
+                return phast.getWeight(node);
+        }
+    }
+
+    @Override
+    public ArrayList<IsoLabel> getIsochroneEdges(double z) {
+        ArrayList<IsoLabel> result = new ArrayList<>();
+        for (IsoLabel label : labels) {
+            if (label.parent != null && (getExploreValue(label) > z ^ getExploreValue(label.parent) > z))
+                result.add(label);
+        }
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "reachability|phast";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return phast.getVisitedNodes();
+    }
+}
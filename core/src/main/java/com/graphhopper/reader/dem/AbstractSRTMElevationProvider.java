@@ -17,7 +17,6 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.util.Downloader;
 import com.graphhopper.util.Helper;
@@ -39,7 +38,7 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
     // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
+    private final HeightTileCache<Integer> cacheData = createTileCache();
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -61,13 +60,7 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     @Override
     public void release() {
         cacheData.clear();
-        if (dir != null) {
-            // for memory mapped type we remove temporary files
-            if (autoRemoveTemporary)
-                dir.clear();
-            else
-                dir.close();
-        }
+        super.release();
     }
 
     int down(double val) {
@@ -92,14 +85,11 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
             if (!cacheDir.exists())
                 cacheDir.mkdirs();
 
-            int minLat = down(lat);
-            int minLon = down(lon);
-
             String fileName = getFileName(lat, lon);
             if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
                 return 0;
 
-            DataAccess heights = getDirectory().create("dem" + intKey);
+            DataAccess heights = createHeights("dem" + intKey);
             boolean loadExisting = false;
             try {
                 loadExisting = heights.loadExisting();
@@ -107,29 +97,12 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
                 logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
             }
 
-            if (!loadExisting) {
-                try {
-                    updateHeightsFromFile(lat, lon, heights);
-                } catch (FileNotFoundException ex) {
-                    demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
-                    demProvider.setHeights(heights);
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.create(10)
-                            .flush();
-                    return 0;
-                }
-            }
-
-            int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
-            if (width == 0)
-                width = DEFAULT_WIDTH;
+            if (!loadExisting)
+                fillHeights(lat, lon, heights);
 
-            demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
+            demProvider = createHeightTile(lat, lon, heights);
             cacheData.put(intKey, demProvider);
-            demProvider.setInterpolate(interpolate);
-            demProvider.setHeights(heights);
+            prefetchNeighbors(lat, lon);
         }
 
         if (demProvider.isSeaLevel())
@@ -138,6 +111,49 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
         return demProvider.getHeight(lat, lon);
     }
 
+    private HeightTile createHeightTile(double lat, double lon, DataAccess heights) {
+        int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
+        if (width == 0)
+            width = DEFAULT_WIDTH;
+        HeightTile tile = new HeightTile(down(lat), down(lon), width, width, precision, DEGREE, DEGREE);
+        tile.setInterpolate(interpolate);
+        tile.setHeights(heights);
+        return tile;
+    }
+
+    /**
+     * Writes the heights of the tile of the given coordinates into the given (not yet created) heights. If there is
+     * no file for this tile the heights are marked as sea level, so the tile created from them is sea level too, also
+     * after loading them again.
+     */
+    private void fillHeights(double lat, double lon, DataAccess heights) {
+        try {
+            updateHeightsFromFile(lat, lon, heights);
+        } catch (FileNotFoundException ex) {
+            HeightTile.createSeaLevel(heights);
+        }
+    }
+
+    private void prefetchNeighbors(double lat, double lon) {
+        if (prefetchThreads <= 0)
+            return;
+        // use the center of the tile to avoid rounding issues at its borders
+        double centerLat = down(lat) + DEGREE / 2.0;
+        double centerLon = down(lon) + DEGREE / 2.0;
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLon = -1; dLon <= 1; dLon++) {
+                double neighborLat = centerLat + dLat * DEGREE;
+                double neighborLon = centerLon + dLon * DEGREE;
+                if ((dLat == 0 && dLon == 0) || neighborLat >= MAX_LAT || neighborLat <= MIN_LAT || neighborLon < -180 || neighborLon > 180)
+                    continue;
+                String fileName = getFileName(neighborLat, neighborLon);
+                if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
+                    continue;
+                prefetch("dem" + calcIntKey(neighborLat, neighborLon), heights -> fillHeights(neighborLat, neighborLon, heights));
+            }
+        }
+    }
+
     private void updateHeightsFromFile(double lat, double lon, DataAccess heights) throws FileNotFoundException {
         try {
             String zippedURL = baseUrl + getDownloadURL(lat, lon);
@@ -25,8 +25,6 @@ import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider that reads tiff files.
@@ -34,7 +32,7 @@ import java.util.Map;
  * @author Robin Boldt
  */
 public abstract class AbstractTiffElevationProvider extends TileBasedElevationProvider {
-    private final Map<String, HeightTile> cacheData = new HashMap<>();
+    private final HeightTileCache<String> cacheData = createTileCache();
     final double precision = 1e7;
 
     private final int WIDTH;
@@ -58,13 +56,7 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
     @Override
     public void release() {
         cacheData.clear();
-        if (dir != null) {
-            // for memory mapped type we remove temporary files
-            if (autoRemoveTemporary)
-                dir.clear();
-            else
-                dir.close();
-        }
+        super.release();
     }
 
     /**
@@ -111,14 +103,8 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
             if (!cacheDir.exists())
                 cacheDir.mkdirs();
 
-            int minLat = getMinLatForTile(lat);
-            int minLon = getMinLonForTile(lon);
-            // less restrictive against boundary checking
-            demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
-            demProvider.setInterpolate(interpolate);
-
-            cacheData.put(name, demProvider);
-            DataAccess heights = getDirectory().create(name + ".gh");
+            demProvider = createHeightTile(lat, lon);
+            DataAccess heights = createHeights(name + ".gh");
             demProvider.setHeights(heights);
             boolean loadExisting = false;
             try {
@@ -127,28 +113,10 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
                 logger.warn("cannot load " + name + ", error: " + ex.getMessage());
             }
 
-            if (!loadExisting) {
-                File zipFile = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
-                if (!zipFile.exists())
-                    try {
-                        String zippedURL = getDownloadURL(lat, lon);
-                        downloadToFile(zipFile, zippedURL);
-                    } catch (SSLException ex) {
-                        throw new IllegalStateException("SSL problem with elevation provider " + getClass().getSimpleName(), ex);
-                    } catch (IOException ex) {
-                        demProvider.setSeaLevel(true);
-                        // use small size on disc and in-memory
-                        heights.create(10).flush();
-                        return 0;
-                    }
-
-                // short == 2 bytes
-                heights.create(2L * WIDTH * HEIGHT);
-
-                Raster raster = readFile(zipFile, name + ".tif");
-                fillDataAccessWithElevationData(raster, heights, WIDTH);
-
-            } // loadExisting
+            if (!loadExisting)
+                fillHeights(lat, lon, name, heights);
+            cacheData.put(name, demProvider);
+            prefetchNeighbors(lat, lon);
         }
 
         if (demProvider.isSeaLevel())
@@ -157,6 +125,57 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
         return demProvider.getHeight(lat, lon);
     }
 
+    private HeightTile createHeightTile(double lat, double lon) {
+        int minLat = getMinLatForTile(lat);
+        int minLon = getMinLonForTile(lon);
+        // less restrictive against boundary checking
+        HeightTile tile = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
+        tile.setInterpolate(interpolate);
+        return tile;
+    }
+
+    /**
+     * Downloads the file of the given tile if necessary and writes its heights into the given (not yet created)
+     * heights. If there is no file for this tile the heights are marked as sea level.
+     */
+    private void fillHeights(double lat, double lon, String name, DataAccess heights) {
+        File zipFile = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
+        if (!zipFile.exists())
+            try {
+                String zippedURL = getDownloadURL(lat, lon);
+                downloadToFile(zipFile, zippedURL);
+            } catch (SSLException ex) {
+                throw new IllegalStateException("SSL problem with elevation provider " + getClass().getSimpleName(), ex);
+            } catch (IOException ex) {
+                HeightTile.createSeaLevel(heights);
+                return;
+            }
+
+        // short == 2 bytes
+        heights.create(2L * WIDTH * HEIGHT);
+
+        Raster raster = readFile(zipFile, name + ".tif");
+        fillDataAccessWithElevationData(raster, heights, WIDTH);
+    }
+
+    private void prefetchNeighbors(double lat, double lon) {
+        if (prefetchThreads <= 0)
+            return;
+        // use the center of the tile to avoid rounding issues at its borders
+        double centerLat = getMinLatForTile(lat) + LAT_DEGREE / 2.0;
+        double centerLon = getMinLonForTile(lon) + LON_DEGREE / 2.0;
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLon = -1; dLon <= 1; dLon++) {
+                double neighborLat = centerLat + dLat * LAT_DEGREE;
+                double neighborLon = centerLon + dLon * LON_DEGREE;
+                if ((dLat == 0 && dLon == 0) || neighborLon < -180 || neighborLon > 180 || isOutsideSupportedArea(neighborLat, neighborLon))
+                    continue;
+                String name = getFileName(neighborLat, neighborLon);
+                prefetch(name + ".gh", heights -> fillHeights(neighborLat, neighborLon, name, heights));
+            }
+        }
+    }
+
     abstract Raster readFile(File file, String tifName);
 
     /**
@@ -32,6 +32,8 @@ import java.io.IOException;
  * @author Peter Karich
  */
 public class HeightTile {
+    // the width of SRTM tiles is stored in the first header, so the sea level marker uses the second one
+    private static final int SEA_LEVEL_BYTE_INDEX = 4;
     private final int minLat;
     private final int minLon;
     private final int width;
@@ -65,19 +67,47 @@ public class HeightTile {
         return this;
     }
 
+    /**
+     * @return true if there is no data for this tile. Heights that are too small for this tile are treated as sea
+     * level as well, so they are never read out of bounds.
+     */
     public boolean isSeaLevel() {
-        return heights.getHeader(0) == 1;
+        return heights.getHeader(SEA_LEVEL_BYTE_INDEX) == 1 || heights.getCapacity() < 2L * width * height;
     }
 
+    /**
+     * Marks the heights of this tile as sea level. The marker is stored in the header of the heights, so it is kept
+     * when they are flushed and loaded again.
+     */
     public HeightTile setSeaLevel(boolean b) {
-        heights.setHeader(0, b ? 1 : 0);
+        heights.setHeader(SEA_LEVEL_BYTE_INDEX, b ? 1 : 0);
         return this;
     }
 
+    /**
+     * Creates the given heights for a tile without data: they are marked as sea level and only use a small size on
+     * disc and in-memory.
+     */
+    static void createSeaLevel(DataAccess heights) {
+        heights.setHeader(SEA_LEVEL_BYTE_INDEX, 1);
+        heights.create(10).flush();
+    }
+
     void setHeights(DataAccess da) {
         this.heights = da;
     }
 
+    DataAccess getHeights() {
+        return heights;
+    }
+
+    /**
+     * @return the number of bytes used to store the heights of this tile
+     */
+    long getBytes() {
+        return heights.getCapacity();
+    }
+
     private short getHeightSample(int x, int y) {
         // always keep in mind factor 2 because of short value
         return heights.getShort(2L * ((long) y * width + x));
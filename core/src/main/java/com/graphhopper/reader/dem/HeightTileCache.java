@@ -0,0 +1,80 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the recently used height tiles. If the heights of all tiles need more than the maximum number of bytes the
+ * least recently used tiles are removed from the cache and passed to the eviction listener, which closes their
+ * heights. The tile that was added last is never removed.
+ */
+class HeightTileCache<K> {
+    private final LinkedHashMap<K, HeightTile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongSupplier maxBytes;
+    private final Consumer<HeightTile> evictionListener;
+    private long bytes;
+
+    /**
+     * @param maxBytes is queried whenever a tile is added, because the configuration of the elevation provider can
+     *                 still change after the cache was created
+     */
+    HeightTileCache(LongSupplier maxBytes, Consumer<HeightTile> evictionListener) {
+        this.maxBytes = maxBytes;
+        this.evictionListener = evictionListener;
+    }
+
+    HeightTile get(K key) {
+        return tiles.get(key);
+    }
+
+    void put(K key, HeightTile tile) {
+        HeightTile old = tiles.put(key, tile);
+        if (old != null)
+            bytes -= old.getBytes();
+        bytes += tile.getBytes();
+        evict();
+    }
+
+    private void evict() {
+        long max = maxBytes.getAsLong();
+        Iterator<HeightTile> iter = tiles.values().iterator();
+        while (bytes > max && tiles.size() > 1) {
+            HeightTile tile = iter.next();
+            iter.remove();
+            bytes -= tile.getBytes();
+            evictionListener.accept(tile);
+        }
+    }
+
+    int size() {
+        return tiles.size();
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    void clear() {
+        tiles.clear();
+        bytes = 0;
+    }
+}
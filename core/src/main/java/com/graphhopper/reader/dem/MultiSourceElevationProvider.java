@@ -84,6 +84,26 @@ public class MultiSourceElevationProvider extends TileBasedElevationProvider {
         return this;
     }
 
+    /**
+     * The limit applies to each of the two providers.
+     */
+    @Override
+    public MultiSourceElevationProvider setMaxTileCacheBytes(long maxTileCacheBytes) {
+        srtmProvider.setMaxTileCacheBytes(maxTileCacheBytes);
+        globalProvider.setMaxTileCacheBytes(maxTileCacheBytes);
+        return this;
+    }
+
+    /**
+     * Each of the two providers uses this number of threads.
+     */
+    @Override
+    public MultiSourceElevationProvider setPrefetchThreads(int prefetchThreads) {
+        srtmProvider.setPrefetchThreads(prefetchThreads);
+        globalProvider.setPrefetchThreads(prefetchThreads);
+        return this;
+    }
+
     @Override
     public boolean canInterpolate() {
         return srtmProvider.canInterpolate() && globalProvider.canInterpolate();
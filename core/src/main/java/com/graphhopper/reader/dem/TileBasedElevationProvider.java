@@ -18,6 +18,7 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
@@ -26,6 +27,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider using tiles from files.
@@ -42,6 +49,13 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
     long sleep = 2000;
+    long maxTileCacheBytes = Long.MAX_VALUE;
+    int prefetchThreads = 0;
+    private ExecutorService prefetchExecutor;
+    // the tasks are only accessed by the thread that calls getEle
+    private final Map<String, Future<?>> prefetchTasks = new HashMap<>();
+    // heights that were closed when their tile was removed from the cache, their files still exist
+    private final Set<String> closedHeights = new HashSet<>();
 
     protected TileBasedElevationProvider(String cacheDirString) {
         File cacheDir = new File(cacheDirString);
@@ -103,6 +117,32 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return this;
     }
 
+    /**
+     * Limits the memory used for the heights of the tiles. If the limit is exceeded the least recently used tiles are
+     * closed. Their heights stay in the cache directory, so loading them again does not require decoding the original
+     * file again. This has only an effect for DATypes that store their data like MMAP, RAM_STORE or OFF_HEAP_STORE.
+     * Default is no limit.
+     */
+    public TileBasedElevationProvider setMaxTileCacheBytes(long maxTileCacheBytes) {
+        if (maxTileCacheBytes < 0)
+            throw new IllegalArgumentException("maxTileCacheBytes cannot be negative but was " + maxTileCacheBytes);
+        this.maxTileCacheBytes = maxTileCacheBytes;
+        return this;
+    }
+
+    /**
+     * If larger than zero the neighbouring tiles of every tile that is loaded are downloaded and decoded into the cache
+     * directory in the background using this number of threads, so they can be loaded quickly once they are needed.
+     * Note that this can download tiles that are not needed at all. This has only an effect for DATypes that store
+     * their data like MMAP, RAM_STORE or OFF_HEAP_STORE. Default is 0.
+     */
+    public TileBasedElevationProvider setPrefetchThreads(int prefetchThreads) {
+        if (prefetchThreads < 0)
+            throw new IllegalArgumentException("prefetchThreads cannot be negative but was " + prefetchThreads);
+        this.prefetchThreads = prefetchThreads;
+        return this;
+    }
+
     public TileBasedElevationProvider setDownloader(Downloader downloader) {
         this.downloader = downloader;
         return this;
@@ -121,4 +161,92 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return dir = new GHDirectory(cacheDir.getAbsolutePath(), daType);
     }
 
+    <K> HeightTileCache<K> createTileCache() {
+        // without storing the heights we would have to decode the closed tiles again
+        return new HeightTileCache<>(() -> daType.isStoring() ? maxTileCacheBytes : Long.MAX_VALUE, this::closeHeights);
+    }
+
+    private void closeHeights(HeightTile tile) {
+        String name = tile.getHeights().getName();
+        dir.close(name);
+        closedHeights.add(name);
+    }
+
+    /**
+     * Creates the heights with the given name. If they are still decoded by a prefetch task this waits until it is
+     * finished and forgets the task.
+     */
+    DataAccess createHeights(String name) {
+        // the heights are tracked by the directory from now on
+        Future<?> task = prefetchTasks.remove(name);
+        if (task != null) {
+            try {
+                task.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        closedHeights.remove(name);
+        return getDirectory().create(name);
+    }
+
+    /**
+     * Decodes the heights with the given name in the background if prefetching is enabled and they were not loaded or
+     * prefetched before. The decoder has to fill and flush the given heights and may throw an exception if this is not
+     * possible, then the heights are removed again.
+     */
+    void prefetch(String name, Consumer<DataAccess> decoder) {
+        if (prefetchThreads <= 0 || !daType.isStoring() || prefetchTasks.containsKey(name)
+                || closedHeights.contains(name) || getDirectory().getDAs().containsKey(name))
+            return;
+        if (prefetchExecutor == null)
+            prefetchExecutor = Executors.newFixedThreadPool(prefetchThreads, r -> {
+                Thread thread = new Thread(r, "elevation-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        prefetchTasks.put(name, prefetchExecutor.submit(() -> {
+            // a separate directory, because the directory of the provider is not thread-safe
+            Directory prefetchDir = new GHDirectory(cacheDir.getAbsolutePath(), daType);
+            try {
+                DataAccess heights = prefetchDir.create(name);
+                if (!heights.loadExisting())
+                    decoder.accept(heights);
+                prefetchDir.close();
+            } catch (Exception ex) {
+                logger.info("Could not prefetch " + name + ": " + ex.getMessage());
+                prefetchDir.clear();
+            }
+        }));
+    }
+
+    @Override
+    public void release() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            try {
+                if (!prefetchExecutor.awaitTermination(1, TimeUnit.MINUTES))
+                    logger.warn("Prefetching elevation tiles did not finish");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            prefetchExecutor = null;
+        }
+        if (dir != null) {
+            // for memory mapped type we remove temporary files
+            if (autoRemoveTemporary) {
+                // also remove the files of the closed and prefetched heights
+                for (String name : closedHeights)
+                    dir.create(name);
+                for (String name : prefetchTasks.keySet())
+                    if (!dir.getDAs().containsKey(name))
+                        dir.create(name);
+                dir.clear();
+            } else
+                dir.close();
+        }
+        closedHeights.clear();
+        prefetchTasks.clear();
+    }
+
 }
@@ -0,0 +1,195 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.graphhopper.coll.GHLongLongBTree;
+import com.graphhopper.coll.LongLongMap;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A map that stores the value of every key at the position key * bytesPerValue of a memory-mapped file, similar to the
+ * 'flat nodes' file of other OSM importers. The file is sparse, so only the parts of the key range that are actually
+ * used take up disk space, and the operating system decides which parts are kept in memory. This way the OSM node ids
+ * of the planet can be mapped without keeping them on the heap.
+ * <p>
+ * The keys of the OSM ways are not sorted, so writing them directly would dirty pages at random positions of a file
+ * that has bytesPerValue * max(OSM node id) bytes, which means many GB for the planet, and the operating system would
+ * write these pages back to disk over and over again. Therefore the values are first collected in a write-combining
+ * buffer on the heap. When it is full the buffered values are sorted by key and written to the file in one pass.
+ * Reading a part of the file that was never written does not require disk access, because the file is sparse.
+ * <p>
+ * Negative keys (the artificial node ids) and keys that are too large are stored in a {@link GHLongLongBTree}.
+ */
+class DataAccessLongLongMap implements LongLongMap {
+    // limits the (sparse) file size to 32GB * bytesPerValue
+    private static final long MAX_KEY = (1L << 35) - 1;
+    private static final int SEGMENT_SIZE = 1 << 26;
+
+    private final Directory dir;
+    private final String name;
+    private final int bytesPerValue;
+    private final long emptyValue;
+    private final long maxValue;
+    private final GHLongLongBTree fallback;
+    private final int maxBufferedEntries;
+    private final LongLongHashMap buffer;
+    private DataAccess da;
+    private long size;
+
+    /**
+     * @param bufferBytes the heap memory that can be used to buffer the writes into the file, 0 disables the buffer
+     */
+    DataAccessLongLongMap(Directory dir, String name, int bytesPerValue, long emptyValue, long bufferBytes) {
+        if (bytesPerValue < 1 || bytesPerValue > 8)
+            throw new IllegalArgumentException("Values can have 1 to 8 bytes but requested was " + bytesPerValue);
+        if (bufferBytes < 0)
+            throw new IllegalArgumentException("The buffer size cannot be negative but was " + bufferBytes);
+        this.dir = dir;
+        this.name = name;
+        this.bytesPerValue = bytesPerValue;
+        this.emptyValue = emptyValue;
+        // we store the difference to the empty value, so an unused part of the file (zeros) means there is no entry.
+        // reserve one bit for negative values and one value so the difference cannot overflow
+        this.maxValue = (1L << (bytesPerValue * 8 - 1)) - 2;
+        this.fallback = new GHLongLongBTree(200, bytesPerValue, emptyValue);
+        // the hash map uses 16 bytes per slot and a power of two as number of slots. we fill at most half of the slots
+        // so that the map is allocated only once and never grows beyond the budget
+        long slots = Long.highestOneBit(Math.min(bufferBytes / 16, 1 << 30));
+        this.maxBufferedEntries = (int) (slots / 2);
+        this.buffer = new LongLongHashMap(maxBufferedEntries);
+        this.da = dir.create(name, DAType.MMAP, SEGMENT_SIZE).create(SEGMENT_SIZE);
+    }
+
+    @Override
+    public long put(long key, long value) {
+        if (value > maxValue)
+            throw new IllegalArgumentException("Value " + value + " exceeded max value: " + maxValue
+                    + ". Increase bytesPerValue (" + bytesPerValue + ")");
+        if (value == emptyValue)
+            throw new IllegalArgumentException("Value cannot be the 'empty value' " + emptyValue);
+        if (key < 0 || key > MAX_KEY)
+            return fallback.put(key, value);
+
+        long old;
+        int index = buffer.indexOf(key);
+        if (buffer.indexExists(index)) {
+            old = buffer.indexReplace(index, value);
+        } else {
+            old = readFromFile(key);
+            if (maxBufferedEntries == 0) {
+                write(key, value);
+            } else {
+                if (buffer.size() >= maxBufferedEntries)
+                    flushBuffer();
+                buffer.put(key, value);
+            }
+        }
+        if (old == emptyValue)
+            size++;
+        return old;
+    }
+
+    /**
+     * Writes the buffered values in the order of their keys, which means in the order of their position in the file
+     */
+    private void flushBuffer() {
+        long[] keys = buffer.keys().toArray();
+        Arrays.sort(keys);
+        for (long key : keys)
+            write(key, buffer.get(key));
+        buffer.clear();
+    }
+
+    private void write(long key, long value) {
+        long pos = key * bytesPerValue;
+        da.ensureCapacity(pos + bytesPerValue);
+        long diff = value - emptyValue;
+        for (int i = 0; i < bytesPerValue; i++) {
+            da.setByte(pos + i, (byte) diff);
+            diff >>= 8;
+        }
+    }
+
+    @Override
+    public long get(long key) {
+        if (key < 0 || key > MAX_KEY)
+            return fallback.get(key);
+        int index = buffer.indexOf(key);
+        return buffer.indexExists(index) ? buffer.indexGet(index) : readFromFile(key);
+    }
+
+    private long readFromFile(long key) {
+        long pos = key * bytesPerValue;
+        if (pos + bytesPerValue > da.getCapacity())
+            return emptyValue;
+        return read(pos);
+    }
+
+    private long read(long pos) {
+        long res = 0;
+        for (int i = bytesPerValue - 1; i >= 0; i--)
+            res = (res << 8) | (da.getByte(pos + i) & 0xFF);
+        // restore the sign of the difference
+        int shift = 64 - 8 * bytesPerValue;
+        return ((res << shift) >> shift) + emptyValue;
+    }
+
+    @Override
+    public long getSize() {
+        return size + fallback.getSize();
+    }
+
+    @Override
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    @Override
+    public void optimize() {
+        fallback.optimize();
+    }
+
+    /**
+     * @return heap memory usage in MB, the memory-mapped file is not included
+     */
+    @Override
+    public int getMemoryUsage() {
+        return fallback.getMemoryUsage() + (int) ((long) buffer.keys.length * 16 / Helper.MB);
+    }
+
+    @Override
+    public void clear() {
+        dir.remove(name);
+        da = dir.create(name, DAType.MMAP, SEGMENT_SIZE).create(SEGMENT_SIZE);
+        size = 0;
+        buffer.clear();
+        fallback.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "file entries: " + size + ", buffered entries: " + buffer.size() + ", other entries: " + fallback.getSize()
+                + ", file size: " + da.getCapacity() / (1 << 20) + "MB";
+    }
+}
@@ -21,10 +21,14 @@ package com.graphhopper.reader.osm;
 import com.carrotsearch.hppc.LongScatterSet;
 import com.carrotsearch.hppc.LongSet;
 import com.graphhopper.coll.GHLongLongBTree;
+import com.graphhopper.coll.GHLongLongPagedArray;
 import com.graphhopper.coll.LongLongMap;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointAccess;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.GHPoint3D;
@@ -50,6 +54,9 @@ import java.util.stream.Collectors;
  *   tower coordinates there already to save memory during import.
  * - We store an additional mapping between OSM node Ids and tag indices that point into a list of node tags. We use
  *   a different mapping, because we store node tags for only a small fraction of all OSM nodes.
+ * - With the external memory mode the OSM node id mapping, the pillar node coordinates and the node tags are stored in
+ *   memory-mapped files in the graph folder instead of the heap, so that big files can be imported on machines with
+ *   less memory.
  * </pre>
  */
 class OSMNodeData {
@@ -60,7 +67,7 @@ class OSMNodeData {
     static final long CONNECTION_NODE = 2;
 
     // this map stores our internal node id for each OSM node
-    private final LongLongMap idsByOsmNodeIds;
+    private LongLongMap idsByOsmNodeIds;
 
     // here we store node coordinates, separated for pillar and tower nodes
     private final PillarInfo pillarNodes;
@@ -78,13 +85,34 @@ class OSMNodeData {
     private long nextPillarId = 0;
     // we use negative ids to create artificial OSM node ids
     private long nextArtificialOSMNodeId = -Long.MAX_VALUE;
+    // only used for the external memory mode
+    private final Directory externalDirectory;
 
     public OSMNodeData(PointAccess nodeAccess, Directory directory) {
-        // We use a b-tree that can store as many entries as there are longs. A tree is also more
-        // memory efficient, because there is no waste for empty entries, and it also avoids
-        // allocating big arrays when growing the size.
-        idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+        this(nodeAccess, directory, false, 0);
+    }
+
+    /**
+     * @param externalMemory   if true the temporary node data is stored in memory-mapped files in the location of the
+     *                         given directory, regardless of its default type
+     * @param externalBufferMB the heap memory in MB used to buffer the writes into the OSM node id file
+     */
+    public OSMNodeData(PointAccess nodeAccess, Directory directory, boolean externalMemory, int externalBufferMB) {
         towerNodes = nodeAccess;
+        if (externalMemory) {
+            if (Helper.isEmpty(directory.getLocation()))
+                throw new IllegalArgumentException("The external memory import requires a graph location");
+            externalDirectory = new GHDirectory(directory.getLocation(), DAType.MMAP).create();
+            idsByOsmNodeIds = new DataAccessLongLongMap(externalDirectory, "tmp_node_ids", 5, EMPTY_NODE,
+                    (long) externalBufferMB * Helper.MB);
+            directory = externalDirectory;
+        } else {
+            externalDirectory = null;
+            // We use a b-tree that can store as many entries as there are longs. A tree is also more
+            // memory efficient, because there is no waste for empty entries, and it also avoids
+            // allocating big arrays when growing the size.
+            idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+        }
         pillarNodes = new PillarInfo(towerNodes.is3D(), directory);
 
         nodeTagIndicesByOsmNodeIds = new GHLongLongBTree(200, 4, -1);
@@ -92,6 +120,18 @@ class OSMNodeData {
         nodeKVStorage = new KVStorage(directory, false).create(100);
     }
 
+    /**
+     * Switches to a paged array to map the OSM node ids to our internal ids, which is faster than the b-tree if the
+     * OSM node ids are dense, like they are for the sorted planet file. This must be called before any node is added.
+     * In the external memory mode the node ids are already mapped with a flat file and nothing changes.
+     */
+    public void useDenseNodeIds() {
+        if (idsByOsmNodeIds.getSize() > 0)
+            throw new IllegalStateException("Cannot change the node id map after nodes were added");
+        if (externalDirectory == null)
+            idsByOsmNodeIds = new GHLongLongPagedArray(5, EMPTY_NODE);
+    }
+
     public boolean is3D() {
         return towerNodes.is3D();
     }
@@ -276,6 +316,8 @@ class OSMNodeData {
         nodeTagIndicesByOsmNodeIds.clear();
         nodeKVStorage.clear();
         nodesToBeSplit.clear();
+        if (externalDirectory != null)
+            externalDirectory.clear();
     }
 
     public long towerNodeToId(long towerId) {
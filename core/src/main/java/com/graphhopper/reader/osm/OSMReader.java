@@ -56,6 +56,8 @@ import java.util.*;
 import java.util.function.LongToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.graphhopper.search.KVStorage.KValue;
 import static com.graphhopper.util.GHUtility.OSM_WARNING_LOGGER;
@@ -105,7 +107,8 @@ public class OSMReader {
         this.config = config;
         this.nodeAccess = baseGraph.getNodeAccess();
         this.osmParsers = osmParsers;
-        this.restrictionSetter = new RestrictionSetter(baseGraph, osmParsers.getRestrictionTagParsers().stream().map(RestrictionTagParser::getTurnRestrictionEnc).toList());
+        this.restrictionSetter = new RestrictionSetter(baseGraph, osmParsers.getRestrictionTagParsers().stream().map(RestrictionTagParser::getTurnRestrictionEnc).toList())
+                .setThreads(config.getWorkerThreads());
 
         simplifyAlgo.setMaxDistance(config.getMaxWayPointDistance());
         simplifyAlgo.setElevationMaxDistance(config.getElevationMaxWayPointDistance());
@@ -162,7 +165,8 @@ public class OSMReader {
         if (!baseGraph.isInitialized())
             throw new IllegalStateException("BaseGraph must be initialize before we can read OSM");
 
-        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory())
+        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory(),
+                config.isExternalMemory(), config.getExternalMemoryBufferMB())
                 .setElevationProvider(this::getElevation)
                 .setWayFilter(this::acceptWay)
                 .setSplitNodeFilter(this::isBarrierNode)
@@ -608,52 +612,71 @@ public class OSMReader {
             return;
         StopWatch sw = StopWatch.started();
         // The OSM restriction format is explained here: https://wiki.openstreetmap.org/wiki/Relation:restriction
-        List<Triple<ReaderRelation, RestrictionTopology, RestrictionMembers>> restrictionRelationsWithTopology = new ArrayList<>(restrictionRelations.size());
-        for (ReaderRelation restrictionRelation : restrictionRelations) {
-            try {
-                // Build the topology of the OSM relation in the graph representation. This only needs to be done once for all
-                // vehicle types (we also want to print warnings only once)
-                restrictionRelationsWithTopology.add(OSMRestrictionConverter.buildRestrictionTopologyForGraph(baseGraph, restrictionRelation, restrictedWaysToEdgesMap::getEdges));
-            } catch (OSMRestrictionException e) {
-                warnOfRestriction(restrictionRelation, e);
-            }
-        }
+        // Converting the relations only reads the graph, so we do this in parallel. The results are collected in the
+        // order of the relations, so the graph modifications below do not depend on the number of threads.
+        ResolvedRestriction[] resolvedRestrictions = new ResolvedRestriction[restrictionRelations.size()];
+        Stream<Runnable> runnables = IntStream.range(0, restrictionRelations.size())
+                .mapToObj(i -> () -> resolvedRestrictions[i] = resolveRestriction(restrictionRelations.get(i)));
+        GHUtility.runConcurrently(runnables, config.getWorkerThreads());
         // It is important to set the restrictions for all parsers/encoded values at once to make
         // sure the resulting turn restrictions do not interfere.
         List<RestrictionSetter.Restriction> restrictions = new ArrayList<>();
         // For every restriction we set flags that indicate the validity for the different parsers
         List<BitSet> encBits = new ArrayList<>();
-        for (Triple<ReaderRelation, RestrictionTopology, RestrictionMembers> r : restrictionRelationsWithTopology) {
-            try {
-                BitSet bits = new BitSet(osmParsers.getRestrictionTagParsers().size());
-                RestrictionType restrictionType = null;
-                for (int i = 0; i < osmParsers.getRestrictionTagParsers().size(); i++) {
-                    RestrictionTagParser restrictionTagParser = osmParsers.getRestrictionTagParsers().get(i);
-                    RestrictionTagParser.Result res = restrictionTagParser.parseRestrictionTags(r.first.getTags());
-                    if (res == null)
-                        // this relation is ignored by this restriction tag parser
-                        continue;
-                    OSMRestrictionConverter.checkIfTopologyIsCompatibleWithRestriction(r.second, res.getRestriction());
-                    if (restrictionType != null && res.getRestrictionType() != restrictionType)
-                        // so far we restrict ourselves to restriction relations that use the same type for all vehicles
-                        throw new OSMRestrictionException("has different restriction type for different vehicles.");
-                    restrictionType = res.getRestrictionType();
-                    bits.set(i);
-                }
-                if (bits.cardinality() > 0) {
-                    List<RestrictionSetter.Restriction> tmpRestrictions = OSMRestrictionConverter.buildRestrictionsForOSMRestriction(baseGraph, r.second, restrictionType);
-                    restrictions.addAll(tmpRestrictions);
-                    tmpRestrictions.forEach(__ -> encBits.add(RestrictionSetter.copyEncBits(bits)));
-                }
-            } catch (OSMRestrictionException e) {
-                warnOfRestriction(r.first, e);
+        for (int i = 0; i < resolvedRestrictions.length; i++) {
+            ResolvedRestriction r = resolvedRestrictions[i];
+            if (r.exception != null) {
+                warnOfRestriction(restrictionRelations.get(i), r.exception);
+                continue;
             }
+            restrictions.addAll(r.restrictions);
+            r.restrictions.forEach(__ -> encBits.add(RestrictionSetter.copyEncBits(r.encBits)));
         }
         restrictionSetter.setRestrictions(restrictions, encBits);
         LOGGER.info("Finished adding turn restrictions. total turn cost entries: {}, took: {}",
                 Helper.nf(baseGraph.getTurnCostStorage().getTurnCostsCount()), sw.stop().getTimeString());
     }
 
+    private ResolvedRestriction resolveRestriction(ReaderRelation restrictionRelation) {
+        try {
+            // Build the topology of the OSM relation in the graph representation. This only needs to be done once for all
+            // vehicle types (we also want to print warnings only once)
+            Triple<ReaderRelation, RestrictionTopology, RestrictionMembers> r = OSMRestrictionConverter.buildRestrictionTopologyForGraph(baseGraph, restrictionRelation, restrictedWaysToEdgesMap::getEdges);
+            BitSet bits = new BitSet(osmParsers.getRestrictionTagParsers().size());
+            RestrictionType restrictionType = null;
+            for (int i = 0; i < osmParsers.getRestrictionTagParsers().size(); i++) {
+                RestrictionTagParser restrictionTagParser = osmParsers.getRestrictionTagParsers().get(i);
+                RestrictionTagParser.Result res = restrictionTagParser.parseRestrictionTags(r.first.getTags());
+                if (res == null)
+                    // this relation is ignored by this restriction tag parser
+                    continue;
+                OSMRestrictionConverter.checkIfTopologyIsCompatibleWithRestriction(r.second, res.getRestriction());
+                if (restrictionType != null && res.getRestrictionType() != restrictionType)
+                    // so far we restrict ourselves to restriction relations that use the same type for all vehicles
+                    throw new OSMRestrictionException("has different restriction type for different vehicles.");
+                restrictionType = res.getRestrictionType();
+                bits.set(i);
+            }
+            if (bits.cardinality() == 0)
+                return new ResolvedRestriction(Collections.emptyList(), bits, null);
+            return new ResolvedRestriction(OSMRestrictionConverter.buildRestrictionsForOSMRestriction(baseGraph, r.second, restrictionType), bits, null);
+        } catch (OSMRestrictionException e) {
+            return new ResolvedRestriction(Collections.emptyList(), null, e);
+        }
+    }
+
+    private static class ResolvedRestriction {
+        final List<RestrictionSetter.Restriction> restrictions;
+        final BitSet encBits;
+        final OSMRestrictionException exception;
+
+        ResolvedRestriction(List<RestrictionSetter.Restriction> restrictions, BitSet encBits, OSMRestrictionException exception) {
+            this.restrictions = restrictions;
+            this.encBits = encBits;
+            this.exception = exception;
+        }
+    }
+
     private static void warnOfRestriction(ReaderRelation restrictionRelation, OSMRestrictionException e) {
         // we do not log exceptions with an empty message
         if (!e.isWithoutWarning()) {
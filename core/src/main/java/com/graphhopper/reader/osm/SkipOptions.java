@@ -18,19 +18,30 @@
 
 package com.graphhopper.reader.osm;
 
+import com.graphhopper.reader.osm.pbf.PbfBlobIndex;
+
 public class SkipOptions {
     private final boolean skipNodes;
     private final boolean skipWays;
     private final boolean skipRelations;
+    private final PbfBlobIndex blobIndex;
 
     public static SkipOptions none() {
         return new SkipOptions(false, false, false);
     }
 
     public SkipOptions(boolean skipNodes, boolean skipWays, boolean skipRelations) {
+        this(skipNodes, skipWays, skipRelations, null);
+    }
+
+    /**
+     * @param blobIndex records the node blobs of PBF files and allows skipping them, see {@link PbfBlobIndex}
+     */
+    public SkipOptions(boolean skipNodes, boolean skipWays, boolean skipRelations, PbfBlobIndex blobIndex) {
         this.skipNodes = skipNodes;
         this.skipWays = skipWays;
         this.skipRelations = skipRelations;
+        this.blobIndex = blobIndex;
     }
 
     public boolean isSkipNodes() {
@@ -44,4 +55,11 @@ public class SkipOptions {
     public boolean isSkipRelations() {
         return skipRelations;
     }
+
+    /**
+     * @return the blob index or null
+     */
+    public PbfBlobIndex getBlobIndex() {
+        return blobIndex;
+    }
 }
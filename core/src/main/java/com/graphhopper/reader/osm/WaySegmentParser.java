@@ -23,6 +23,7 @@ import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.reader.osm.pbf.PbfBlobIndex;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointAccess;
@@ -76,6 +77,8 @@ public class WaySegmentParser {
     private int workerThreads = 2;
 
     private final OSMNodeData nodeData;
+    // for PBF files we remember which blobs contain the nodes we need, so we can skip the others in pass2
+    private final PbfBlobIndex blobIndex = new PbfBlobIndex();
     private Date timestamp;
 
     private WaySegmentParser(OSMNodeData nodeData) {
@@ -92,17 +95,18 @@ public class WaySegmentParser {
         LOGGER.info("Start reading OSM file: '" + osmFile + "'");
         LOGGER.info("pass1 - start");
         StopWatch sw1 = StopWatch.started();
-        readOSM(osmFile, new Pass1Handler(), new SkipOptions(true, false, false));
+        readOSM(osmFile, new Pass1Handler(blobIndex), new SkipOptions(true, false, false, blobIndex));
         LOGGER.info("pass1 - finished, took: {}", sw1.stop().getTimeString());
 
         long nodes = nodeData.getNodeCount();
 
         LOGGER.info("Creating graph. Node count (pillar+tower): " + nodes + ", " + Helper.getMemInfo());
 
-        LOGGER.info("pass2 - start");
+        blobIndex.startSkipping();
+        LOGGER.info("pass2 - start" + (blobIndex.getNodeBlobs() > 0 ? ", " + blobIndex : ""));
         StopWatch sw2 = new StopWatch().start();
-        readOSM(osmFile, new Pass2Handler(), SkipOptions.none());
-        LOGGER.info("pass2 - finished, took: {}", sw2.stop().getTimeString());
+        readOSM(osmFile, new Pass2Handler(), new SkipOptions(false, false, false, blobIndex));
+        LOGGER.info("pass2 - finished, took: {}" + (blobIndex.getNodeBlobs() > 0 ? ", " + blobIndex : ""), sw2.stop().getTimeString());
 
         nodeData.release();
 
@@ -112,6 +116,10 @@ public class WaySegmentParser {
                 " total: " + (int) (sw1.getSeconds() + sw2.getSeconds()) + "s");
     }
 
+    PbfBlobIndex getBlobIndex() {
+        return blobIndex;
+    }
+
     /**
      * @return the timestamp read from the OSM file, or null if nothing was read yet
      */
@@ -120,12 +128,17 @@ public class WaySegmentParser {
     }
 
     private class Pass1Handler implements ReaderElementHandler {
+        private final PbfBlobIndex blobIndex;
         private boolean handledWays;
         private boolean handledRelations;
         private long wayCounter = 0;
         private long acceptedWays = 0;
         private long relationsCounter = 0;
 
+        Pass1Handler(PbfBlobIndex blobIndex) {
+            this.blobIndex = blobIndex;
+        }
+
         @Override
         public void handleWay(ReaderWay way) {
             if (!handledWays) {
@@ -146,6 +159,7 @@ public class WaySegmentParser {
             for (LongCursor node : way.getNodes()) {
                 final boolean isEnd = node.index == 0 || node.index == way.getNodes().size() - 1;
                 final long osmId = node.value;
+                blobIndex.markNode(osmId);
                 nodeData.setOrUpdateNodeType(osmId,
                         isEnd ? END_NODE : INTERMEDIATE_NODE,
                         // connection nodes are those where (only) two OSM ways are connected at their ends
@@ -169,6 +183,10 @@ public class WaySegmentParser {
         @Override
         public void handleFileHeader(OSMFileHeader fileHeader) throws ParseException {
             timestamp = Helper.createFormatter().parse(fileHeader.getTag("timestamp"));
+            if ("Type_then_ID".equals(fileHeader.getTag("sort")) && nodeData.getNodeCount() == 0) {
+                LOGGER.info("pass1 - OSM file is sorted, using dense node id map");
+                nodeData.useDenseNodeIds();
+            }
         }
 
         @Override
@@ -416,7 +434,16 @@ public class WaySegmentParser {
          * @param directory   the directory to be used to store temporary data
          */
         public Builder(PointAccess pointAccess, Directory directory) {
-            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory));
+            this(pointAccess, directory, false, 0);
+        }
+
+        /**
+         * @param externalMemory   if true the temporary node data is stored in memory-mapped files in the location of
+         *                         the given directory instead of the heap
+         * @param externalBufferMB the heap memory in MB used to buffer the writes into the OSM node id file
+         */
+        public Builder(PointAccess pointAccess, Directory directory, boolean externalMemory, int externalBufferMB) {
+            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory, externalMemory, externalBufferMB));
         }
 
         /**
@@ -1,7 +1,8 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.osm.pbf;
 
-import com.carrotsearch.hppc.LongIndexedContainer;
+import com.carrotsearch.hppc.LongArrayList;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
@@ -16,7 +17,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.function.IntUnaryOperator;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -32,9 +35,18 @@ public class PbfBlobDecoder implements Runnable {
     private final boolean checkData = false;
     private final String blobType;
     private final byte[] rawBlob;
+    private final int blobIndex;
     private final PbfBlobDecoderListener listener;
-    private List<ReaderElement> decodedEntities;
+    private ArrayList<ReaderElement> decodedEntities;
     private final SkipOptions skipOptions;
+    // the decoders run in a fixed pool of worker threads, so every worker can reuse its inflater and buffers
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private static class Buffers {
+        final Inflater inflater = new Inflater();
+        byte[] input = new byte[0];
+        byte[] output = new byte[0];
+    }
 
     /**
      * Creates a new instance.
@@ -42,42 +54,53 @@ public class PbfBlobDecoder implements Runnable {
      *
      * @param blobType The type of blob.
      * @param rawBlob  The raw data of the blob.
+     * @param blobIndex The position of the blob in the PBF stream.
      * @param listener The listener for receiving decoding results.
      */
-    public PbfBlobDecoder(String blobType, byte[] rawBlob, PbfBlobDecoderListener listener, SkipOptions skipOptions) {
+    public PbfBlobDecoder(String blobType, byte[] rawBlob, int blobIndex, PbfBlobDecoderListener listener, SkipOptions skipOptions) {
         this.blobType = blobType;
         this.rawBlob = rawBlob;
+        this.blobIndex = blobIndex;
         this.listener = listener;
         this.skipOptions = skipOptions;
     }
 
-    private byte[] readBlobContent() throws IOException {
+    /**
+     * @return the uncompressed blob data. It is only valid until the next blob is read by the current thread.
+     */
+    private ByteBuffer readBlobContent() throws IOException {
         Fileformat.Blob blob = Fileformat.Blob.parseFrom(rawBlob);
-        byte[] blobData;
 
         if (blob.hasRaw()) {
-            blobData = blob.getRaw().toByteArray();
+            return blob.getRaw().asReadOnlyByteBuffer();
         } else if (blob.hasZlibData()) {
-            Inflater inflater = new Inflater();
-            inflater.setInput(blob.getZlibData().toByteArray());
-            blobData = new byte[blob.getRawSize()];
+            Buffers buffers = BUFFERS.get();
+            ByteString zlibData = blob.getZlibData();
+            if (buffers.input.length < zlibData.size())
+                buffers.input = new byte[zlibData.size()];
+            zlibData.copyTo(buffers.input, 0);
+            int rawSize = blob.getRawSize();
+            if (buffers.output.length < rawSize)
+                buffers.output = new byte[rawSize];
+
+            Inflater inflater = buffers.inflater;
+            inflater.reset();
+            inflater.setInput(buffers.input, 0, zlibData.size());
             try {
-                inflater.inflate(blobData);
+                inflater.inflate(buffers.output, 0, rawSize);
             } catch (DataFormatException e) {
                 throw new RuntimeException("Unable to decompress PBF blob.", e);
             }
             if (!inflater.finished()) {
                 throw new RuntimeException("PBF blob contains incomplete compressed data.");
             }
-            inflater.end();
+            return ByteBuffer.wrap(buffers.output, 0, rawSize);
         } else {
             throw new RuntimeException("PBF blob uses unsupported compression, only raw or zlib may be used.");
         }
-
-        return blobData;
     }
 
-    private void processOsmHeader(byte[] data) throws InvalidProtocolBufferException {
+    private void processOsmHeader(ByteBuffer data) throws InvalidProtocolBufferException {
         Osmformat.HeaderBlock header = Osmformat.HeaderBlock.parseFrom(data);
 
         // Build the list of active and unsupported features in the file.
@@ -100,6 +123,8 @@ public class PbfBlobDecoder implements Runnable {
         OSMFileHeader fileheader = new OSMFileHeader();
         long milliSecondDate = header.getOsmosisReplicationTimestamp();
         fileheader.setTag("timestamp", Helper.createFormatter().format(new Date(milliSecondDate * 1000)));
+        if (header.getOptionalFeaturesList().contains("Sort.Type_then_ID"))
+            fileheader.setTag("sort", "Type_then_ID");
         decodedEntities.add(fileheader);
 
         // Build a new bound object which corresponds to the header.
@@ -119,37 +144,27 @@ public class PbfBlobDecoder implements Runnable {
          */
     }
 
-    private Map<String, Object> buildTags(List<Integer> keys, List<Integer> values, PbfFieldDecoder fieldDecoder) {
+    private void addTags(ReaderElement element, int keyCount, IntUnaryOperator keys, int valueCount, IntUnaryOperator values,
+                         PbfFieldDecoder fieldDecoder) {
 
         // Ensure parallel lists are of equal size.
         if (checkData) {
-            if (keys.size() != values.size()) {
-                throw new RuntimeException("Number of tag keys (" + keys.size() + ") and tag values ("
-                        + values.size() + ") don't match");
+            if (keyCount != valueCount) {
+                throw new RuntimeException("Number of tag keys (" + keyCount + ") and tag values ("
+                        + valueCount + ") don't match");
             }
         }
 
-        Iterator<Integer> keyIterator = keys.iterator();
-        Iterator<Integer> valueIterator = values.iterator();
-        if (keyIterator.hasNext()) {
-            Map<String, Object> tags = new HashMap<>(keys.size());
-            while (keyIterator.hasNext()) {
-                String key = fieldDecoder.decodeString(keyIterator.next());
-                String value = fieldDecoder.decodeString(valueIterator.next());
-                tags.put(key, value);
-            }
-            return tags;
-        }
-        return null;
+        // the tags are put into the element directly instead of copying them from a temporary map
+        for (int i = 0; i < keyCount; i++)
+            element.setTag(fieldDecoder.decodeString(keys.applyAsInt(i)), fieldDecoder.decodeString(values.applyAsInt(i)));
     }
 
     private void processNodes(List<Osmformat.Node> nodes, PbfFieldDecoder fieldDecoder) {
         for (Osmformat.Node node : nodes) {
-            Map<String, Object> tags = buildTags(node.getKeysList(), node.getValsList(), fieldDecoder);
-
             ReaderNode osmNode = new ReaderNode(node.getId(), fieldDecoder.decodeLatitude(node
                     .getLat()), fieldDecoder.decodeLatitude(node.getLon()));
-            osmNode.setTags(tags);
+            addTags(osmNode, node.getKeysCount(), node::getKeys, node.getValsCount(), node::getVals, fieldDecoder);
 
             // Add the bound object to the results.
             decodedEntities.add(osmNode);
@@ -157,19 +172,19 @@ public class PbfBlobDecoder implements Runnable {
     }
 
     private void processNodes(Osmformat.DenseNodes nodes, PbfFieldDecoder fieldDecoder) {
-        List<Long> idList = nodes.getIdList();
-        List<Long> latList = nodes.getLatList();
-        List<Long> lonList = nodes.getLonList();
+        // we use the primitive getters to avoid boxing every id, coordinate and tag index
+        int nodeCount = nodes.getIdCount();
 
         // Ensure parallel lists are of equal size.
         if (checkData) {
-            if ((idList.size() != latList.size()) || (idList.size() != lonList.size())) {
-                throw new RuntimeException("Number of ids (" + idList.size() + "), latitudes (" + latList.size()
-                        + "), and longitudes (" + lonList.size() + ") don't match");
+            if ((nodeCount != nodes.getLatCount()) || (nodeCount != nodes.getLonCount())) {
+                throw new RuntimeException("Number of ids (" + nodeCount + "), latitudes (" + nodes.getLatCount()
+                        + "), and longitudes (" + nodes.getLonCount() + ") don't match");
             }
         }
 
-        Iterator<Integer> keysValuesIterator = nodes.getKeysValsList().iterator();
+        int keysValuesCount = nodes.getKeysValsCount();
+        int keysValuesIndex = 0;
 
         /*
          Osmformat.DenseInfo denseInfo;
@@ -186,11 +201,11 @@ public class PbfBlobDecoder implements Runnable {
 //		int userSid = 0;
 //		long timestamp = 0;
 //		long changesetId = 0;
-        for (int i = 0; i < idList.size(); i++) {
+        for (int i = 0; i < nodeCount; i++) {
             // Delta decode node fields.
-            nodeId += idList.get(i);
-            latitude += latList.get(i);
-            longitude += lonList.get(i);
+            nodeId += nodes.getId(i);
+            latitude += nodes.getLat(i);
+            longitude += nodes.getLon(i);
 
             /*
              if (denseInfo != null) {
@@ -218,31 +233,22 @@ public class PbfBlobDecoder implements Runnable {
             // Build the tags. The key and value string indexes are sequential
             // in the same PBF array. Each set of tags is delimited by an index
             // with a value of 0.
-            Map<String, Object> tags = null;
-            while (keysValuesIterator.hasNext()) {
-                int keyIndex = keysValuesIterator.next();
+            ReaderNode node = new ReaderNode(nodeId, fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude));
+            while (keysValuesIndex < keysValuesCount) {
+                int keyIndex = nodes.getKeysVals(keysValuesIndex++);
                 if (keyIndex == 0) {
                     break;
                 }
                 if (checkData) {
-                    if (!keysValuesIterator.hasNext()) {
+                    if (keysValuesIndex >= keysValuesCount) {
                         throw new RuntimeException(
                                 "The PBF DenseInfo keys/values list contains a key with no corresponding value.");
                     }
                 }
-                int valueIndex = keysValuesIterator.next();
-
-                if (tags == null) {
-                    // divide by 2 as key&value, multiple by 2 because of the better approximation
-                    tags = new HashMap<>(Math.max(3, 2 * (nodes.getKeysValsList().size() / 2) / idList.size()));
-                }
-
-                tags.put(fieldDecoder.decodeString(keyIndex), fieldDecoder.decodeString(valueIndex));
+                int valueIndex = nodes.getKeysVals(keysValuesIndex++);
+                node.setTag(fieldDecoder.decodeString(keyIndex), fieldDecoder.decodeString(valueIndex));
             }
 
-            ReaderNode node = new ReaderNode(nodeId, fieldDecoder.decodeLatitude(latitude), fieldDecoder.decodeLongitude(longitude));
-            node.setTags(tags);
-
             // Add the bound object to the results.
             decodedEntities.add(node);
         }
@@ -250,17 +256,18 @@ public class PbfBlobDecoder implements Runnable {
 
     private void processWays(List<Osmformat.Way> ways, PbfFieldDecoder fieldDecoder) {
         for (Osmformat.Way way : ways) {
-            Map<String, Object> tags = buildTags(way.getKeysList(), way.getValsList(), fieldDecoder);
             ReaderWay osmWay = new ReaderWay(way.getId());
-            osmWay.setTags(tags);
+            addTags(osmWay, way.getKeysCount(), way::getKeys, way.getValsCount(), way::getVals, fieldDecoder);
 
             // Build up the list of way nodes for the way. The node ids are
             // delta encoded meaning that each id is stored as a delta against
             // the previous one.
             long nodeId = 0;
-            LongIndexedContainer wayNodes = osmWay.getNodes();
-            for (long nodeIdOffset : way.getRefsList()) {
-                nodeId += nodeIdOffset;
+            LongArrayList wayNodes = osmWay.getNodes();
+            int refCount = way.getRefsCount();
+            wayNodes.ensureCapacity(refCount);
+            for (int i = 0; i < refCount; i++) {
+                nodeId += way.getRefs(i);
                 wayNodes.add(nodeId);
             }
 
@@ -311,10 +318,8 @@ public class PbfBlobDecoder implements Runnable {
 
     private void processRelations(List<Osmformat.Relation> relations, PbfFieldDecoder fieldDecoder) {
         for (Osmformat.Relation relation : relations) {
-            Map<String, Object> tags = buildTags(relation.getKeysList(), relation.getValsList(), fieldDecoder);
-
             ReaderRelation osmRelation = new ReaderRelation(relation.getId());
-            osmRelation.setTags(tags);
+            addTags(osmRelation, relation.getKeysCount(), relation::getKeys, relation.getValsCount(), relation::getVals, fieldDecoder);
 
             buildRelationMembers(osmRelation, relation.getMemidsList(), relation.getRolesSidList(),
                     relation.getTypesList(), fieldDecoder);
@@ -324,9 +329,17 @@ public class PbfBlobDecoder implements Runnable {
         }
     }
 
-    private void processOsmPrimitives(byte[] data) throws InvalidProtocolBufferException {
+    private void processOsmPrimitives(ByteBuffer data) throws InvalidProtocolBufferException {
         Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(data);
         PbfFieldDecoder fieldDecoder = new PbfFieldDecoder(block);
+        int count = 0;
+        for (Osmformat.PrimitiveGroup primitiveGroup : block.getPrimitivegroupList())
+            count += (skipOptions.isSkipNodes() ? 0 : primitiveGroup.getDense().getIdCount() + primitiveGroup.getNodesCount())
+                    + (skipOptions.isSkipWays() ? 0 : primitiveGroup.getWaysCount())
+                    + (skipOptions.isSkipRelations() ? 0 : primitiveGroup.getRelationsCount());
+        decodedEntities.ensureCapacity(count);
+        if (skipOptions.getBlobIndex() != null && skipOptions.getBlobIndex().isRecording() && blobIndex >= 0)
+            addToBlobIndex(block);
 
         for (Osmformat.PrimitiveGroup primitiveGroup : block.getPrimitivegroupList()) {
             if (!skipOptions.isSkipNodes()) {
@@ -340,6 +353,29 @@ public class PbfBlobDecoder implements Runnable {
         }
     }
 
+    /**
+     * Records the node id range of blocks that contain only nodes, so they can be skipped when the file is read again.
+     */
+    private void addToBlobIndex(Osmformat.PrimitiveBlock block) {
+        long minId = Long.MAX_VALUE, maxId = Long.MIN_VALUE;
+        for (Osmformat.PrimitiveGroup primitiveGroup : block.getPrimitivegroupList()) {
+            if (primitiveGroup.getWaysCount() > 0 || primitiveGroup.getRelationsCount() > 0)
+                return;
+            long id = 0;
+            for (int i = 0; i < primitiveGroup.getDense().getIdCount(); i++) {
+                id += primitiveGroup.getDense().getId(i);
+                minId = Math.min(minId, id);
+                maxId = Math.max(maxId, id);
+            }
+            for (Osmformat.Node node : primitiveGroup.getNodesList()) {
+                minId = Math.min(minId, node.getId());
+                maxId = Math.max(maxId, node.getId());
+            }
+        }
+        if (minId <= maxId)
+            skipOptions.getBlobIndex().addNodeBlob(blobIndex, minId, maxId);
+    }
+
     private void runAndTrapExceptions() {
         try {
             decodedEntities = new ArrayList<>();
@@ -0,0 +1,132 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm.pbf;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Allows reading a PBF file a second time without the blobs that contain only nodes that are not needed. When reading
+ * the file the first time the id range of every blob that only contains nodes is recorded (see
+ * {@link #addNodeBlob}). Then every node that is needed is marked with {@link #markNode}, which finds the blob that
+ * contains it. After {@link #startSkipping()} the other node blobs are skipped without being read or decoded.
+ * <p>
+ * Finding the blob of a node requires the blobs to be sorted by node id, like they are for files with the
+ * Sort.Type_then_ID feature. If they are not sorted no blob is skipped.
+ */
+public class PbfBlobIndex {
+    private long[] minIds = new long[0];
+    private long[] maxIds = new long[0];
+    private final BitSet nodeBlobs = new BitSet();
+    private final BitSet neededBlobs = new BitSet();
+    private int[] sortedBlobs;
+    private long[] sortedMinIds;
+    private volatile boolean disabled;
+    private volatile boolean skipping;
+
+    /**
+     * @return true as long as node blobs are recorded, i.e. before {@link #startSkipping()}
+     */
+    public boolean isRecording() {
+        return !skipping;
+    }
+
+    /**
+     * Records that the blob with the given index contains only nodes with ids in the given range. This is called by
+     * the decoding threads. Once skipping started all blobs of the file are known and this call is ignored, because
+     * the file is read again.
+     */
+    public synchronized void addNodeBlob(int blob, long minId, long maxId) {
+        if (skipping)
+            return;
+        if (sortedBlobs != null) {
+            // we already started marking nodes, so this blob would be missing
+            disabled = true;
+            return;
+        }
+        if (blob >= minIds.length) {
+            minIds = Arrays.copyOf(minIds, Math.max(blob + 1, minIds.length * 2));
+            maxIds = Arrays.copyOf(maxIds, minIds.length);
+        }
+        minIds[blob] = minId;
+        maxIds[blob] = maxId;
+        nodeBlobs.set(blob);
+    }
+
+    private synchronized void sortBlobs() {
+        int count = nodeBlobs.cardinality();
+        sortedBlobs = new int[count];
+        sortedMinIds = new long[count];
+        int i = 0;
+        for (int blob = nodeBlobs.nextSetBit(0); blob >= 0; blob = nodeBlobs.nextSetBit(blob + 1), i++) {
+            if (i > 0 && minIds[blob] <= maxIds[sortedBlobs[i - 1]])
+                // the blobs are not sorted by node id
+                disabled = true;
+            sortedBlobs[i] = blob;
+            sortedMinIds[i] = minIds[blob];
+        }
+    }
+
+    /**
+     * Marks the blob that contains the node with the given id as needed. All blobs must have been added before.
+     */
+    public void markNode(long osmNodeId) {
+        if (sortedBlobs == null)
+            sortBlobs();
+        if (disabled)
+            return;
+        int index = Arrays.binarySearch(sortedMinIds, osmNodeId);
+        if (index < 0)
+            // the blob with the largest minimum id below the node id
+            index = -index - 2;
+        if (index < 0)
+            return;
+        int blob = sortedBlobs[index];
+        if (osmNodeId <= maxIds[blob])
+            neededBlobs.set(blob);
+    }
+
+    /**
+     * Node blobs that were not marked are skipped from now on.
+     */
+    public synchronized void startSkipping() {
+        if (sortedBlobs == null)
+            sortBlobs();
+        skipping = true;
+    }
+
+    public boolean isSkipped(int blob) {
+        return skipping && !disabled && nodeBlobs.get(blob) && !neededBlobs.get(blob);
+    }
+
+    public int getNodeBlobs() {
+        return nodeBlobs.cardinality();
+    }
+
+    /**
+     * @return the number of node blobs that will be skipped
+     */
+    public int getSkippedBlobs() {
+        return disabled ? 0 : nodeBlobs.cardinality() - neededBlobs.cardinality();
+    }
+
+    @Override
+    public String toString() {
+        return "node blobs: " + getNodeBlobs() + ", skipped: " + getSkippedBlobs() + (disabled ? " (not sorted)" : "");
+    }
+}
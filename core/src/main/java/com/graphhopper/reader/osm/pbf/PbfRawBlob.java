@@ -11,6 +11,7 @@ package com.graphhopper.reader.osm.pbf;
 public class PbfRawBlob {
     private String type;
     private byte[] data;
+    private int index;
 
     /**
      * Creates a new instance.
@@ -21,8 +22,23 @@ public class PbfRawBlob {
      * @param data The raw contents of the blob in binary undecoded form.
      */
     public PbfRawBlob(String type, byte[] data) {
+        this(type, data, -1);
+    }
+
+    /**
+     * @param index The position of this blob in the PBF stream.
+     */
+    public PbfRawBlob(String type, byte[] data, int index) {
         this.type = type;
         this.data = data;
+        this.index = index;
+    }
+
+    /**
+     * @return The position of this blob in the PBF stream.
+     */
+    public int getIndex() {
+        return index;
     }
 
     /**
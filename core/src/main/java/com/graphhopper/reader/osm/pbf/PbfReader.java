@@ -39,7 +39,7 @@ public class PbfReader implements Runnable {
     public void run() {
         ExecutorService executorService = Executors.newFixedThreadPool(workers);
         // Create a stream splitter to break the PBF stream into blobs.
-        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream), skipOptions.getBlobIndex());
 
         try {
             // Process all blobs of data in the stream using threads from the
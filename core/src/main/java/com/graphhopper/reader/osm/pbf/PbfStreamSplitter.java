@@ -23,6 +23,8 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
     private int dataBlockCount;
     private boolean eof;
     private PbfRawBlob nextBlob;
+    private final PbfBlobIndex blobIndex;
+    private int blobCount;
 
     /**
      * Creates a new instance.
@@ -31,6 +33,14 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
      * @param pbfStream The PBF data stream to be parsed.
      */
     public PbfStreamSplitter(DataInputStream pbfStream) {
+        this(pbfStream, null);
+    }
+
+    /**
+     * @param blobIndex The blobs that this index skips are not read from the stream. Can be null.
+     */
+    public PbfStreamSplitter(DataInputStream pbfStream, PbfBlobIndex blobIndex) {
+        this.blobIndex = blobIndex;
         dis = pbfStream;
         dataBlockCount = 0;
         eof = false;
@@ -53,6 +63,16 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
         return rawBlob;
     }
 
+    private void skipRawBlob(Fileformat.BlobHeader blobHeader) throws IOException {
+        int remaining = blobHeader.getDatasize();
+        while (remaining > 0) {
+            int skipped = dis.skipBytes(remaining);
+            if (skipped <= 0)
+                throw new EOFException("Unexpected end of stream while skipping blob");
+            remaining -= skipped;
+        }
+    }
+
     private void getNextBlob() {
         try {
             // Read the length of the next header block. This is the only time
@@ -70,13 +90,19 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
                 log.finer("Reading header for blob " + dataBlockCount++);
             }
             Fileformat.BlobHeader blobHeader = readHeader(headerLength);
+            int index = blobCount++;
+            if (blobIndex != null && blobIndex.isSkipped(index)) {
+                skipRawBlob(blobHeader);
+                // nextBlob stays null, so hasNext reads the next blob
+                return;
+            }
 
             if (log.isLoggable(Level.FINER)) {
                 log.finer("Processing blob of type " + blobHeader.getType() + ".");
             }
             byte[] blobData = readRawBlob(blobHeader);
 
-            nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
+            nextBlob = new PbfRawBlob(blobHeader.getType(), blobData, index);
 
         } catch (IOException e) {
             throw new RuntimeException("Unable to get next blob from PBF stream.", e);
@@ -85,7 +111,7 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
 
     @Override
     public boolean hasNext() {
-        if (nextBlob == null && !eof) {
+        while (nextBlob == null && !eof) {
             getNextBlob();
         }
 
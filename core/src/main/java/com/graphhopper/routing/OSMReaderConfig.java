@@ -33,6 +33,8 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private boolean externalMemory = false;
+    private int externalMemoryBufferMB = 256;
     private double defaultElevation = 0;
 
     public List<String> getIgnoredHighways() {
@@ -157,6 +159,36 @@ public class OSMReaderConfig {
         return this;
     }
 
+    public boolean isExternalMemory() {
+        return externalMemory;
+    }
+
+    /**
+     * Stores the OSM node id mapping, the pillar node coordinates and the node tags in memory-mapped files in the
+     * graph folder instead of the heap while reading the OSM file. This makes it possible to import big files like the
+     * planet with a much smaller heap, but the import is slower if the files do not fit into the page cache.
+     */
+    public OSMReaderConfig setExternalMemory(boolean externalMemory) {
+        this.externalMemory = externalMemory;
+        return this;
+    }
+
+    public int getExternalMemoryBufferMB() {
+        return externalMemoryBufferMB;
+    }
+
+    /**
+     * Sets the heap memory in MB that the external memory mode uses to collect the writes into the OSM node id file.
+     * The writes are sorted and written in one pass when the buffer is full, so a bigger buffer means fewer and more
+     * sequential passes over the file. The file itself is not counted, it is cached by the operating system.
+     */
+    public OSMReaderConfig setExternalMemoryBufferMB(int externalMemoryBufferMB) {
+        if (externalMemoryBufferMB < 0)
+            throw new IllegalArgumentException("datareader.external_memory_buffer_mb cannot be negative: " + externalMemoryBufferMB);
+        this.externalMemoryBufferMB = externalMemoryBufferMB;
+        return this;
+    }
+
     public double getDefaultElevation() {
         return defaultElevation;
     }
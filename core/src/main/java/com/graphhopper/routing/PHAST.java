@@ -0,0 +1,191 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * Computes the weights of the shortest paths from one node to all other nodes (or from all nodes to one node) of a
+ * node-based CH graph. Like in PHAST (Delling et al., "PHAST: Hardware-Accelerated Shortest Path Trees") a Dijkstra
+ * search explores the upward graph of the start node, and then the downward edges of all nodes are relaxed in
+ * descending level order. The second phase is a linear sweep over the nodes without any priority queue.
+ * <p>
+ * The start node can be a virtual node of a {@link QueryRoutingCHGraph}, but there must not be any other virtual
+ * nodes, i.e. the query graph must only contain the snap of the start node.
+ */
+public class PHAST {
+    private final RoutingCHGraph graph;
+    private final int[] nodesByLevel;
+    private final boolean reverse;
+    private final int baseNodes;
+    private final double[] weights;
+    private final int[] parentEdges;
+    private double weightLimit = Double.MAX_VALUE;
+    private int visitedNodes;
+    private boolean alreadyRun;
+
+    /**
+     * @param nodesByLevel the contracted nodes in ascending level order, see {@link #sortNodesByLevel}
+     * @param reverse      if true the weights of the shortest paths from all nodes to the start node are calculated
+     */
+    public PHAST(RoutingCHGraph graph, int[] nodesByLevel, boolean reverse) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("PHAST only supports node-based CH graphs");
+        this.graph = graph;
+        this.nodesByLevel = nodesByLevel;
+        this.reverse = reverse;
+        this.baseNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        weights = new double[graph.getNodes()];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        parentEdges = new int[graph.getNodes()];
+        Arrays.fill(parentEdges, EdgeIterator.NO_EDGE);
+    }
+
+    /**
+     * @return the nodes of the given CH graph that were contracted, in ascending level order. Nodes that were not
+     * contracted have the maximum level and are not included.
+     */
+    public static int[] sortNodesByLevel(RoutingCHGraph graph) {
+        int nodes = graph.getNodes();
+        // counting sort, the levels of the contracted nodes are in [0, nodes)
+        int[] offsets = new int[nodes + 1];
+        int contracted = 0;
+        for (int node = 0; node < nodes; node++) {
+            int level = graph.getLevel(node);
+            if (level < nodes) {
+                offsets[level + 1]++;
+                contracted++;
+            }
+        }
+        for (int level = 1; level <= nodes; level++) {
+            offsets[level] += offsets[level - 1];
+        }
+        int[] result = new int[contracted];
+        for (int node = 0; node < nodes; node++) {
+            int level = graph.getLevel(node);
+            if (level < nodes)
+                result[offsets[level]++] = node;
+        }
+        return result;
+    }
+
+    /**
+     * Nodes with a larger weight are not updated. This only speeds up the upward search, the downward sweep always
+     * scans all nodes.
+     */
+    public PHAST setWeightLimit(double weightLimit) {
+        this.weightLimit = weightLimit;
+        return this;
+    }
+
+    public void calc(int from) {
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+        alreadyRun = true;
+        weights[from] = 0;
+        searchUpward(from);
+        sweepDownward();
+    }
+
+    private void searchUpward(int from) {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(graph.getNodes());
+        heap.push(from, 0);
+        RoutingCHEdgeExplorer explorer = reverse ? graph.createInEdgeExplorer() : graph.createOutEdgeExplorer();
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            visitedNodes++;
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                // virtual edges are always accepted, just like for the bidirectional CH algorithms
+                if (node < baseNodes && adj < baseNodes && graph.getLevel(node) > graph.getLevel(adj))
+                    continue;
+                double weight = weights[node] + iter.getWeight(reverse);
+                if (weight > weightLimit || weight >= weights[adj])
+                    continue;
+                weights[adj] = weight;
+                parentEdges[adj] = iter.getEdge();
+                if (heap.contains(adj))
+                    heap.update(adj, (float) weight);
+                else
+                    heap.push(adj, (float) weight);
+            }
+        }
+    }
+
+    private void sweepDownward() {
+        // the nodes that were not contracted were all settled by the upward search already
+        RoutingCHEdgeExplorer explorer = reverse ? graph.createOutEdgeExplorer() : graph.createInEdgeExplorer();
+        for (int i = nodesByLevel.length - 1; i >= 0; i--) {
+            int node = nodesByLevel[i];
+            int level = graph.getLevel(node);
+            double best = weights[node];
+            int bestEdge = parentEdges[node];
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                if (adj < baseNodes && graph.getLevel(adj) <= level)
+                    continue;
+                double weight = weights[adj] + iter.getWeight(!reverse);
+                if (weight < best && weight <= weightLimit) {
+                    best = weight;
+                    bestEdge = iter.getEdge();
+                }
+            }
+            weights[node] = best;
+            parentEdges[node] = bestEdge;
+        }
+        visitedNodes += nodesByLevel.length;
+    }
+
+    /**
+     * @return the weight of the shortest path from the start node to the given node, or from the given node to the
+     * start node in reverse mode. {@link Double#POSITIVE_INFINITY} if the node was not reached.
+     */
+    public double getWeight(int node) {
+        return weights[node];
+    }
+
+    /**
+     * @return the CH edge (which might be a shortcut) via which the shortest path reaches the given node, or
+     * {@link EdgeIterator#NO_EDGE} for the start node and unreached nodes. The edge's adjacent node is the given
+     * node when using {@link RoutingCHGraph#getEdgeIteratorState}.
+     */
+    public int getParentEdge(int node) {
+        return parentEdges[node];
+    }
+
+    public RoutingCHGraph getGraph() {
+        return graph;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
@@ -29,6 +29,10 @@ import com.graphhopper.util.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
 import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
@@ -46,6 +50,10 @@ import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
  * @see TarjanSCC
  */
 public class EdgeBasedTarjanSCC {
+    // the parallel search gives up looking for the biggest component after this many pivots
+    private static final int MAX_PIVOTS = 3;
+    // the number of edge keys of the search frontier processed by a single task of the parallel search
+    private static final int FRONTIER_CHUNK_SIZE = 256;
     private final Graph graph;
     private final EdgeTransitionFilter edgeTransitionFilter;
     private final EdgeExplorer explorer;
@@ -58,6 +66,8 @@ public class EdgeBasedTarjanSCC {
     private TarjanIntIntMap edgeKeyIndex;
     private TarjanIntIntMap edgeKeyLowLink;
     private TarjanIntSet edgeKeyOnStack;
+    // edge keys that are ignored by the search, see findComponentsParallel
+    private BitSet excludedEdgeKeys;
 
     private int currIndex = 0;
     private int p;
@@ -100,6 +110,131 @@ public class EdgeBasedTarjanSCC {
         return new EdgeBasedTarjanSCC(graph, edgeTransitionFilter, excludeSingleEdgeComponents).findComponentsRecursive();
     }
 
+    /**
+     * Like {@link #findComponents(Graph, EdgeTransitionFilter, boolean)}, but uses multiple threads. Road networks
+     * usually consist of one huge component and many small ones, so the huge component is searched with the
+     * forward-backward algorithm: the edge keys that can be reached from a pivot edge key and the edge keys from
+     * which the pivot can be reached are found with parallel breadth-first searches, and the intersection of both is
+     * the component of the pivot. The remaining components are found with Tarjan's algorithm, which skips the edge
+     * keys of the pivot components. The components are the same as for {@link #findComponents}, but they are in a
+     * different order. The edgeTransitionFilter must be thread-safe.
+     */
+    public static ConnectedComponents findComponentsParallel(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+        final int edges = graph.getEdges();
+        BitSet pivotEdgeKeys = new BitSet(2L * edges);
+        List<IntArrayList> pivotComponents = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int i = 1; i <= MAX_PIVOTS && edges > 0; i++) {
+                int pivot = createEdgeKey(graph.getEdgeIteratorState((int) ((long) i * edges / (MAX_PIVOTS + 1)), Integer.MIN_VALUE), false);
+                if (pivotEdgeKeys.get(pivot) || !edgeTransitionFilter.accept(NO_EDGE, graph.getEdgeIteratorStateForKey(pivot)))
+                    continue;
+                AtomicLongArray fwd = searchParallel(pool, graph, edgeTransitionFilter, pivotEdgeKeys, pivot, false);
+                AtomicLongArray bwd = searchParallel(pool, graph, edgeTransitionFilter, pivotEdgeKeys, pivot, true);
+                IntArrayList component = new IntArrayList();
+                for (int word = 0; word < fwd.length(); word++) {
+                    long bits = fwd.get(word) & bwd.get(word);
+                    for (; bits != 0; bits &= bits - 1)
+                        component.add(word * 64 + Long.numberOfTrailingZeros(bits));
+                }
+                for (IntCursor c : component)
+                    pivotEdgeKeys.set(c.value);
+                pivotComponents.add(component);
+                // usually the first pivot already belongs to the biggest component
+                if (component.size() * 10L >= 2L * edges)
+                    break;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        EdgeBasedTarjanSCC tarjan = new EdgeBasedTarjanSCC(graph, edgeTransitionFilter, excludeSingleEdgeComponents);
+        tarjan.excludedEdgeKeys = pivotEdgeKeys;
+        ConnectedComponents components = tarjan.findComponents();
+        for (IntArrayList component : pivotComponents)
+            tarjan.addComponent(component);
+        return components;
+    }
+
+    /**
+     * @return the edge keys that can be reached from the given start edge key, or from which it can be reached if
+     * reverse is true, excluding the given edge keys
+     */
+    private static AtomicLongArray searchParallel(ForkJoinPool pool, Graph graph, EdgeTransitionFilter edgeTransitionFilter,
+                                                  BitSet excludedEdgeKeys, int start, boolean reverse) {
+        AtomicLongArray visited = new AtomicLongArray((2 * graph.getEdges() + 63) >>> 6);
+        ThreadLocal<EdgeExplorer> explorers = ThreadLocal.withInitial(graph::createEdgeExplorer);
+        trySet(visited, start);
+        IntArrayList frontier = IntArrayList.from(start);
+        while (!frontier.isEmpty()) {
+            final IntArrayList current = frontier;
+            int chunks = (current.size() + FRONTIER_CHUNK_SIZE - 1) / FRONTIER_CHUNK_SIZE;
+            IntArrayList[] next = new IntArrayList[chunks];
+            if (chunks == 1) {
+                next[0] = expandFrontier(graph, explorers.get(), edgeTransitionFilter, excludedEdgeKeys, visited, current, 0, current.size(), reverse);
+            } else {
+                try {
+                    pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk ->
+                            next[chunk] = expandFrontier(graph, explorers.get(), edgeTransitionFilter, excludedEdgeKeys, visited, current,
+                                    chunk * FRONTIER_CHUNK_SIZE, Math.min(current.size(), (chunk + 1) * FRONTIER_CHUNK_SIZE), reverse))).get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            frontier = new IntArrayList();
+            for (IntArrayList edgeKeys : next)
+                frontier.addAll(edgeKeys);
+        }
+        return visited;
+    }
+
+    private static IntArrayList expandFrontier(Graph graph, EdgeExplorer explorer, EdgeTransitionFilter edgeTransitionFilter,
+                                               BitSet excludedEdgeKeys, AtomicLongArray visited, IntArrayList frontier,
+                                               int from, int to, boolean reverse) {
+        IntArrayList found = new IntArrayList();
+        for (int i = from; i < to; i++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorStateForKey(frontier.get(i));
+            if (reverse) {
+                // we are looking for the edge keys p with an accepted transition p -> edgeState
+                EdgeIterator iter = explorer.setBaseNode(edgeState.getBaseNode());
+                while (iter.next()) {
+                    int p = createEdgeKey(iter, true);
+                    if (excludedEdgeKeys.get(p) || !edgeTransitionFilter.accept(iter.getEdge(), edgeState))
+                        continue;
+                    if (trySet(visited, p))
+                        found.add(p);
+                }
+            } else {
+                EdgeIterator iter = explorer.setBaseNode(edgeState.getAdjNode());
+                while (iter.next()) {
+                    int q = createEdgeKey(iter, false);
+                    if (excludedEdgeKeys.get(q) || !edgeTransitionFilter.accept(edgeState.getEdge(), iter))
+                        continue;
+                    if (trySet(visited, q))
+                        found.add(q);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return true if the bit was not set before
+     */
+    private static boolean trySet(AtomicLongArray bits, int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0)
+                return false;
+            if (bits.compareAndSet(word, current, current | mask))
+                return true;
+        }
+    }
+
     private EdgeBasedTarjanSCC(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents) {
         this.graph = graph;
         this.edgeTransitionFilter = edgeTransitionFilter;
@@ -181,10 +316,7 @@ public class EdgeBasedTarjanSCC {
             if (tarjanStack.getLast() == p) {
                 tarjanStack.removeLast();
                 edgeKeyOnStack.remove(p);
-                components.numComponents++;
-                components.numEdgeKeys++;
-                if (!excludeSingleEdgeComponents)
-                    components.singleEdgeComponents.set(p);
+                addSingleEdgeComponent(p);
             } else {
                 IntArrayList component = new IntArrayList();
                 while (true) {
@@ -194,17 +326,31 @@ public class EdgeBasedTarjanSCC {
                     if (q == p)
                         break;
                 }
-                component.trimToSize();
-                assert component.size() > 1;
-                components.numComponents++;
-                components.numEdgeKeys += component.size();
-                components.components.add(component);
-                if (component.size() > components.biggestComponent.size())
-                    components.biggestComponent = component;
+                addComponent(component);
             }
         }
     }
 
+    private void addSingleEdgeComponent(int p) {
+        components.numComponents++;
+        components.numEdgeKeys++;
+        if (!excludeSingleEdgeComponents)
+            components.singleEdgeComponents.set(p);
+    }
+
+    private void addComponent(IntArrayList component) {
+        if (component.size() == 1) {
+            addSingleEdgeComponent(component.get(0));
+            return;
+        }
+        component.trimToSize();
+        components.numComponents++;
+        components.numEdgeKeys += component.size();
+        components.components.add(component);
+        if (component.size() > components.biggestComponent.size())
+            components.biggestComponent = component;
+    }
+
     private ConnectedComponents findComponents() {
         initForEntireGraph();
         AllEdgesIterator iter = graph.getAllEdges();
@@ -228,13 +374,13 @@ public class EdgeBasedTarjanSCC {
 
     private void findComponentsForEdgeState(EdgeIteratorState edge) {
         int edgeKeyFwd = createEdgeKey(edge, false);
-        if (!edgeKeyIndex.has(edgeKeyFwd))
+        if (!edgeKeyIndex.has(edgeKeyFwd) && !isExcluded(edgeKeyFwd))
             pushFindComponentForEdgeKey(edgeKeyFwd, edge.getAdjNode());
         startSearch();
         // We need to start the search for both edge keys of this edge, but its important to check if the second
         // has already been found by the first search. So we cannot simply push them both and start the search once.
         int edgeKeyBwd = createEdgeKey(edge, true);
-        if (!edgeKeyIndex.has(edgeKeyBwd))
+        if (!edgeKeyIndex.has(edgeKeyBwd) && !isExcluded(edgeKeyBwd))
             pushFindComponentForEdgeKey(edgeKeyBwd, edge.getAdjNode());
         startSearch();
     }
@@ -265,9 +411,9 @@ public class EdgeBasedTarjanSCC {
                     final int edge = getEdgeFromEdgeKey(p);
                     EdgeIterator it = explorer.setBaseNode(adj);
                     while (it.next()) {
-                        if (!edgeTransitionFilter.accept(edge, it))
-                            continue;
                         int q = createEdgeKey(it, false);
+                        if (isExcluded(q) || !edgeTransitionFilter.accept(edge, it))
+                            continue;
                         pushHandleNeighbor(p, q, it.getAdjNode());
                     }
                     break;
@@ -277,6 +423,10 @@ public class EdgeBasedTarjanSCC {
         }
     }
 
+    private boolean isExcluded(int edgeKey) {
+        return excludedEdgeKeys != null && excludedEdgeKeys.get(edgeKey);
+    }
+
     private boolean hasNext() {
         return !dfsStackPQ.isEmpty();
     }
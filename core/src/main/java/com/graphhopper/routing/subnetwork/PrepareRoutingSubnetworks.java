@@ -68,6 +68,7 @@ public class PrepareRoutingSubnetworks {
     private final List<PrepareJob> prepareJobs;
     private int minNetworkSize = 200;
     private int threads = 1;
+    private boolean parallelSCC = false;
 
     public PrepareRoutingSubnetworks(BaseGraph graph, List<PrepareJob> prepareJobs) {
         this.graph = graph;
@@ -88,6 +89,16 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * If enabled the jobs are processed one after another, but the search for the connected components of every job
+     * uses all threads, see {@link EdgeBasedTarjanSCC#findComponentsParallel}. This is faster if there are fewer jobs
+     * than threads, e.g. for a single profile.
+     */
+    public PrepareRoutingSubnetworks setParallelSCC(boolean parallelSCC) {
+        this.parallelSCC = parallelSCC;
+        return this;
+    }
+
     /**
      * Finds and marks all subnetworks according to {@link #setMinNetworkSize(int)}
      *
@@ -99,7 +110,7 @@ public class PrepareRoutingSubnetworks {
             return 0;
         }
         StopWatch sw = new StopWatch().start();
-        logger.info("Start marking subnetworks, prepare.min_network_size: " + minNetworkSize + ", threads: " + threads + ", nodes: " +
+        logger.info("Start marking subnetworks, prepare.min_network_size: " + minNetworkSize + ", threads: " + threads + ", parallel_scc: " + parallelSCC + ", nodes: " +
                 Helper.nf(graph.getNodes()) + ", edges: " + Helper.nf(graph.getEdges()) + ", jobs: " + prepareJobs + ", " + Helper.getMemInfo());
         AtomicInteger total = new AtomicInteger(0);
         List<BitSet> flags = Stream.generate(() -> new BitSet(graph.getEdges())).limit(prepareJobs.size()).collect(Collectors.toList());
@@ -107,7 +118,7 @@ public class PrepareRoutingSubnetworks {
             PrepareJob job = prepareJobs.get(i);
             total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i)));
         });
-        GHUtility.runConcurrently(runnables, threads);
+        GHUtility.runConcurrently(runnables, parallelSCC ? 1 : threads);
         AllEdgesIterator iter = graph.getAllEdges();
         while (iter.next()) {
             for (int i = 0; i < prepareJobs.size(); i++) {
@@ -122,9 +133,10 @@ public class PrepareRoutingSubnetworks {
     private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags) {
         // partition graph into strongly connected components using Tarjan's algorithm
         StopWatch sw = new StopWatch().start();
-        EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponents(graph,
-                (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev)),
-                false);
+        EdgeBasedTarjanSCC.EdgeTransitionFilter filter = (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev));
+        EdgeBasedTarjanSCC.ConnectedComponents ccs = parallelSCC
+                ? EdgeBasedTarjanSCC.findComponentsParallel(graph, filter, false, threads)
+                : EdgeBasedTarjanSCC.findComponents(graph, filter, false);
         List<IntArrayList> components = ccs.getComponents();
         BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
         long numSingleEdgeComponents = singleEdgeComponents.cardinality();
@@ -138,37 +138,52 @@ public class MaxSpeedCalculator {
     }
 
     public void fillMaxSpeed(Graph graph, EncodingManager em, Function<EdgeIteratorState, Boolean> isUrbanDensityFun) {
+        StopWatch sw = new StopWatch().start();
+        ParallelEdgePass edgePass = new ParallelEdgePass();
+        addFillMaxSpeed(edgePass, graph, em, isUrbanDensityFun);
+        edgePass.run(graph, 1);
+        LoggerFactory.getLogger(getClass()).info("max_speed_calculator took: " + sw.stop().getSeconds());
+    }
+
+    /**
+     * Adds a handler that fills the max_speed values like {@link #fillMaxSpeed(Graph, EncodingManager)} to the given
+     * edge pass. The urban density must be known for an edge when the handler is called, i.e. it must have been
+     * calculated before or its handler must have been added to the edge pass before.
+     */
+    public void addFillMaxSpeed(ParallelEdgePass edgePass, Graph graph, EncodingManager em) {
+        EnumEncodedValue<UrbanDensity> udEnc = em.getEnumEncodedValue(UrbanDensity.KEY, UrbanDensity.class);
+        addFillMaxSpeed(edgePass, graph, em, edge -> edge.get(udEnc) != UrbanDensity.RURAL);
+    }
+
+    private void addFillMaxSpeed(ParallelEdgePass edgePass, Graph graph, EncodingManager em, Function<EdgeIteratorState, Boolean> isUrbanDensityFun) {
         DecimalEncodedValue maxSpeedEnc = em.getDecimalEncodedValue(MaxSpeed.KEY);
         BooleanEncodedValue maxSpeedEstEnc = em.getBooleanEncodedValue(MaxSpeedEstimated.KEY);
-
-        StopWatch sw = new StopWatch().start();
-        AllEdgesIterator iter = graph.getAllEdges();
-        while (iter.next()) {
-            double fwdMaxSpeedPureOSM = iter.get(maxSpeedEnc);
-            double bwdMaxSpeedPureOSM = iter.getReverse(maxSpeedEnc);
+        // the internal storage must not grow while it is read concurrently
+        dataAccess.ensureCapacity(graph.getEdges() * 2L + 2L);
+        edgePass.add(edge -> {
+            double fwdMaxSpeedPureOSM = edge.get(maxSpeedEnc);
+            double bwdMaxSpeedPureOSM = edge.getReverse(maxSpeedEnc);
 
             // skip speeds-library if max_speed is known for both directions
             if (fwdMaxSpeedPureOSM != MaxSpeed.MAXSPEED_MISSING
-                    && bwdMaxSpeedPureOSM != MaxSpeed.MAXSPEED_MISSING) continue;
+                    && bwdMaxSpeedPureOSM != MaxSpeed.MAXSPEED_MISSING) return;
 
-            double maxSpeed = isUrbanDensityFun.apply(iter)
-                    ? urbanMaxSpeedEnc.getDecimal(false, iter.getEdge(), internalMaxSpeedStorage)
-                    : ruralMaxSpeedEnc.getDecimal(false, iter.getEdge(), internalMaxSpeedStorage);
+            double maxSpeed = isUrbanDensityFun.apply(edge)
+                    ? urbanMaxSpeedEnc.getDecimal(false, edge.getEdge(), internalMaxSpeedStorage)
+                    : ruralMaxSpeedEnc.getDecimal(false, edge.getEdge(), internalMaxSpeedStorage);
             if (maxSpeed != MaxSpeed.MAXSPEED_MISSING) {
                 if (maxSpeed == 0) {
                     // TODO fix properly: RestrictionSetter adds artificial edges for which
                     //  we didn't set the speed in DefaultMaxSpeedParser, #2914
-                    iter.set(maxSpeedEnc, MaxSpeed.MAXSPEED_MISSING, MaxSpeed.MAXSPEED_MISSING);
+                    edge.set(maxSpeedEnc, MaxSpeed.MAXSPEED_MISSING, MaxSpeed.MAXSPEED_MISSING);
                 } else {
-                    iter.set(maxSpeedEnc,
+                    edge.set(maxSpeedEnc,
                             fwdMaxSpeedPureOSM == MaxSpeed.MAXSPEED_MISSING ? maxSpeed : fwdMaxSpeedPureOSM,
                             bwdMaxSpeedPureOSM == MaxSpeed.MAXSPEED_MISSING ? maxSpeed : bwdMaxSpeedPureOSM);
-                    iter.set(maxSpeedEstEnc, true);
+                    edge.set(maxSpeedEstEnc, true);
                 }
             }
-        }
-
-        LoggerFactory.getLogger(getClass()).info("max_speed_calculator took: " + sw.stop().getSeconds());
+        });
     }
 
     public void close() {
@@ -0,0 +1,68 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Loops over all edges of a graph once and calls every added handler for each edge, so several calculations that have
+ * to visit all edges after the import share a single pass over the edge storage. The edge ids are split into chunks
+ * that are processed in parallel. For every edge the handlers are called in the order they were added, so a handler
+ * can read the values the previous handlers set for the same edge. A handler must not modify other edges than the one
+ * it is called with.
+ */
+public class ParallelEdgePass {
+    // large enough to keep the overhead per task small and small enough to balance the work among the threads
+    private static final int CHUNK_SIZE = 1 << 14;
+    private final List<Consumer<EdgeIteratorState>> handlers = new ArrayList<>();
+
+    public ParallelEdgePass add(Consumer<EdgeIteratorState> handler) {
+        handlers.add(handler);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return handlers.isEmpty();
+    }
+
+    public void run(Graph graph, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+        if (handlers.isEmpty())
+            return;
+        int edges = graph.getEdges();
+        Stream<Runnable> workers = IntStream.range(0, (edges + CHUNK_SIZE - 1) / CHUNK_SIZE)
+                .mapToObj(chunk -> () -> {
+                    int end = Math.min(edges, (chunk + 1) * CHUNK_SIZE);
+                    for (int edge = chunk * CHUNK_SIZE; edge < end; edge++) {
+                        EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                        for (Consumer<EdgeIteratorState> handler : handlers)
+                            handler.accept(edgeState);
+                    }
+                });
+        GHUtility.runConcurrently(workers, threads);
+    }
+}
@@ -47,21 +47,44 @@ public class UrbanDensityCalculator {
                                         double residentialAreaRadius, double residentialAreaSensitivity,
                                         double cityAreaRadius, double cityAreaSensitivity,
                                         int threads) {
+        ParallelEdgePass edgePass = new ParallelEdgePass();
+        addUrbanDensity(edgePass, graph, urbanDensityEnc, roadClassEnc, roadClassLinkEnc, residentialAreaRadius,
+                residentialAreaSensitivity, cityAreaRadius, cityAreaSensitivity, threads);
+        edgePass.run(graph, threads);
+    }
+
+    /**
+     * Calculates the urban density like {@link #calcUrbanDensity}, but does not write it to the graph. Instead, a
+     * handler that sets the urban density of every edge is added to the given edge pass, so other calculations that
+     * depend on the urban density, like the max speed calculation, can be done in the same pass over all edges.
+     */
+    public static void addUrbanDensity(ParallelEdgePass edgePass, Graph graph, EnumEncodedValue<UrbanDensity> urbanDensityEnc,
+                                       EnumEncodedValue<RoadClass> roadClassEnc, BooleanEncodedValue roadClassLinkEnc,
+                                       double residentialAreaRadius, double residentialAreaSensitivity,
+                                       double cityAreaRadius, double cityAreaSensitivity,
+                                       int threads) {
         logger.info("Calculating residential areas ..., radius={}, sensitivity={}, threads={}", residentialAreaRadius, residentialAreaSensitivity, threads);
         StopWatch sw = StopWatch.started();
-        calcResidential(graph, urbanDensityEnc, roadClassEnc, roadClassLinkEnc, residentialAreaRadius, residentialAreaSensitivity, threads);
+        boolean[] isResidential = calcResidential(graph, roadClassEnc, roadClassLinkEnc, residentialAreaRadius, residentialAreaSensitivity, threads);
         logger.info("Finished calculating residential areas, took: " + sw.stop().getSeconds() + "s");
+        boolean[] isCity;
         if (cityAreaRadius > 1) {
             logger.info("Calculating city areas ..., radius={}, sensitivity={}, threads={}", cityAreaRadius, cityAreaSensitivity, threads);
             sw = StopWatch.started();
-            calcCity(graph, urbanDensityEnc, cityAreaRadius, cityAreaSensitivity, threads);
+            isCity = calcCity(graph, isResidential, cityAreaRadius, cityAreaSensitivity, threads);
             logger.info("Finished calculating city areas, took: " + sw.stop().getSeconds() + "s");
+        } else {
+            isCity = new boolean[isResidential.length];
         }
+        edgePass.add(edge -> {
+            int edgeId = edge.getEdge();
+            edge.set(urbanDensityEnc, isCity[edgeId] ? UrbanDensity.CITY
+                    : isResidential[edgeId] ? UrbanDensity.RESIDENTIAL : UrbanDensity.RURAL);
+        });
     }
 
-    private static void calcResidential(Graph graph, EnumEncodedValue<UrbanDensity> urbanDensityEnc,
-                                        EnumEncodedValue<RoadClass> roadClassEnc, BooleanEncodedValue roadClassLinkEnc,
-                                        double radius, double sensitivity, int threads) {
+    private static boolean[] calcResidential(Graph graph, EnumEncodedValue<RoadClass> roadClassEnc, BooleanEncodedValue roadClassLinkEnc,
+                                             double radius, double sensitivity, int threads) {
         final ToDoubleFunction<EdgeIteratorState> calcRoadFactor = edge -> {
             RoadClass roadClass = edge.get(roadClassEnc);
             // we're interested in the road density of 'urban' roads, so dense road clusters of outdoor
@@ -75,31 +98,26 @@ public class UrbanDensityCalculator {
             else
                 return 1;
         };
-        // temporarily write results to an external array for thread-safety
+        // write results to an external array for thread-safety, they are written to the graph in a single pass later
         boolean[] isResidential = new boolean[graph.getEdges()];
         RoadDensityCalculator.calcRoadDensities(graph, (calculator, edge) -> {
             double roadDensity = calculator.calcRoadDensity(edge, radius, calcRoadFactor);
             isResidential[edge.getEdge()] = roadDensity * sensitivity >= 1.0;
         }, threads);
-        for (int edge = 0; edge < isResidential.length; edge++)
-            graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).set(urbanDensityEnc, isResidential[edge] ? UrbanDensity.RESIDENTIAL : UrbanDensity.RURAL);
+        return isResidential;
     }
 
-    private static void calcCity(Graph graph, EnumEncodedValue<UrbanDensity> urbanDensityEnc,
-                                 double radius, double sensitivity, int threads) {
-        // do not modify the urban density values as long as we are still reading them -> store city flags in this array first
+    private static boolean[] calcCity(Graph graph, boolean[] isResidential, double radius, double sensitivity, int threads) {
+        // the residential flags are not modified while we are reading them -> store city flags in a separate array
         boolean[] isCity = new boolean[graph.getEdges()];
-        final ToDoubleFunction<EdgeIteratorState> calcRoadFactor = edge -> edge.get(urbanDensityEnc) == UrbanDensity.RESIDENTIAL ? 1 : 0;
+        final ToDoubleFunction<EdgeIteratorState> calcRoadFactor = edge -> isResidential[edge.getEdge()] ? 1 : 0;
         RoadDensityCalculator.calcRoadDensities(graph, (calculator, edge) -> {
-            UrbanDensity urbanDensity = edge.get(urbanDensityEnc);
-            if (urbanDensity == UrbanDensity.RURAL)
+            if (!isResidential[edge.getEdge()])
                 return;
             double roadDensity = calculator.calcRoadDensity(edge, radius, calcRoadFactor);
             if (roadDensity * sensitivity >= 1.0)
                 isCity[edge.getEdge()] = true;
         }, threads);
-        for (int edge = 0; edge < isCity.length; edge++)
-            if (isCity[edge])
-                graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).set(urbanDensityEnc, UrbanDensity.CITY);
+        return isCity;
     }
 }
@@ -30,6 +30,8 @@ import com.graphhopper.util.BitUtil;
 import com.graphhopper.util.*;
 
 import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 
@@ -38,17 +40,29 @@ import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
  * by augmenting the graph with artificial edges. For proper handling of overlapping turn restrictions
  * (turn restrictions that share the same via-edges) and turn restrictions for different encoded values
  * it is important to add all restrictions with a single call.
+ * <p>
+ * Converting the restrictions and finding redundant ones only reads the graph and can use multiple threads (see
+ * {@link #setThreads}). The artificial edges and turn restrictions are always added by a single thread in the order
+ * of the given restrictions, so the resulting graph does not depend on the number of threads.
  */
 public class RestrictionSetter {
     private static final IntSet EMPTY_SET = IntHashSet.from();
     private final BaseGraph baseGraph;
     private final List<BooleanEncodedValue> turnRestrictionEncs;
+    private int threads = 1;
 
     public RestrictionSetter(BaseGraph baseGraph, List<BooleanEncodedValue> turnRestrictionEncs) {
         this.baseGraph = baseGraph;
         this.turnRestrictionEncs = turnRestrictionEncs;
     }
 
+    public RestrictionSetter setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive, but got: " + threads);
+        this.threads = threads;
+        return this;
+    }
+
     public static Restriction createViaNodeRestriction(int fromEdge, int viaNode, int toEdge) {
         return new Restriction(IntArrayList.from(fromEdge, toEdge), viaNode);
     }
@@ -62,7 +76,9 @@ public class RestrictionSetter {
     public void setRestrictions(List<Restriction> restrictions, List<BitSet> encBits) {
         if (restrictions.size() != encBits.size())
             throw new IllegalArgumentException("There must be as many encBits as restrictions. Got: " + encBits.size() + " and " + restrictions.size());
-        List<InternalRestriction> internalRestrictions = restrictions.stream().map(this::convertToInternal).toList();
+        InternalRestriction[] converted = new InternalRestriction[restrictions.size()];
+        forEachIndex(restrictions.size(), i -> converted[i] = convertToInternal(restrictions.get(i)));
+        List<InternalRestriction> internalRestrictions = Arrays.asList(converted);
         disableRedundantRestrictions(internalRestrictions, encBits);
         LongIntMap artificialEdgeKeysByIncViaPairs = new LongIntScatterMap();
         IntObjectMap<IntSet> artificialEdgesByEdge = new IntObjectScatterMap<>();
@@ -159,41 +175,60 @@ public class RestrictionSetter {
     }
 
     private void disableRedundantRestrictions(List<InternalRestriction> restrictions, List<BitSet> encBits) {
-        for (int encIdx = 0; encIdx < turnRestrictionEncs.size(); encIdx++) {
-            // first we disable all duplicates
-            Set<InternalRestriction> uniqueRestrictions = new HashSet<>();
-            for (int i = 0; i < restrictions.size(); i++) {
-                if (!encBits.get(i).get(encIdx))
-                    continue;
-                if (!uniqueRestrictions.add(restrictions.get(i)))
+        // the encoded values are independent of each other, so we can look at them in parallel. the threads must not
+        // modify the shared bit sets though, so every thread collects the restrictions to disable first.
+        boolean[][] disabledByEnc = new boolean[turnRestrictionEncs.size()][];
+        forEachIndex(turnRestrictionEncs.size(), encIdx -> disabledByEnc[encIdx] = findRedundantRestrictions(restrictions, encBits, encIdx));
+        for (int encIdx = 0; encIdx < disabledByEnc.length; encIdx++)
+            for (int i = 0; i < restrictions.size(); i++)
+                if (disabledByEnc[encIdx][i])
                     encBits.get(i).clear(encIdx);
-            }
-            // build an index of restrictions to quickly find all restrictions containing a given edge key
-            IntObjectScatterMap<List<InternalRestriction>> restrictionsByEdgeKeys = new IntObjectScatterMap<>();
-            for (int i = 0; i < restrictions.size(); i++) {
-                if (!encBits.get(i).get(encIdx))
-                    continue;
-                InternalRestriction restriction = restrictions.get(i);
-                for (IntCursor edgeKey : restriction.edgeKeys) {
-                    int idx = restrictionsByEdgeKeys.indexOf(edgeKey.value);
-                    if (idx < 0) {
-                        List<InternalRestriction> list = new ArrayList<>();
-                        list.add(restriction);
-                        restrictionsByEdgeKeys.indexInsert(idx, edgeKey.value, list);
-                    } else {
-                        restrictionsByEdgeKeys.indexGet(idx).add(restriction);
-                    }
+    }
+
+    private void forEachIndex(int count, IntConsumer consumer) {
+        if (threads == 1)
+            for (int i = 0; i < count; i++)
+                consumer.accept(i);
+        else
+            GHUtility.runConcurrently(IntStream.range(0, count).mapToObj(i -> () -> consumer.accept(i)), threads);
+    }
+
+    private boolean[] findRedundantRestrictions(List<InternalRestriction> restrictions, List<BitSet> encBits, int encIdx) {
+        boolean[] disabled = new boolean[restrictions.size()];
+        // first we disable all duplicates
+        Set<InternalRestriction> uniqueRestrictions = new HashSet<>();
+        for (int i = 0; i < restrictions.size(); i++) {
+            if (!encBits.get(i).get(encIdx))
+                continue;
+            if (!uniqueRestrictions.add(restrictions.get(i)))
+                disabled[i] = true;
+        }
+        // build an index of restrictions to quickly find all restrictions containing a given edge key
+        IntObjectScatterMap<List<InternalRestriction>> restrictionsByEdgeKeys = new IntObjectScatterMap<>();
+        for (int i = 0; i < restrictions.size(); i++) {
+            if (!encBits.get(i).get(encIdx) || disabled[i])
+                continue;
+            InternalRestriction restriction = restrictions.get(i);
+            for (IntCursor edgeKey : restriction.edgeKeys) {
+                int idx = restrictionsByEdgeKeys.indexOf(edgeKey.value);
+                if (idx < 0) {
+                    List<InternalRestriction> list = new ArrayList<>();
+                    list.add(restriction);
+                    restrictionsByEdgeKeys.indexInsert(idx, edgeKey.value, list);
+                } else {
+                    restrictionsByEdgeKeys.indexGet(idx).add(restriction);
                 }
             }
-            // Only keep restrictions that do not contain another restriction. For example, it would be unnecessary to restrict
-            // 6-8-2 when 6-8 is restricted already
-            for (int i = 0; i < restrictions.size(); i++) {
-                if (!encBits.get(i).get(encIdx))
-                    continue;
-                if (containsAnotherRestriction(restrictions.get(i), restrictionsByEdgeKeys))
-                    encBits.get(i).clear(encIdx);
-            }
         }
+        // Only keep restrictions that do not contain another restriction. For example, it would be unnecessary to restrict
+        // 6-8-2 when 6-8 is restricted already
+        for (int i = 0; i < restrictions.size(); i++) {
+            if (!encBits.get(i).get(encIdx) || disabled[i])
+                continue;
+            if (containsAnotherRestriction(restrictions.get(i), restrictionsByEdgeKeys))
+                disabled[i] = true;
+        }
+        return disabled;
     }
 
     private boolean containsAnotherRestriction(InternalRestriction restriction, IntObjectMap<List<InternalRestriction>> restrictionsByEdgeKeys) {
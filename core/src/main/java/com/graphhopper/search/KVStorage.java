@@ -28,7 +28,9 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This class stores key-value pairs in an append-only manner.
+ * This class stores key-value pairs in an append-only manner. String values that are long enough are stored only once
+ * in a dictionary and referenced from the key-value pairs, because the same street names and refs are used by many
+ * ways.
  *
  * @author Peter Karich
  */
@@ -39,6 +41,11 @@ public class KVStorage {
     static final int MAX_UNIQUE_KEYS = (1 << 14);
     // Store string value as byte array and store the length into 1 byte
     private static final int MAX_LENGTH = (1 << 8) - 1;
+    // shorter strings are always stored inline as a reference into the dictionary would not be much smaller
+    static final int MIN_DICTIONARY_LENGTH = 5;
+    // the maximum number of dictionary strings kept in memory to find duplicates while adding values
+    private static final int DICTIONARY_LOOKUP_SIZE = 1 << 18;
+    private static final int STRING_CACHE_SIZE = 1 << 12;
 
     private final Directory dir;
     // It stores the mapping of "key to index" in the keys DataAccess. E.g. if your first key is "some" then we will
@@ -74,7 +81,19 @@ public class KVStorage {
     // 2. Every key can store values only of the same type
     // 3. We need to loop through X entries to get the start val_x.
     // 4. The key index (14 bits) is stored along with the availability (2 bits), i.e. whether they KeyValue is available in forward and/or backward directions
+    // 5. A String value is stored as variable length integer x followed by the bytes of the String if x is even. For
+    //    even x the String is stored inline and x/2 is its byte length, for odd x it is stored in the dictionary
+    //    DataAccess and x/2 is its pointer there. The dictionary stores the length (1 byte) and the bytes of every String.
     private final DataAccess vals;
+    private final DataAccess dictionary;
+    private long dictionaryBytePointer = 0;
+    // The strings added recently and their pointers into the dictionary. This is only used while adding values and
+    // bounded, so strings that appear again after a long time might be stored twice. It is created on the first add
+    // and released in flush, so a loaded storage does not keep it.
+    private Map<String, Long> dictionaryLookup;
+    // Caches the recently read dictionary strings by their pointer to avoid decoding them again, e.g. for the
+    // instructions of consecutive edges of the same street. The entries are immutable, so this is thread-safe.
+    private final CachedString[] stringCache = new CachedString[STRING_CACHE_SIZE];
     private final Map<String, Integer> keyToIndex = new HashMap<>();
     private final List<Class<?>> indexToClass = new ArrayList<>();
     private final List<String> indexToKey = new ArrayList<>();
@@ -91,15 +110,18 @@ public class KVStorage {
         if (edge) {
             this.keys = dir.create("edgekv_keys", 10 * 1024);
             this.vals = dir.create("edgekv_vals");
+            this.dictionary = dir.create("edgekv_dict");
         } else {
             this.keys = dir.create("nodekv_keys", 10 * 1024);
             this.vals = dir.create("nodekv_vals");
+            this.dictionary = dir.create("nodekv_dict");
         }
     }
 
     public KVStorage create(long initBytes) {
         keys.create(initBytes);
         vals.create(initBytes);
+        dictionary.create(initBytes);
         // add special empty case to have a reliable duplicate detection via negative keyIndex
         keyToIndex.put("", 0);
         indexToKey.add("");
@@ -114,6 +136,13 @@ public class KVStorage {
             bytePointer = bitUtil.toLong(vals.getHeader(0), vals.getHeader(4));
             GHUtility.checkDAVersion(vals.getName(), Constants.VERSION_KV_STORAGE, vals.getHeader(8));
             GHUtility.checkDAVersion(keys.getName(), Constants.VERSION_KV_STORAGE, keys.getHeader(0));
+            dictionaryBytePointer = bitUtil.toLong(vals.getHeader(12), vals.getHeader(16));
+            if (!dictionary.loadExisting()) {
+                if (dictionaryBytePointer > 0)
+                    throw new IllegalStateException("Loaded values but cannot load dictionary");
+                // nothing was stored in the dictionary
+                dictionary.create(1000);
+            }
 
             // load keys into memory
             int count = keys.getShort(0);
@@ -197,6 +226,16 @@ public class KVStorage {
         }
 
         final byte[] valueBytes = getBytesForValue(clazz, value);
+        if (clazz.equals(String.class)) {
+            long dictionaryPointer = valueBytes.length >= MIN_DICTIONARY_LENGTH ? addToDictionary((String) value, valueBytes) : -1;
+            long header = dictionaryPointer >= 0 ? dictionaryPointer << 1 | 1 : (long) valueBytes.length << 1;
+            int inlineLength = dictionaryPointer >= 0 ? 0 : valueBytes.length;
+            vals.ensureCapacity(currentPointer + 2 + getVarLongLength(header) + inlineLength);
+            vals.setShort(currentPointer, (short) (keyIndex << 2 | (fwd ? 2 : 0) | (bwd ? 1 : 0)));
+            currentPointer = setVarLong(currentPointer + 2, header);
+            vals.setBytes(currentPointer, valueBytes, inlineLength);
+            return currentPointer + inlineLength;
+        }
         vals.ensureCapacity(currentPointer + 2 + 1 + valueBytes.length);
         vals.setShort(currentPointer, (short) (keyIndex << 2 | (fwd ? 2 : 0) | (bwd ? 1 : 0)));
         currentPointer += 2;
@@ -208,6 +247,70 @@ public class KVStorage {
         return currentPointer + valueBytes.length;
     }
 
+    private long addToDictionary(String value, byte[] valueBytes) {
+        if (dictionaryLookup == null)
+            dictionaryLookup = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > DICTIONARY_LOOKUP_SIZE;
+                }
+            };
+        Long pointer = dictionaryLookup.get(value);
+        if (pointer != null)
+            return pointer;
+        pointer = dictionaryBytePointer;
+        dictionary.ensureCapacity(pointer + 1 + valueBytes.length);
+        dictionary.setByte(pointer, (byte) valueBytes.length);
+        dictionary.setBytes(pointer + 1, valueBytes, valueBytes.length);
+        dictionaryBytePointer += 1 + valueBytes.length;
+        dictionaryLookup.put(value, pointer);
+        return pointer;
+    }
+
+    private String getDictionaryString(long pointer) {
+        int index = Long.hashCode(pointer * 0x9E3779B97F4A7C15L) & (STRING_CACHE_SIZE - 1);
+        CachedString cached = stringCache[index];
+        if (cached != null && cached.pointer == pointer)
+            return cached.value;
+        int length = dictionary.getByte(pointer) & 0xFF;
+        byte[] bytes = new byte[length];
+        dictionary.getBytes(pointer + 1, bytes, length);
+        String value = new String(bytes, Helper.UTF_CS);
+        stringCache[index] = new CachedString(pointer, value);
+        return value;
+    }
+
+    private long setVarLong(long pointer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            vals.setByte(pointer++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        vals.setByte(pointer++, (byte) value);
+        return pointer;
+    }
+
+    private long getVarLong(long pointer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = vals.getByte(pointer++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * @return the number of bytes the specified value needs as variable length integer, see {@link #setVarLong}
+     */
+    static int getVarLongLength(long value) {
+        int length = 1;
+        while ((value >>>= 7) != 0)
+            length++;
+        return length;
+    }
+
     /**
      * This method writes the specified entryMap (key-value pairs) into the storage. Please note that null keys or null
      * values are rejected. The Class of a value can be only: byte[], String, int, long, float or double
@@ -373,20 +476,40 @@ public class KVStorage {
         else throw new IllegalArgumentException("Cannot find class. Unknown short name " + name);
     }
 
+    private int getValueLength(long pointer, Class<?> clazz) {
+        if (clazz.equals(String.class)) {
+            long header = getVarLong(pointer);
+            return getVarLongLength(header) + ((header & 1) == 1 ? 0 : (int) (header >>> 1));
+        }
+        return hasDynLength(clazz) ? 1 + (vals.getByte(pointer) & 0xFF) : getFixLength(clazz);
+    }
+
     /**
      * This method creates an Object (type Class) which is located at the specified pointer
      */
     private Object deserializeObj(AtomicInteger sizeOfObject, long pointer, Class<?> clazz) {
-        if (hasDynLength(clazz)) {
+        if (clazz.equals(String.class)) {
+            long header = getVarLong(pointer);
+            int headerLength = getVarLongLength(header);
+            if ((header & 1) == 1) {
+                if (sizeOfObject != null)
+                    sizeOfObject.set(headerLength);
+                return getDictionaryString(header >>> 1);
+            }
+            int valueLength = (int) (header >>> 1);
+            byte[] valueBytes = new byte[valueLength];
+            vals.getBytes(pointer + headerLength, valueBytes, valueLength);
+            if (sizeOfObject != null)
+                sizeOfObject.set(headerLength + valueLength);
+            return new String(valueBytes, Helper.UTF_CS);
+        } else if (hasDynLength(clazz)) {
             int valueLength = vals.getByte(pointer) & 0xFF;
             pointer++;
             byte[] valueBytes = new byte[valueLength];
             vals.getBytes(pointer, valueBytes, valueBytes.length);
             if (sizeOfObject != null)
-                sizeOfObject.set(1 + valueLength); // For String and byte[] we store the length and the value
-            if (clazz.equals(String.class)) return new String(valueBytes, Helper.UTF_CS);
-            else if (clazz.equals(byte[].class)) return valueBytes;
-            throw new IllegalArgumentException();
+                sizeOfObject.set(1 + valueLength); // For byte[] we store the length and the value
+            return valueBytes;
         } else {
             byte[] valueBytes = new byte[getFixLength(clazz)];
             vals.getBytes(pointer, valueBytes, valueBytes.length);
@@ -435,8 +558,7 @@ public class KVStorage {
 
             // skip to next entry of same edge via skipping the real value
             Class<?> clazz = indexToClass.get(currentKeyIndex);
-            int valueLength = hasDynLength(clazz) ? 1 + vals.getByte(tmpPointer) & 0xFF : getFixLength(clazz);
-            tmpPointer += valueLength;
+            tmpPointer += getValueLength(tmpPointer, clazz);
         }
 
         // value for specified key does not exist for the specified pointer
@@ -471,25 +593,43 @@ public class KVStorage {
         vals.setHeader(0, bitUtil.getIntLow(bytePointer));
         vals.setHeader(4, bitUtil.getIntHigh(bytePointer));
         vals.setHeader(8, Constants.VERSION_KV_STORAGE);
+        vals.setHeader(12, bitUtil.getIntLow(dictionaryBytePointer));
+        vals.setHeader(16, bitUtil.getIntHigh(dictionaryBytePointer));
         vals.flush();
+        dictionary.flush();
+        // flush is called when the import is done. Values added later are still deduplicated among themselves
+        dictionaryLookup = null;
     }
 
     public void clear() {
         dir.remove(keys.getName());
         dir.remove(vals.getName());
+        dir.remove(dictionary.getName());
     }
 
     public void close() {
+        dictionaryLookup = null;
         keys.close();
         vals.close();
+        dictionary.close();
     }
 
     public boolean isClosed() {
-        return vals.isClosed() && keys.isClosed();
+        return vals.isClosed() && keys.isClosed() && dictionary.isClosed();
     }
 
     public long getCapacity() {
-        return vals.getCapacity() + keys.getCapacity();
+        return vals.getCapacity() + keys.getCapacity() + dictionary.getCapacity();
+    }
+
+    private static class CachedString {
+        final long pointer;
+        final String value;
+
+        CachedString(long pointer, String value) {
+            this.pointer = pointer;
+            this.value = value;
+        }
     }
 
     public static class KValue {
@@ -48,6 +48,7 @@ import static com.graphhopper.util.Parameters.Details.STREET_NAME;
  */
 public class BaseGraph implements Graph, Closeable {
     final static long MAX_UNSIGNED_INT = 0xFFFF_FFFFL;
+    private final static byte MOVED_GEOMETRY = (byte) 0xFF;
     final BaseGraphNodesAndEdges store;
     final NodeAccess nodeAccess;
     final KVStorage edgeKVStorage;
@@ -55,20 +56,31 @@ public class BaseGraph implements Graph, Closeable {
     final TurnCostStorage turnCostStorage;
     final BitUtil bitUtil;
     // length | nodeA | nextNode | ... | nodeB
-    private final DataAccess wayGeometry;
+    // or, if compressed: capacity | length | zigzag deltas of nodeA | nextNode | ... | nodeB
+    private DataAccess wayGeometry;
     private final Directory dir;
     private final int segmentSize;
     private boolean initialized = false;
     private long minGeoRef;
     private long maxGeoRef;
+    private boolean compressedGeometry;
     private final int eleBytesPerCoord;
+    private CSRAdjacency csrAdjacency;
 
     public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, false);
+    }
+
+    /**
+     * @param splitEdges stores the key-values and geometry references of the edges separately from the fields needed
+     *                   for routing, see {@link BaseGraphNodesAndEdges}
+     */
+    public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags, boolean splitEdges) {
         this.dir = dir;
         this.bitUtil = BitUtil.LITTLE;
         this.wayGeometry = dir.create("geometry", segmentSize);
         this.edgeKVStorage = new KVStorage(dir, true);
-        this.store = new BaseGraphNodesAndEdges(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags);
+        this.store = new BaseGraphNodesAndEdges(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, splitEdges);
         this.nodeAccess = new GHNodeAccess(store);
         this.segmentSize = segmentSize;
         this.turnCostStorage = withTurnCosts ? new TurnCostStorage(this, dir.create("turn_costs", dir.getDefaultType("turn_costs", true), segmentSize)) : null;
@@ -115,7 +127,9 @@ public class BaseGraph implements Graph, Closeable {
 
     private void loadWayGeometryHeader() {
         int geometryVersion = wayGeometry.getHeader(0);
-        GHUtility.checkDAVersion(wayGeometry.getName(), Constants.VERSION_GEOMETRY, geometryVersion);
+        compressedGeometry = geometryVersion == Constants.VERSION_GEOMETRY_COMPRESSED;
+        if (!compressedGeometry)
+            GHUtility.checkDAVersion(wayGeometry.getName(), Constants.VERSION_GEOMETRY, geometryVersion);
         minGeoRef = bitUtil.toLong(
                 wayGeometry.getHeader(4),
                 wayGeometry.getHeader(8)
@@ -127,7 +141,7 @@ public class BaseGraph implements Graph, Closeable {
     }
 
     private void setWayGeometryHeader() {
-        wayGeometry.setHeader(0, Constants.VERSION_GEOMETRY);
+        wayGeometry.setHeader(0, compressedGeometry ? Constants.VERSION_GEOMETRY_COMPRESSED : Constants.VERSION_GEOMETRY);
         wayGeometry.setHeader(4, bitUtil.getIntLow(minGeoRef));
         wayGeometry.setHeader(8, bitUtil.getIntHigh(minGeoRef));
         wayGeometry.setHeader(12, bitUtil.getIntLow(maxGeoRef));
@@ -236,12 +250,36 @@ public class BaseGraph implements Graph, Closeable {
         }
     }
 
+    /**
+     * Copies the adjacency lists of all nodes into a compact in-memory array that is then used by all edge explorers
+     * created afterwards, see {@link CSRAdjacency}. No edges can be added to the graph after this.
+     *
+     * @return the number of bytes used by the copy
+     */
+    public synchronized long buildCSRAdjacency() {
+        if (csrAdjacency != null)
+            throw new IllegalStateException("CSR adjacency already built");
+        csrAdjacency = CSRAdjacency.build(this);
+        return csrAdjacency.getCapacity();
+    }
+
+    /**
+     * @return false if the graph has too many edges for {@link #buildCSRAdjacency()}
+     */
+    public boolean supportsCSRAdjacency() {
+        return getEdges() <= CSRAdjacency.MAX_EDGES;
+    }
+
+    public boolean hasCSRAdjacency() {
+        return csrAdjacency != null;
+    }
+
     public long getCapacity() {
         return store.getCapacity() + edgeKVStorage.getCapacity()
                 + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0);
     }
 
-    long getMaxGeoRef() {
+    public long getMaxGeoRef() {
         return maxGeoRef;
     }
 
@@ -291,6 +329,8 @@ public class BaseGraph implements Graph, Closeable {
     public EdgeIteratorState edge(int nodeA, int nodeB) {
         if (isFrozen())
             throw new IllegalStateException("Cannot create edge if graph is already frozen");
+        if (csrAdjacency != null)
+            throw new IllegalStateException("Cannot create edge after the CSR adjacency was built");
         if (nodeA == nodeB)
             // Loop edges would only make sense if their attributes were the same for both 'directions',
             // because for routing algorithms (which ignore the way geometry) loop edges do not even
@@ -408,6 +448,8 @@ public class BaseGraph implements Graph, Closeable {
 
     @Override
     public EdgeExplorer createEdgeExplorer(EdgeFilter filter) {
+        if (csrAdjacency != null)
+            return new CSREdgeIteratorImpl(this, csrAdjacency, filter);
         return new EdgeIteratorImpl(this, filter);
     }
 
@@ -465,6 +507,10 @@ public class BaseGraph implements Graph, Closeable {
                 throw new IllegalStateException("This edge has already been copied so we can no longer change the geometry, pointer=" + edgePointer);
 
             int len = pillarNodes.size();
+            if (compressedGeometry) {
+                setCompressedWayGeometry(pillarNodes, edgePointer, reverse, existingGeoRef);
+                return;
+            }
             if (existingGeoRef > 0) {
                 final int count = getPillarCount(existingGeoRef);
                 if (len <= count) {
@@ -494,9 +540,7 @@ public class BaseGraph implements Graph, Closeable {
 
     private byte[] createWayGeometryBytes(PointList pillarNodes, boolean reverse) {
         int len = pillarNodes.size();
-        int totalLen = 3 + len * (8 + eleBytesPerCoord);
-        if ((totalLen & 0xFF00_0000) != 0)
-            throw new IllegalArgumentException("too long way geometry " + totalLen + ", " + len);
+        int totalLen = checkWayGeometryLength(len);
 
         byte[] bytes = new byte[totalLen];
         bitUtil.fromUInt3(bytes, len, 0);
@@ -520,6 +564,187 @@ public class BaseGraph implements Graph, Closeable {
         return bytes;
     }
 
+    private int checkWayGeometryLength(int len) {
+        int totalLen = 3 + len * (8 + eleBytesPerCoord);
+        if ((totalLen & 0xFF00_0000) != 0)
+            throw new IllegalArgumentException("too long way geometry " + totalLen + ", " + len);
+        return totalLen;
+    }
+
+    private void setCompressedWayGeometry(PointList pillarNodes, long edgePointer, boolean reverse, long existingGeoRef) {
+        byte[] payload = createCompressedWayGeometryBytes(pillarNodes, reverse, edgePointer);
+        if (existingGeoRef > 0) {
+            // we can overwrite the existing geometry as long as the new one fits into the space we reserved for it
+            int capacity = getCompressedCapacity(existingGeoRef);
+            if (payload.length > capacity)
+                throw new IllegalStateException("This edge already has a way geometry so it cannot be changed to a bigger geometry, pointer=" + edgePointer);
+            wayGeometry.setBytes(existingGeoRef + getVLongLength(capacity), payload, payload.length);
+        } else {
+            byte[] header = createVLongHeader(payload.length);
+            long geoRef = nextGeoRef(header.length + payload.length);
+            writeCompressedWayGeometry(wayGeometry, geoRef, header, payload);
+            store.setGeoRef(edgePointer, geoRef);
+        }
+    }
+
+    private byte[] createCompressedWayGeometryBytes(PointList pillarNodes, boolean reverse, long edgePointer) {
+        int len = pillarNodes.size();
+        checkWayGeometryLength(len);
+        boolean is3D = nodeAccess.is3D();
+        VLongStorage storage = new VLongStorage(1 + len * (is3D ? 8 : 6));
+        storage.writeVLong(len);
+        // the first pillar node is stored relative to nodeA of the edge
+        int nodeA = store.getNodeA(edgePointer);
+        long prevLat = Helper.degreeToInt(nodeAccess.getLat(nodeA));
+        long prevLon = Helper.degreeToInt(nodeAccess.getLon(nodeA));
+        long prevEle = is3D ? Helper.eleToUInt(nodeAccess.getEle(nodeA)) : 0;
+        for (int i = 0; i < len; i++) {
+            int index = reverse ? len - 1 - i : i;
+            long lat = Helper.degreeToInt(pillarNodes.getLat(index));
+            long lon = Helper.degreeToInt(pillarNodes.getLon(index));
+            storage.writeVLong(zigZag(lat - prevLat));
+            storage.writeVLong(zigZag(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                long ele = Helper.eleToUInt(pillarNodes.getEle(index));
+                storage.writeVLong(zigZag(ele - prevEle));
+                prevEle = ele;
+            }
+        }
+        storage.trimToSize();
+        return storage.getBytes();
+    }
+
+    private static byte[] createVLongHeader(long value) {
+        VLongStorage header = new VLongStorage(5);
+        header.writeVLong(value);
+        header.trimToSize();
+        return header.getBytes();
+    }
+
+    private static int getVLongLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static void writeCompressedWayGeometry(DataAccess da, long geoRef, byte[] header, byte[] payload) {
+        da.ensureCapacity(geoRef + header.length + payload.length);
+        da.setBytes(geoRef, header, header.length);
+        da.setBytes(geoRef + header.length, payload, payload.length);
+    }
+
+    /**
+     * @return the number of bytes reserved for the compressed way geometry at the given geoRef
+     */
+    private int getCompressedCapacity(long geoRef) {
+        int capacity = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = wayGeometry.getByte(geoRef++);
+            capacity |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return capacity;
+        }
+    }
+
+    private VLongStorage readCompressedWayGeometry(long geoRef) {
+        int capacity = getCompressedCapacity(geoRef);
+        byte[] bytes = new byte[capacity];
+        wayGeometry.getBytes(geoRef + getVLongLength(capacity), bytes, bytes.length);
+        return new VLongStorage(bytes);
+    }
+
+    private void addCompressedPillarNodes(PointList pillarNodes, VLongStorage storage, int count, long edgePointer) {
+        boolean is3D = nodeAccess.is3D();
+        int nodeA = store.getNodeA(edgePointer);
+        long lat = Helper.degreeToInt(nodeAccess.getLat(nodeA));
+        long lon = Helper.degreeToInt(nodeAccess.getLon(nodeA));
+        long ele = is3D ? Helper.eleToUInt(nodeAccess.getEle(nodeA)) : 0;
+        for (int i = 0; i < count; i++) {
+            lat += unZigZag(storage.readVLong());
+            lon += unZigZag(storage.readVLong());
+            if (is3D) {
+                ele += unZigZag(storage.readVLong());
+                pillarNodes.add(Helper.intToDegree((int) lat), Helper.intToDegree((int) lon), Helper.uIntToEle((int) ele));
+            } else {
+                pillarNodes.add(Helper.intToDegree((int) lat), Helper.intToDegree((int) lon));
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Rewrites the way geometries of all edges into the compressed format, which stores the coordinates as variable
+     * length deltas to the previous point (or to nodeA of the edge for the first point) instead of fixed size integers.
+     * This usually reduces the size of the geometry storage by half and all geometries that are added later are
+     * compressed as well. The geometries are written in the order of the edges, so calling this after sorting the
+     * edges also improves their locality. Afterwards the coordinates of the tower nodes must no longer be changed and
+     * an existing geometry can only be replaced by a geometry that does not need more bytes.
+     */
+    public void compressWayGeometry() {
+        if (compressedGeometry)
+            return;
+        DataAccess compressed = dir.create("geometry_compressed", segmentSize).create(Math.min(maxGeoRef, 2000));
+        long newMaxGeoRef = 1;
+        for (int edge = 0; edge < store.getEdges(); edge++) {
+            long edgePointer = store.toEdgePointer(edge);
+            long geoRef = store.getGeoRef(edgePointer);
+            if (geoRef <= 0)
+                continue;
+            // the pillar count never uses the upper byte of its three bytes, so we use it to mark geometries that
+            // we already moved, followed by the new geoRef. this way copies of an edge still share their geometry.
+            if (wayGeometry.getByte(geoRef + 2) == MOVED_GEOMETRY) {
+                store.setGeoRef(edgePointer, bitUtil.toLong(wayGeometry.getInt(geoRef + 3), wayGeometry.getInt(geoRef + 7)));
+                continue;
+            }
+            byte[] payload = createCompressedWayGeometryBytes(fetchWayGeometry_(edgePointer, false, FetchMode.PILLAR_ONLY, -1, -1), false, edgePointer);
+            byte[] header = createVLongHeader(payload.length);
+            writeCompressedWayGeometry(compressed, newMaxGeoRef, header, payload);
+            store.setGeoRef(edgePointer, newMaxGeoRef);
+            wayGeometry.setByte(geoRef + 2, MOVED_GEOMETRY);
+            wayGeometry.setInt(geoRef + 3, bitUtil.getIntLow(newMaxGeoRef));
+            wayGeometry.setInt(geoRef + 7, bitUtil.getIntHigh(newMaxGeoRef));
+            newMaxGeoRef += header.length + payload.length;
+        }
+
+        // we cannot rename the compressed storage, so we copy it to a new geometry storage to release the old one
+        dir.remove(wayGeometry.getName());
+        wayGeometry = dir.create("geometry", segmentSize).create(newMaxGeoRef);
+        byte[] buffer = new byte[Math.min(1 << 16, compressed.getSegmentSize())];
+        for (long pos = 0; pos < newMaxGeoRef; pos += buffer.length) {
+            int length = (int) Math.min(buffer.length, newMaxGeoRef - pos);
+            compressed.getBytes(pos, buffer, length);
+            wayGeometry.ensureCapacity(pos + length);
+            wayGeometry.setBytes(pos, buffer, length);
+        }
+        dir.remove(compressed.getName());
+        maxGeoRef = newMaxGeoRef;
+        compressedGeometry = true;
+    }
+
+    /**
+     * @return true if the key-values and geometry references of the edges are stored separately from the fields
+     * needed for routing
+     */
+    public boolean isSplitEdges() {
+        return store.isSplitEdges();
+    }
+
+    public boolean isWayGeometryCompressed() {
+        return compressedGeometry;
+    }
+
     private int getPillarCount(long geoRef) {
         return (wayGeometry.getByte(geoRef + 2) & 0xFF << 16) | wayGeometry.getShort(geoRef);
     }
@@ -535,7 +760,11 @@ public class BaseGraph implements Graph, Closeable {
         long geoRef = store.getGeoRef(edgePointer);
         int count = 0;
         byte[] bytes = null;
-        if (geoRef > 0) {
+        VLongStorage compressed = null;
+        if (geoRef > 0 && compressedGeometry) {
+            compressed = readCompressedWayGeometry(geoRef);
+            count = (int) compressed.readVLong();
+        } else if (geoRef > 0) {
             count = getPillarCount(geoRef);
             geoRef += 3L;
             bytes = new byte[count * (8 + eleBytesPerCoord)];
@@ -550,17 +779,21 @@ public class BaseGraph implements Graph, Closeable {
         } else if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
             pillarNodes.add(nodeAccess, baseNode);
 
-        int index = 0;
-        for (int i = 0; i < count; i++) {
-            double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
-            index += 4;
-            double lon = Helper.intToDegree(bitUtil.toInt(bytes, index));
-            index += 4;
-            if (nodeAccess.is3D()) {
-                pillarNodes.add(lat, lon, Helper.uIntToEle(bitUtil.toUInt3(bytes, index)));
-                index += 3;
-            } else {
-                pillarNodes.add(lat, lon);
+        if (compressed != null) {
+            addCompressedPillarNodes(pillarNodes, compressed, count, edgePointer);
+        } else {
+            int index = 0;
+            for (int i = 0; i < count; i++) {
+                double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
+                index += 4;
+                double lon = Helper.intToDegree(bitUtil.toInt(bytes, index));
+                index += 4;
+                if (nodeAccess.is3D()) {
+                    pillarNodes.add(lat, lon, Helper.uIntToEle(bitUtil.toUInt3(bytes, index)));
+                    index += 3;
+                } else {
+                    pillarNodes.add(lat, lon);
+                }
             }
         }
 
@@ -615,6 +848,7 @@ public class BaseGraph implements Graph, Closeable {
         private boolean withTurnCosts = false;
         private long bytes = 100;
         private int segmentSize = -1;
+        private boolean splitEdges = false;
 
         public Builder(EncodingManager em) {
             this(em.getBytesForFlags());
@@ -653,8 +887,13 @@ public class BaseGraph implements Graph, Closeable {
             return this;
         }
 
+        public Builder setSplitEdges(boolean splitEdges) {
+            this.splitEdges = splitEdges;
+            return this;
+        }
+
         public BaseGraph build() {
-            return new BaseGraph(directory, withElevation, withTurnCosts, segmentSize, bytesForFlags);
+            return new BaseGraph(directory, withElevation, withTurnCosts, segmentSize, bytesForFlags, splitEdges);
         }
 
         public BaseGraph create() {
@@ -714,6 +953,49 @@ public class BaseGraph implements Graph, Closeable {
         }
     }
 
+    /**
+     * Iterates the edges of a node using the {@link CSRAdjacency} instead of the linked lists of the edges.
+     */
+    protected static class CSREdgeIteratorImpl extends EdgeIteratorStateImpl implements EdgeExplorer, EdgeIterator {
+        final CSRAdjacency adjacency;
+        final EdgeFilter filter;
+        int pointer;
+        int end;
+
+        public CSREdgeIteratorImpl(BaseGraph baseGraph, CSRAdjacency adjacency, EdgeFilter filter) {
+            super(baseGraph);
+            if (filter == null)
+                throw new IllegalArgumentException("Instead null filter use EdgeFilter.ALL_EDGES");
+            this.adjacency = adjacency;
+            this.filter = filter;
+        }
+
+        @Override
+        public EdgeIterator setBaseNode(int baseNode) {
+            pointer = adjacency.getStart(baseNode);
+            end = adjacency.getEnd(baseNode);
+            edgeId = EdgeIterator.NO_EDGE;
+            edgePointer = -1;
+            this.baseNode = baseNode;
+            return this;
+        }
+
+        @Override
+        public final boolean next() {
+            while (pointer < end) {
+                int edgeKey = adjacency.getEdgeKey(pointer);
+                adjNode = adjacency.getAdjNode(pointer);
+                pointer += 2;
+                edgeId = GHUtility.getEdgeFromEdgeKey(edgeKey);
+                reverse = edgeKey % 2 == 1;
+                edgePointer = store.toEdgePointer(edgeId);
+                if (filter.accept(this))
+                    return true;
+            }
+            return false;
+        }
+    }
+
     /**
      * Include all edges of this storage in the iterator.
      */
@@ -32,6 +32,10 @@ import static com.graphhopper.util.Helper.nf;
 /**
  * Underlying storage for nodes and edges of {@link BaseGraph}. Nodes and edges are stored using two {@link DataAccess}
  * instances. Nodes and edges are simply stored sequentially, see the memory layout in the constructor.
+ * <p>
+ * Optionally the edges can be split into the fields needed for routing (nodes, links, distance and flags) and the
+ * annotations only needed after routing (key-values and geometry), which are then stored in a third DataAccess. This
+ * way graph searches only touch the smaller hot part and the annotations can e.g. stay memory-mapped on disk.
  */
 class BaseGraphNodesAndEdges implements EdgeIntAccess {
     // Currently distances are stored as 4 byte integers. using a conversion factor of 1000 the minimum distance
@@ -48,10 +52,18 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
     // edges
     private final DataAccess edges;
-    private final int E_NODEA, E_NODEB, E_LINKA, E_LINKB, E_DIST, E_KV, E_FLAGS, E_GEO;
+    private final int E_NODEA, E_NODEB, E_LINKA, E_LINKB, E_DIST;
+    private int E_KV, E_FLAGS, E_GEO;
     private final int bytesForFlags;
     private int edgeEntryBytes;
     private int edgeCount;
+    // edge annotations, null if they are stored in edges
+    private final Directory dir;
+    private final int segmentSize;
+    private boolean splitEdges;
+    private DataAccess edgeAnnotations;
+    private DataAccess annotations;
+    private int annotationEntryBytes;
 
     private final boolean withTurnCosts;
     private final boolean withElevation;
@@ -63,8 +75,19 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     private boolean frozen;
 
     public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, false);
+    }
+
+    /**
+     * @param splitEdges if true the key-values and geometry references of the edges are stored separately from the
+     *                   fields needed for routing. This only applies to new graphs, loaded graphs keep their layout.
+     */
+    public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags, boolean splitEdges) {
         nodes = dir.create("nodes", dir.getDefaultType("nodes", true), segmentSize);
         edges = dir.create("edges", dir.getDefaultType("edges", false), segmentSize);
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.splitEdges = splitEdges;
         this.bytesForFlags = bytesForFlags;
         this.withTurnCosts = withTurnCosts;
         this.withElevation = withElevation;
@@ -84,15 +107,34 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         E_LINKA = 8;
         E_LINKB = 12;
         E_DIST = 16;
-        E_KV = 20;
-        E_FLAGS = 24;
-        E_GEO = E_FLAGS + bytesForFlags;
-        edgeEntryBytes = E_GEO + 5;
+        initEdgeLayout();
+    }
+
+    private void initEdgeLayout() {
+        if (splitEdges) {
+            E_FLAGS = 20;
+            edgeEntryBytes = E_FLAGS + bytesForFlags;
+            // memory layout for edge annotations
+            E_KV = 0;
+            E_GEO = 4;
+            annotationEntryBytes = E_GEO + 5;
+            if (edgeAnnotations == null)
+                edgeAnnotations = dir.create("edge_annotations", dir.getDefaultType("edge_annotations", false), segmentSize);
+            annotations = edgeAnnotations;
+        } else {
+            E_KV = 20;
+            E_FLAGS = 24;
+            E_GEO = E_FLAGS + bytesForFlags;
+            edgeEntryBytes = E_GEO + 5;
+            annotations = edges;
+        }
     }
 
     public void create(long initSize) {
         nodes.create(initSize);
         edges.create(initSize);
+        if (splitEdges)
+            edgeAnnotations.create(initSize);
     }
 
     public boolean loadExisting() {
@@ -121,6 +163,17 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
         final int edgesVersion = edges.getHeader(0 * 4);
         GHUtility.checkDAVersion("edges", Constants.VERSION_EDGE, edgesVersion);
+        // the layout of the loaded graph wins over the configured one
+        if (splitEdges != (edges.getHeader(3 * 4) == 1)) {
+            if (edgeAnnotations != null)
+                // there is no such file, we only created the DataAccess for the configured layout
+                dir.remove(edgeAnnotations.getName());
+            edgeAnnotations = null;
+            splitEdges = !splitEdges;
+            initEdgeLayout();
+        }
+        if (splitEdges && !edgeAnnotations.loadExisting())
+            return false;
         edgeEntryBytes = edges.getHeader(1 * 4);
         edgeCount = edges.getHeader(2 * 4);
         return true;
@@ -144,14 +197,19 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         edges.setHeader(0 * 4, Constants.VERSION_EDGE);
         edges.setHeader(1 * 4, edgeEntryBytes);
         edges.setHeader(2 * 4, edgeCount);
+        edges.setHeader(3 * 4, splitEdges ? 1 : 0);
 
         edges.flush();
         nodes.flush();
+        if (splitEdges)
+            edgeAnnotations.flush();
     }
 
     public void close() {
         edges.close();
         nodes.close();
+        if (splitEdges)
+            edgeAnnotations.close();
     }
 
     public int getNodes() {
@@ -183,7 +241,15 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     }
 
     public long getCapacity() {
-        return nodes.getCapacity() + edges.getCapacity();
+        return nodes.getCapacity() + edges.getCapacity() + (splitEdges ? edgeAnnotations.getCapacity() : 0);
+    }
+
+    public boolean isSplitEdges() {
+        return splitEdges;
+    }
+
+    private long toAnnotationPointer(long edgePointer) {
+        return splitEdges ? edgePointer / edgeEntryBytes * annotationEntryBytes : edgePointer;
     }
 
     public boolean isClosed() {
@@ -201,6 +267,8 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         final long edgePointer = (long) edgeCount * edgeEntryBytes;
         edgeCount++;
         edges.ensureCapacity((long) edgeCount * edgeEntryBytes);
+        if (splitEdges)
+            edgeAnnotations.ensureCapacity((long) edgeCount * annotationEntryBytes);
 
         setNodeA(edgePointer, nodeA);
         setNodeB(edgePointer, nodeB);
@@ -438,12 +506,13 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         if (highest25Bits != 0 && highest25Bits != 0x1_FF_FFFF)
             throw new IllegalArgumentException("geoRef is too " + (geoRef > 0 ? "large " : "small ") + geoRef + ", " + Long.toBinaryString(geoRef));
 
-        edges.setInt(edgePointer + E_GEO, (int) (geoRef));
-        edges.setByte(edgePointer + E_GEO + 4, (byte) (geoRef >> 32));
+        long pointer = toAnnotationPointer(edgePointer);
+        annotations.setInt(pointer + E_GEO, (int) (geoRef));
+        annotations.setByte(pointer + E_GEO + 4, (byte) (geoRef >> 32));
     }
 
     public void setKeyValuesRef(long edgePointer, int nameRef) {
-        edges.setInt(edgePointer + E_KV, nameRef);
+        annotations.setInt(toAnnotationPointer(edgePointer) + E_KV, nameRef);
     }
 
     public int getNodeA(long edgePointer) {
@@ -469,14 +538,15 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     }
 
     public long getGeoRef(long edgePointer) {
+        long pointer = toAnnotationPointer(edgePointer);
         return BitUtil.LITTLE.toLong(
-                edges.getInt(edgePointer + E_GEO),
+                annotations.getInt(pointer + E_GEO),
                 // to support negative georefs (#2985) do not mask byte with 0xFF:
-                edges.getByte(edgePointer + E_GEO + 4));
+                annotations.getByte(pointer + E_GEO + 4));
     }
 
     public int getKeyValuesRef(long edgePointer) {
-        return edges.getInt(edgePointer + E_KV);
+        return annotations.getInt(toAnnotationPointer(edgePointer) + E_KV);
     }
 
     public void setEdgeRef(long nodePointer, int edgeRef) {
@@ -571,7 +641,8 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     }
 
     public String toDetailsString() {
-        return "edges: " + nf(edgeCount) + "(" + edges.getCapacity() / Helper.MB + "MB), "
+        return "edges: " + nf(edgeCount) + "(" + edges.getCapacity() / Helper.MB + "MB"
+                + (splitEdges ? ", annotations: " + edgeAnnotations.getCapacity() / Helper.MB + "MB" : "") + "), "
                 + "nodes: " + nf(nodeCount) + "(" + nodes.getCapacity() / Helper.MB + "MB), "
                 + "bounds: " + bounds;
     }
@@ -0,0 +1,147 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+/**
+ * A dense copy of the adjacency of the highest-ranked nodes of a CH graph. Every CH query ends up in the upper part of
+ * the hierarchy, but in {@link CHStorage} the shortcuts of these nodes are spread over the whole shortcut area (they
+ * are added in contraction order) and the base edges are spread over the whole {@link BaseGraph}. Here the nodes are
+ * stored in descending rank order and for every node the incoming and outgoing edges (shortcuts and base edges) are
+ * stored separately and next to each other, including their weights. So exploring an upper node only touches a few
+ * consecutive cache lines instead of the node, shortcut and edge areas and no weight has to be calculated.
+ * <p>
+ * The block is built in memory when the CH graph is loaded or prepared and iterating it yields exactly the same
+ * edges in the same order as {@link RoutingCHEdgeIteratorImpl} does without it. Uncontracted nodes are never
+ * part of the block, because they have no unique rank.
+ */
+public class CHUpperHierarchy {
+    static final int E_EDGE = 0;
+    static final int E_ADJ = 1;
+    static final int E_KEY_FIRST = 2;
+    static final int E_KEY_LAST = 3;
+    static final int E_WEIGHT_FWD = 4;
+    static final int E_WEIGHT_BWD = 6;
+    static final int ENTRY_INTS = 8;
+
+    private final int minLevel;
+    private final int maxLevel;
+    private final int[] nodes;
+    final int[] outOffsets;
+    final int[] outEntries;
+    final int[] inOffsets;
+    final int[] inEntries;
+
+    private CHUpperHierarchy(int minLevel, int maxLevel, int[] nodes, int[] outOffsets, int[] outEntries, int[] inOffsets, int[] inEntries) {
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+        this.nodes = nodes;
+        this.outOffsets = outOffsets;
+        this.outEntries = outEntries;
+        this.inOffsets = inOffsets;
+        this.inEntries = inEntries;
+    }
+
+    /**
+     * Copies the adjacency of the given number of highest-ranked (contracted) nodes of the given CH graph. The edges
+     * are taken from the explorers of the given graph, so it must not use an upper hierarchy itself.
+     */
+    public static CHUpperHierarchy build(RoutingCHGraph graph, int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("size of the upper hierarchy must be positive: " + size);
+        int[] nodesByLevel = new int[graph.getNodes()];
+        int contracted = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            int level = graph.getLevel(node);
+            // uncontracted nodes all have the same level (the number of nodes)
+            if (level < graph.getNodes()) {
+                nodesByLevel[level] = node;
+                contracted++;
+            }
+        }
+        size = Math.min(size, contracted);
+        int[] nodes = new int[size];
+        for (int i = 0; i < size; i++)
+            nodes[i] = nodesByLevel[contracted - 1 - i];
+        int[] outOffsets = new int[size + 1];
+        int[] inOffsets = new int[size + 1];
+        IntArrayList outEntries = copyEdges(graph.createOutEdgeExplorer(), nodes, outOffsets);
+        IntArrayList inEntries = copyEdges(graph.createInEdgeExplorer(), nodes, inOffsets);
+        return new CHUpperHierarchy(contracted - size, contracted - 1, nodes, outOffsets, outEntries.toArray(), inOffsets, inEntries.toArray());
+    }
+
+    private static IntArrayList copyEdges(RoutingCHEdgeExplorer explorer, int[] nodes, int[] offsets) {
+        IntArrayList entries = new IntArrayList();
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i] = entries.size();
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(nodes[i]);
+            while (iter.next()) {
+                entries.add(iter.getEdge(), iter.getAdjNode(), iter.getOrigEdgeKeyFirst(), iter.getOrigEdgeKeyLast());
+                addDouble(entries, iter.getWeight(false));
+                addDouble(entries, iter.getWeight(true));
+            }
+        }
+        offsets[nodes.length] = entries.size();
+        return entries;
+    }
+
+    private static void addDouble(IntArrayList entries, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        entries.add((int) (bits >>> 32), (int) bits);
+    }
+
+    static double getDouble(int[] entries, int pointer) {
+        return Double.longBitsToDouble(((long) entries[pointer] << 32) | (entries[pointer + 1] & 0xFFFF_FFFFL));
+    }
+
+    /**
+     * @return the position of the node with the given level in the block or -1 if it is not part of it
+     */
+    public int getIndex(int level) {
+        return level >= minLevel && level <= maxLevel ? maxLevel - level : -1;
+    }
+
+    public int getNode(int index) {
+        return nodes[index];
+    }
+
+    public int getLevel(int index) {
+        return maxLevel - index;
+    }
+
+    /**
+     * @return the number of nodes in this block
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @return the number of bytes used by this block
+     */
+    public long getCapacity() {
+        return 4L * (nodes.length + outOffsets.length + inOffsets.length + outEntries.length + inEntries.length);
+    }
+
+    @Override
+    public String toString() {
+        return "upper hierarchy: " + size() + " nodes, levels: [" + minLevel + ", " + maxLevel + "], "
+                + (outEntries.length + inEntries.length) / ENTRY_INTS + " entries";
+    }
+}
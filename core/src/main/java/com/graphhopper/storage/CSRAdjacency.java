@@ -0,0 +1,88 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * A compressed sparse row (CSR) copy of the adjacency lists of a {@link BaseGraph}. In the graph the edges of a node
+ * are a linked list (see {@link BaseGraphNodesAndEdges}), so finding the next edge requires reading the current one
+ * first. Here the edges of every node are stored next to each other: node n owns the entries from offsets[n] to
+ * offsets[n + 1] and every entry consists of the edge key and the adjacent node. So exploring a node only reads
+ * consecutive memory and the edge itself only needs to be read if its properties are requested.
+ * <p>
+ * The copy is kept in memory and is only valid as long as no edges are added to the graph, so it is meant for graphs
+ * that are loaded read-only. Iterating it yields the same edges in the same order as the linked lists.
+ */
+final class CSRAdjacency {
+    // every edge is stored for both of its nodes and takes two ints per node
+    static final long MAX_EDGES = (Integer.MAX_VALUE - 8) / 4;
+    private final int[] offsets;
+    private final int[] entries;
+
+    private CSRAdjacency(int[] offsets, int[] entries) {
+        this.offsets = offsets;
+        this.entries = entries;
+    }
+
+    static CSRAdjacency build(BaseGraph graph) {
+        if (graph.getEdges() > MAX_EDGES)
+            throw new IllegalStateException("Too many edges for the CSR adjacency: " + graph.getEdges());
+        int[] offsets = new int[graph.getNodes() + 1];
+        int[] entries = new int[4 * graph.getEdges()];
+        int pointer = 0;
+        EdgeExplorer explorer = new BaseGraph.EdgeIteratorImpl(graph, EdgeFilter.ALL_EDGES);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            offsets[node] = pointer;
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                entries[pointer++] = iter.getEdgeKey();
+                entries[pointer++] = iter.getAdjNode();
+            }
+        }
+        offsets[graph.getNodes()] = pointer;
+        if (pointer != entries.length)
+            throw new IllegalStateException("Unexpected number of adjacency entries: " + pointer + ", edges: " + graph.getEdges());
+        return new CSRAdjacency(offsets, entries);
+    }
+
+    int getStart(int node) {
+        return offsets[node];
+    }
+
+    int getEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    int getEdgeKey(int pointer) {
+        return entries[pointer];
+    }
+
+    int getAdjNode(int pointer) {
+        return entries[pointer + 1];
+    }
+
+    /**
+     * @return the number of bytes used by this copy
+     */
+    long getCapacity() {
+        return 4L * (offsets.length + entries.length);
+    }
+}
@@ -43,6 +43,10 @@ public class DAType {
      * Optimized RAM_STORE DA type for integer access. The set and getBytes methods cannot be used.
      */
     public static final DAType RAM_INT_STORE = new DAType(MemRef.HEAP, true, true, true);
+    /**
+     * Like RAM_STORE, but every segment is only read from disc on its first access. See LazyRAMDataAccess.
+     */
+    public static final DAType RAM_LAZY = new DAType(MemRef.HEAP, true, false, true, true);
     /**
      * Memory mapped DA object. See MMapDataAccess.
      */
@@ -53,20 +57,34 @@ public class DAType {
      * embedded data stores.
      */
     public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
+    /**
+     * The DA object is hold entirely in memory, but outside of the JVM heap. See OffHeapDataAccess.
+     */
+    public static final DAType OFF_HEAP = new DAType(MemRef.OFF_HEAP, false, false, true);
+    /**
+     * Like OFF_HEAP, but it loads the data from disc and flushes it to disc like RAM_STORE.
+     */
+    public static final DAType OFF_HEAP_STORE = new DAType(MemRef.OFF_HEAP, true, false, true);
     private final MemRef memRef;
     private final boolean storing;
     private final boolean integ;
     private final boolean allowWrites;
+    private final boolean lazy;
 
     public DAType(DAType type) {
-        this(type.getMemRef(), type.isStoring(), type.isInteg(), type.isAllowWrites());
+        this(type.getMemRef(), type.isStoring(), type.isInteg(), type.isAllowWrites(), type.isLazy());
     }
 
     public DAType(MemRef memRef, boolean storing, boolean integ, boolean allowWrites) {
+        this(memRef, storing, integ, allowWrites, false);
+    }
+
+    private DAType(MemRef memRef, boolean storing, boolean integ, boolean allowWrites, boolean lazy) {
         this.memRef = memRef;
         this.storing = storing;
         this.integ = integ;
         this.allowWrites = allowWrites;
+        this.lazy = lazy;
     }
 
     public static DAType fromString(String dataAccess) {
@@ -78,10 +96,16 @@ public class DAType {
             type = DAType.MMAP_RO;
         else if (dataAccess.contains("MMAP"))
             type = DAType.MMAP;
+        else if (dataAccess.equals("OFF_HEAP"))
+            type = DAType.OFF_HEAP;
+        else if (dataAccess.contains("OFF_HEAP"))
+            type = DAType.OFF_HEAP_STORE;
         else if (dataAccess.contains("UNSAFE"))
             throw new IllegalArgumentException("UNSAFE option is no longer supported, see #1620");
         else if (dataAccess.equals("RAM"))
             type = DAType.RAM;
+        else if (dataAccess.contains("LAZY"))
+            type = DAType.RAM_LAZY;
         else
             type = DAType.RAM_STORE;
         return type;
@@ -109,6 +133,13 @@ public class DAType {
         return memRef == MemRef.MMAP;
     }
 
+    /**
+     * @return true if data resides in memory, but outside of the JVM heap.
+     */
+    public boolean isOffHeap() {
+        return memRef == MemRef.OFF_HEAP;
+    }
+
     /**
      * Temporary data or store (with loading and storing)? default is false
      */
@@ -123,17 +154,28 @@ public class DAType {
         return integ;
     }
 
+    /**
+     * Is the data only read from disc on its first access? default is false
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
     @Override
     public String toString() {
         String str;
         if (getMemRef() == MemRef.MMAP)
             str = "MMAP";
+        else if (getMemRef() == MemRef.OFF_HEAP)
+            str = "OFF_HEAP";
         else
             str = "RAM";
 
         if (isInteg())
             str += "_INT";
-        if (isStoring())
+        if (isLazy())
+            str += "_LAZY";
+        else if (isStoring())
             str += "_STORE";
         return str;
     }
@@ -144,6 +186,7 @@ public class DAType {
         hash = 59 * hash + 37 * this.memRef.hashCode();
         hash = 59 * hash + (this.storing ? 1 : 0);
         hash = 59 * hash + (this.integ ? 1 : 0);
+        hash = 59 * hash + (this.lazy ? 1 : 0);
         return hash;
     }
 
@@ -160,10 +203,12 @@ public class DAType {
             return false;
         if (this.integ != other.integ)
             return false;
+        if (this.lazy != other.lazy)
+            return false;
         return true;
     }
 
     public enum MemRef {
-        HEAP, MMAP
+        HEAP, MMAP, OFF_HEAP
     }
 }
@@ -53,6 +53,12 @@ public interface Directory {
      */
     void remove(String name);
 
+    /**
+     * Closes the specified object and removes it from the directory without removing its backing files, so it can
+     * be created and loaded again later.
+     */
+    void close(String name);
+
     /**
      * @return the default type of a newly created DataAccess object
      */
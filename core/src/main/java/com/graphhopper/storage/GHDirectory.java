@@ -133,12 +133,16 @@ public class GHDirectory implements Directory {
                     da = new RAMIntDataAccess(name, location, true, segmentSize);
                 else
                     da = new RAMIntDataAccess(name, location, false, segmentSize);
-            } else if (type.isStoring())
+            } else if (type.isLazy())
+                da = new LazyRAMDataAccess(name, location, segmentSize);
+            else if (type.isStoring())
                 da = new RAMDataAccess(name, location, true, segmentSize);
             else
                 da = new RAMDataAccess(name, location, false, segmentSize);
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, type.isAllowWrites(), segmentSize);
+        } else if (type.isOffHeap()) {
+            da = new OffHeapDataAccess(name, location, type.isStoring(), segmentSize);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
@@ -174,6 +178,15 @@ public class GHDirectory implements Directory {
         removeBackingFile(old, name);
     }
 
+    @Override
+    public void close(String name) {
+        DataAccess old = map.remove(name);
+        if (old == null)
+            throw new IllegalStateException("Couldn't close DataAccess: " + name);
+
+        old.close();
+    }
+
     private void removeBackingFile(DataAccess da, String name) {
         if (da.getType().isStoring())
             removeDir(new File(location + name));
@@ -190,7 +203,8 @@ public class GHDirectory implements Directory {
      */
     public DAType getDefaultType(String dataAccess, boolean preferInts) {
         DAType type = getDefault(dataAccess, typeFallback);
-        if (preferInts && type.isInMemory())
+        // the int optimized types would load the data eagerly
+        if (preferInts && type.isInMemory() && !type.isLazy())
             return type.isStoring() ? RAM_INT_STORE : RAM_INT;
         return type;
     }
@@ -0,0 +1,318 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.GHUtility;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Packs all files of a graph folder into a single archive file, which is much easier to distribute than the folder.
+ * Every file is split into blocks that are compressed independently and the CRC32 checksum of every compressed block
+ * is stored. So an archive can be verified without decompressing it (see {@link #verify(File)}) and when unpacking
+ * all blocks are decompressed in parallel and written directly to their position in the target files.
+ * <p>
+ * The archive starts with a header (magic number, version and block size), followed by the compressed blocks, the
+ * index with the name, length and blocks of every file and finally the position of the index.
+ */
+public class GraphArchive {
+    private static final long MAGIC = 0x4748_4152_4348_4956L;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int TRAILER_BYTES = 16;
+    static final int DEFAULT_BLOCK_SIZE = 1 << 22;
+
+    private GraphArchive() {
+    }
+
+    public static void pack(File folder, File archive, int threads) {
+        pack(folder, archive, DEFAULT_BLOCK_SIZE, threads);
+    }
+
+    static void pack(File folder, File archive, int blockSize, int threads) {
+        if (!folder.isDirectory())
+            throw new IllegalArgumentException("Graph folder " + folder + " does not exist");
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("block size must be positive: " + blockSize);
+        File[] files = folder.listFiles(f -> f.isFile() && !f.getName().endsWith(".lock"));
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        List<FileEntry> entries = new ArrayList<>(files.length);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (FileChannel out = FileChannel.open(archive.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putLong(MAGIC).putInt(VERSION).putInt(blockSize);
+            writeFully(out, header.flip(), 0);
+            long position = HEADER_BYTES;
+            for (File file : files) {
+                FileEntry entry = new FileEntry(file.getName(), file.length(), blockSize);
+                try (FileChannel in = FileChannel.open(file.toPath(), READ)) {
+                    // compress as many blocks in parallel as we have threads, but write them in their order
+                    for (int first = 0; first < entry.blocks(); first += threads) {
+                        int from = first, to = Math.min(entry.blocks(), first + threads);
+                        List<byte[]> compressed = pool.submit(() -> IntStream.range(from, to).parallel()
+                                .mapToObj(block -> compress(read(in, entry.getBlockStart(block), entry.getBlockLength(block)))).toList()).get();
+                        for (int i = 0; i < compressed.size(); i++) {
+                            byte[] bytes = compressed.get(i);
+                            entry.offsets[from + i] = position;
+                            entry.compressedLengths[from + i] = bytes.length;
+                            entry.checksums[from + i] = checksum(bytes);
+                            writeFully(out, ByteBuffer.wrap(bytes), position);
+                            position += bytes.length;
+                        }
+                    }
+                }
+                entries.add(entry);
+            }
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            try (DataOutputStream dos = new DataOutputStream(index)) {
+                dos.writeInt(entries.size());
+                for (FileEntry entry : entries) {
+                    dos.writeUTF(entry.name);
+                    dos.writeLong(entry.length);
+                    for (int block = 0; block < entry.blocks(); block++) {
+                        dos.writeLong(entry.offsets[block]);
+                        dos.writeInt(entry.compressedLengths[block]);
+                        dos.writeInt(entry.checksums[block]);
+                    }
+                }
+                dos.writeLong(position);
+                dos.writeLong(MAGIC);
+            }
+            writeFully(out, ByteBuffer.wrap(index.toByteArray()), position);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not pack " + folder + " into " + archive, ex);
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException("Could not pack " + folder + " into " + archive, ex);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Unpacks the given archive into the given folder. Existing files with the same names are overwritten.
+     *
+     * @throws IllegalStateException if the archive is corrupt
+     */
+    public static void unpack(File archive, File folder, int threads) {
+        try (FileChannel in = FileChannel.open(archive.toPath(), READ)) {
+            List<FileEntry> entries = readIndex(in);
+            folder.mkdirs();
+            List<FileChannel> outs = new ArrayList<>(entries.size());
+            try {
+                List<Runnable> runnables = new ArrayList<>();
+                for (FileEntry entry : entries) {
+                    File file = new File(folder, entry.name);
+                    FileChannel out = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING);
+                    outs.add(out);
+                    for (int block = 0; block < entry.blocks(); block++) {
+                        int b = block;
+                        runnables.add(() -> {
+                            byte[] bytes = readBlock(in, entry, b);
+                            writeFully(out, ByteBuffer.wrap(decompress(bytes, entry.getBlockLength(b), entry.name)), entry.getBlockStart(b));
+                        });
+                    }
+                }
+                GHUtility.runConcurrently(runnables.stream(), threads);
+            } finally {
+                for (FileChannel out : outs)
+                    out.close();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not unpack " + archive + " into " + folder, ex);
+        }
+    }
+
+    /**
+     * Checks the checksums of all blocks of the given archive without decompressing them.
+     *
+     * @throws IllegalStateException if the archive is corrupt
+     */
+    public static void verify(File archive) {
+        try (FileChannel in = FileChannel.open(archive.toPath(), READ)) {
+            for (FileEntry entry : readIndex(in))
+                for (int block = 0; block < entry.blocks(); block++)
+                    readBlock(in, entry, block);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not verify " + archive, ex);
+        }
+    }
+
+    private static List<FileEntry> readIndex(FileChannel in) throws IOException {
+        if (in.size() < HEADER_BYTES + TRAILER_BYTES)
+            throw new IllegalStateException("Not a graph archive, file is too small: " + in.size());
+        ByteBuffer header = read(in, 0, HEADER_BYTES);
+        if (header.getLong() != MAGIC)
+            throw new IllegalStateException("Not a graph archive");
+        int version = header.getInt();
+        if (version != VERSION)
+            throw new IllegalStateException("Unsupported graph archive version " + version + ", expected " + VERSION);
+        int blockSize = header.getInt();
+        ByteBuffer trailer = read(in, in.size() - TRAILER_BYTES, TRAILER_BYTES);
+        long indexPosition = trailer.getLong();
+        if (trailer.getLong() != MAGIC || indexPosition < HEADER_BYTES || indexPosition > in.size() - TRAILER_BYTES)
+            throw new IllegalStateException("Graph archive is truncated or corrupt");
+        ByteBuffer index = read(in, indexPosition, (int) (in.size() - TRAILER_BYTES - indexPosition));
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(index.array()))) {
+            int count = dis.readInt();
+            List<FileEntry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = dis.readUTF();
+                // see #1628
+                if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.equals(".") || name.equals(".."))
+                    throw new SecurityException("Archive entry is outside of the target dir: " + name);
+                FileEntry entry = new FileEntry(name, dis.readLong(), blockSize);
+                for (int block = 0; block < entry.blocks(); block++) {
+                    entry.offsets[block] = dis.readLong();
+                    entry.compressedLengths[block] = dis.readInt();
+                    entry.checksums[block] = dis.readInt();
+                    if (entry.offsets[block] < HEADER_BYTES || entry.compressedLengths[block] < 0
+                            || entry.offsets[block] + entry.compressedLengths[block] > indexPosition)
+                        throw new IllegalStateException("Block " + block + " of " + name + " is outside of the data area");
+                }
+                entries.add(entry);
+            }
+            return entries;
+        } catch (EOFException ex) {
+            throw new IllegalStateException("Index of graph archive is truncated", ex);
+        }
+    }
+
+    private static byte[] readBlock(FileChannel in, FileEntry entry, int block) {
+        byte[] bytes = read(in, entry.offsets[block], entry.compressedLengths[block]).array();
+        if (checksum(bytes) != entry.checksums[block])
+            throw new IllegalStateException("Checksum of block " + block + " of " + entry.name + " does not match, the archive is corrupt");
+        return bytes;
+    }
+
+    private static ByteBuffer read(FileChannel in, long position, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            // positional reads do not change the position of the channel, so they can be used from several threads
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer, position + buffer.position()) < 0)
+                    throw new IllegalStateException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining())
+                out.write(buffer, position + buffer.position());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static byte[] compress(ByteBuffer raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.limit() / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] bytes, int length, String name) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            byte[] raw = new byte[length];
+            int pos = 0;
+            while (pos < length && !inflater.finished()) {
+                int read = inflater.inflate(raw, pos, length - pos);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                pos += read;
+            }
+            if (pos != length || !inflater.finished())
+                throw new IllegalStateException("Unexpected length of decompressed block of " + name + ": " + pos + ", expected " + length);
+            return raw;
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Could not decompress block of " + name, ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static class FileEntry {
+        final String name;
+        final long length;
+        final int blockSize;
+        final long[] offsets;
+        final int[] compressedLengths;
+        final int[] checksums;
+
+        FileEntry(String name, long length, int blockSize) {
+            if (length < 0)
+                throw new IllegalStateException("Invalid length of " + name + ": " + length);
+            this.name = name;
+            this.length = length;
+            this.blockSize = blockSize;
+            long blocks = (length + blockSize - 1) / blockSize;
+            if (blocks > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Too many blocks for " + name + ": " + blocks);
+            offsets = new long[(int) blocks];
+            compressedLengths = new int[(int) blocks];
+            checksums = new int[(int) blocks];
+        }
+
+        int blocks() {
+            return offsets.length;
+        }
+
+        long getBlockStart(int block) {
+            return (long) block * blockSize;
+        }
+
+        int getBlockLength(int block) {
+            return (int) Math.min(blockSize, length - getBlockStart(block));
+        }
+    }
+}
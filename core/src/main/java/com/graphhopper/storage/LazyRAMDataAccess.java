@@ -0,0 +1,342 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Like {@link RAMDataAccess} with store=true the data is held on the heap and the file format is the same, but
+ * loadExisting only reads the header. Every segment is read from disc on its first access, so a storage that is not
+ * used is never loaded and the startup does not have to wait until all files are read. Read thread-safe.
+ * <p>
+ * The file stays open until all segments are loaded or the DataAccess is closed. flush only writes the segments that
+ * were loaded, the others are unchanged on disc.
+ */
+public class LazyRAMDataAccess extends AbstractDataAccess {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN).withInvokeExactBehavior();
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN).withInvokeExactBehavior();
+    // the segments are published to the reading threads by the atomic array after they are filled
+    private AtomicReferenceArray<byte[]> segments = new AtomicReferenceArray<>(0);
+    private FileChannel channel;
+    private int segmentsToLoad;
+
+    LazyRAMDataAccess(String name, String location, int segmentSize) {
+        super(name, location, segmentSize);
+    }
+
+    @Override
+    public LazyRAMDataAccess create(long bytes) {
+        if (segments.length() > 0)
+            throw new IllegalThreadStateException("already created");
+
+        ensureCapacity(Math.max(10 * 4, bytes));
+        return this;
+    }
+
+    @Override
+    public boolean ensureCapacity(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("new capacity has to be strictly positive");
+
+        long cap = getCapacity();
+        long newBytes = bytes - cap;
+        if (newBytes <= 0)
+            return false;
+
+        int segmentsToCreate = (int) (newBytes / segmentSizeInBytes);
+        if (newBytes % segmentSizeInBytes != 0)
+            segmentsToCreate++;
+
+        try {
+            AtomicReferenceArray<byte[]> newSegs = new AtomicReferenceArray<>(segments.length() + segmentsToCreate);
+            for (int i = 0; i < segments.length(); i++) {
+                newSegs.set(i, segments.get(i));
+            }
+            for (int i = segments.length(); i < newSegs.length(); i++) {
+                newSegs.set(i, new byte[segmentSizeInBytes]);
+            }
+            segments = newSegs;
+        } catch (OutOfMemoryError err) {
+            throw new OutOfMemoryError(err.getMessage() + " - problem when allocating new memory. Old capacity: "
+                    + cap + ", new bytes:" + newBytes + ", segmentSizeIntsPower:" + segmentSizePower
+                    + ", new segments:" + segmentsToCreate + ", existing:" + segments.length());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (segments.length() > 0)
+            throw new IllegalStateException("already initialized");
+
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        File file = new File(getFullName());
+        if (!file.exists() || file.length() == 0)
+            return false;
+
+        try {
+            try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "r")) {
+                long byteCount = readHeader(raFile) - HEADER_OFFSET;
+                if (byteCount < 0)
+                    return false;
+
+                int segmentCount = (int) (byteCount / segmentSizeInBytes);
+                if (byteCount % segmentSizeInBytes != 0)
+                    segmentCount++;
+                segments = new AtomicReferenceArray<>(segmentCount);
+                segmentsToLoad = segmentCount;
+            }
+            if (segmentsToLoad > 0)
+                channel = FileChannel.open(Path.of(getFullName()), StandardOpenOption.READ);
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading " + getFullName(), ex);
+        }
+    }
+
+    private byte[] segment(int index) {
+        byte[] segment = segments.get(index);
+        return segment == null ? loadSegment(index) : segment;
+    }
+
+    private synchronized byte[] loadSegment(int index) {
+        byte[] segment = segments.get(index);
+        if (segment != null)
+            return segment;
+        if (closed)
+            throw new IllegalStateException("already closed");
+
+        segment = new byte[segmentSizeInBytes];
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(segment);
+            long filePosition = HEADER_OFFSET + (long) index * segmentSizeInBytes;
+            // the last segment can be shorter in the file
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, filePosition + buffer.position()) < 0)
+                    break;
+            }
+            if (buffer.position() == 0)
+                throw new IllegalStateException("segment " + index + " is empty? " + this);
+            segments.set(index, segment);
+            segmentsToLoad--;
+            if (segmentsToLoad == 0)
+                closeChannel();
+            return segment;
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading segment " + index + " of " + getFullName(), ex);
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @return the number of segments that were already read from disc or created
+     */
+    public int getLoadedSegments() {
+        int count = 0;
+        for (int i = 0; i < segments.length(); i++) {
+            if (segments.get(i) != null)
+                count++;
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (closed)
+            throw new IllegalStateException("already closed");
+
+        try {
+            try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "rw")) {
+                long len = getCapacity();
+                writeHeader(raFile, len, segmentSizeInBytes);
+                for (int s = 0; s < segments.length(); s++) {
+                    byte[] area = segments.get(s);
+                    // segments that were not loaded cannot have changed
+                    if (area == null)
+                        continue;
+                    raFile.seek(HEADER_OFFSET + (long) s * segmentSizeInBytes);
+                    raFile.write(area);
+                }
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("Couldn't store bytes to " + toString(), ex);
+        }
+    }
+
+    @Override
+    public final void setInt(long bytePos, int value) {
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 3 >= segmentSizeInBytes) {
+            // seldom and special case if int has to be written into two separate segments
+            byte[] b1 = segment(bufferIndex), b2 = segment(bufferIndex + 1);
+            if (index + 1 >= segmentSizeInBytes) {
+                bitUtil.fromUInt3(b2, value >>> 8, 0);
+                b1[index] = (byte) value;
+            } else if (index + 2 >= segmentSizeInBytes) {
+                bitUtil.fromShort(b2, (short) (value >>> 16), 0);
+                bitUtil.fromShort(b1, (short) value, index);
+            } else {
+                // index + 3 >= segmentSizeInBytes
+                b2[0] = (byte) (value >>> 24);
+                bitUtil.fromUInt3(b1, value, index);
+            }
+        } else {
+            INT.set(segment(bufferIndex), index, value);
+        }
+    }
+
+    @Override
+    public final int getInt(long bytePos) {
+        assert segments.length() > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 3 >= segmentSizeInBytes) {
+            byte[] b1 = segment(bufferIndex), b2 = segment(bufferIndex + 1);
+            if (index + 1 >= segmentSizeInBytes)
+                return (b2[2] & 0xFF) << 24 | (b2[1] & 0xFF) << 16 | (b2[0] & 0xFF) << 8 | (b1[index] & 0xFF);
+            if (index + 2 >= segmentSizeInBytes)
+                return (b2[1] & 0xFF) << 24 | (b2[0] & 0xFF) << 16 | (b1[index + 1] & 0xFF) << 8 | (b1[index] & 0xFF);
+            // index + 3 >= segmentSizeInBytes
+            return (b2[0] & 0xFF) << 24 | (b1[index + 2] & 0xFF) << 16 | (b1[index + 1] & 0xFF) << 8 | (b1[index] & 0xFF);
+        }
+        return (int) INT.get(segment(bufferIndex), index);
+    }
+
+    @Override
+    public final void setShort(long bytePos, short value) {
+        assert segments.length() > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 1 >= segmentSizeInBytes) {
+            // seldom and special case if short has to be written into two separate segments
+            segment(bufferIndex)[index] = (byte) (value);
+            segment(bufferIndex + 1)[0] = (byte) (value >>> 8);
+        } else {
+            SHORT.set(segment(bufferIndex), index, value);
+        }
+    }
+
+    @Override
+    public final short getShort(long bytePos) {
+        assert segments.length() > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 1 >= segmentSizeInBytes)
+            return (short) ((segment(bufferIndex + 1)[0] & 0xFF) << 8 | (segment(bufferIndex)[index] & 0xFF));
+
+        return (short) SHORT.get(segment(bufferIndex), index);
+    }
+
+    @Override
+    public void setBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        assert segments.length() > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        byte[] seg = segment(bufferIndex);
+        int delta = index + length - segmentSizeInBytes;
+        if (delta > 0) {
+            length -= delta;
+            System.arraycopy(values, 0, seg, index, length);
+            seg = segment(bufferIndex + 1);
+            System.arraycopy(values, length, seg, 0, delta);
+        } else {
+            System.arraycopy(values, 0, seg, index, length);
+        }
+    }
+
+    @Override
+    public void getBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        assert segments.length() > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        byte[] seg = segment(bufferIndex);
+        int delta = index + length - segmentSizeInBytes;
+        if (delta > 0) {
+            length -= delta;
+            System.arraycopy(seg, index, values, 0, length);
+            seg = segment(bufferIndex + 1);
+            System.arraycopy(seg, 0, values, length, delta);
+        } else {
+            System.arraycopy(seg, index, values, 0, length);
+        }
+    }
+
+    @Override
+    public final void setByte(long bytePos, byte value) {
+        assert segments.length() > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        segment(bufferIndex)[index] = value;
+    }
+
+    @Override
+    public final byte getByte(long bytePos) {
+        assert segments.length() > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        return segment(bufferIndex)[index];
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+        segments = new AtomicReferenceArray<>(0);
+        try {
+            closeChannel();
+        } catch (IOException ex) {
+            throw new RuntimeException("Couldn't close " + getFullName(), ex);
+        }
+    }
+
+    @Override
+    public long getCapacity() {
+        return (long) getSegments() * segmentSizeInBytes;
+    }
+
+    @Override
+    public int getSegments() {
+        return segments.length();
+    }
+
+    @Override
+    public DAType getType() {
+        return DAType.RAM_LAZY;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An in-memory DataAccess that keeps its data outside of the Java heap, so big graphs neither need a big heap nor
+ * have to be scanned by the garbage collector. The memory is allocated in direct buffers of up to 1GB. The
+ * configured segment size only determines by how much the capacity grows, so for most files all accesses go to the
+ * same buffer. The last buffer grows exponentially and is copied when it grows.
+ * <p>
+ * The file format is the same as for {@link RAMDataAccess}. Note that the JVM limits the direct memory with
+ * -XX:MaxDirectMemorySize, which defaults to the maximum heap size.
+ */
+public class OffHeapDataAccess extends AbstractDataAccess {
+    static final int DEFAULT_BLOCK_POWER = 30;
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN).withInvokeExactBehavior();
+    private static final VarHandle SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN).withInvokeExactBehavior();
+    private final boolean store;
+    private final int blockPower;
+    private final int blockSize;
+    private final int blockMask;
+    private ByteBuffer[] blocks = new ByteBuffer[0];
+    private long capacity;
+
+    OffHeapDataAccess(String name, String location, boolean store, int segmentSize) {
+        this(name, location, store, segmentSize, DEFAULT_BLOCK_POWER);
+    }
+
+    OffHeapDataAccess(String name, String location, boolean store, int segmentSize, int blockPower) {
+        super(name, location, segmentSize);
+        if (blockPower < 3 || blockPower > DEFAULT_BLOCK_POWER)
+            throw new IllegalArgumentException("block power must be in [3, " + DEFAULT_BLOCK_POWER + "]: " + blockPower);
+        this.store = store;
+        this.blockPower = blockPower;
+        this.blockSize = 1 << blockPower;
+        this.blockMask = blockSize - 1;
+    }
+
+    @Override
+    public boolean isStoring() {
+        return store;
+    }
+
+    @Override
+    public OffHeapDataAccess create(long bytes) {
+        if (blocks.length > 0)
+            throw new IllegalThreadStateException("already created");
+
+        ensureCapacity(Math.max(10 * 4, bytes));
+        return this;
+    }
+
+    @Override
+    public boolean ensureCapacity(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("new capacity has to be strictly positive");
+        if (bytes <= capacity)
+            return false;
+
+        long segments = bytes / segmentSizeInBytes;
+        if (bytes % segmentSizeInBytes != 0)
+            segments++;
+        long newCapacity = segments * segmentSizeInBytes;
+        try {
+            allocate(newCapacity);
+        } catch (OutOfMemoryError err) {
+            throw new OutOfMemoryError(err.getMessage() + " - problem when allocating new off-heap memory for " + name
+                    + ". Old capacity: " + capacity + ", new capacity: " + newCapacity + ", blocks: " + blocks.length
+                    + ", increase -XX:MaxDirectMemorySize?");
+        }
+        capacity = newCapacity;
+        return true;
+    }
+
+    private void allocate(long newCapacity) {
+        int blockCount = (int) ((newCapacity + blockMask) >>> blockPower);
+        ByteBuffer[] newBlocks = Arrays.copyOf(blocks, blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            long required = Math.min(blockSize, newCapacity - ((long) i << blockPower));
+            ByteBuffer old = newBlocks[i];
+            if (old != null && old.capacity() >= required)
+                continue;
+            // grow exponentially to avoid copying the last block for every new segment
+            int size = (int) Math.min(blockSize, Math.max(required, old == null ? 0 : 2L * old.capacity()));
+            ByteBuffer block = ByteBuffer.allocateDirect(size).order(byteOrder);
+            if (old != null) {
+                block.put(0, old, 0, old.capacity());
+                MMapDataAccess.cleanMappedByteBuffer(old);
+            }
+            newBlocks[i] = block;
+        }
+        blocks = newBlocks;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (blocks.length > 0)
+            throw new IllegalStateException("already initialized");
+
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        if (!store)
+            return false;
+
+        File file = new File(getFullName());
+        if (!file.exists() || file.length() == 0)
+            return false;
+
+        try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "r")) {
+            long byteCount = readHeader(raFile) - HEADER_OFFSET;
+            if (byteCount < 0)
+                return false;
+
+            ensureCapacity(byteCount);
+            FileChannel channel = raFile.getChannel();
+            long bytesToRead = Math.min(capacity, raFile.length() - HEADER_OFFSET);
+            for (int i = 0; i < blocks.length && bytesToRead > 0; i++) {
+                ByteBuffer view = blocks[i].duplicate();
+                view.limit((int) Math.min(view.capacity(), bytesToRead));
+                long filePosition = HEADER_OFFSET + ((long) i << blockPower);
+                while (view.hasRemaining()) {
+                    if (channel.read(view, filePosition + view.position()) < 0)
+                        throw new IllegalStateException("Unexpected end of file for block " + i + " of " + this);
+                }
+                bytesToRead -= view.limit();
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading " + getFullName(), ex);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (closed)
+            throw new IllegalStateException("already closed");
+
+        if (!store)
+            return;
+
+        try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "rw")) {
+            writeHeader(raFile, capacity, segmentSizeInBytes);
+            FileChannel channel = raFile.getChannel();
+            long bytesToWrite = capacity;
+            for (int i = 0; i < blocks.length; i++) {
+                ByteBuffer view = blocks[i].duplicate();
+                view.limit((int) Math.min(view.capacity(), bytesToWrite));
+                long filePosition = HEADER_OFFSET + ((long) i << blockPower);
+                while (view.hasRemaining()) {
+                    channel.write(view, filePosition + view.position());
+                }
+                bytesToWrite -= view.limit();
+            }
+            raFile.setLength(HEADER_OFFSET + capacity);
+        } catch (Exception ex) {
+            throw new RuntimeException("Couldn't store bytes to " + toString(), ex);
+        }
+    }
+
+    @Override
+    public final void setInt(long bytePos, int value) {
+        int index = (int) (bytePos & blockMask);
+        if (index + 3 >= blockSize) {
+            // seldom and special case if int has to be written into two separate blocks
+            setByte(bytePos, (byte) value);
+            setByte(bytePos + 1, (byte) (value >>> 8));
+            setByte(bytePos + 2, (byte) (value >>> 16));
+            setByte(bytePos + 3, (byte) (value >>> 24));
+        } else {
+            INT.set(blocks[(int) (bytePos >>> blockPower)], index, value);
+        }
+    }
+
+    @Override
+    public final int getInt(long bytePos) {
+        int index = (int) (bytePos & blockMask);
+        if (index + 3 >= blockSize)
+            return (getByte(bytePos + 3) & 0xFF) << 24 | (getByte(bytePos + 2) & 0xFF) << 16
+                    | (getByte(bytePos + 1) & 0xFF) << 8 | (getByte(bytePos) & 0xFF);
+        return (int) INT.get(blocks[(int) (bytePos >>> blockPower)], index);
+    }
+
+    @Override
+    public final void setShort(long bytePos, short value) {
+        int index = (int) (bytePos & blockMask);
+        if (index + 1 >= blockSize) {
+            setByte(bytePos, (byte) value);
+            setByte(bytePos + 1, (byte) (value >>> 8));
+        } else {
+            SHORT.set(blocks[(int) (bytePos >>> blockPower)], index, value);
+        }
+    }
+
+    @Override
+    public final short getShort(long bytePos) {
+        int index = (int) (bytePos & blockMask);
+        if (index + 1 >= blockSize)
+            return (short) ((getByte(bytePos + 1) & 0xFF) << 8 | (getByte(bytePos) & 0xFF));
+        return (short) SHORT.get(blocks[(int) (bytePos >>> blockPower)], index);
+    }
+
+    @Override
+    public void setBytes(long bytePos, byte[] values, int length) {
+        int offset = 0;
+        while (offset < length) {
+            int index = (int) ((bytePos + offset) & blockMask);
+            int len = Math.min(length - offset, blockSize - index);
+            blocks[(int) ((bytePos + offset) >>> blockPower)].put(index, values, offset, len);
+            offset += len;
+        }
+    }
+
+    @Override
+    public void getBytes(long bytePos, byte[] values, int length) {
+        int offset = 0;
+        while (offset < length) {
+            int index = (int) ((bytePos + offset) & blockMask);
+            int len = Math.min(length - offset, blockSize - index);
+            blocks[(int) ((bytePos + offset) >>> blockPower)].get(index, values, offset, len);
+            offset += len;
+        }
+    }
+
+    @Override
+    public final void setByte(long bytePos, byte value) {
+        blocks[(int) (bytePos >>> blockPower)].put((int) (bytePos & blockMask), value);
+    }
+
+    @Override
+    public final byte getByte(long bytePos) {
+        return blocks[(int) (bytePos >>> blockPower)].get((int) (bytePos & blockMask));
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        for (ByteBuffer block : blocks)
+            MMapDataAccess.cleanMappedByteBuffer(block);
+        blocks = new ByteBuffer[0];
+        capacity = 0;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getSegments() {
+        return (int) (capacity / segmentSizeInBytes);
+    }
+
+    @Override
+    public DAType getType() {
+        if (isStoring())
+            return DAType.OFF_HEAP_STORE;
+        return DAType.OFF_HEAP;
+    }
+}
@@ -27,21 +27,46 @@ public class RoutingCHEdgeIteratorImpl extends RoutingCHEdgeIteratorStateImpl im
     private final BaseGraph.EdgeIteratorImpl baseIterator;
     private final boolean outgoing;
     private final boolean incoming;
+    private final CHUpperHierarchy upperHierarchy;
     private int nextEdgeId;
+    // set while we iterate the edges of a node that is part of the upper hierarchy, null otherwise
+    private int[] blockEntries;
+    private int blockPointer;
+    private int blockEnd;
 
     public static RoutingCHEdgeIteratorImpl outEdges(CHStorage chStore, BaseGraph baseGraph, Weighting weighting) {
-        return new RoutingCHEdgeIteratorImpl(chStore, baseGraph, weighting, true, false);
+        return outEdges(chStore, baseGraph, weighting, null);
     }
 
     public static RoutingCHEdgeIteratorImpl inEdges(CHStorage chStore, BaseGraph baseGraph, Weighting weighting) {
-        return new RoutingCHEdgeIteratorImpl(chStore, baseGraph, weighting, false, true);
+        return inEdges(chStore, baseGraph, weighting, null);
+    }
+
+    public static RoutingCHEdgeIteratorImpl outEdges(CHStorage chStore, BaseGraph baseGraph, Weighting weighting, CHUpperHierarchy upperHierarchy) {
+        return new RoutingCHEdgeIteratorImpl(chStore, baseGraph, weighting, true, false, upperHierarchy);
+    }
+
+    public static RoutingCHEdgeIteratorImpl inEdges(CHStorage chStore, BaseGraph baseGraph, Weighting weighting, CHUpperHierarchy upperHierarchy) {
+        return new RoutingCHEdgeIteratorImpl(chStore, baseGraph, weighting, false, true, upperHierarchy);
     }
 
     public RoutingCHEdgeIteratorImpl(CHStorage chStore, BaseGraph baseGraph, Weighting weighting, boolean outgoing, boolean incoming) {
+        this(chStore, baseGraph, weighting, outgoing, incoming, null);
+    }
+
+    /**
+     * @param upperHierarchy if not null the edges of the nodes in this block are read from it instead of from the
+     *                       CH and base graph storage. It can only be used for either outgoing or incoming edges.
+     */
+    public RoutingCHEdgeIteratorImpl(CHStorage chStore, BaseGraph baseGraph, Weighting weighting, boolean outgoing, boolean incoming,
+                                     CHUpperHierarchy upperHierarchy) {
         super(chStore, baseGraph, new BaseGraph.EdgeIteratorImpl(baseGraph, EdgeFilter.ALL_EDGES), weighting);
+        if (upperHierarchy != null && outgoing == incoming)
+            throw new IllegalArgumentException("The upper hierarchy can only be used for either outgoing or incoming edges");
         this.baseIterator = (BaseGraph.EdgeIteratorImpl) super.baseEdgeState;
         this.outgoing = outgoing;
         this.incoming = incoming;
+        this.upperHierarchy = upperHierarchy;
     }
 
     @Override
@@ -52,14 +77,30 @@ public class RoutingCHEdgeIteratorImpl extends RoutingCHEdgeIteratorStateImpl im
     @Override
     public RoutingCHEdgeIterator setBaseNode(int baseNode) {
         assert baseGraph.isFrozen();
+        long nodePointer = store.toNodePointer(baseNode);
+        if (upperHierarchy != null) {
+            // the level is stored next to the last shortcut, so this costs no additional cache miss
+            int index = upperHierarchy.getIndex(store.getLevel(nodePointer));
+            if (index >= 0) {
+                int[] offsets = outgoing ? upperHierarchy.outOffsets : upperHierarchy.inOffsets;
+                blockEntries = outgoing ? upperHierarchy.outEntries : upperHierarchy.inEntries;
+                blockPointer = offsets[index] - CHUpperHierarchy.ENTRY_INTS;
+                blockEnd = offsets[index + 1];
+                this.baseNode = baseNode;
+                return this;
+            }
+            blockEntries = null;
+        }
         baseIterator.setBaseNode(baseNode);
-        int lastShortcut = store.getLastShortcut(store.toNodePointer(baseNode));
+        int lastShortcut = store.getLastShortcut(nodePointer);
         nextEdgeId = edgeId = lastShortcut < 0 ? baseIterator.edgeId : baseGraph.getEdges() + lastShortcut;
         return this;
     }
 
     @Override
     public boolean next() {
+        if (blockEntries != null)
+            return nextBlockEntry();
         // we first traverse shortcuts (in decreasing order) and when we are done we use the base iterator to traverse
         // the base edges as well. shortcuts are filtered using shortcutFilter, but base edges are only filtered by
         // access/finite weight.
@@ -93,6 +134,51 @@ public class RoutingCHEdgeIteratorImpl extends RoutingCHEdgeIteratorStateImpl im
         return false;
     }
 
+    private boolean nextBlockEntry() {
+        blockPointer += CHUpperHierarchy.ENTRY_INTS;
+        if (blockPointer >= blockEnd)
+            return false;
+        edgeId = blockEntries[blockPointer + CHUpperHierarchy.E_EDGE];
+        adjNode = blockEntries[blockPointer + CHUpperHierarchy.E_ADJ];
+        if (edgeId >= baseGraph.getEdges())
+            shortcutPointer = store.toShortcutPointer(edgeId - baseGraph.getEdges());
+        return true;
+    }
+
+    @Override
+    public int getOrigEdge() {
+        if (blockEntries == null)
+            return super.getOrigEdge();
+        return isShortcut() ? EdgeIterator.NO_EDGE : edgeId;
+    }
+
+    @Override
+    public int getOrigEdgeKeyFirst() {
+        return blockEntries == null ? super.getOrigEdgeKeyFirst() : blockEntries[blockPointer + CHUpperHierarchy.E_KEY_FIRST];
+    }
+
+    @Override
+    public int getOrigEdgeKeyLast() {
+        return blockEntries == null ? super.getOrigEdgeKeyLast() : blockEntries[blockPointer + CHUpperHierarchy.E_KEY_LAST];
+    }
+
+    @Override
+    public int getBaseNode() {
+        return blockEntries == null ? super.getBaseNode() : baseNode;
+    }
+
+    @Override
+    public int getAdjNode() {
+        return blockEntries == null ? super.getAdjNode() : adjNode;
+    }
+
+    @Override
+    public double getWeight(boolean reverse) {
+        if (blockEntries == null)
+            return super.getWeight(reverse);
+        return CHUpperHierarchy.getDouble(blockEntries, blockPointer + (reverse ? CHUpperHierarchy.E_WEIGHT_BWD : CHUpperHierarchy.E_WEIGHT_FWD));
+    }
+
     @Override
     public String toString() {
         return getEdge() + " " + getBaseNode() + "-" + getAdjNode();
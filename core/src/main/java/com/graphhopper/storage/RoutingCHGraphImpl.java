@@ -24,17 +24,38 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
     private final BaseGraph baseGraph;
     private final CHStorage chStorage;
     private final Weighting weighting;
+    private final CHUpperHierarchy upperHierarchy;
 
     public static RoutingCHGraph fromGraph(BaseGraph baseGraph, CHStorage chStorage, CHConfig chConfig) {
         return new RoutingCHGraphImpl(baseGraph, chStorage, chConfig.getWeighting());
     }
 
     public RoutingCHGraphImpl(BaseGraph baseGraph, CHStorage chStorage, Weighting weighting) {
+        this(baseGraph, chStorage, weighting, null);
+    }
+
+    private RoutingCHGraphImpl(BaseGraph baseGraph, CHStorage chStorage, Weighting weighting, CHUpperHierarchy upperHierarchy) {
         if (weighting.hasTurnCosts() && !chStorage.isEdgeBased())
             throw new IllegalArgumentException("Weighting has turn costs, but CHStorage is node-based");
         this.baseGraph = baseGraph;
         this.chStorage = chStorage;
         this.weighting = weighting;
+        this.upperHierarchy = upperHierarchy;
+    }
+
+    /**
+     * @return a CH graph for the same storage that reads the edges of the given number of highest-ranked nodes from
+     * a dense {@link CHUpperHierarchy} block for better cache locality at query time
+     */
+    public RoutingCHGraphImpl withUpperHierarchy(int size) {
+        return new RoutingCHGraphImpl(baseGraph, chStorage, weighting, CHUpperHierarchy.build(this, size));
+    }
+
+    /**
+     * @return the upper hierarchy block used by the explorers of this graph or null if there is none
+     */
+    public CHUpperHierarchy getUpperHierarchy() {
+        return upperHierarchy;
     }
 
     @Override
@@ -54,12 +75,12 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
 
     @Override
     public RoutingCHEdgeExplorer createInEdgeExplorer() {
-        return RoutingCHEdgeIteratorImpl.inEdges(chStorage, baseGraph, weighting);
+        return RoutingCHEdgeIteratorImpl.inEdges(chStorage, baseGraph, weighting, upperHierarchy);
     }
 
     @Override
     public RoutingCHEdgeExplorer createOutEdgeExplorer() {
-        return RoutingCHEdgeIteratorImpl.outEdges(chStorage, baseGraph, weighting);
+        return RoutingCHEdgeIteratorImpl.outEdges(chStorage, baseGraph, weighting, upperHierarchy);
     }
 
     @Override
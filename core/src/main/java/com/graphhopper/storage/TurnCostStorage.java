@@ -31,6 +31,10 @@ import java.util.function.IntUnaryOperator;
 /**
  * A key/value store, where the unique keys are triples (fromEdge, viaNode, toEdge) and the values
  * are integers that can be used to store encoded values.
+ * <p>
+ * The entries of a node are stored as linked list. Once all entries are added {@link #sortForLookup()} can be used
+ * to store the entries of every node next to each other and sorted by their edges, which makes lookups read
+ * consecutive memory and stop at the first larger entry. This order is stored with the turn costs.
  *
  * @author Karl Hübner
  * @author Peter Karich
@@ -49,6 +53,7 @@ public class TurnCostStorage {
     private final DataAccess turnCosts;
     private final EdgeIntAccess edgeIntAccess = createEdgeIntAccess();
     private int turnCostsCount;
+    private boolean sortedForLookup;
 
     public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
         this.baseGraph = baseGraph;
@@ -64,6 +69,7 @@ public class TurnCostStorage {
         turnCosts.setHeader(0, Constants.VERSION_TURN_COSTS);
         turnCosts.setHeader(4, BYTES_PER_ENTRY);
         turnCosts.setHeader(2 * 4, turnCostsCount);
+        turnCosts.setHeader(3 * 4, sortedForLookup ? 1 : 0);
         turnCosts.flush();
     }
 
@@ -84,6 +90,7 @@ public class TurnCostStorage {
             throw new IllegalStateException("Number of bytes per turn cost entry does not match the current configuration: " + turnCosts.getHeader(0) + " vs. " + BYTES_PER_ENTRY);
         }
         turnCostsCount = turnCosts.getHeader(8);
+        sortedForLookup = turnCosts.getHeader(12) == 1;
         return true;
     }
 
@@ -117,6 +124,8 @@ public class TurnCostStorage {
             turnCosts.setInt(pointer + TC_TO, toEdge);
             turnCosts.setInt(pointer + TC_NEXT, prevIndex);
             turnCostsCount++;
+            // the new entry is the first of its node
+            sortedForLookup = false;
         }
         return index;
     }
@@ -164,14 +173,71 @@ public class TurnCostStorage {
         for (int i = 0; i < maxEntries; ++i) {
             if (index == NO_TURN_ENTRY) return -1;
             long pointer = toPointer(index);
-            if (fromEdge == turnCosts.getInt(pointer + TC_FROM) && toEdge == turnCosts.getInt(pointer + TC_TO))
+            int entryFromEdge = turnCosts.getInt(pointer + TC_FROM);
+            int entryToEdge = turnCosts.getInt(pointer + TC_TO);
+            if (fromEdge == entryFromEdge && toEdge == entryToEdge)
                 return index;
+            // the remaining entries of a sorted list are larger
+            if (sortedForLookup && (entryFromEdge > fromEdge || entryFromEdge == fromEdge && entryToEdge > toEdge))
+                return -1;
             index = turnCosts.getInt(pointer + TC_NEXT);
         }
         throw new IllegalStateException("Turn cost list for node: " + viaNode + " is longer than expected, max: " + maxEntries);
     }
 
+    /**
+     * Stores the entries of every node next to each other and sorts them by their from and to edges. The lookups
+     * then read consecutive entries and stop at the first entry that is larger than the one they search for. The
+     * order is kept when the turn costs are flushed and is lost when a new entry is added or the edges are sorted.
+     * This needs temporary memory of 16 bytes per entry, like {@link #sortNodes()}.
+     */
+    public void sortForLookup() {
+        sortNodes();
+        long[] edges = new long[0];
+        int[] flags = new int[0];
+        for (int node = 0; node < baseGraph.getNodes(); node++) {
+            int first = baseGraph.getNodeAccess().getTurnCostIndex(node);
+            if (first == NO_TURN_ENTRY)
+                continue;
+            // after sortNodes the entries of the node are stored consecutively
+            int count = getTurnCostsCount(node);
+            if (edges.length < count) {
+                edges = new long[count];
+                flags = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                long pointer = toPointer(first + i);
+                edges[i] = (long) turnCosts.getInt(pointer + TC_FROM) << 32 | (turnCosts.getInt(pointer + TC_TO) & 0xFFFF_FFFFL);
+                flags[i] = turnCosts.getInt(pointer + TC_FLAGS);
+            }
+            // insertion sort, because the lists are short
+            for (int i = 1; i < count; i++) {
+                long e = edges[i];
+                int f = flags[i];
+                int j = i - 1;
+                for (; j >= 0 && edges[j] > e; j--) {
+                    edges[j + 1] = edges[j];
+                    flags[j + 1] = flags[j];
+                }
+                edges[j + 1] = e;
+                flags[j + 1] = f;
+            }
+            for (int i = 0; i < count; i++) {
+                long pointer = toPointer(first + i);
+                turnCosts.setInt(pointer + TC_FROM, (int) (edges[i] >>> 32));
+                turnCosts.setInt(pointer + TC_TO, (int) edges[i]);
+                turnCosts.setInt(pointer + TC_FLAGS, flags[i]);
+            }
+        }
+        sortedForLookup = true;
+    }
+
+    public boolean isSortedForLookup() {
+        return sortedForLookup;
+    }
+
     public void sortEdges(IntUnaryOperator getNewEdgeForOldEdge) {
+        sortedForLookup = false;
         for (int i = 0; i < turnCostsCount; i++) {
             long pointer = toPointer(i);
             turnCosts.setInt(pointer + TC_FROM, getNewEdgeForOldEdge.applyAsInt(turnCosts.getInt(pointer + TC_FROM)));
@@ -65,9 +65,11 @@ public class Constants {
     public static final int VERSION_SHORTCUT = 9;
     public static final int VERSION_NODE_CH = 0;
     public static final int VERSION_GEOMETRY = 7;
+    // the version of the compressed way geometry, so that code that only knows the uncompressed format refuses to load it
+    public static final int VERSION_GEOMETRY_COMPRESSED = 8;
     public static final int VERSION_TURN_COSTS = 0;
     public static final int VERSION_LOCATION_IDX = 5;
-    public static final int VERSION_KV_STORAGE = 2;
+    public static final int VERSION_KV_STORAGE = 3;
     /**
      * The version without the snapshot string
      */
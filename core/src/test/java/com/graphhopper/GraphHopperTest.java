@@ -31,7 +31,10 @@ import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.StorableProperties;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -58,6 +61,7 @@ import org.locationtech.jts.geom.GeometryFactory;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static com.graphhopper.json.Statement.If;
 import static com.graphhopper.json.Statement.Op.LIMIT;
@@ -141,6 +145,35 @@ public class GraphHopperTest {
         assertTrue(rsp.getErrors().toString().contains("ConnectionNotFoundException"), rsp.getErrors().toString());
     }
 
+    @Test
+    public void testCompressGeometry() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car")).
+                setCompressGeometry(true).
+                setStoreOnFlush(true);
+        hopper.importOrLoad();
+        assertTrue(hopper.getBaseGraph().isWayGeometryCompressed());
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("profile");
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(3587.6, rsp.getBest().getDistance(), .1);
+        assertEquals(105, rsp.getBest().getPoints().size());
+        hopper.close();
+
+        // the format is stored with the graph
+        GraphHopper loaded = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car"));
+        loaded.importOrLoad();
+        assertTrue(loaded.getBaseGraph().isWayGeometryCompressed());
+        assertEquals(rsp.getBest().getPoints(), loaded.route(req).getBest().getPoints());
+        loaded.close();
+    }
+
     @Test
     public void testMonacoWithInstructions() {
         final String profile = "profile";
@@ -385,6 +418,43 @@ public class GraphHopperTest {
         hopper.close();
     }
 
+    @Test
+    public void testImportThenLoadWithCSRAdjacency() {
+        final String profileName = "profile";
+        Profile profile = TestProfiles.accessSpeedAndPriority(profileName, "foot");
+        GraphHopper hopper = new GraphHopper().
+                setEncodedValuesString("foot_access, foot_priority, foot_average_speed").
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(profile).
+                setStoreOnFlush(true);
+        hopper.importAndClose();
+
+        // the CSR adjacency is only built on request
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(profile).
+                setAllowWrites(false);
+        hopper.importOrLoad();
+        assertFalse(hopper.getBaseGraph().hasCSRAdjacency());
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profileName);
+        ResponsePath expected = hopper.route(req).getBest();
+        hopper.close();
+
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(profile).
+                setAllowWrites(false).
+                setCSRAdjacency(true);
+        hopper.importOrLoad();
+        assertTrue(hopper.getBaseGraph().hasCSRAdjacency());
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(expected.getDistance(), rsp.getBest().getDistance(), 1.e-6);
+        assertEquals(expected.getPoints(), rsp.getBest().getPoints());
+        hopper.close();
+    }
+
     @Test
     public void testImportThenLoadCH() {
         testImportCloseAndLoad(true, false);
@@ -410,6 +480,68 @@ public class GraphHopperTest {
         testImportCloseAndLoad(false, false);
     }
 
+    @Test
+    public void testPrepareOnlyProfiles() {
+        Supplier<GraphHopper> hopperSupplier = () -> {
+            GraphHopper hopper = new GraphHopper().
+                    setGraphHopperLocation(GH_LOCATION).
+                    setOSMFile(MONACO).
+                    setEncodedValuesString("car_access, car_average_speed, bike_access, bike_average_speed").
+                    setProfiles(TestProfiles.accessAndSpeed("car"), TestProfiles.accessAndSpeed("car2", "car"), TestProfiles.accessAndSpeed("bike"));
+            hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"), new CHProfile("bike"));
+            hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"), new LMProfile("car2").setPreparationProfile("car"), new LMProfile("bike"));
+            return hopper;
+        };
+        GraphHopper hopper = hopperSupplier.get();
+        hopper.importAndClose();
+
+        hopper = hopperSupplier.get().setAllowWrites(false).setPrepareOnlyProfiles(List.of("car2", "bike"));
+        hopper.importOrLoad();
+        assertEquals(Set.of("bike"), hopper.getCHGraphs().keySet());
+        assertEquals(Set.of("car2", "bike"), hopper.getLandmarks().keySet());
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("bike"));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car"));
+        assertTrue(rsp.hasErrors());
+        rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car2").putHint(CH.DISABLE, true));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        hopper.close();
+
+        GraphHopper unknown = hopperSupplier.get().setPrepareOnlyProfiles(List.of("foot"));
+        assertTrue(assertThrows(IllegalArgumentException.class, unknown::importOrLoad).getMessage()
+                .contains("prepare.only_profiles references unknown profile 'foot'"));
+    }
+
+    @Test
+    public void testChecksums() throws InterruptedException {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, bike_access, bike_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"), TestProfiles.accessAndSpeed("bike")).
+                setCalcChecksums(true);
+        hopper.importAndClose();
+        // falsify one of the stored checksums
+        StorableProperties properties = new StorableProperties(new GHDirectory(GH_LOCATION, DAType.RAM_STORE));
+        assertTrue(properties.loadExisting());
+        String checksum = properties.get("checksum.fwd.bike");
+        assertFalse(checksum.isEmpty());
+        properties.put("checksum.fwd.bike", "1.5");
+        properties.flush();
+        properties.close();
+
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(TestProfiles.accessAndSpeed("car"), TestProfiles.accessAndSpeed("bike")).
+                setCalcChecksums(true);
+        assertTrue(hopper.load());
+        // the checksums are calculated in the background
+        while (hopper.isCalculatingChecksums())
+            Thread.sleep(10);
+        assertEquals(List.of("checksum.fwd.bike: " + checksum + " (expected: 1.5)"), hopper.getChecksumProblems());
+        hopper.close();
+    }
+
     @Test
     public void testAlternativeRoutes() {
         final String profile = "profile";
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.carrotsearch.hppc.procedures.LongLongProcedure;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GHLongLongPagedArrayTest {
+
+    @Test
+    public void testEmptyValue() {
+        GHLongLongPagedArray instance = new GHLongLongPagedArray(4, -1);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> instance.put(1, -1));
+        assertTrue(ex.getMessage().contains("Value cannot be the 'empty value' -1"));
+        assertThrows(IllegalArgumentException.class, () -> instance.put(1, 1L << 31));
+        assertEquals(-1, instance.get(1));
+        assertEquals(-1, instance.put(1, 21));
+        assertEquals(21, instance.get(1));
+        assertEquals(-1, instance.get(0));
+        assertEquals(-1, instance.get(2));
+        assertEquals(-1, instance.get(1 << 20));
+        assertEquals(21, instance.put(1, -5));
+        assertEquals(-5, instance.get(1));
+        assertEquals(1, instance.getSize());
+    }
+
+    @Test
+    public void testNegativeAndLargeKeys() {
+        GHLongLongPagedArray instance = new GHLongLongPagedArray(5, -1);
+        long[] keys = {-Long.MAX_VALUE, -1, 0, 1023, 1024, 100_000_000L, 1L << 40, Long.MAX_VALUE};
+        for (int i = 0; i < keys.length; i++)
+            assertEquals(-1, instance.put(keys[i], -3 - i));
+        for (int i = 0; i < keys.length; i++)
+            assertEquals(-3 - i, instance.get(keys[i]));
+        assertEquals(keys.length, instance.getSize());
+        instance.clear();
+        assertEquals(0, instance.getSize());
+        assertEquals(-1, instance.get(1024));
+    }
+
+    @Test
+    public void testRandom() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHLongLongPagedArray instance = new GHLongLongPagedArray(5, -1);
+        LongLongHashMap expected = new LongLongHashMap();
+        for (int i = 0; i < 100_000; i++) {
+            // mostly dense keys, but also some sparse ones
+            long key = rnd.nextInt(10) == 0 ? rnd.nextInt(1 << 30) : rnd.nextInt(50_000);
+            long value = rnd.nextLong() % instance.getMaxValue();
+            if (value == -1)
+                continue;
+            assertEquals(expected.getOrDefault(key, -1), instance.put(key, value), "seed: " + seed);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), instance.getSize(), "seed: " + seed);
+        for (int i = 0; i < 100_000; i++) {
+            long key = rnd.nextInt(10) == 0 ? rnd.nextInt(1 << 30) : rnd.nextInt(50_000);
+            assertEquals(expected.getOrDefault(key, -1), instance.get(key), "seed: " + seed);
+        }
+        expected.forEach((LongLongProcedure) (key, value) ->
+                assertEquals(value, instance.get(key), "seed: " + seed));
+    }
+
+    @Test
+    public void testSparsePagesAndLargeKeys() {
+        GHLongLongPagedArray instance = new GHLongLongPagedArray(5, -1);
+        // a few clusters of keys close to the current OSM node ids, like the nodes of a small extract
+        long[] clusterStarts = {1_000_000L, 2_500_000_000L, 9_000_000_000L, 13_000_000_000L};
+        for (long start : clusterStarts)
+            for (int i = 0; i < 1000; i++)
+                assertEquals(-1, instance.put(start + 7L * i, i));
+        for (long start : clusterStarts) {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, instance.get(start + 7L * i));
+                assertEquals(-1, instance.get(start + 7L * i + 1));
+            }
+        }
+        assertEquals(4000, instance.getSize());
+        // only the chunk directory grows with the largest key
+        assertTrue(instance.getMemoryUsage() < 5, "memory usage: " + instance.getMemoryUsage() + "MB");
+    }
+}
@@ -0,0 +1,143 @@
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.SimpleBooleanEncodedValue;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.*;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsochroneRasterTest {
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    @Test
+    public void testIsolineOfSingleCell() {
+        IsochroneRaster raster = new IsochroneRaster(0, 0, 1, 1, 3, 3);
+        raster.setValue(1, 1, 0);
+        MultiPolygon isoline = raster.computeIsoline(1, geometryFactory);
+        assertEquals(1, isoline.getNumGeometries());
+        Polygon polygon = (Polygon) isoline.getGeometryN(0);
+        // the crossings are in the middle between the reached and the unreached grid points
+        assertEquals(0.5, polygon.getArea(), 1.e-9);
+        assertTrue(polygon.contains(geometryFactory.createPoint(new Coordinate(1, 1))));
+        assertTrue(polygon.getExteriorRing().isClosed());
+    }
+
+    @Test
+    public void testInterpolationAndHoles() {
+        // a ring of reached grid points around an unreached one
+        IsochroneRaster raster = new IsochroneRaster(0, 0, 1, 1, 5, 5);
+        for (int y = 1; y <= 3; y++) {
+            for (int x = 1; x <= 3; x++) {
+                if (x != 2 || y != 2)
+                    raster.setValue(x, y, 10);
+            }
+        }
+        MultiPolygon isoline = raster.computeIsoline(20, geometryFactory);
+        assertEquals(1, isoline.getNumGeometries());
+        Polygon polygon = (Polygon) isoline.getGeometryN(0);
+        assertEquals(1, polygon.getNumInteriorRing());
+        assertFalse(polygon.contains(geometryFactory.createPoint(new Coordinate(2, 2))));
+        assertTrue(polygon.contains(geometryFactory.createPoint(new Coordinate(1, 1))));
+
+        // with a value in the middle the crossings are interpolated, and below z it closes the hole
+        raster.setValue(2, 2, 40);
+        polygon = (Polygon) raster.computeIsoline(20, geometryFactory).getGeometryN(0);
+        assertEquals(1, polygon.getNumInteriorRing());
+        assertEquals(4.0 / 3, polygon.getInteriorRingN(0).getEnvelopeInternal().getWidth(), 1.e-9);
+        raster.setValue(2, 2, 15);
+        polygon = (Polygon) raster.computeIsoline(20, geometryFactory).getGeometryN(0);
+        assertEquals(0, polygon.getNumInteriorRing());
+        assertEquals(8.5, polygon.getArea(), 1.e-9);
+    }
+
+    @Test
+    public void testSeparateAreas() {
+        IsochroneRaster raster = new IsochroneRaster(0, 0, 1, 1, 6, 3);
+        raster.setValue(1, 1, 0);
+        raster.setValue(4, 1, 0);
+        assertEquals(2, raster.computeIsoline(1, geometryFactory).getNumGeometries());
+        // diagonal neighbours are only connected if the center of the cell is inside
+        raster = new IsochroneRaster(0, 0, 1, 1, 4, 4);
+        raster.setValue(1, 1, 0);
+        raster.setValue(2, 2, 0);
+        assertEquals(2, raster.computeIsoline(1, geometryFactory).getNumGeometries());
+        raster.fillGaps(1);
+        assertEquals(0, raster.getValue(2, 1));
+        assertEquals(Float.POSITIVE_INFINITY, raster.getValue(0, 0));
+        assertEquals(1, raster.computeIsoline(1, geometryFactory).getNumGeometries());
+    }
+
+    @Test
+    public void testRasterizeShortestPathTree() {
+        BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+        EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        // a road of about 1km from 0 to 1 via 2
+        // 0---2---1
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50, 10);
+        na.setNode(1, 50, 10.0139);
+        na.setNode(2, 50, 10.00695);
+        GHUtility.setSpeed(10, true, true, accessEnc, speedEnc, graph.edge(0, 2).setDistance(500));
+        GHUtility.setSpeed(10, true, true, accessEnc, speedEnc, graph.edge(2, 1).setDistance(500));
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, new SpeedWeighting(speedEnc), false, TraversalMode.NODE_BASED);
+        shortestPathTree.setDistanceLimit(2_000);
+        IsochroneRaster raster = IsochroneRaster.rasterize(queryGraph, shortestPathTree, 0, l -> l.distance, 50);
+        // 1km divided into cells of 50m plus the padding
+        assertEquals(23, raster.getWidth());
+        assertEquals(3, raster.getHeight());
+        for (int x = 1; x < raster.getWidth() - 1; x++) {
+            assertEquals((x - 1) * 50, raster.getValue(x, 1), 25);
+        }
+        Polygon polygon = (Polygon) raster.computeIsoline(500, geometryFactory).getGeometryN(0);
+        assertEquals(10.0035, polygon.getCentroid().getX(), 0.0005);
+        assertEquals(50, polygon.getCentroid().getY(), 1.e-6);
+        assertThrows(IllegalArgumentException.class, () -> IsochroneRaster.rasterize(queryGraph, shortestPathTree, 0, l -> l.distance, 0));
+
+        // the grid has 23x3 cells
+        ShortestPathTree limitedTree = new ShortestPathTree(queryGraph, new SpeedWeighting(speedEnc), false, TraversalMode.NODE_BASED);
+        limitedTree.setDistanceLimit(2_000);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> IsochroneRaster.rasterize(queryGraph, limitedTree, 0, l -> l.distance, 50, 68));
+        assertTrue(ex.getMessage().startsWith("Too many grid cells (69)"), ex.getMessage());
+    }
+
+    @Test
+    public void testTooManyCellsRejectedBeforeSampling() {
+        BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+        EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        // a road of about 140km, which gives more than 10^10 cells of 1m
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50, 10);
+        na.setNode(1, 50.9, 11.4);
+        GHUtility.setSpeed(10, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(140_000));
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, new SpeedWeighting(speedEnc), false, TraversalMode.NODE_BASED);
+        shortestPathTree.setDistanceLimit(200_000);
+        AtomicInteger samples = new AtomicInteger();
+        ToDoubleFunction<ShortestPathTree.IsoLabel> fz = l -> {
+            samples.incrementAndGet();
+            return l.distance;
+        };
+        assertThrows(IllegalArgumentException.class, () -> IsochroneRaster.rasterize(queryGraph, shortestPathTree, 0, fz, 1));
+        assertEquals(0, samples.get());
+    }
+}
@@ -0,0 +1,91 @@
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.graphhopper.routing.PHAST;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShortestPathTreeCHTest {
+
+    @Test
+    public void testSameTreeAsDijkstra() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(speedEnc).build()).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, speedEnc, null, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        int[] nodesByLevel = PHAST.sortNodesByLevel(chGraph);
+
+        for (int i = 0; i < 10; i++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 1, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int from = snaps.get(0).getClosestNode();
+            boolean reverseFlow = rnd.nextBoolean();
+            double limit = 10 + rnd.nextInt(100);
+
+            ShortestPathTree spt = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(chConfig.getWeighting()), reverseFlow, TraversalMode.NODE_BASED);
+            spt.setWeightLimit(limit);
+            IntObjectHashMap<ShortestPathTree.IsoLabel> expected = new IntObjectHashMap<>();
+            spt.search(from, l -> expected.put(l.node, l));
+
+            ShortestPathTreeCH sptCH = new ShortestPathTreeCH(queryGraph, new QueryRoutingCHGraph(chGraph, queryGraph), nodesByLevel, reverseFlow);
+            sptCH.setWeightLimit(limit);
+            IntObjectHashMap<ShortestPathTree.IsoLabel> labels = new IntObjectHashMap<>();
+            sptCH.search(from, l -> {
+                assertFalse(labels.containsKey(l.node));
+                assertTrue(l.parent == null || labels.containsKey(l.parent.node), "parents must come first");
+                labels.put(l.node, l);
+            });
+
+            String message = "seed: " + seed + ", from: " + from + ", reverse: " + reverseFlow;
+            // the shortcut weights are rounded, so labels close to the limit might be missing in either tree
+            for (ShortestPathTree.IsoLabel expectedLabel : expected.values().toArray(ShortestPathTree.IsoLabel.class)) {
+                if (expectedLabel.weight < limit - 1.e-2)
+                    assertTrue(labels.containsKey(expectedLabel.node), message);
+            }
+            for (ShortestPathTree.IsoLabel label : labels.values().toArray(ShortestPathTree.IsoLabel.class)) {
+                ShortestPathTree.IsoLabel expectedLabel = expected.get(label.node);
+                if (expectedLabel == null) {
+                    assertTrue(label.weight > limit - 1.e-2, message);
+                    continue;
+                }
+                assertEquals(expectedLabel.weight, label.weight, 1.e-2, message);
+                assertEquals(expectedLabel.distance, label.distance, 1.e-1, message);
+                assertEquals(expectedLabel.time, label.time, 50, message);
+                if (label.parent != null) {
+                    // the labels form a tree on the original graph
+                    EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edge, label.node);
+                    assertEquals(label.parent.node, edge.getBaseNode(), message);
+                }
+            }
+        }
+    }
+}
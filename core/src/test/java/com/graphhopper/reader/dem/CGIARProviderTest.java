@@ -111,6 +111,28 @@ public class CGIARProviderTest {
         zipFile.delete();
     }
 
+    @Test
+    public void testFileNotFoundAfterEviction() {
+        CGIARProvider provider = new CGIARProvider("./target/tmp/cgiar-not-found");
+        provider.setMaxTileCacheBytes(1);
+        provider.setDownloader(new Downloader("test GH") {
+            @Override
+            public void downloadFile(String url, String toFile) throws IOException {
+                throw new FileNotFoundException("xyz");
+            }
+        });
+        assertEquals(0, provider.getEle(46, -20), 1);
+        // this closes the first tile
+        assertEquals(0, provider.getEle(46, -30), 1);
+        // the first tile is loaded again from the cache directory and is still sea level
+        File file = new File(provider.getCacheDir(), provider.getFileName(46, -20) + ".gh");
+        assertTrue(file.exists());
+        assertEquals(0, provider.getEle(46, -20), 1);
+        assertEquals(0, provider.getEle(47, -19), 1);
+        provider.release();
+        assertFalse(file.exists());
+    }
+
     @Disabled
     @Test
     public void testGetEle() {
@@ -18,10 +18,15 @@
 
 package com.graphhopper.reader.dem;
 
+import com.graphhopper.util.Downloader;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class HGTProviderTest {
 
@@ -33,4 +38,71 @@ class HGTProviderTest {
         assertEquals(0, hgt.getEle(0.6, 0.6), 1);
     }
 
-}
\ No newline at end of file
+    @Test
+    void tileCacheAndPrefetch() {
+        HGTProvider expected = new HGTProvider("./files/");
+        double ele1 = expected.getEle(49.968651, 11.574869);
+        double ele2 = expected.getEle(50.5, 11.5);
+        expected.release();
+        assertEquals(466, ele1, 1.e-1);
+
+        HGTProvider hgt = new HGTProvider("./files/");
+        // only a single tile can be kept open
+        hgt.setMaxTileCacheBytes(1).setPrefetchThreads(2);
+        assertEquals(ele1, hgt.getEle(49.968651, 11.574869), 1.e-1);
+        // the tile north of it was prefetched, this closes the first tile
+        assertEquals(ele2, hgt.getEle(50.5, 11.5), 1.e-1);
+        // the first tile is loaded again from the cache directory
+        assertEquals(ele1, hgt.getEle(49.968651, 11.574869), 1.e-1);
+        assertTrue(new File("./files/dem139191").exists());
+        hgt.release();
+        // all temporary files are removed, including the ones of closed tiles
+        assertFalse(new File("./files/dem139191").exists());
+        assertFalse(new File("./files/dem140191").exists());
+    }
+
+    @Test
+    void missingTileAfterEviction() {
+        HGTProvider hgt = createWithMissingTiles();
+        hgt.setMaxTileCacheBytes(1);
+        assertEquals(466, hgt.getEle(49.968651, 11.574869), 1.e-1);
+        // there is no file for the tile east of it, this closes the first tile
+        assertEquals(0, hgt.getEle(49.5, 12.5));
+        assertTrue(new File("./files/dem139192").exists());
+        // both tiles are loaded again from the cache directory
+        assertEquals(466, hgt.getEle(49.968651, 11.574869), 1.e-1);
+        assertEquals(0, hgt.getEle(49.5, 12.5));
+        assertEquals(0, hgt.getEle(49.9, 12.9));
+        hgt.release();
+        assertFalse(new File("./files/dem139191").exists());
+        assertFalse(new File("./files/dem139192").exists());
+    }
+
+    @Test
+    void missingTilePrefetched() {
+        HGTProvider hgt = createWithMissingTiles();
+        hgt.setMaxTileCacheBytes(1).setPrefetchThreads(2);
+        assertEquals(466, hgt.getEle(49.968651, 11.574869), 1.e-1);
+        // the missing tile east of it was prefetched
+        assertEquals(0, hgt.getEle(49.5, 12.5));
+        assertEquals(466, hgt.getEle(49.968651, 11.574869), 1.e-1);
+        assertEquals(0, hgt.getEle(49.5, 12.5));
+        hgt.release();
+        assertFalse(new File("./files/dem139192").exists());
+        assertFalse(new File("./files/dem138190").exists());
+    }
+
+    private static HGTProvider createWithMissingTiles() {
+        HGTProvider hgt = new HGTProvider("./files/");
+        // only the tiles that exist in the directory are found, the others have no data
+        hgt.setBaseURL("https://localhost/hgt/");
+        hgt.setDownloader(new Downloader("test GH") {
+            @Override
+            public void downloadFile(String url, String toFile) throws IOException {
+                throw new FileNotFoundException(url);
+            }
+        });
+        return hgt;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeightTileCacheTest {
+
+    private final RAMDirectory dir = new RAMDirectory();
+
+    private HeightTile createTile(String name) {
+        HeightTile tile = new HeightTile(0, 0, 10, 10, 1e7, 1, 1);
+        DataAccess heights = dir.create(name, 1024);
+        heights.create(1000);
+        tile.setHeights(heights);
+        return tile;
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        List<HeightTile> evicted = new ArrayList<>();
+        HeightTileCache<Integer> cache = new HeightTileCache<>(() -> 2500, evicted::add);
+        HeightTile tile1 = createTile("t1");
+        HeightTile tile2 = createTile("t2");
+        HeightTile tile3 = createTile("t3");
+        cache.put(1, tile1);
+        cache.put(2, tile2);
+        assertEquals(2048, cache.getBytes());
+        // tile1 is used more recently than tile2 now
+        assertSame(tile1, cache.get(1));
+        cache.put(3, tile3);
+        assertEquals(List.of(tile2), evicted);
+        assertNull(cache.get(2));
+        assertSame(tile1, cache.get(1));
+        assertSame(tile3, cache.get(3));
+        assertEquals(2, cache.size());
+        assertEquals(2048, cache.getBytes());
+    }
+
+    @Test
+    public void testKeepLastTile() {
+        List<HeightTile> evicted = new ArrayList<>();
+        HeightTileCache<String> cache = new HeightTileCache<>(() -> 100, evicted::add);
+        HeightTile tile1 = createTile("t1");
+        HeightTile tile2 = createTile("t2");
+        cache.put("a", tile1);
+        assertSame(tile1, cache.get("a"));
+        cache.put("b", tile2);
+        assertEquals(List.of(tile1), evicted);
+        assertSame(tile2, cache.get("b"));
+        assertEquals(1024, cache.getBytes());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.carrotsearch.hppc.procedures.LongLongProcedure;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataAccessLongLongMapTest {
+    private final String location = "./target/tmp/da-long-long-map";
+    private Directory dir;
+
+    @BeforeEach
+    public void setUp() {
+        Helper.removeDir(new File(location));
+        dir = new GHDirectory(location, DAType.MMAP).create();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dir.clear();
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testEmptyValue() {
+        DataAccessLongLongMap instance = new DataAccessLongLongMap(dir, "map", 5, -1, 0);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> instance.put(1, -1));
+        assertTrue(ex.getMessage().contains("Value cannot be the 'empty value' -1"));
+        assertEquals(-1, instance.get(1));
+        assertEquals(-1, instance.put(1, 21));
+        assertEquals(21, instance.get(1));
+        assertEquals(-1, instance.get(0));
+        assertEquals(-1, instance.get(1L << 30));
+        assertEquals(21, instance.put(1, -5));
+        assertEquals(-5, instance.get(1));
+        assertEquals(-5, instance.put(1, instance.getMaxValue()));
+        assertEquals(instance.getMaxValue(), instance.get(1));
+        assertThrows(IllegalArgumentException.class, () -> instance.put(1, instance.getMaxValue() + 1));
+        assertEquals(-1, instance.put(2, -(1L << 39)));
+        assertEquals(-(1L << 39), instance.get(2));
+        assertEquals(2, instance.getSize());
+        instance.clear();
+        assertEquals(0, instance.getSize());
+    }
+
+    @Test
+    public void testNegativeAndLargeKeys() {
+        DataAccessLongLongMap instance = new DataAccessLongLongMap(dir, "map", 5, -1, 0);
+        long[] keys = {-Long.MAX_VALUE, -1, 0, 1023, 1024, 100_000_000L, 1L << 40, Long.MAX_VALUE};
+        for (int i = 0; i < keys.length; i++)
+            assertEquals(-1, instance.put(keys[i], -3 - i));
+        for (int i = 0; i < keys.length; i++)
+            assertEquals(-3 - i, instance.get(keys[i]));
+        assertEquals(keys.length, instance.getSize());
+        instance.clear();
+        assertEquals(0, instance.getSize());
+        assertEquals(-1, instance.get(1024));
+        assertEquals(-1, instance.get(-1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 16 * 1024, 1 << 20})
+    public void testRandom(long bufferBytes) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        DataAccessLongLongMap instance = new DataAccessLongLongMap(dir, "map", 5, -1, bufferBytes);
+        LongLongHashMap expected = new LongLongHashMap();
+        for (int i = 0; i < 100_000; i++) {
+            long key = rnd.nextInt(200_000);
+            long value = rnd.nextLong() % instance.getMaxValue();
+            if (value == -1)
+                continue;
+            assertEquals(expected.getOrDefault(key, -1), instance.put(key, value), "seed: " + seed);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), instance.getSize(), "seed: " + seed);
+        expected.forEach((LongLongProcedure) (key, value) ->
+                assertEquals(value, instance.get(key), "seed: " + seed));
+        // the buffer stays within its budget
+        assertTrue(instance.getMemoryUsage() <= bufferBytes / Helper.MB, "seed: " + seed);
+    }
+
+    @Test
+    public void testBufferIsWrittenWhenFull() {
+        // 256 bytes are 16 slots, so 8 values are buffered
+        DataAccessLongLongMap instance = new DataAccessLongLongMap(dir, "map", 5, -1, 256);
+        for (int i = 0; i < 20; i++)
+            assertEquals(-1, instance.put(1000 - 10 * i, i));
+        assertEquals(20, instance.getSize());
+        for (int i = 0; i < 20; i++)
+            assertEquals(i, instance.get(1000 - 10 * i));
+        assertEquals(0, instance.put(1000, 7));
+        assertEquals(7, instance.get(1000));
+        assertEquals(20, instance.getSize());
+    }
+}
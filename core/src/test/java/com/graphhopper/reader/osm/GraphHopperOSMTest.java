@@ -114,6 +114,68 @@ public class GraphHopperOSMTest {
         }
     }
 
+    @Test
+    public void testExternalMemoryImport() {
+        String profile = "car_profile";
+        List<GraphHopper> hoppers = new ArrayList<>();
+        for (boolean externalMemory : new boolean[]{false, true}) {
+            GraphHopper hopper = new GraphHopper().
+                    setProfiles(TestProfiles.constantSpeed(profile)).
+                    setStoreOnFlush(true).
+                    setGraphHopperLocation(ghLoc + (externalMemory ? "/external" : "/heap")).
+                    setOSMFile("../core/files/andorra.osm.pbf");
+            // a small buffer, so the node id file is written several times
+            hopper.getReaderConfig().setExternalMemory(externalMemory).setExternalMemoryBufferMB(1);
+            hopper.importOrLoad();
+            hoppers.add(hopper);
+        }
+        BaseGraph heapGraph = hoppers.get(0).getBaseGraph();
+        BaseGraph externalGraph = hoppers.get(1).getBaseGraph();
+        assertEquals(heapGraph.getNodes(), externalGraph.getNodes());
+        assertEquals(heapGraph.getEdges(), externalGraph.getEdges());
+        GHRequest request = new GHRequest(42.56819, 1.603231, 42.571034, 1.520662).setProfile(profile);
+        assertEquals(hoppers.get(0).route(request).getBest().getDistance(), hoppers.get(1).route(request).getBest().getDistance(), 1.e-6);
+        // the temporary files are removed after the import
+        String[] files = new File(ghLoc + "/external").list();
+        assertNotNull(files);
+        assertTrue(Arrays.stream(files).noneMatch(f -> f.startsWith("tmp_")), Arrays.toString(files));
+        hoppers.forEach(GraphHopper::close);
+    }
+
+    @Test
+    public void testLazyLoad() {
+        String profile = "car_profile";
+        GraphHopper hopper = new GraphHopper().
+                init(new GraphHopperConfig().
+                        putObject("graph.location", ghLoc).
+                        putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                        // small segments, so only some of them are loaded for a route
+                        putObject("graph.dataaccess.segment_size", 1 << 12).
+                        putObject("import.osm.ignored_highways", "").
+                        setProfiles(List.of(TestProfiles.constantSpeed(profile))));
+        hopper.importOrLoad();
+        GHRequest request = new GHRequest(42.56819, 1.603231, 42.571034, 1.520662).setProfile(profile);
+        double distance = hopper.route(request).getBest().getDistance();
+        hopper.close();
+
+        hopper = new GraphHopper().
+                init(new GraphHopperConfig().
+                        putObject("graph.location", ghLoc).
+                        putObject("graph.dataaccess.default_type", "RAM_LAZY").
+                        putObject("import.osm.ignored_highways", "").
+                        setProfiles(List.of(TestProfiles.constantSpeed(profile))));
+        assertTrue(hopper.load());
+        DataAccess geometry = hopper.getBaseGraph().getDirectory().getDAs().get("geometry");
+        assertEquals(DAType.RAM_LAZY, geometry.getType());
+        int loadedAfterLoad = ((LazyRAMDataAccess) geometry).getLoadedSegments();
+        assertTrue(loadedAfterLoad < geometry.getSegments(), loadedAfterLoad + " of " + geometry.getSegments());
+        assertEquals(distance, hopper.route(request).getBest().getDistance(), 1.e-6);
+        int loadedAfterRoute = ((LazyRAMDataAccess) geometry).getLoadedSegments();
+        assertTrue(loadedAfterRoute > loadedAfterLoad && loadedAfterRoute < geometry.getSegments(),
+                loadedAfterRoute + " of " + geometry.getSegments());
+        hopper.close();
+    }
+
     @Test
     public void testLoadOSMNoCH() {
         final String profile = "profile";
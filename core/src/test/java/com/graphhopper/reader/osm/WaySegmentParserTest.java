@@ -0,0 +1,53 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.osm.pbf.PbfBlobIndex;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaySegmentParserTest {
+
+    @Test
+    public void skipNodeBlobsInPass2() {
+        BaseGraph graph = new BaseGraph.Builder(1).create();
+        AtomicInteger edges = new AtomicInteger();
+        // only the first road is accepted, so most node blobs are not needed
+        AtomicLong acceptedWay = new AtomicLong(-1);
+        WaySegmentParser parser = new WaySegmentParser.Builder(graph.getNodeAccess(), new RAMDirectory())
+                .setWayFilter(way -> way.hasTag("highway") && (acceptedWay.compareAndSet(-1, way.getId()) || acceptedWay.get() == way.getId()))
+                .setEdgeHandler((from, to, pointList, way, nodeTags) -> edges.incrementAndGet())
+                .build();
+        parser.readOSM(new File("./files/andorra.osm.pbf"));
+        assertTrue(edges.get() > 0);
+
+        PbfBlobIndex blobIndex = parser.getBlobIndex();
+        assertTrue(blobIndex.getNodeBlobs() > 0);
+        // the node blobs decoded in pass2 must not disable the skipping
+        assertFalse(blobIndex.toString().contains("not sorted"), blobIndex.toString());
+        assertTrue(blobIndex.getSkippedBlobs() > 0, blobIndex.toString());
+        assertTrue(blobIndex.getSkippedBlobs() < blobIndex.getNodeBlobs(), blobIndex.toString());
+    }
+}
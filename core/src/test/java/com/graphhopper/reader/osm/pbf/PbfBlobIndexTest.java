@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm.pbf;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PbfBlobIndexTest {
+
+    @Test
+    public void testSortedBlobs() {
+        PbfBlobIndex index = new PbfBlobIndex();
+        // blob 0 is the header, blobs 1-4 contain nodes and blob 5 contains ways
+        index.addNodeBlob(1, 1, 100);
+        index.addNodeBlob(2, 105, 200);
+        index.addNodeBlob(3, 201, 300);
+        index.addNodeBlob(4, 400, 500);
+        index.markNode(150);
+        index.markNode(102);
+        index.markNode(350);
+        index.markNode(500);
+        index.markNode(-5);
+        index.markNode(1000);
+        // nothing is skipped before pass1 is finished
+        assertFalse(index.isSkipped(1));
+        index.startSkipping();
+        assertEquals(4, index.getNodeBlobs());
+        assertEquals(2, index.getSkippedBlobs());
+        assertFalse(index.isSkipped(0));
+        assertTrue(index.isSkipped(1));
+        assertFalse(index.isSkipped(2));
+        assertTrue(index.isSkipped(3));
+        assertFalse(index.isSkipped(4));
+        assertFalse(index.isSkipped(5));
+
+        // reading the needed blobs again does not change anything
+        assertFalse(index.isRecording());
+        index.addNodeBlob(2, 105, 200);
+        assertEquals(2, index.getSkippedBlobs());
+        assertTrue(index.isSkipped(1));
+    }
+
+    @Test
+    public void testUnsortedBlobs() {
+        PbfBlobIndex index = new PbfBlobIndex();
+        index.addNodeBlob(1, 100, 200);
+        index.addNodeBlob(2, 1, 50);
+        index.markNode(150);
+        index.startSkipping();
+        assertEquals(0, index.getSkippedBlobs());
+        assertFalse(index.isSkipped(1));
+        assertFalse(index.isSkipped(2));
+    }
+
+    @Test
+    public void testNodeBlobsAfterWays() {
+        PbfBlobIndex index = new PbfBlobIndex();
+        index.addNodeBlob(1, 1, 100);
+        index.addNodeBlob(2, 101, 200);
+        index.markNode(150);
+        // the nodes of this blob might have been needed by the ways we already read
+        index.addNodeBlob(4, 201, 300);
+        index.startSkipping();
+        assertEquals(0, index.getSkippedBlobs());
+        assertFalse(index.isSkipped(1));
+        assertFalse(index.isSkipped(4));
+    }
+}
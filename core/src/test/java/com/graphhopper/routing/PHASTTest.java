@@ -0,0 +1,97 @@
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PHASTTest {
+
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(speedEnc).build()).create();
+
+    private RoutingCHGraph prepareCH() {
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        return RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+    }
+
+    @Test
+    public void testSortNodesByLevel() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 50, 2.5, true, speedEnc, null, 0.9, 0);
+        RoutingCHGraph chGraph = prepareCH();
+        int[] nodes = PHAST.sortNodesByLevel(chGraph);
+        assertTrue(nodes.length > 0);
+        for (int i = 1; i < nodes.length; i++) {
+            assertTrue(chGraph.getLevel(nodes[i - 1]) < chGraph.getLevel(nodes[i]));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testRandomGraph(boolean reverse) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, speedEnc, null, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        RoutingCHGraph chGraph = prepareCH();
+        int[] nodesByLevel = PHAST.sortNodesByLevel(chGraph);
+        for (int i = 0; i < 20; i++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 1, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int from = snaps.get(0).getClosestNode();
+            PHAST phast = new PHAST(new QueryRoutingCHGraph(chGraph, queryGraph), nodesByLevel, reverse);
+            phast.calc(from);
+            Weighting weighting = queryGraph.wrapWeighting(chGraph.getWeighting());
+            for (int node = 0; node < queryGraph.getNodes(); node++) {
+                Path path = reverse
+                        ? new Dijkstra(queryGraph, weighting, TraversalMode.NODE_BASED).calcPath(node, from)
+                        : new Dijkstra(queryGraph, weighting, TraversalMode.NODE_BASED).calcPath(from, node);
+                if (!path.isFound())
+                    assertEquals(Double.POSITIVE_INFINITY, phast.getWeight(node), "seed: " + seed + ", node: " + node);
+                else
+                    assertEquals(path.getWeight(), phast.getWeight(node), 1.e-2, "seed: " + seed + ", node: " + node);
+            }
+        }
+    }
+
+    @Test
+    public void testWeightLimit() {
+        // 0-1-2-3
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(100).set(speedEnc, 10, 10);
+        RoutingCHGraph chGraph = prepareCH();
+        PHAST phast = new PHAST(chGraph, PHAST.sortNodesByLevel(chGraph), false).setWeightLimit(25);
+        phast.calc(0);
+        assertEquals(0, phast.getWeight(0));
+        assertEquals(10, phast.getWeight(1), 1.e-6);
+        assertEquals(20, phast.getWeight(2), 1.e-6);
+        assertEquals(Double.POSITIVE_INFINITY, phast.getWeight(3));
+        assertThrows(IllegalStateException.class, () -> phast.calc(1));
+    }
+}
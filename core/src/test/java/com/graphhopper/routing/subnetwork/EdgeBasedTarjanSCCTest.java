@@ -31,10 +31,12 @@ import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.Set;
 
 import static com.graphhopper.routing.subnetwork.TarjanSCCTest.buildComponentSet;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -257,6 +259,48 @@ class EdgeBasedTarjanSCCTest {
         compareResults(g, seed, implicit, explicit);
     }
 
+    @RepeatedTest(20)
+    public void parallelVsSequential() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        // use enough nodes such that the frontier of the parallel search is split into multiple chunks
+        GHUtility.buildRandomGraph(g, rnd, 3000, 2, true, speedEnc, 60d, 0.7, 0);
+        for (boolean excludeSingle : new boolean[]{true, false}) {
+            ConnectedComponents expected = EdgeBasedTarjanSCC.findComponents(g, fwdAccessFilter, excludeSingle);
+            ConnectedComponents given = EdgeBasedTarjanSCC.findComponentsParallel(g, fwdAccessFilter, excludeSingle, 4);
+            assertEquals(2 * g.getEdges(), given.getEdgeKeys(), "seed: " + seed);
+            assertEquals(buildComponentSet(expected.getComponents()), buildComponentSet(given.getComponents()), "seed: " + seed);
+            assertEquals(expected.getSingleEdgeComponents(), given.getSingleEdgeComponents(), "seed: " + seed);
+            // the order of the components is different, so if there are multiple biggest components we might get another one
+            assertEquals(expected.getBiggestComponent().size(), given.getBiggestComponent().size(), "seed: " + seed);
+            assertEquals(expected.getTotalComponents(), given.getTotalComponents(), "seed: " + seed);
+        }
+    }
+
+    @Test
+    public void parallelWithTurnRestriction() {
+        // same graph as in withTurnRestriction
+        g.edge(0, 1).setDistance(1).set(speedEnc, 10, 0);
+        g.edge(1, 2).setDistance(1).set(speedEnc, 10, 0);
+        g.edge(2, 3).setDistance(1).set(speedEnc, 10, 0);
+        g.edge(3, 0).setDistance(1).set(speedEnc, 10, 0);
+        g.edge(2, 4).setDistance(1).set(speedEnc, 10, 0);
+
+        ConnectedComponents result = EdgeBasedTarjanSCC.findComponentsParallel(g, fwdAccessFilter, false, 2);
+        assertEquals(7, result.getTotalComponents());
+        assertEquals(1, result.getComponents().size());
+        int[] biggest = result.getBiggestComponent().toArray();
+        Arrays.sort(biggest);
+        assertArrayEquals(new int[]{0, 2, 4, 6}, biggest);
+        assertEquals(6, result.getSingleEdgeComponents().cardinality());
+
+        result = EdgeBasedTarjanSCC.findComponentsParallel(g,
+                (prev, edge) -> fwdAccessFilter.accept(prev, edge) && !(prev == 1 && edge.getBaseNode() == 2 && edge.getEdge() == 2), false, 2);
+        assertEquals(10, result.getTotalComponents());
+        assertEquals(0, result.getComponents().size());
+        assertEquals(10, result.getSingleEdgeComponents().cardinality());
+    }
+
     @Test
     public void withStartEdges_simple() {
         // 0 - 1   4 - 5 - 6 - 7
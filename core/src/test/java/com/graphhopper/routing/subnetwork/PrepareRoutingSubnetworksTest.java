@@ -128,6 +128,17 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(6, instance.doWork());
         assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, carSubnetworkEnc));
         assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, bikeSubnetworkEnc));
+
+        // the same using the parallel search for the connected components
+        g = createSubnetworkTestStorage(em, carSpeedEnc, bikeSpeedEnc);
+        edge = GHUtility.getEdge(g, 3, 4);
+        edge.set(carSpeedEnc, 0, 0);
+        edge.set(bikeSpeedEnc, 0, 0);
+        instance = new PrepareRoutingSubnetworks(g, prepareJobs).setThreads(2).setParallelSCC(true);
+        instance.setMinNetworkSize(5);
+        assertEquals(6, instance.doWork());
+        assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, carSubnetworkEnc));
+        assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, bikeSubnetworkEnc));
     }
 
     @Test
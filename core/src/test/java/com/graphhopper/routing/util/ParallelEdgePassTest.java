@@ -0,0 +1,47 @@
+package com.graphhopper.routing.util;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.IntEncodedValueImpl;
+import com.graphhopper.storage.BaseGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelEdgePassTest {
+
+    @Test
+    public void testAllEdgesInOrderOfHandlers() {
+        IntEncodedValue firstEnc = new IntEncodedValueImpl("first", 20, false);
+        DecimalEncodedValue secondEnc = new DecimalEncodedValueImpl("second", 20, 1, false);
+        EncodingManager em = EncodingManager.start().add(firstEnc).add(secondEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        // more edges than fit into a single chunk
+        int edges = 50_000;
+        for (int i = 0; i < edges; i++)
+            graph.edge(i % 100, (i + 1) % 100);
+
+        AtomicIntegerArray visits = new AtomicIntegerArray(edges);
+        ParallelEdgePass edgePass = new ParallelEdgePass();
+        assertTrue(edgePass.isEmpty());
+        edgePass.add(edge -> {
+            visits.incrementAndGet(edge.getEdge());
+            edge.set(firstEnc, edge.getEdge() % 1000);
+        });
+        // the second handler can read what the first handler set for the same edge
+        edgePass.add(edge -> edge.set(secondEnc, edge.get(firstEnc) + 1));
+        assertFalse(edgePass.isEmpty());
+        edgePass.run(graph, 4);
+
+        for (int i = 0; i < edges; i++) {
+            assertEquals(1, visits.get(i));
+            assertEquals(i % 1000, graph.getEdgeIteratorState(i, Integer.MIN_VALUE).get(firstEnc));
+            assertEquals(i % 1000 + 1, graph.getEdgeIteratorState(i, Integer.MIN_VALUE).get(secondEnc), 1.e-6);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> edgePass.run(graph, 0));
+    }
+}
@@ -122,6 +122,43 @@ public class RestrictionSetterTest {
         assertPath(6, 7, nodes(6, 2, 3, 7));
     }
 
+    @Test
+    void multipleThreads() {
+        //   a   b   c   d
+        // 0---1---2---3---4
+        //     |s  |t  |u
+        //     5   6   7
+        int a = edge(0, 1);
+        int b = edge(1, 2);
+        int c = edge(2, 3);
+        int d = edge(3, 4);
+        edge(1, 5);
+        edge(2, 6);
+        edge(3, 7);
+        r.setThreads(4);
+        setRestrictions(List.of(
+                createViaEdgeRestriction(a, b, c),
+                // duplicate
+                createViaEdgeRestriction(a, b, c),
+                // redundant for the first, but not for the second encoded value
+                createViaEdgeRestriction(a, b, c, d),
+                createViaNodeRestriction(c, 3, d)
+        ), List.of(
+                encBits(1, 0),
+                encBits(1, 0),
+                encBits(1, 1),
+                encBits(0, 1)
+        ));
+        assertPath(0, 3, turnRestrictionEnc, null);
+        assertPath(0, 4, turnRestrictionEnc, null);
+        assertPath(0, 7, turnRestrictionEnc, null);
+        assertPath(0, 6, turnRestrictionEnc, nodes(0, 1, 2, 6));
+        assertPath(0, 3, turnRestrictionEnc2, nodes(0, 1, 2, 3));
+        assertPath(0, 4, turnRestrictionEnc2, null);
+        assertPath(5, 4, turnRestrictionEnc2, null);
+        assertPath(0, 7, turnRestrictionEnc2, nodes(0, 1, 2, 3, 7));
+    }
+
     @Test
     void viaEdge_no_withOverlap_more_complex() {
         //    0   1
@@ -264,6 +264,51 @@ public class KVStorageTest {
         Helper.removeDir(new File(location));
     }
 
+    @Test
+    public void testDictionary() {
+        Helper.removeDir(new File(location));
+
+        KVStorage index = new KVStorage(new RAMDirectory(location, true).create(), true).create(1000);
+        long pointerA = index.add(createMap("name", "Main Street", "ref", "B1"));
+        long pointerB = index.add(createMap("name", "Second Street", "ref", "B1"));
+        long pointerC = index.add(createMap("name", "Main Street", "ref", "B2"));
+        // the long value is stored once in the dictionary, the short one inline:
+        // count + (key + reference for 'Main Street') + (key + length + 'B2')
+        assertEquals(1 + 3 + 5, index.add(createMap("name", "x")) - pointerC);
+        assertEquals("Main Street", index.get(pointerC, "name", false));
+        // repeated dictionary strings are cached
+        assertSame(index.get(pointerA, "name", false), index.get(pointerC, "name", true));
+        assertEquals("{name=Main Street, ref=B2}", index.getAll(pointerC).toString());
+        index.flush();
+        index.close();
+
+        index = new KVStorage(new RAMDirectory(location, true), true);
+        assertTrue(index.loadExisting());
+        assertEquals("Main Street", index.get(pointerA, "name", false));
+        assertEquals("B1", index.get(pointerA, "ref", false));
+        assertEquals("Second Street", index.get(pointerB, "name", false));
+        assertEquals("B2", index.getMap(pointerC).get("ref"));
+        // the dictionary can still be extended
+        long pointerD = index.add(createMap("name", "Second Street"));
+        assertEquals("Second Street", index.get(pointerD, "name", false));
+        index.close();
+
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testDictionaryAfterFlush() {
+        KVStorage index = create();
+        long pointerA = index.add(createMap("name", "Main Street"));
+        // the strings that were added are forgotten when the import is done, but adding still works
+        index.flush();
+        long pointerB = index.add(createMap("name", "Main Street"));
+        long pointerC = index.add(createMap("name", "Main Street"));
+        assertEquals("Main Street", index.get(pointerA, "name", false));
+        assertEquals("Main Street", index.get(pointerB, "name", false));
+        assertEquals("Main Street", index.get(pointerC, "name", false));
+    }
+
     @Test
     public void testEmptyKey() {
         KVStorage index = create();
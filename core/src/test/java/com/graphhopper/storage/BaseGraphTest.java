@@ -29,6 +29,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 import static com.graphhopper.util.FetchMode.*;
@@ -392,6 +393,79 @@ public class BaseGraphTest extends AbstractGraphStorageTester {
         assertTrue(e.getMessage().contains("This edge already has a way geometry so it cannot be changed to a bigger geometry"), e.getMessage());
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void compressWayGeometry(boolean enabled3D) {
+        BaseGraph graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), enabled3D, 128).create(defaultSize);
+        Random rnd = new Random(123);
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 100; node++)
+            na.setNode(node, 49.9 + rnd.nextDouble(), 9.9 + rnd.nextDouble(), enabled3D ? rnd.nextInt(500) : Double.NaN);
+        for (int i = 0; i < 100; i++) {
+            int nodeA = rnd.nextInt(50);
+            PointList pillars = new PointList(10, enabled3D);
+            double lat = na.getLat(nodeA), lon = na.getLon(nodeA), ele = enabled3D ? na.getEle(nodeA) : Double.NaN;
+            for (int j = 0; j < rnd.nextInt(10); j++) {
+                // pillar nodes are usually only a few meters apart
+                lat += rnd.nextDouble() * 0.0003;
+                lon -= rnd.nextDouble() * 0.0003;
+                ele += rnd.nextDouble() * 4 - 2;
+                pillars.add(lat, lon, ele);
+            }
+            graph.edge(nodeA, 50 + rnd.nextInt(50)).setWayGeometry(pillars);
+        }
+        EdgeIteratorState copy = graph.copyEdge(3, true);
+        graph.copyEdge(3, true);
+        graph.copyEdge(4, false);
+        Map<Integer, PointList> expected = new LinkedHashMap<>();
+        for (int edge = 0; edge < graph.getEdges(); edge++)
+            expected.put(edge, graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).fetchWayGeometry(ALL));
+        long rawSize = graph.getMaxGeoRef();
+
+        graph.compressWayGeometry();
+        assertTrue(graph.isWayGeometryCompressed());
+        assertTrue(graph.getMaxGeoRef() < rawSize * 0.6, graph.getMaxGeoRef() + " vs. " + rawSize);
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(expected.get(edge), state.fetchWayGeometry(ALL));
+            PointList reversed = expected.get(edge).clone(true);
+            assertEquals(reversed, state.detach(true).fetchWayGeometry(ALL));
+        }
+        // copies still share their geometry
+        IntArrayList copies = new IntArrayList();
+        graph.forEdgeAndCopiesOfEdge(graph.createEdgeExplorer(), graph.getEdgeIteratorState(3, Integer.MIN_VALUE), e -> copies.add(e.getEdge()));
+        assertEquals(3, copies.size());
+        assertTrue(copies.contains(copy.getEdge()));
+
+        // new geometries are compressed as well, and we can replace them by geometries that are not bigger
+        PointList pillars = Helper.createPointList3D(50.1, 10.1, 100, 50.2, 10.2, 101);
+        if (!enabled3D)
+            pillars = Helper.createPointList(50.1, 10.1, 50.2, 10.2);
+        EdgeIteratorState edge = graph.edge(0, 99).setWayGeometry(pillars);
+        assertEquals(pillars, edge.fetchWayGeometry(PILLAR_ONLY));
+        PointList shorter = pillars.copy(1, 2);
+        edge.setWayGeometry(shorter);
+        assertEquals(shorter, edge.fetchWayGeometry(PILLAR_ONLY));
+        PointList bigger = pillars.clone(false);
+        bigger.add(pillars);
+        assertThrows(IllegalStateException.class, () -> edge.setWayGeometry(bigger));
+        expected.put(edge.getEdge(), edge.fetchWayGeometry(ALL));
+
+        graph.flush();
+        graph.close();
+        // the compressed format has its own version, so code that only knows the uncompressed format refuses to load it
+        DataAccess geometry = new RAMDirectory(defaultGraphLoc, true).create("geometry");
+        assertTrue(geometry.loadExisting());
+        assertEquals(Constants.VERSION_GEOMETRY_COMPRESSED, geometry.getHeader(0));
+        geometry.close();
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), enabled3D, 128);
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.isWayGeometryCompressed());
+        for (int e = 0; e < graph.getEdges(); e++)
+            assertEquals(expected.get(e), graph.getEdgeIteratorState(e, Integer.MIN_VALUE).fetchWayGeometry(ALL));
+        graph.close();
+    }
+
     @Test
     public void testGeoRef() {
         BaseGraph graph = createGHStorage();
@@ -0,0 +1,76 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.search.KVStorage;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static com.graphhopper.util.Parameters.Details.STREET_NAME;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs all the BaseGraph tests for the layout where the edge annotations are stored separately
+ */
+public class BaseGraphWithSplitEdgesTest extends BaseGraphTest {
+
+    @Override
+    protected BaseGraph newGHStorage(Directory dir, boolean enabled3D, int segmentSize) {
+        return new BaseGraph.Builder(encodingManager).setDir(dir).set3D(enabled3D).setSegmentSize(segmentSize).setSplitEdges(true).build();
+    }
+
+    @Test
+    public void testLoadKeepsLayout() {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        assertTrue(graph.isSplitEdges());
+        EdgeIteratorState edge = graph.edge(0, 1).setDistance(100).set(carAccessEnc, true, false)
+                .setKeyValues(Map.of(STREET_NAME, new KVStorage.KValue("main street")))
+                .setWayGeometry(Helper.createPointList(1.5, 1, 2, 3));
+        graph.edge(1, 2).setDistance(200);
+        long splitCapacity = graph.getStore().getCapacity();
+        graph.flush();
+        graph.close();
+
+        // the layout is stored with the graph, so it is used even if a different one is configured
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).build();
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.isSplitEdges());
+        assertEquals(splitCapacity, graph.getStore().getCapacity());
+        EdgeIteratorState loaded = graph.getEdgeIteratorState(edge.getEdge(), 1);
+        assertEquals("main street", loaded.getName());
+        assertEquals(100, loaded.getDistance());
+        assertTrue(loaded.get(carAccessEnc));
+        assertFalse(loaded.getReverse(carAccessEnc));
+        assertEquals(Helper.createPointList(1.5, 1, 2, 3), loaded.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        assertEquals(0, graph.getEdgeIteratorState(1, 2).fetchWayGeometry(FetchMode.PILLAR_ONLY).size());
+        graph.close();
+
+        Helper.removeDir(new File(defaultGraphLoc));
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).create();
+        graph.flush();
+        graph.close();
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false);
+        assertTrue(graph.loadExisting());
+        assertFalse(graph.isSplitEdges());
+    }
+}
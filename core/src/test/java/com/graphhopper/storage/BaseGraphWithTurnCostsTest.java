@@ -108,6 +108,31 @@ public class BaseGraphWithTurnCostsTest extends BaseGraphTest {
         checkGraph(graph);
     }
 
+    @Test
+    public void testSortForLookupIsStored() {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        EdgeIteratorState edge0 = graph.edge(0, 1).setDistance(100);
+        EdgeIteratorState edge1 = graph.edge(1, 2).setDistance(100);
+        EdgeIteratorState edge2 = graph.edge(1, 3).setDistance(100);
+        setTurnCost(edge2.getEdge(), 1, edge1.getEdge(), 5);
+        setTurnCost(edge1.getEdge(), 1, edge0.getEdge(), 3);
+        setTurnCost(edge0.getEdge(), 1, edge2.getEdge(), 4);
+        setTurnCost(edge0.getEdge(), 1, edge1.getEdge(), 2);
+        graph.getTurnCostStorage().sortForLookup();
+        graph.flush();
+        graph.close();
+
+        graph = newGHStorage(new MMapDirectory(defaultGraphLoc), false);
+        graph.loadExisting();
+        assertTrue(graph.getTurnCostStorage().isSortedForLookup());
+        assertEquals(2, getTurnCost(edge1, 1, edge0), .1);
+        assertEquals(4, getTurnCost(edge2, 1, edge0), .1);
+        assertEquals(3, getTurnCost(edge0, 1, edge1), .1);
+        assertEquals(5, getTurnCost(edge1, 1, edge2), .1);
+        assertEquals(0, getTurnCost(edge2, 1, edge1), .1);
+        assertEquals(0, getTurnCost(edge0, 1, edge2), .1);
+    }
+
     @Test
     public void testEnsureCapacity() {
         graph = newGHStorage(new MMapDirectory(defaultGraphLoc), false, 128);
@@ -0,0 +1,111 @@
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CHUpperHierarchyTest {
+
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+    private final BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build())
+            .withTurnCosts(true).create();
+
+    private RoutingCHGraphImpl prepareCH(boolean edgeBased) {
+        graph.freeze();
+        CHConfig chConfig = edgeBased
+                ? CHConfig.edgeBased("p", new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40))
+                : CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        return (RoutingCHGraphImpl) RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+    }
+
+    @Test
+    public void testRankOrder() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 50, 2.5, true, speedEnc, null, 0.9, 0);
+        RoutingCHGraphImpl chGraph = prepareCH(false);
+        CHUpperHierarchy block = chGraph.withUpperHierarchy(10).getUpperHierarchy();
+        assertEquals(10, block.size());
+        assertEquals(chGraph.getNodes() - 1, chGraph.getLevel(block.getNode(0)));
+        for (int i = 0; i < block.size(); i++) {
+            assertEquals(chGraph.getLevel(block.getNode(i)), block.getLevel(i));
+            assertEquals(i, block.getIndex(block.getLevel(i)));
+        }
+        assertEquals(-1, block.getIndex(chGraph.getNodes() - 11));
+        assertEquals(-1, block.getIndex(chGraph.getNodes()));
+        assertTrue(block.getCapacity() > 0);
+        // the block cannot be larger than the number of contracted nodes
+        assertEquals(chGraph.getNodes(), chGraph.withUpperHierarchy(1_000).getUpperHierarchy().size());
+        assertThrows(IllegalArgumentException.class, () -> chGraph.withUpperHierarchy(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testSameEdges(boolean edgeBased) {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 100, 2.5, true, speedEnc, null, 0.8, 0);
+        if (edgeBased)
+            GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 10, graph.getTurnCostStorage());
+        RoutingCHGraphImpl chGraph = prepareCH(edgeBased);
+        RoutingCHGraphImpl blockGraph = chGraph.withUpperHierarchy(30);
+        for (boolean out : new boolean[]{true, false}) {
+            RoutingCHEdgeExplorer explorer = out ? chGraph.createOutEdgeExplorer() : chGraph.createInEdgeExplorer();
+            RoutingCHEdgeExplorer blockExplorer = out ? blockGraph.createOutEdgeExplorer() : blockGraph.createInEdgeExplorer();
+            for (int node = 0; node < chGraph.getNodes(); node++)
+                assertEquals(edges(explorer.setBaseNode(node), edgeBased), edges(blockExplorer.setBaseNode(node), edgeBased),
+                        "seed: " + seed + ", node: " + node);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testSameRoutes(boolean edgeBased) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, speedEnc, null, 0.8, 0);
+        if (edgeBased)
+            GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 10, graph.getTurnCostStorage());
+        RoutingCHGraphImpl chGraph = prepareCH(edgeBased);
+        RoutingCHGraphImpl blockGraph = chGraph.withUpperHierarchy(30);
+        for (int i = 0; i < 50; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to);
+            Path blockPath = new CHRoutingAlgorithmFactory(blockGraph).createAlgo(new PMap()).calcPath(from, to);
+            assertEquals(path.isFound(), blockPath.isFound(), "seed: " + seed);
+            assertEquals(path.getWeight(), blockPath.getWeight(), "seed: " + seed);
+            assertEquals(path.calcNodes(), blockPath.calcNodes(), "seed: " + seed);
+        }
+    }
+
+    private static List<String> edges(RoutingCHEdgeIterator iter, boolean edgeBased) {
+        List<String> result = new ArrayList<>();
+        while (iter.next()) {
+            String edge = iter.getEdge() + ":" + iter.getBaseNode() + "-" + iter.getAdjNode() + ", orig: " + iter.getOrigEdge()
+                    + ", weights: " + iter.getWeight(false) + "/" + iter.getWeight(true);
+            // the original edge keys of node-based shortcuts are undefined
+            if (edgeBased || !iter.isShortcut())
+                edge += ", keys: " + iter.getOrigEdgeKeyFirst() + "/" + iter.getOrigEdgeKeyLast();
+            if (iter.isShortcut())
+                edge += ", skipped: " + iter.getSkippedEdge1() + "/" + iter.getSkippedEdge2();
+            result.add(edge);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CSRAdjacencyTest {
+
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(speedEnc).build()).create();
+
+    @Test
+    public void testSameEdges() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.5, true, speedEnc, null, 0.8, 0.2);
+        List<EdgeFilter> filters = List.of(EdgeFilter.ALL_EDGES, e -> e.get(speedEnc) > 0, e -> e.getReverse(speedEnc) > 0);
+        List<List<String>> expected = new ArrayList<>();
+        for (EdgeFilter filter : filters)
+            expected.add(edges(graph.createEdgeExplorer(filter)));
+
+        assertFalse(graph.hasCSRAdjacency());
+        assertTrue(graph.buildCSRAdjacency() > 0);
+        assertTrue(graph.hasCSRAdjacency());
+        for (int i = 0; i < filters.size(); i++) {
+            EdgeExplorer explorer = graph.createEdgeExplorer(filters.get(i));
+            assertTrue(explorer instanceof BaseGraph.CSREdgeIteratorImpl);
+            assertEquals(expected.get(i), edges(explorer), "seed: " + seed);
+        }
+        assertThrows(IllegalStateException.class, graph::buildCSRAdjacency);
+    }
+
+    @Test
+    public void testDetachAndModify() {
+        graph.edge(0, 1).setDistance(10).set(speedEnc, 10, 5);
+        graph.edge(0, 2).setDistance(20).set(speedEnc, 20, 15);
+        graph.edge(1, 2).setDistance(30);
+        graph.buildCSRAdjacency();
+
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        EdgeIterator iter = explorer.setBaseNode(2);
+        assertThrows(IllegalStateException.class, () -> explorer.setBaseNode(2).detach(false));
+        assertTrue(iter.next());
+        assertEquals(2, iter.getEdge());
+        assertEquals(1, iter.getAdjNode());
+        assertTrue(iter.next());
+        assertEquals(1, iter.getEdge());
+        assertEquals(0, iter.getAdjNode());
+        assertEquals(20, iter.getDistance());
+        // the edge was added as 0-2, so we are iterating it in reverse direction
+        assertEquals(15, iter.get(speedEnc));
+        assertEquals(20, iter.getReverse(speedEnc));
+        EdgeIteratorState detached = iter.detach(true);
+        assertEquals(0, detached.getBaseNode());
+        assertEquals(2, detached.getAdjNode());
+        assertEquals(20, detached.get(speedEnc));
+        assertFalse(iter.next());
+
+        // edge properties can still be changed, but not the adjacency
+        iter = explorer.setBaseNode(0);
+        assertTrue(iter.next());
+        iter.setDistance(12);
+        assertEquals(12, graph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode()).getDistance());
+        assertThrows(IllegalStateException.class, () -> graph.edge(2, 3));
+    }
+
+    private List<String> edges(EdgeExplorer explorer) {
+        List<String> result = new ArrayList<>();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                result.add(iter.getEdge() + ":" + iter.getBaseNode() + "-" + iter.getAdjNode() + ", key: " + iter.getEdgeKey()
+                        + ", dist: " + iter.getDistance() + ", speed: " + iter.get(speedEnc) + "/" + iter.getReverse(speedEnc));
+        }
+        return result;
+    }
+}
@@ -1,10 +1,12 @@
 package com.graphhopper.storage;
 
+import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.util.LinkedHashMap;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class GHDirectoryTest {
 
@@ -33,4 +35,39 @@ class GHDirectoryTest {
         assertEquals(DAType.MMAP, dir.getDefaultType("nodes_ch_car", false));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testOffHeap() {
+        GHDirectory dir = new GHDirectory("", DAType.RAM_STORE);
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        map.put("edges", "OFF_HEAP_STORE");
+        map.put("geometry", "off_heap");
+        dir.configure(map);
+        assertEquals(DAType.OFF_HEAP_STORE, dir.getDefaultType("edges", true));
+        assertEquals(DAType.OFF_HEAP, dir.getDefaultType("geometry", false));
+        assertTrue(dir.create("edges") instanceof OffHeapDataAccess);
+        assertEquals(DAType.OFF_HEAP, dir.create("geometry").getType());
+        assertEquals("OFF_HEAP_STORE", DAType.OFF_HEAP_STORE.toString());
+    }
+
+    @Test
+    public void testCloseKeepsFile() {
+        String location = "./target/tmp/ghdirectory";
+        Helper.removeDir(new File(location));
+        Directory dir = new GHDirectory(location, DAType.MMAP).create();
+        DataAccess da = dir.create("heights").create(100);
+        da.setInt(0, 123);
+        da.flush();
+        dir.close("heights");
+        assertTrue(da.isClosed());
+        assertFalse(dir.getDAs().containsKey("heights"));
+        assertTrue(new File(location, "heights").exists());
+        assertThrows(IllegalStateException.class, () -> dir.close("heights"));
+
+        da = dir.create("heights");
+        assertTrue(da.loadExisting());
+        assertEquals(123, da.getInt(0));
+        dir.clear();
+        assertFalse(new File(location, "heights").exists());
+    }
+
+}
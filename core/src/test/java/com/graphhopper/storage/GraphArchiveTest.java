@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphArchiveTest {
+    private final File folder = new File("./target/tmp/archive-test");
+    private final File archive = new File("./target/tmp/archive-test.gha");
+    private final File target = new File("./target/tmp/archive-test-unpacked");
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(folder);
+        Helper.removeDir(target);
+        Helper.removeDir(archive);
+    }
+
+    @Test
+    public void testPackAndUnpack() throws IOException {
+        folder.mkdirs();
+        Random rnd = new Random(123);
+        byte[] random = new byte[10_500];
+        rnd.nextBytes(random);
+        Files.write(new File(folder, "random").toPath(), random);
+        byte[] repeated = new byte[3_000];
+        for (int i = 0; i < repeated.length; i++)
+            repeated[i] = (byte) (i % 7);
+        Files.write(new File(folder, "repeated").toPath(), repeated);
+        Files.write(new File(folder, "empty").toPath(), new byte[0]);
+        Files.write(new File(folder, "gh.lock").toPath(), new byte[0]);
+
+        GraphArchive.pack(folder, archive, 1000, 3);
+        GraphArchive.verify(archive);
+        // existing files are overwritten
+        target.mkdirs();
+        Files.write(new File(target, "repeated").toPath(), new byte[5_000]);
+        GraphArchive.unpack(archive, target, 4);
+        assertArrayEquals(random, Files.readAllBytes(new File(target, "random").toPath()));
+        assertArrayEquals(repeated, Files.readAllBytes(new File(target, "repeated").toPath()));
+        assertEquals(0, new File(target, "empty").length());
+        assertFalse(new File(target, "gh.lock").exists());
+    }
+
+    @Test
+    public void testCorruptArchive() throws IOException {
+        folder.mkdirs();
+        byte[] bytes = new byte[5_000];
+        new Random(42).nextBytes(bytes);
+        Files.write(new File(folder, "file").toPath(), bytes);
+        GraphArchive.pack(folder, archive, 1000, 2);
+        try (RandomAccessFile raf = new RandomAccessFile(archive, "rw")) {
+            // the first block starts after the header
+            raf.seek(100);
+            int b = raf.read();
+            raf.seek(100);
+            raf.write(b ^ 0xFF);
+        }
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> GraphArchive.verify(archive));
+        assertTrue(ex.getMessage().contains("Checksum of block 0 of file does not match"), ex.getMessage());
+        assertThrows(RuntimeException.class, () -> GraphArchive.unpack(archive, target, 2));
+
+        try (RandomAccessFile raf = new RandomAccessFile(archive, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        assertThrows(IllegalStateException.class, () -> GraphArchive.verify(archive));
+    }
+
+    @Test
+    public void testLoadGraph() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(folder.getPath(), true)).create();
+        GHUtility.buildRandomGraph(graph, new Random(1), 200, 2.5, true, speedEnc, null, 0.8, 0.5);
+        graph.flush();
+        int edges = graph.getEdges();
+        graph.close();
+
+        GraphArchive.pack(folder, archive, 4);
+        GraphArchive.unpack(archive, target, 4);
+        graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(target.getPath(), true)).build();
+        assertTrue(graph.loadExisting());
+        assertEquals(200, graph.getNodes());
+        assertEquals(edges, graph.getEdges());
+        graph.close();
+    }
+}
@@ -0,0 +1,11 @@
+package com.graphhopper.storage;
+
+public class GraphStorageViaOffHeapTest extends AbstractGraphStorageTester {
+    @Override
+    public BaseGraph createGHStorage(String location, boolean is3D) {
+        BaseGraph gs = new BaseGraph.Builder(encodingManager).set3D(is3D).setDir(new GHDirectory(location, DAType.OFF_HEAP_STORE))
+                .setSegmentSize(defaultSize / 2).build();
+        gs.create(defaultSize);
+        return gs;
+    }
+}
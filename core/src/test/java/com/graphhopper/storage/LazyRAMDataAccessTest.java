@@ -0,0 +1,57 @@
+package com.graphhopper.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyRAMDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name, int segmentSize) {
+        return new LazyRAMDataAccess(name, directory, segmentSize);
+    }
+
+    @Test
+    public void testLoadSegmentsOnFirstAccess() {
+        DataAccess da = new RAMDataAccess(name, directory, true, 128);
+        da.create(1000);
+        da.setHeader(0, 7);
+        for (int i = 0; i < 250; i++)
+            da.setInt(i * 4, i);
+        da.flush();
+        da.close();
+
+        LazyRAMDataAccess lazy = (LazyRAMDataAccess) createDataAccess(name);
+        assertTrue(lazy.loadExisting());
+        assertEquals(7, lazy.getHeader(0));
+        assertEquals(1024, lazy.getCapacity());
+        assertEquals(0, lazy.getLoadedSegments());
+        assertEquals(100, lazy.getInt(400));
+        assertEquals(1, lazy.getLoadedSegments());
+        // an int across two segments loads both
+        assertEquals(32 << 16, lazy.getInt(126));
+        assertEquals(3, lazy.getLoadedSegments());
+
+        // only the loaded segments are written, the others stay as they are
+        lazy.setInt(400, -100);
+        lazy.flush();
+        lazy.close();
+        da = new RAMDataAccess(name, directory, true, 128);
+        assertTrue(da.loadExisting());
+        assertEquals(-100, da.getInt(400));
+        for (int i = 0; i < 250; i++)
+            if (i != 100)
+                assertEquals(i, da.getInt(i * 4));
+        da.close();
+    }
+
+    @Test
+    public void testType() {
+        assertEquals(DAType.RAM_LAZY, DAType.fromString("RAM_LAZY"));
+        assertEquals("RAM_LAZY", DAType.RAM_LAZY.toString());
+        assertNotEquals(DAType.RAM_STORE, DAType.RAM_LAZY);
+        GHDirectory dir = new GHDirectory(directory, DAType.RAM_LAZY);
+        assertEquals(LazyRAMDataAccess.class, dir.create("test").getClass());
+        assertEquals(DAType.RAM_LAZY, dir.getDefaultType("test", true));
+        dir.close();
+    }
+}
@@ -0,0 +1,59 @@
+package com.graphhopper.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name, int segmentSize) {
+        // use tiny blocks so the values crossing two blocks are tested as well
+        return new OffHeapDataAccess(name, directory, true, segmentSize, 8);
+    }
+
+    @Test
+    public void testCrossBlocks() {
+        DataAccess da = createDataAccess(name);
+        da.create(1000);
+        for (int pos = 250; pos < 260; pos++) {
+            da.setInt(pos, -123456789);
+            assertEquals(-123456789, da.getInt(pos), "pos: " + pos);
+            da.setShort(pos, (short) -12345);
+            assertEquals(-12345, da.getShort(pos), "pos: " + pos);
+        }
+        byte[] bytes = new byte[600];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) i;
+        da.setBytes(100, bytes, bytes.length);
+        byte[] result = new byte[bytes.length];
+        da.getBytes(100, result, result.length);
+        assertArrayEquals(bytes, result);
+        da.flush();
+        da.close();
+
+        // the file can be read by the other in-memory types
+        DataAccess ram = new RAMDataAccess(name, directory, true, 128);
+        assertTrue(ram.loadExisting());
+        assertEquals(1024, ram.getCapacity());
+        for (int i = 0; i < bytes.length; i++)
+            assertEquals(bytes[i], ram.getByte(100 + i));
+        ram.close();
+    }
+
+    @Test
+    public void testDefaultBlocks() {
+        DataAccess da = new OffHeapDataAccess(name, directory, false, 1 << 10);
+        da.create(100);
+        assertEquals(1 << 10, da.getCapacity());
+        da.setInt(100, 42);
+        // growing copies the existing block
+        da.ensureCapacity(5_000);
+        assertEquals(5 * (1 << 10), da.getCapacity());
+        assertEquals(5, da.getSegments());
+        assertEquals(42, da.getInt(100));
+        da.setInt(4_996, 43);
+        assertEquals(43, da.getInt(4_996));
+        assertEquals(DAType.OFF_HEAP, da.getType());
+        da.close();
+    }
+}
@@ -24,15 +24,19 @@ import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.graphhopper.util.EdgeIteratorState;
+
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.stream.IntStream;
 
 import static com.graphhopper.util.GHUtility.getEdge;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TurnCostStorageTest {
 
@@ -185,4 +189,50 @@ public class TurnCostStorageTest {
         assertFalse(iterator.next());
     }
 
+    @Test
+    public void testSortForLookup() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        DecimalEncodedValue carTurnCostEnc = TurnCost.create("car", 3);
+        BooleanEncodedValue restrictionEnc = TurnRestriction.create("car");
+        EncodingManager em = EncodingManager.start().add(speedEnc)
+                .addTurnCostEncodedValue(carTurnCostEnc).addTurnCostEncodedValue(restrictionEnc).build();
+        BaseGraph g = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(g, rnd, 100, 2.5, true, speedEnc, null, 0.8, 0);
+        GHUtility.addRandomTurnCosts(g, seed, null, carTurnCostEnc, 3, g.getTurnCostStorage());
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+        turnCostStorage.set(restrictionEnc, 0, g.getEdgeIteratorState(0, Integer.MIN_VALUE).getBaseNode(), 1, true);
+
+        int[][] queries = new int[10_000][];
+        for (int i = 0; i < queries.length; i++) {
+            EdgeIteratorState from = g.getEdgeIteratorState(rnd.nextInt(g.getEdges()), Integer.MIN_VALUE);
+            queries[i] = new int[]{from.getEdge(), rnd.nextBoolean() ? from.getBaseNode() : from.getAdjNode(), rnd.nextInt(g.getEdges())};
+        }
+        double[] costs = new double[queries.length];
+        boolean[] restricted = new boolean[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            costs[i] = turnCostStorage.get(carTurnCostEnc, queries[i][0], queries[i][1], queries[i][2]);
+            restricted[i] = turnCostStorage.get(restrictionEnc, queries[i][0], queries[i][1], queries[i][2]);
+        }
+
+        int count = turnCostStorage.getTurnCostsCount();
+        assertFalse(turnCostStorage.isSortedForLookup());
+        turnCostStorage.sortForLookup();
+        assertTrue(turnCostStorage.isSortedForLookup());
+        assertEquals(count, turnCostStorage.getTurnCostsCount());
+        for (int i = 0; i < queries.length; i++) {
+            assertEquals(costs[i], turnCostStorage.get(carTurnCostEnc, queries[i][0], queries[i][1], queries[i][2]), "seed: " + seed);
+            assertEquals(restricted[i], turnCostStorage.get(restrictionEnc, queries[i][0], queries[i][1], queries[i][2]), "seed: " + seed);
+        }
+        TurnCostStorage.Iterator iter = turnCostStorage.getAllTurnCosts();
+        while (iter.next())
+            assertEquals(iter.getCost(carTurnCostEnc), turnCostStorage.get(carTurnCostEnc, iter.getFromEdge(), iter.getViaNode(), iter.getToEdge()));
+
+        // a new entry is added in front of the sorted entries of its node
+        turnCostStorage.set(carTurnCostEnc, 0, queries[0][1], g.getEdges(), 2);
+        assertFalse(turnCostStorage.isSortedForLookup());
+        assertEquals(2, turnCostStorage.get(carTurnCostEnc, 0, queries[0][1], g.getEdges()));
+    }
+
 }
@@ -76,10 +76,10 @@ public class GraphHopperGtfs extends GraphHopper {
             ptGraph.loadExisting();
             stopIndex.loadExisting();
             if (ghConfig.getBool("gtfs.trip_based", false)) {
-                for (String trafficDayString : ghConfig.getString("gtfs.schedule_day", null).split(",")) {
-                    LocalDate trafficDay = LocalDate.parse(trafficDayString);
-                    LOGGER.info("Loading trip-based transfers for pt router. Schedule day: {}", trafficDay);
-                    gtfsStorage.tripTransfers.getTripTransfers().put(trafficDay, gtfsStorage.deserializeTripTransfersMap("trip_transfers_" + trafficDayString));
+                // the transfers themselves are only read from disk when a day is first requested
+                for (LocalDate trafficDay : getTrafficDays()) {
+                    if (!gtfsStorage.getStoredTripTransferDays().contains(trafficDay))
+                        LOGGER.warn("No trip-based transfers stored for schedule day {}. Please reimport the GTFS data.", trafficDay);
                 }
                 for (Map.Entry<String, GTFSFeed> entry : this.gtfsStorage.getGtfsFeeds().entrySet()) {
                     for (Stop stop : entry.getValue().stops.values()) {
@@ -123,14 +123,11 @@ public class GraphHopperGtfs extends GraphHopper {
                 interpolateTransfers(allReaders, allTransfers);
                 if (ghConfig.getBool("gtfs.trip_based", false)) {
                     ArrayListMultimap<Integer, GtfsStorage.FeedIdWithStopId> stopsForStationNode = Multimaps.invertFrom(Multimaps.forMap(gtfsStorage.getStationNodes()), ArrayListMultimap.create());
-                    for (String trafficDayString : ghConfig.getString("gtfs.schedule_day", null).split(",")) {
-                        LocalDate trafficDay = LocalDate.parse(trafficDayString);
-                        LOGGER.info("Computing trip-based transfers for pt router. Schedule day: {}", trafficDay);
-                        Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> tripTransfersMap = gtfsStorage.tripTransfers.getTripTransfers(trafficDay);
-                        gtfsStorage.tripTransfers.findAllTripTransfersInto(tripTransfersMap, trafficDay, allTransfers, stopsForStationNode);
-                        LOGGER.info("Writing. Schedule day: {}", trafficDay);
-                        gtfsStorage.serializeTripTransfersMap("trip_transfers_" + trafficDayString, tripTransfersMap);
-                    }
+                    List<LocalDate> trafficDays = getTrafficDays();
+                    LOGGER.info("Computing trip-based transfers for pt router. Schedule days: {}", trafficDays);
+                    Map<LocalDate, Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>>> tripTransfers = gtfsStorage.tripTransfers.findAllTripTransfers(trafficDays, allTransfers, stopsForStationNode);
+                    LOGGER.info("Writing trip-based transfers. Schedule days: {}", trafficDays);
+                    gtfsStorage.storeTripTransfers(tripTransfers);
                 }
             } catch (Exception e) {
                 throw new RuntimeException("Error while constructing transit network. Is your GTFS file valid? Please check log for possible causes.", e);
@@ -143,6 +140,10 @@ public class GraphHopperGtfs extends GraphHopper {
         gtfsStorage.setStopIndex(stopIndex);
     }
 
+    private List<LocalDate> getTrafficDays() {
+        return Arrays.stream(ghConfig.getString("gtfs.schedule_day", null).split(",")).map(LocalDate::parse).collect(Collectors.toList());
+    }
+
     private void interpolateTransfers(HashMap<String, GtfsReader> readers, Map<String, Transfers> allTransfers) {
         LOGGER.info("Looking for transfers");
         final int maxTransferWalkTimeSeconds = ghConfig.getInt("gtfs.max_transfer_interpolation_walk_time_seconds", 120);
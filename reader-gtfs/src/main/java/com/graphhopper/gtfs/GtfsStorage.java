@@ -39,8 +39,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
@@ -48,6 +51,10 @@ import java.util.*;
 public class GtfsStorage {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(GtfsStorage.class);
+	private static final String TRIP_TRANSFERS_FILE = "trip_transfers";
+	private static final int TRIP_TRANSFERS_VERSION = 1;
+	// epoch day, offset, length
+	private static final int TRIP_TRANSFERS_INDEX_ENTRY_BYTES = 8 + 8 + 4;
 
 	static ObjectMapper ionMapper = new ObjectMapper();
 
@@ -166,6 +173,7 @@ public class GtfsStorage {
 	private Map<String, Map<String, Fare>> faresByFeed;
 	private Map<FeedIdWithStopId, Integer> stationNodes;
 	private IntObjectHashMap<int[]> skippedEdgesForTransfer;
+	private final Map<LocalDate, long[]> tripTransfersIndex = new HashMap<>();
 
 	private IntIntHashMap ptToStreet;
 	private IntIntHashMap streetToPt;
@@ -219,6 +227,7 @@ public class GtfsStorage {
 		} catch (IOException e) {
             throw new RuntimeException(e);
         }
+		loadTripTransfersIndex();
         postInit();
 		return true;
 	}
@@ -345,45 +354,144 @@ public class GtfsStorage {
 		}
 	}
 
-	public void serializeTripTransfersMap(String filename, Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> data) {
-		try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(dir.getLocation() + filename))))) {
-			oos.writeInt(data.size());
-			for (Map.Entry<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> entry : data.entrySet()) {
-				oos.writeInt(entry.getKey().tripIdx);
-				oos.writeInt(entry.getKey().stop_sequence);
-				oos.writeInt(entry.getValue().size());
-				for (Trips.TripAtStopTime tripAtStopTime : entry.getValue()) {
-					oos.writeInt(tripAtStopTime.tripIdx);
-					oos.writeInt(tripAtStopTime.stop_sequence);
-				}
+	/**
+	 * Writes the trip-based transfers of all traffic days into a single file. The file starts with an index of
+	 * (traffic day, offset, length) entries, followed by one block per day in which origins are sorted and
+	 * delta-encoded and all numbers are written as varints. The blocks are read lazily, see
+	 * {@link #readTripTransfers(LocalDate)}.
+	 */
+	public void storeTripTransfers(Map<LocalDate, Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>>> tripTransfersPerDay) {
+		List<LocalDate> trafficDays = new ArrayList<>(tripTransfersPerDay.keySet());
+		Collections.sort(trafficDays);
+		List<byte[]> blocks = new ArrayList<>(trafficDays.size());
+		for (LocalDate trafficDay : trafficDays) {
+			blocks.add(encodeTripTransfers(tripTransfersPerDay.get(trafficDay)));
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(dir.getLocation() + TRIP_TRANSFERS_FILE))))) {
+			out.writeInt(TRIP_TRANSFERS_VERSION);
+			out.writeInt(trafficDays.size());
+			long offset = 2 * 4 + (long) trafficDays.size() * TRIP_TRANSFERS_INDEX_ENTRY_BYTES;
+			for (int i = 0; i < trafficDays.size(); i++) {
+				out.writeLong(trafficDays.get(i).toEpochDay());
+				out.writeLong(offset);
+				out.writeInt(blocks.get(i).length);
+				offset += blocks.get(i).length;
+			}
+			for (byte[] block : blocks) {
+				out.write(block);
 			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
+		loadTripTransfersIndex();
 	}
 
-	public Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> deserializeTripTransfersMap(String filename) {
-		try (FileInputStream in = new FileInputStream(dir.getLocation() + filename)) {
-			ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(in));
-			int size = ois.readInt();
-			Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> result = new TreeMap<>();
-			for (int i = 0; i < size; i++) {
-				Trips.TripAtStopTime origin = new Trips.TripAtStopTime(ois.readInt(), ois.readInt());
-				int nDestinations = ois.readInt();
-				List<Trips.TripAtStopTime> destinations = new ArrayList<>(nDestinations);
-				for (int j = 0; j < nDestinations; j++) {
-					int tripIdxTo = ois.readInt();
-					int stop_sequenceTo = ois.readInt();
-					destinations.add(new Trips.TripAtStopTime(tripIdxTo, stop_sequenceTo));
-				}
-				result.put(origin, destinations);
+	/**
+	 * @return the trip-based transfers for the specified day, decoded from disk, or an empty map if none were stored
+	 */
+	Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> readTripTransfers(LocalDate trafficDay) {
+		long[] offsetAndLength = tripTransfersIndex.get(trafficDay);
+		if (offsetAndLength == null)
+			return new TreeMap<>();
+		LOGGER.info("Loading trip-based transfers for pt router. Schedule day: {}", trafficDay);
+		try (FileChannel channel = FileChannel.open(Paths.get(dir.getLocation() + TRIP_TRANSFERS_FILE), StandardOpenOption.READ)) {
+			ByteBuffer block = ByteBuffer.allocate((int) offsetAndLength[1]);
+			long position = offsetAndLength[0];
+			while (block.hasRemaining()) {
+				int read = channel.read(block, position);
+				if (read < 0)
+					throw new EOFException("Unexpected end of " + TRIP_TRANSFERS_FILE + " while reading " + trafficDay);
+				position += read;
+			}
+			block.flip();
+			return decodeTripTransfers(block);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public Set<LocalDate> getStoredTripTransferDays() {
+		return Collections.unmodifiableSet(tripTransfersIndex.keySet());
+	}
+
+	private void loadTripTransfersIndex() {
+		tripTransfersIndex.clear();
+		File file = new File(dir.getLocation() + TRIP_TRANSFERS_FILE);
+		if (!file.exists())
+			return;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			int version = in.readInt();
+			if (version != TRIP_TRANSFERS_VERSION)
+				throw new IllegalStateException("Unexpected version of " + TRIP_TRANSFERS_FILE + ": " + version + ", expected " + TRIP_TRANSFERS_VERSION + ". Please reimport the GTFS data.");
+			int nDays = in.readInt();
+			for (int i = 0; i < nDays; i++) {
+				LocalDate trafficDay = LocalDate.ofEpochDay(in.readLong());
+				tripTransfersIndex.put(trafficDay, new long[]{in.readLong(), in.readInt()});
 			}
-			return result;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	static byte[] encodeTripTransfers(Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> tripTransfers) {
+		List<Map.Entry<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>>> entries = new ArrayList<>(tripTransfers.entrySet());
+		entries.sort(Map.Entry.comparingByKey());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		writeVInt(bytes, entries.size());
+		int prevTripIdx = 0;
+		for (Map.Entry<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> entry : entries) {
+			// origins are sorted by trip, so the trip index only ever grows
+			writeVInt(bytes, entry.getKey().tripIdx - prevTripIdx);
+			writeVInt(bytes, entry.getKey().stop_sequence);
+			prevTripIdx = entry.getKey().tripIdx;
+			writeVInt(bytes, entry.getValue().size());
+			for (Trips.TripAtStopTime destination : entry.getValue()) {
+				writeVInt(bytes, destination.tripIdx);
+				writeVInt(bytes, destination.stop_sequence);
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	static Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> decodeTripTransfers(ByteBuffer block) {
+		int size = readVInt(block);
+		Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> result = new TreeMap<>();
+		int tripIdx = 0;
+		for (int i = 0; i < size; i++) {
+			tripIdx += readVInt(block);
+			Trips.TripAtStopTime origin = new Trips.TripAtStopTime(tripIdx, readVInt(block));
+			int nDestinations = readVInt(block);
+			List<Trips.TripAtStopTime> destinations = new ArrayList<>(nDestinations);
+			for (int j = 0; j < nDestinations; j++) {
+				int tripIdxTo = readVInt(block);
+				int stop_sequenceTo = readVInt(block);
+				destinations.add(new Trips.TripAtStopTime(tripIdxTo, stop_sequenceTo));
+			}
+			result.put(origin, destinations);
+		}
+		return result;
+	}
+
+	private static void writeVInt(ByteArrayOutputStream out, int value) {
+		if (value < 0)
+			throw new IllegalArgumentException("Cannot write negative value " + value);
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVInt(ByteBuffer in) {
+		byte b = in.get();
+		int value = b & 0x7F;
+		for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+			b = in.get();
+			value |= (b & 0x7F) << shift;
+		}
+		return value;
+	}
+
 	public void serialize(String filename, IntObjectHashMap<int[]> data) {
 		try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(dir.getLocation() + filename))))) {
 			oos.writeInt(data.size());
@@ -14,12 +14,14 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class Trips {
 
     public final List<GTFSFeed.StopTimesForTripWithTripPatternKey> trips;
     private Map<GtfsStorage.FeedIdWithStopId, Map<String, List<TripAtStopTime>>> boardingsForStopByPattern = new ConcurrentHashMap<>();
     private Map<LocalDate, Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>>> tripTransfersPerDay = new ConcurrentHashMap<>();
+    private final List<Pattern> patterns = new ArrayList<>();
     public int idx;
 
     public Trips(GtfsStorage gtfsStorage) {
@@ -79,6 +81,7 @@ public class Trips {
                 }
             }
             for (Pattern pattern : patterns.values()) {
+                this.patterns.add(pattern);
                 pattern.trips.sort(Comparator.comparingInt(GTFSFeed.StopTimesForTripWithTripPatternKey::getDepartureTime));
                 int endIdxOfPattern = idx + pattern.trips.size();
                 for (GTFSFeed.StopTimesForTripWithTripPatternKey tripPointer : pattern.trips) {
@@ -207,23 +210,50 @@ public class Trips {
         }
     }
 
+    /**
+     * Computes the trip-based transfers for all specified traffic days. Days are processed concurrently and, within
+     * each day, the trips of every pattern form one task of the common fork-join pool.
+     */
+    public Map<LocalDate, Map<TripAtStopTime, Collection<TripAtStopTime>>> findAllTripTransfers(Collection<LocalDate> trafficDays, Map<String, Transfers> transfers, ArrayListMultimap<Integer, GtfsStorage.FeedIdWithStopId> stopsForStationNode) {
+        Map<LocalDate, Map<TripAtStopTime, Collection<TripAtStopTime>>> result = new ConcurrentHashMap<>();
+        trafficDays.parallelStream().forEach(trafficDay -> {
+            Map<TripAtStopTime, Collection<TripAtStopTime>> tripTransfers = getTripTransfers(trafficDay);
+            findAllTripTransfersInto(tripTransfers, trafficDay, transfers, stopsForStationNode);
+            result.put(trafficDay, tripTransfers);
+        });
+        return result;
+    }
+
     public void findAllTripTransfersInto(Map<TripAtStopTime, Collection<TripAtStopTime>> result, LocalDate trafficDay, Map<String, Transfers> transfers, ArrayListMultimap<Integer, GtfsStorage.FeedIdWithStopId> stopsForStationNode) {
-        Map<TripAtStopTime, Collection<TripAtStopTime>> r = Collections.synchronizedMap(result);
-        trips.stream()
-            .filter(trip -> trip.service.activeOn(trafficDay))
-            .parallel()
-            .forEach(tripPointer -> {
-                Map<TripAtStopTime, Collection<TripAtStopTime>> reducedTripTransfers = findTripTransfers(tripPointer, tripPointer.feedId, trafficDay, transfers, stopsForStationNode);
-                r.putAll(reducedTripTransfers);
-            });
+        List<Map<TripAtStopTime, Collection<TripAtStopTime>>> tripTransfersPerPattern = patterns.parallelStream()
+                .map(pattern -> findTripTransfers(pattern, trafficDay, transfers, stopsForStationNode))
+                .collect(Collectors.toList());
+        // merge on the calling thread, so that result does not need to be synchronized
+        for (Map<TripAtStopTime, Collection<TripAtStopTime>> tripTransfers : tripTransfersPerPattern) {
+            result.putAll(tripTransfers);
+        }
+    }
+
+    private Map<TripAtStopTime, Collection<TripAtStopTime>> findTripTransfers(Pattern pattern, LocalDate trafficDay, Map<String, Transfers> transfers, ArrayListMultimap<Integer, GtfsStorage.FeedIdWithStopId> stopsForStationNode) {
+        Map<TripAtStopTime, Collection<TripAtStopTime>> result = new HashMap<>();
+        for (GTFSFeed.StopTimesForTripWithTripPatternKey tripPointer : pattern.trips) {
+            if (tripPointer.service.activeOn(trafficDay)) {
+                result.putAll(findTripTransfers(tripPointer, tripPointer.feedId, trafficDay, transfers, stopsForStationNode));
+            }
+        }
+        return result;
     }
 
     public Map<LocalDate, Map<TripAtStopTime, Collection<TripAtStopTime>>> getTripTransfers() {
         return tripTransfersPerDay;
     }
 
+    /**
+     * @return the trip-based transfers for the specified day. Transfers stored with the graph are only read from disk
+     * on the first call for a day.
+     */
     public Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> getTripTransfers(LocalDate trafficDay) {
-        return tripTransfersPerDay.computeIfAbsent(trafficDay, k -> new TreeMap<>());
+        return tripTransfersPerDay.computeIfAbsent(trafficDay, gtfsStorage::readTripTransfers);
     }
 
     public GTFSFeed.StopTimesForTripWithTripPatternKey getTrip(int tripIdx) {
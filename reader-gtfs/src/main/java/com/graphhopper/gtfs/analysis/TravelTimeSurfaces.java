@@ -0,0 +1,266 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs.analysis;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.Stop;
+import com.graphhopper.gtfs.*;
+import com.graphhopper.json.Statement;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.ev.VehicleAccess;
+import com.graphhopper.routing.ev.VehicleSpeed;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.TurnCostProvider;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.graphhopper.json.Statement.If;
+
+/**
+ * Computes public transit travel times from many origins to all stops, e.g. for accessibility indicators. For every
+ * origin, a {@link MultiCriteriaLabelSetting} search is run for each departure time of a departure window, and the
+ * median travel time over all departures is reported per stop. Origins are processed sequentially, or concurrently on
+ * the executor specified via {@link #setExecutor}.
+ * <p>
+ * The binary output of {@link #writeTo} is big-endian and consists of the int header
+ * {@link #MAGIC}, {@link #VERSION}, number of origins, number of stops, followed by the latitude and longitude of
+ * every stop as ints (see {@link Helper#degreeToInt}) and then one row per origin containing the travel time in
+ * seconds to every stop as int, or -1 if the stop cannot be reached within the time limit.
+ */
+public class TravelTimeSurfaces {
+
+    public static final int MAGIC = 0x47485454; // "GHTT"
+    public static final int VERSION = 1;
+    public static final int UNREACHABLE = -1;
+    private static final int ORIGINS_PER_CHUNK = 64;
+
+    private final BaseGraph baseGraph;
+    private final LocationIndex locationIndex;
+    private final GtfsStorage gtfsStorage;
+    private final Weighting accessEgressWeighting;
+    private final DefaultSnapFilter snapFilter;
+    private final List<GtfsStorage.FeedIdWithStopId> stops;
+    private final Map<GtfsStorage.FeedIdWithStopId, Integer> stopIndices = new HashMap<>();
+    private Duration departureWindow = Duration.ZERO;
+    private Duration departureStep = Duration.ofMinutes(1);
+    private long limitTripTime = Duration.ofHours(1).toMillis();
+    private long limitStreetTime = Long.MAX_VALUE;
+    private int blockedRouteTypes = 0;
+    private ExecutorService executor;
+
+    public TravelTimeSurfaces(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, GtfsStorage gtfsStorage) {
+        this.baseGraph = baseGraph;
+        this.locationIndex = locationIndex;
+        this.gtfsStorage = gtfsStorage;
+        CustomModel customModel = new CustomModel()
+                .addToPriority(If("!" + VehicleAccess.key("foot"), Statement.Op.MULTIPLY, "0"))
+                .addToSpeed(If("true", Statement.Op.LIMIT, VehicleSpeed.key("foot")));
+        this.accessEgressWeighting = CustomModelParser.createWeighting(encodingManager, TurnCostProvider.NO_TURN_COST_PROVIDER, customModel);
+        this.snapFilter = new DefaultSnapFilter(accessEgressWeighting, encodingManager.getBooleanEncodedValue(Subnetwork.key("foot")));
+        this.stops = new ArrayList<>();
+        for (Map.Entry<String, GTFSFeed> feed : new TreeMap<>(gtfsStorage.getGtfsFeeds()).entrySet()) {
+            for (String stopId : new TreeSet<>(feed.getValue().stops.keySet())) {
+                stopIndices.put(new GtfsStorage.FeedIdWithStopId(feed.getKey(), stopId), stops.size());
+                stops.add(new GtfsStorage.FeedIdWithStopId(feed.getKey(), stopId));
+            }
+        }
+    }
+
+    /**
+     * Searches are started every departureStep within [earliestDepartureTime, earliestDepartureTime + departureWindow].
+     * The default is a single search at the earliest departure time.
+     */
+    public TravelTimeSurfaces setDepartureWindow(Duration departureWindow, Duration departureStep) {
+        if (departureWindow.isNegative())
+            throw new IllegalArgumentException("departure window must not be negative: " + departureWindow);
+        if (departureStep.isNegative() || departureStep.isZero())
+            throw new IllegalArgumentException("departure step must be positive: " + departureStep);
+        this.departureWindow = departureWindow;
+        this.departureStep = departureStep;
+        return this;
+    }
+
+    public TravelTimeSurfaces setLimitTripTime(Duration limitTripTime) {
+        this.limitTripTime = limitTripTime.toMillis();
+        return this;
+    }
+
+    public TravelTimeSurfaces setLimitStreetTime(Duration limitStreetTime) {
+        this.limitStreetTime = limitStreetTime.toMillis();
+        return this;
+    }
+
+    public TravelTimeSurfaces setBlockedRouteTypes(int blockedRouteTypes) {
+        this.blockedRouteTypes = blockedRouteTypes;
+        return this;
+    }
+
+    /**
+     * Processes the origins of {@link #writeTo} on the specified executor. Its number of threads limits the number of
+     * origins that are processed concurrently. By default they are processed sequentially in the calling thread.
+     */
+    public TravelTimeSurfaces setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @return the stops in the order of the travel times returned by {@link #calcTravelTimes}
+     */
+    public List<GtfsStorage.FeedIdWithStopId> getStops() {
+        return Collections.unmodifiableList(stops);
+    }
+
+    /**
+     * Snaps all origins, so that unknown stops or points that cannot be snapped are reported before any output is
+     * written.
+     *
+     * @throws PointNotFoundException with the index of the first origin that cannot be snapped
+     */
+    public List<PtLocationSnapper.Result> snapOrigins(List<GHLocation> origins) {
+        PtLocationSnapper snapper = new PtLocationSnapper(baseGraph, locationIndex, gtfsStorage);
+        List<PtLocationSnapper.Result> snapped = new ArrayList<>(origins.size());
+        for (int i = 0; i < origins.size(); i++) {
+            try {
+                snapped.add(snapper.snapAll(Collections.singletonList(origins.get(i)), Collections.singletonList(snapFilter)));
+            } catch (PointNotFoundException ex) {
+                throw new PointNotFoundException(ex.getMessage(), i);
+            }
+        }
+        return snapped;
+    }
+
+    /**
+     * @return the median travel time in seconds over all departures from the specified origin to every stop, or
+     * {@link #UNREACHABLE}
+     */
+    public int[] calcTravelTimes(GHLocation origin, Instant earliestDepartureTime) {
+        return calcTravelTimes(snapOrigins(Collections.singletonList(origin)).get(0), earliestDepartureTime);
+    }
+
+    /**
+     * @param snapResult an origin as returned by {@link #snapOrigins}
+     */
+    public int[] calcTravelTimes(PtLocationSnapper.Result snapResult, Instant earliestDepartureTime) {
+        int nDepartures = (int) (departureWindow.toMillis() / departureStep.toMillis()) + 1;
+        int[][] travelTimesPerDeparture = new int[stops.size()][nDepartures];
+        GraphExplorer graphExplorer = new GraphExplorer(snapResult.queryGraph, gtfsStorage.getPtGraph(), accessEgressWeighting, gtfsStorage, RealtimeFeed.empty(), false, false, false, 5.0, false, blockedRouteTypes);
+        for (int departure = 0; departure < nDepartures; departure++) {
+            for (int[] travelTimes : travelTimesPerDeparture) {
+                travelTimes[departure] = Integer.MAX_VALUE;
+            }
+            Instant departureTime = earliestDepartureTime.plus(departureStep.multipliedBy(departure));
+            MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(graphExplorer, false, false, false, 0, Collections.emptyList());
+            router.setLimitTripTime(limitTripTime);
+            router.setLimitStreetTime(limitStreetTime);
+            for (Label label : router.calcLabels(snapResult.nodes.get(0), departureTime)) {
+                if (label.edge == null || (label.edge.getType() != GtfsStorage.EdgeType.EXIT_PT && label.edge.getType() != GtfsStorage.EdgeType.ENTER_PT))
+                    continue;
+                GtfsStorage.PlatformDescriptor platformDescriptor = label.edge.getPlatformDescriptor();
+                Integer stopIndex = stopIndices.get(new GtfsStorage.FeedIdWithStopId(platformDescriptor.feed_id, platformDescriptor.stop_id));
+                if (stopIndex == null)
+                    continue;
+                int travelTime = (int) ((label.currentTime - departureTime.toEpochMilli()) / 1000);
+                travelTimesPerDeparture[stopIndex][departure] = Math.min(travelTimesPerDeparture[stopIndex][departure], travelTime);
+            }
+        }
+        int[] result = new int[stops.size()];
+        for (int i = 0; i < stops.size(); i++) {
+            int[] travelTimes = travelTimesPerDeparture[i];
+            Arrays.sort(travelTimes);
+            int median = travelTimes[travelTimes.length / 2];
+            result[i] = median == Integer.MAX_VALUE ? UNREACHABLE : median;
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the travel times for all origins and writes them to the specified stream in the binary format
+     * described above. Origins are processed in chunks, and every chunk is written as soon as it is done, so memory
+     * usage does not depend on the number of origins.
+     *
+     * @param origins the origins as returned by {@link #snapOrigins}
+     */
+    public void writeTo(OutputStream outputStream, List<PtLocationSnapper.Result> origins, Instant earliestDepartureTime) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(origins.size());
+        out.writeInt(stops.size());
+        for (GtfsStorage.FeedIdWithStopId stopId : stops) {
+            Stop stop = gtfsStorage.getGtfsFeeds().get(stopId.feedId).stops.get(stopId.stopId);
+            out.writeInt(Helper.degreeToInt(stop.stop_lat));
+            out.writeInt(Helper.degreeToInt(stop.stop_lon));
+        }
+        for (int from = 0; from < origins.size(); from += ORIGINS_PER_CHUNK) {
+            for (int[] row : calcTravelTimes(origins.subList(from, Math.min(from + ORIGINS_PER_CHUNK, origins.size())), earliestDepartureTime)) {
+                for (int travelTime : row) {
+                    out.writeInt(travelTime);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private List<int[]> calcTravelTimes(List<PtLocationSnapper.Result> origins, Instant earliestDepartureTime) {
+        List<int[]> rows = new ArrayList<>(origins.size());
+        if (executor == null) {
+            for (PtLocationSnapper.Result origin : origins) {
+                rows.add(calcTravelTimes(origin, earliestDepartureTime));
+            }
+            return rows;
+        }
+        List<Future<int[]>> futures = new ArrayList<>(origins.size());
+        try {
+            for (PtLocationSnapper.Result origin : origins) {
+                futures.add(executor.submit(() -> calcTravelTimes(origin, earliestDepartureTime)));
+            }
+            for (Future<int[]> future : futures) {
+                rows.add(future.get());
+            }
+            return rows;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            // do not keep the executor busy if a search failed
+            for (Future<int[]> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
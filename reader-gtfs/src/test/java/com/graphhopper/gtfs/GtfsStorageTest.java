@@ -0,0 +1,44 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GtfsStorageTest {
+
+    @Test
+    public void testEncodeDecodeTripTransfers() {
+        Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> tripTransfers = new HashMap<>();
+        tripTransfers.put(new Trips.TripAtStopTime(300_000, 2), Arrays.asList(new Trips.TripAtStopTime(5, 1), new Trips.TripAtStopTime(1_000_000, 130)));
+        tripTransfers.put(new Trips.TripAtStopTime(0, 1), Collections.emptyList());
+        tripTransfers.put(new Trips.TripAtStopTime(0, 7), Collections.singletonList(new Trips.TripAtStopTime(Integer.MAX_VALUE - 1, 0)));
+
+        Map<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> decoded = GtfsStorage.decodeTripTransfers(ByteBuffer.wrap(GtfsStorage.encodeTripTransfers(tripTransfers)));
+        assertEquals(new TreeMap<>(tripTransfers).keySet(), decoded.keySet());
+        for (Map.Entry<Trips.TripAtStopTime, Collection<Trips.TripAtStopTime>> e : tripTransfers.entrySet()) {
+            assertEquals(new ArrayList<>(e.getValue()), new ArrayList<>(decoded.get(e.getKey())));
+        }
+    }
+
+}
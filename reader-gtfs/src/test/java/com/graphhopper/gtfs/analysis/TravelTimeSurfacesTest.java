@@ -0,0 +1,144 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs.analysis;
+
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.gtfs.GHLocation;
+import com.graphhopper.gtfs.GraphHopperGtfs;
+import com.graphhopper.gtfs.GtfsStorage;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TravelTimeSurfacesTest {
+
+    private static final String GRAPH_LOC = "target/TravelTimeSurfacesTest";
+    private static final Instant MIDNIGHT = LocalDateTime.of(2007, 1, 1, 0, 0).atZone(ZoneId.of("America/Los_Angeles")).toInstant();
+    private static GraphHopperGtfs graphHopperGtfs;
+
+    @BeforeAll
+    public static void init() {
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.location", GRAPH_LOC);
+        ghConfig.putObject("gtfs.file", "files/sample-feed");
+        ghConfig.putObject("import.osm.ignored_highways", "");
+        ghConfig.putObject("graph.encoded_values", "foot_access, foot_priority, foot_average_speed");
+        ghConfig.setProfiles(List.of(TestProfiles.accessSpeedAndPriority("foot")));
+        Helper.removeDir(new File(GRAPH_LOC));
+        graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+    }
+
+    @AfterAll
+    public static void close() {
+        graphHopperGtfs.close();
+        Helper.removeDir(new File(GRAPH_LOC));
+    }
+
+    private TravelTimeSurfaces createTravelTimeSurfaces() {
+        return new TravelTimeSurfaces(graphHopperGtfs.getBaseGraph(), graphHopperGtfs.getEncodingManager(), graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage());
+    }
+
+    private int indexOf(TravelTimeSurfaces travelTimeSurfaces, String stopId) {
+        return travelTimeSurfaces.getStops().indexOf(new GtfsStorage.FeedIdWithStopId("gtfs_0", stopId));
+    }
+
+    @Test
+    public void testTravelTimesFromStop() {
+        TravelTimeSurfaces travelTimeSurfaces = createTravelTimeSurfaces().setLimitTripTime(Duration.ofSeconds(6 * 60 * 60 + 49 * 60));
+        int[] travelTimes = travelTimeSurfaces.calcTravelTimes(GHLocation.fromString("Stop(NADAV)"), MIDNIGHT);
+        // the first trip leaves NADAV at 06:45 and arrives at NANAA at 06:49
+        assertEquals(6 * 60 * 60 + 49 * 60, travelTimes[indexOf(travelTimeSurfaces, "NANAA")]);
+        assertEquals(TravelTimeSurfaces.UNREACHABLE, travelTimes[indexOf(travelTimeSurfaces, "STAGECOACH")]);
+    }
+
+    @Test
+    public void testMedianOverDepartureWindow() {
+        TravelTimeSurfaces travelTimeSurfaces = createTravelTimeSurfaces()
+                .setLimitTripTime(Duration.ofHours(12))
+                .setDepartureWindow(Duration.ofHours(2), Duration.ofHours(1));
+        int[] travelTimes = travelTimeSurfaces.calcTravelTimes(GHLocation.fromString("Stop(NADAV)"), MIDNIGHT);
+        // departures at 00:00, 01:00 and 02:00 all wait for the same trip, the median is the one at 01:00
+        assertEquals(5 * 60 * 60 + 49 * 60, travelTimes[indexOf(travelTimeSurfaces, "NANAA")]);
+    }
+
+    @Test
+    public void testBinaryOutput() throws IOException {
+        assertBinaryOutput(createTravelTimeSurfaces().setLimitTripTime(Duration.ofHours(12)));
+    }
+
+    @Test
+    public void testBinaryOutputWithExecutor() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertBinaryOutput(createTravelTimeSurfaces().setLimitTripTime(Duration.ofHours(12)).setExecutor(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnknownStop() {
+        TravelTimeSurfaces travelTimeSurfaces = createTravelTimeSurfaces();
+        PointNotFoundException ex = assertThrows(PointNotFoundException.class, () -> travelTimeSurfaces.snapOrigins(
+                Arrays.asList(GHLocation.fromString("Stop(NADAV)"), GHLocation.fromString("Stop(UNKNOWN)"))));
+        assertEquals(1, ex.getPointIndex());
+    }
+
+    private void assertBinaryOutput(TravelTimeSurfaces travelTimeSurfaces) throws IOException {
+        List<GHLocation> origins = Arrays.asList(GHLocation.fromString("Stop(NADAV)"), GHLocation.fromString("Stop(NANAA)"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        travelTimeSurfaces.writeTo(bytes, travelTimeSurfaces.snapOrigins(origins), MIDNIGHT);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(TravelTimeSurfaces.MAGIC, in.readInt());
+        assertEquals(TravelTimeSurfaces.VERSION, in.readInt());
+        assertEquals(2, in.readInt());
+        int nStops = in.readInt();
+        assertEquals(travelTimeSurfaces.getStops().size(), nStops);
+        for (int i = 0; i < 2 * nStops; i++) {
+            in.readInt();
+        }
+        for (GHLocation origin : origins) {
+            int[] expected = travelTimeSurfaces.calcTravelTimes(origin, MIDNIGHT);
+            for (int i = 0; i < nStops; i++) {
+                assertEquals(expected[i], in.readInt());
+            }
+        }
+        assertEquals(-1, in.read());
+    }
+
+}
@@ -0,0 +1,439 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A compact binary alternative to the JSON response of {@link ResponsePathSerializer#jsonObject}, meant for clients
+ * that request many routes and spend a considerable amount of time on JSON parsing. Integers are written as
+ * variable length integers (zigzag encoded if they can be negative). The points are delta encoded like the
+ * encoded polyline (elevation in centimeters), and the path details are written per detail as columns: the first
+ * indices, the interval lengths and then the values.
+ * <p>
+ * The format only contains what the JSON response of the /route and /match endpoints contains, except for the
+ * bounding box that can be calculated from the points and the public transit legs. Errors are always returned as
+ * JSON.
+ */
+public class ResponsePathBinaryFormat {
+
+    public static final String MEDIA_TYPE = "application/x-gh-route";
+    private static final int MAGIC = 0x47485242; // "GHRB"
+    private static final int VERSION = 1;
+
+    private static final int CALC_POINTS = 1, ELEVATION = 2, INSTRUCTIONS = 4, FARE = 8;
+    private static final byte NULL = 0, FALSE = 1, TRUE = 2, LONG = 3, DOUBLE = 4, STRING = 5, MAP = 6, LIST = 7;
+
+    public static void write(GHResponse ghRsp, ResponsePathSerializer.Info info, boolean enableInstructions,
+                             boolean calcPoints, boolean enableElevation, double pointsMultiplier, OutputStream outputStream) throws IOException {
+        if (pointsMultiplier < 1)
+            throw new IllegalArgumentException("multiplier cannot be smaller than 1 but was " + pointsMultiplier);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        Map<String, Object> hints = ghRsp.getHints().toMap();
+        writeVarLong(out, hints.size());
+        for (Map.Entry<String, Object> e : hints.entrySet()) {
+            writeString(out, e.getKey());
+            writeValue(out, e.getValue());
+        }
+        writeStrings(out, info.copyrights());
+        writeVarLong(out, info.took());
+        writeString(out, info.roadDataTimestamp());
+
+        writeVarLong(out, ghRsp.getAll().size());
+        for (ResponsePath p : ghRsp.getAll()) {
+            int flags = (calcPoints ? CALC_POINTS : 0) | (enableElevation ? ELEVATION : 0)
+                    | (calcPoints && enableInstructions ? INSTRUCTIONS : 0) | (p.getFare() != null ? FARE : 0);
+            out.writeByte(flags);
+            out.writeDouble(Helper.round(p.getDistance(), 3));
+            out.writeDouble(Helper.round6(p.getRouteWeight()));
+            writeVarLong(out, p.getTime());
+            writeVarLong(out, p.getNumChanges());
+            writeStrings(out, p.getDescription());
+            out.writeDouble(pointsMultiplier);
+            if (calcPoints) {
+                writePoints(out, p.getPoints(), enableElevation, pointsMultiplier);
+                if (enableInstructions)
+                    writeInstructions(out, p.getInstructions());
+                writeDetails(out, p.getPathDetails());
+                out.writeDouble(p.getAscend());
+                out.writeDouble(p.getDescend());
+            }
+            writePoints(out, p.getWaypoints(), enableElevation, pointsMultiplier);
+            if (p.getFare() != null)
+                writeString(out, p.getFare().toPlainString());
+        }
+        out.flush();
+    }
+
+    /**
+     * @param turnDescription if false the street name is used as instruction text, see
+     *                        {@link ResponsePathDeserializerHelper#createResponsePath}
+     */
+    public static GHResponse read(InputStream inputStream, boolean turnDescription) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a binary route response");
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported version " + version + " of the binary route response, expected " + VERSION);
+        GHResponse rsp = new GHResponse();
+        int hints = readSize(in);
+        for (int i = 0; i < hints; i++) {
+            String key = readString(in);
+            rsp.getHints().putObject(key, readValue(in));
+        }
+        // the info is not part of the GHResponse
+        readStrings(in);
+        readVarLong(in);
+        readString(in);
+
+        int paths = readSize(in);
+        for (int i = 0; i < paths; i++) {
+            int flags = in.readUnsignedByte();
+            boolean elevation = (flags & ELEVATION) != 0;
+            ResponsePath path = new ResponsePath();
+            path.setDistance(in.readDouble());
+            path.setRouteWeight(in.readDouble());
+            path.setTime(readVarLong(in));
+            path.setNumChanges((int) readVarLong(in));
+            path.setDescription(readStrings(in));
+            double multiplier = in.readDouble();
+            if ((flags & CALC_POINTS) != 0) {
+                PointList points = readPoints(in, elevation, multiplier);
+                path.setPoints(points);
+                if ((flags & INSTRUCTIONS) != 0)
+                    path.setInstructions(readInstructions(in, points, turnDescription));
+                path.addPathDetails(readDetails(in));
+                path.setAscend(in.readDouble());
+                path.setDescend(in.readDouble());
+            }
+            path.setWaypoints(readPoints(in, elevation, multiplier));
+            if ((flags & FARE) != 0)
+                path.setFare(new BigDecimal(readString(in)));
+            List<Integer> pointsOrder = new ArrayList<>(path.getWaypoints().size());
+            for (int j = 0; j < path.getWaypoints().size(); j++) {
+                pointsOrder.add(j);
+            }
+            path.setPointsOrder(pointsOrder);
+            rsp.add(path);
+        }
+        return rsp;
+    }
+
+    private static void writePoints(DataOutputStream out, PointList points, boolean elevation, double multiplier) throws IOException {
+        writeVarLong(out, points.size());
+        long prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < points.size(); i++) {
+            long lat = Math.round(points.getLat(i) * multiplier);
+            long lon = Math.round(points.getLon(i) * multiplier);
+            writeZigZag(out, lat - prevLat);
+            writeZigZag(out, lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+            if (elevation) {
+                long ele = Math.round(points.getEle(i) * 100);
+                writeZigZag(out, ele - prevEle);
+                prevEle = ele;
+            }
+        }
+    }
+
+    private static PointList readPoints(DataInputStream in, boolean elevation, double multiplier) throws IOException {
+        int size = readSize(in);
+        PointList points = new PointList(size, elevation);
+        long lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i < size; i++) {
+            lat += readZigZag(in);
+            lon += readZigZag(in);
+            if (elevation) {
+                ele += readZigZag(in);
+                points.add(lat / multiplier, lon / multiplier, ele / 100.0);
+            } else {
+                points.add(lat / multiplier, lon / multiplier);
+            }
+        }
+        return points;
+    }
+
+    private static void writeInstructions(DataOutputStream out, InstructionList instructions) throws IOException {
+        writeVarLong(out, instructions.size());
+        for (Instruction instruction : instructions) {
+            writeZigZag(out, instruction.getSign());
+            writeString(out, Helper.firstBig(instruction.getTurnDescription(instructions.getTr())));
+            writeString(out, instruction.getName());
+            out.writeDouble(Helper.round(instruction.getDistance(), 3));
+            writeVarLong(out, instruction.getTime());
+            writeVarLong(out, instruction.getLength());
+            writeValue(out, instruction.getExtraInfoJSON());
+        }
+    }
+
+    private static InstructionList readInstructions(DataInputStream in, PointList points, boolean turnDescription) throws IOException {
+        int size = readSize(in);
+        InstructionList instructions = new InstructionList(size, null);
+        int pointsIndex = 0;
+        int viaCount = 1;
+        for (int i = 0; i < size; i++) {
+            int sign = (int) readZigZag(in);
+            String text = readString(in);
+            String name = readString(in);
+            double distance = in.readDouble();
+            long time = readVarLong(in);
+            int length = readSize(in);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> extraInfo = (Map<String, Object>) readValue(in);
+            PointList instructionPoints = new PointList(length + 1, points.is3D());
+            for (int j = pointsIndex; j <= pointsIndex + length; j++) {
+                instructionPoints.add(points, j);
+            }
+            pointsIndex += length;
+            if (!turnDescription)
+                text = name;
+
+            Instruction instruction;
+            if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+                RoundaboutInstruction ri = new RoundaboutInstruction(sign, text, instructionPoints);
+                if (extraInfo.get("exit_number") instanceof Number exitNumber)
+                    ri.setExitNumber(exitNumber.intValue());
+                if (Boolean.TRUE.equals(extraInfo.get("exited")))
+                    ri.setExited();
+                if (extraInfo.get("turn_angle") instanceof Number turnAngle) {
+                    double angle = turnAngle.doubleValue();
+                    ri.setDirOfRotation(angle);
+                    ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+                }
+                instruction = ri;
+            } else if (sign == Instruction.REACHED_VIA) {
+                ViaInstruction via = new ViaInstruction(text, instructionPoints);
+                via.setViaCount(viaCount++);
+                instruction = via;
+            } else if (sign == Instruction.FINISH) {
+                instruction = new FinishInstruction(text, instructionPoints, 0);
+            } else {
+                instruction = new Instruction(sign, text, instructionPoints);
+                for (Map.Entry<String, Object> e : extraInfo.entrySet()) {
+                    instruction.setExtraInfo(e.getKey(), e.getValue());
+                }
+            }
+            if (turnDescription)
+                instruction.setUseRawName();
+            instruction.setDistance(distance).setTime(time);
+            instructions.add(instruction);
+        }
+        return instructions;
+    }
+
+    private static void writeDetails(DataOutputStream out, Map<String, List<PathDetail>> details) throws IOException {
+        writeVarLong(out, details.size());
+        for (Map.Entry<String, List<PathDetail>> e : details.entrySet()) {
+            List<PathDetail> list = e.getValue();
+            writeString(out, e.getKey());
+            writeVarLong(out, list.size());
+            // usually an interval starts where the previous one ended, so the first index is encoded as difference
+            int prevLast = 0;
+            for (PathDetail detail : list) {
+                writeZigZag(out, detail.getFirst() - prevLast);
+                prevLast = detail.getLast();
+            }
+            for (PathDetail detail : list) {
+                writeVarLong(out, detail.getLength());
+            }
+            for (PathDetail detail : list) {
+                writeValue(out, detail.getValue());
+            }
+        }
+    }
+
+    private static Map<String, List<PathDetail>> readDetails(DataInputStream in) throws IOException {
+        int size = readSize(in);
+        Map<String, List<PathDetail>> details = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = readString(in);
+            int count = readSize(in);
+            long[] firstDeltas = new long[count];
+            for (int j = 0; j < count; j++) {
+                firstDeltas[j] = readZigZag(in);
+            }
+            int[] firsts = new int[count];
+            int[] lasts = new int[count];
+            int prevLast = 0;
+            for (int j = 0; j < count; j++) {
+                firsts[j] = prevLast + (int) firstDeltas[j];
+                lasts[j] = firsts[j] + readSize(in);
+                prevLast = lasts[j];
+            }
+            List<PathDetail> list = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                PathDetail detail = new PathDetail(readValue(in));
+                detail.setFirst(firsts[j]);
+                detail.setLast(lasts[j]);
+                list.add(detail);
+            }
+            details.put(name, list);
+        }
+        return details;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            writeZigZag(out, ((Number) value).longValue());
+        } else if (value instanceof Number n) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(n.doubleValue());
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            writeVarLong(out, map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                writeString(out, String.valueOf(e.getKey()));
+                writeValue(out, e.getValue());
+            }
+        } else if (value instanceof Collection<?> list) {
+            out.writeByte(LIST);
+            writeVarLong(out, list.size());
+            for (Object o : list) {
+                writeValue(out, o);
+            }
+        } else {
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case LONG:
+                return readZigZag(in);
+            case DOUBLE:
+                return in.readDouble();
+            case STRING:
+                return readString(in);
+            case MAP: {
+                int size = readSize(in);
+                Map<String, Object> map = new LinkedHashMap<>(size);
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case LIST: {
+                int size = readSize(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        writeVarLong(out, strings.size());
+        for (String s : strings) {
+            writeString(out, s);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = readSize(in);
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        // the length is shifted by one so that null can be distinguished from the empty string
+        if (s == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readSize(in);
+        if (length == 0)
+            return null;
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeZigZag(DataOutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigZag(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static int readSize(DataInputStream in) throws IOException {
+        long size = readVarLong(in);
+        if (size < 0 || size > Integer.MAX_VALUE)
+            throw new IOException("Invalid size " + size);
+        return (int) size;
+    }
+}
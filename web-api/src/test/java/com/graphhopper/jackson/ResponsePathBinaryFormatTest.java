@@ -0,0 +1,145 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.jackson;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponsePathBinaryFormatTest {
+
+    private static PathDetail detail(Object value, int first, int last) {
+        PathDetail detail = new PathDetail(value);
+        detail.setFirst(first);
+        detail.setLast(last);
+        return detail;
+    }
+
+    private static GHResponse readBack(GHResponse rsp, boolean instructions, boolean calcPoints, boolean elevation) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponsePathBinaryFormat.write(rsp, new ResponsePathSerializer.Info(List.of("GraphHopper", "OpenStreetMap contributors"), 5, null),
+                instructions, calcPoints, elevation, 1e6, out);
+        return ResponsePathBinaryFormat.read(new ByteArrayInputStream(out.toByteArray()), true);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        PointList points = new PointList(4, true);
+        points.add(52.514, 13.348, 33.5);
+        points.add(52.5141, 13.3482, 34);
+        points.add(52.5155, 13.3501, 31.25);
+        points.add(52.5155, 13.3511, 31);
+
+        InstructionList instructions = new InstructionList(null);
+        Instruction continueInstruction = new Instruction(Instruction.CONTINUE_ON_STREET, "Main Street", points.copy(0, 2));
+        continueInstruction.setExtraInfo("heading", 37.5);
+        continueInstruction.setUseRawName();
+        continueInstruction.setDistance(150.1234).setTime(20_000);
+        instructions.add(continueInstruction);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "Ring", points.copy(2, 3));
+        roundabout.setExitNumber(2).setExited().setDirOfRotation(-1).setRadian(1.2);
+        roundabout.setUseRawName();
+        roundabout.setDistance(80).setTime(10_000);
+        instructions.add(roundabout);
+        Instruction finish = new FinishInstruction("Arrive at destination", points.copy(3, 4), 0);
+        finish.setUseRawName();
+        instructions.add(finish);
+
+        ResponsePath path = new ResponsePath();
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(52.514, 13.348, 33.5, 52.5155, 13.3511, 31));
+        path.setInstructions(instructions);
+        path.setDistance(230.1234).setTime(30_000).setRouteWeight(40.5);
+        path.setAscend(0.5).setDescend(3);
+        path.setDescription(List.of("a", "b"));
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("street_name", List.of(detail("Main Street", 0, 2), detail(null, 2, 3), detail("", 3, 3)));
+        details.put("max_speed", List.of(detail(50.0, 0, 1), detail(30L, 1, 3)));
+        details.put("intersection", List.of(detail(Map.of("bearings", List.of(10L, 190L), "entry", List.of(true, false)), 1, 2)));
+        path.addPathDetails(details);
+
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().putObject("visited_nodes.sum", 42);
+        rsp.add(path);
+
+        GHResponse result = readBack(rsp, true, true, true);
+        assertEquals(42L, result.getHints().getLong("visited_nodes.sum", 0));
+        ResponsePath resultPath = result.getBest();
+        assertEquals(230.123, resultPath.getDistance(), 1.e-9);
+        assertEquals(30_000, resultPath.getTime());
+        assertEquals(40.5, resultPath.getRouteWeight());
+        assertEquals(0.5, resultPath.getAscend());
+        assertEquals(3, resultPath.getDescend());
+        assertEquals(List.of("a", "b"), resultPath.getDescription());
+        assertEquals(points, resultPath.getPoints());
+        assertEquals(path.getWaypoints(), resultPath.getWaypoints());
+        assertEquals(List.of(0, 1), resultPath.getPointsOrder());
+
+        InstructionList resultInstructions = resultPath.getInstructions();
+        assertEquals(3, resultInstructions.size());
+        assertEquals("Main Street", resultInstructions.get(0).getTurnDescription(null));
+        assertEquals(37.5, resultInstructions.get(0).getExtraInfoJSON().get("heading"));
+        assertEquals(150.123, resultInstructions.get(0).getDistance(), 1.e-9);
+        assertEquals(20_000, resultInstructions.get(0).getTime());
+        assertEquals(points.getLon(2), resultInstructions.get(1).getPoints().getLon(0));
+        RoundaboutInstruction resultRoundabout = (RoundaboutInstruction) resultInstructions.get(1);
+        assertEquals(2, resultRoundabout.getExitNumber());
+        assertTrue(resultRoundabout.isExited());
+        assertEquals(roundabout.getTurnAngle(), resultRoundabout.getTurnAngle(), 1.e-2);
+        assertEquals(Instruction.FINISH, resultInstructions.get(2).getSign());
+
+        Map<String, List<PathDetail>> resultDetails = resultPath.getPathDetails();
+        assertEquals(details.keySet(), resultDetails.keySet());
+        for (Map.Entry<String, List<PathDetail>> e : details.entrySet()) {
+            assertEquals(e.getValue().toString(), resultDetails.get(e.getKey()).toString());
+        }
+        assertEquals(30L, resultDetails.get("max_speed").get(1).getValue());
+    }
+
+    @Test
+    public void testWithoutPoints() throws IOException {
+        ResponsePath path = new ResponsePath();
+        path.setWaypoints(Helper.createPointList(52.514, 13.348, 52.5155, 13.3511));
+        path.setDistance(230).setTime(30_000);
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.add(path);
+
+        GHResponse result = readBack(rsp, true, false, false);
+        assertEquals(2, result.getAll().size());
+        assertTrue(result.getBest().getPoints().isEmpty());
+        assertTrue(result.getBest().getPathDetails().isEmpty());
+        assertEquals(path.getWaypoints(), result.getBest().getWaypoints());
+        assertEquals(230, result.getBest().getDistance());
+    }
+
+    @Test
+    public void testInvalidInput() {
+        assertThrows(IOException.class, () -> ResponsePathBinaryFormat.read(new ByteArrayInputStream("{\"paths\":[]}".getBytes()), true));
+    }
+}
@@ -45,6 +45,8 @@ import org.apache.hc.client5.http.classic.HttpClient;
 import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
+import java.util.concurrent.ExecutorService;
+
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
     static class TranslationMapFactory implements Factory<TranslationMap> {
@@ -272,6 +274,10 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         // a single entry.
         environment.jersey().register(new IllegalArgumentExceptionMapper());
 
+        // Compresses large responses like /route with many details, /spt CSVs or /isochrone polygons, see config-example.yml
+        if (configuration.getGraphHopperConfiguration().getBool("http.compression.enabled", false))
+            environment.jersey().register(ResponseCompressionFilter.fromConfig(configuration.getGraphHopperConfiguration(), environment.metrics()));
+
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
@@ -282,6 +288,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                 bind(graphHopper).to(GraphHopper.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
+                bind(new IsochroneTriangulationCache(configuration.getGraphHopperConfiguration().getInt("isochrone.triangulation_cache_size", 0))).to(IsochroneTriangulationCache.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
                 bindFactory(ProfileResolverFactory.class).to(ProfileResolver.class);
@@ -305,9 +312,14 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
             // These are pt-specific implementations of /route and /isochrone, but the same API.
             // We serve them under different paths (/route-pt and /isochrone-pt), and forward
             // requests for ?vehicle=pt there.
+            // shared by all /accessibility-pt requests, so their searches cannot occupy more threads than this
+            int accessibilityThreads = configuration.getGraphHopperConfiguration().getInt("gtfs.accessibility_threads", 2);
+            final ExecutorService accessibilityExecutor = environment.lifecycle().executorService("pt-accessibility-%d")
+                    .minThreads(accessibilityThreads).maxThreads(accessibilityThreads).build();
             environment.jersey().register(new AbstractBinder() {
                 @Override
                 protected void configure() {
+                    bind(accessibilityExecutor).to(ExecutorService.class).named("ptAccessibility");
                     if (configuration.getGraphHopperConfiguration().getBool("gtfs.free_walk", false)) {
                         bind(PtRouterFreeWalkImpl.class).to(PtRouter.class);
                     } else if (configuration.getGraphHopperConfiguration().getBool("gtfs.trip_based", false)) {
@@ -322,6 +334,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
             });
             environment.jersey().register(PtRouteResource.class);
             environment.jersey().register(PtIsochroneResource.class);
+            environment.jersey().register(PtAccessibilityResource.class);
             environment.jersey().register(PtMVTResource.class);
             environment.jersey().register(PtRedirectFilter.class);
         }
@@ -0,0 +1,99 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.graphhopper.isochrone.algorithm.Triangulator;
+
+import com.graphhopper.util.PMap;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the most recently used isochrone triangulations, so that requests for the same origin, profile, hints and
+ * limit that only differ in the number of buckets can skip the shortest path tree search and the triangulation. The
+ * triangulations are only read by the contour builder and can therefore be shared between requests.
+ */
+public class IsochroneTriangulationCache {
+
+    public static class Key {
+        private final String profile;
+        private final Map<String, Object> hints;
+        private final double lat, lon;
+        private final boolean reverseFlow;
+        private final String limitType;
+        private final double limit;
+        private final double tolerance;
+
+        public Key(String profile, PMap hints, double lat, double lon, boolean reverseFlow, String limitType, double limit, double tolerance) {
+            this.profile = profile;
+            // sorted, so that equal hints are equal independent of their order
+            this.hints = new TreeMap<>(hints.toMap());
+            this.lat = lat;
+            this.lon = lon;
+            this.reverseFlow = reverseFlow;
+            this.limitType = limitType;
+            this.limit = limit;
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Double.compare(key.lat, lat) == 0 && Double.compare(key.lon, lon) == 0 && reverseFlow == key.reverseFlow
+                    && Double.compare(key.limit, limit) == 0 && Double.compare(key.tolerance, tolerance) == 0
+                    && profile.equals(key.profile) && hints.equals(key.hints) && limitType.equals(key.limitType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(profile, hints, lat, lon, reverseFlow, limitType, limit, tolerance);
+        }
+    }
+
+    private final Cache<Key, Triangulator.Result> cache;
+
+    /**
+     * @param maxEntries the number of triangulations to keep, 0 disables the cache
+     */
+    public IsochroneTriangulationCache(int maxEntries) {
+        this.cache = maxEntries > 0 ? CacheBuilder.newBuilder().maximumSize(maxEntries).build() : null;
+    }
+
+    /**
+     * @return the cached triangulation for the specified key, or the one created by the specified function, which is
+     * then cached
+     */
+    public Triangulator.Result get(Key key, Supplier<Triangulator.Result> triangulate) {
+        if (cache == null)
+            return triangulate.get();
+        Triangulator.Result result = cache.getIfPresent(key);
+        if (result != null)
+            return result;
+        result = triangulate.get();
+        cache.put(key, result);
+        return result;
+    }
+}
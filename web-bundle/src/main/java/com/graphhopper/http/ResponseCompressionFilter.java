@@ -0,0 +1,291 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.graphhopper.GraphHopperConfig;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.graphhopper.util.Helper.toLowerCase;
+
+/**
+ * Compresses the responses of the selected media types with gzip or deflate, depending on the Accept-Encoding header
+ * of the request. The first bytes of a response are collected in a buffer of the minimum size, so small responses
+ * are sent uncompressed without any compression overhead and larger ones are compressed while they are streamed.
+ * The compression ratio (in percent of the original size), the CPU time spent for compressing and the number of
+ * uncompressed and compressed bytes are reported to the given metric registry.
+ * <p>
+ * Dropwizard can compress responses as well (server.gzip), but it skips responses that are already compressed by
+ * this filter, so it should be disabled to avoid compressing the small responses anyway.
+ */
+@Priority(Priorities.ENTITY_CODER)
+public class ResponseCompressionFilter implements ContainerResponseFilter {
+
+    public static final String DEFAULT_MEDIA_TYPES = "application/json,application/xml,application/gpx+xml,text/csv,text/plain,"
+            + "application/octet-stream,application/x-protobuf,application/x-gh-route";
+
+    private final Set<String> mediaTypes;
+    private final int minSize;
+    private final int level;
+    private final int bufferSize;
+    private final Histogram ratio;
+    private final Timer cpuTime;
+    private final Meter uncompressedBytes;
+    private final Meter compressedBytes;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * @param mediaTypes the media types to compress like application/json, text/* selects all text types
+     * @param minSize    responses with fewer bytes are not compressed
+     * @param level      the compression level from 1 (fastest) to 9 (smallest), or -1 for the default level
+     * @param bufferSize the size of the output buffer of the compressor
+     */
+    public ResponseCompressionFilter(Set<String> mediaTypes, int minSize, int level, int bufferSize, MetricRegistry metrics) {
+        if (minSize < 0)
+            throw new IllegalArgumentException("minimum size must not be negative: " + minSize);
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION))
+            throw new IllegalArgumentException("compression level must be in [1, 9] or -1 but was " + level);
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("buffer size must be positive: " + bufferSize);
+        this.mediaTypes = mediaTypes.stream().map(m -> toLowerCase(m.trim())).filter(m -> !m.isEmpty()).collect(Collectors.toSet());
+        this.minSize = minSize;
+        this.level = level;
+        this.bufferSize = bufferSize;
+        this.ratio = metrics.histogram(MetricRegistry.name(ResponseCompressionFilter.class, "ratio"));
+        this.cpuTime = metrics.timer(MetricRegistry.name(ResponseCompressionFilter.class, "cpu_time"));
+        this.uncompressedBytes = metrics.meter(MetricRegistry.name(ResponseCompressionFilter.class, "uncompressed_bytes"));
+        this.compressedBytes = metrics.meter(MetricRegistry.name(ResponseCompressionFilter.class, "compressed_bytes"));
+    }
+
+    public static ResponseCompressionFilter fromConfig(GraphHopperConfig config, MetricRegistry metrics) {
+        Set<String> mediaTypes = Arrays.stream(config.getString("http.compression.media_types", DEFAULT_MEDIA_TYPES).split(","))
+                .collect(Collectors.toSet());
+        return new ResponseCompressionFilter(mediaTypes, config.getInt("http.compression.min_size", 1024),
+                config.getInt("http.compression.level", Deflater.DEFAULT_COMPRESSION),
+                config.getInt("http.compression.buffer_size", 8192), metrics);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (!response.hasEntity() || HttpMethod.HEAD.equals(request.getMethod()) || !isSelected(response.getMediaType()))
+            return;
+        MultivaluedMap<String, Object> headers = response.getHeaders();
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING))
+            return;
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = selectEncoding(request.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null)
+            return;
+        // the headers are only written with the first byte, so they can still be changed when we start compressing
+        response.setEntityStream(new CompressingOutputStream(response.getEntityStream(), encoding, () -> {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }));
+    }
+
+    boolean isSelected(MediaType mediaType) {
+        if (mediaType == null)
+            return false;
+        String type = toLowerCase(mediaType.getType());
+        return mediaTypes.contains(type + "/" + toLowerCase(mediaType.getSubtype())) || mediaTypes.contains(type + "/*");
+    }
+
+    /**
+     * @return gzip or deflate (gzip is preferred) or null if the client does not accept any of them
+     */
+    static String selectEncoding(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return null;
+        boolean gzip = false, deflate = false, gzipExcluded = false, deflateExcluded = false, wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String name = toLowerCase(params[0].trim());
+            boolean excluded = false;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        excluded = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException ex) {
+                        excluded = true;
+                    }
+                }
+            }
+            switch (name) {
+                case "gzip":
+                case "x-gzip":
+                    gzip = !excluded;
+                    gzipExcluded = excluded;
+                    break;
+                case "deflate":
+                    deflate = !excluded;
+                    deflateExcluded = excluded;
+                    break;
+                case "*":
+                    wildcard = !excluded;
+                    break;
+                default:
+            }
+        }
+        if (gzip || wildcard && !gzipExcluded)
+            return "gzip";
+        if (deflate || wildcard && !deflateExcluded)
+            return "deflate";
+        return null;
+    }
+
+    private long currentCpuTime() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    class CompressingOutputStream extends OutputStream {
+        private final CountingOutputStream out;
+        private final String encoding;
+        private final Runnable beforeCompression;
+        private final byte[] buffer;
+        private int count;
+        private DeflaterOutputStream compressor;
+        private Deflater deflater;
+        private long uncompressed;
+        private long cpuNanos;
+        private boolean closed;
+
+        CompressingOutputStream(OutputStream out, String encoding, Runnable beforeCompression) {
+            this.out = new CountingOutputStream(out);
+            this.encoding = encoding;
+            this.beforeCompression = beforeCompression;
+            this.buffer = new byte[minSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            uncompressed += len;
+            if (compressor == null) {
+                if (count + len <= buffer.length) {
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                startCompression();
+            }
+            long start = currentCpuTime();
+            compressor.write(b, off, len);
+            cpuNanos += currentCpuTime() - start;
+        }
+
+        private void startCompression() throws IOException {
+            beforeCompression.run();
+            long start = currentCpuTime();
+            if ("gzip".equals(encoding)) {
+                compressor = new LeveledGZIPOutputStream(out, bufferSize, level);
+            } else {
+                deflater = new Deflater(level);
+                compressor = new DeflaterOutputStream(out, deflater, bufferSize);
+            }
+            compressor.write(buffer, 0, count);
+            cpuNanos += currentCpuTime() - start;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // as long as the response is small we keep it in the buffer
+            if (compressor != null)
+                compressor.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            if (compressor == null) {
+                out.write(buffer, 0, count);
+                out.close();
+                return;
+            }
+            long start = currentCpuTime();
+            compressor.finish();
+            cpuNanos += currentCpuTime() - start;
+            compressor.close();
+            if (deflater != null)
+                // the deflater was passed to the stream, so closing the stream does not release it
+                deflater.end();
+            cpuTime.update(cpuNanos, TimeUnit.NANOSECONDS);
+            uncompressedBytes.mark(uncompressed);
+            compressedBytes.mark(out.count);
+            if (uncompressed > 0)
+                ratio.update(Math.round(100.0 * out.count / uncompressed));
+        }
+    }
+
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+        LeveledGZIPOutputStream(OutputStream out, int size, int level) throws IOException {
+            super(out, size);
+            def.setLevel(level);
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -37,6 +37,12 @@ public class GraphHopperHealthCheck extends HealthCheck {
         if (!graphHopper.getFullyLoaded()) {
             return Result.unhealthy("GraphHopper is not fully loaded.");
         }
+        if (!graphHopper.getChecksumProblems().isEmpty()) {
+            return Result.unhealthy("Checksums do not match: " + String.join(", ", graphHopper.getChecksumProblems()));
+        }
+        if (graphHopper.isCalculatingChecksums()) {
+            return Result.healthy("Checksums are still being calculated.");
+        }
         return Result.healthy();
     }
 }
@@ -6,17 +6,22 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
+import com.graphhopper.http.IsochroneTriangulationCache;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.IsochroneRaster;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.ShortestPathTreeCH;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -31,14 +36,19 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.OptionalInt;
-import java.util.OptionalLong;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
 import java.util.function.ToDoubleFunction;
 
-import static com.graphhopper.resources.IsochroneResource.ResponseType.geojson;
+import static com.graphhopper.resources.IsochroneResource.ResponseType.*;
 import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
 import static com.graphhopper.routing.util.TraversalMode.EDGE_BASED;
 import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
@@ -52,21 +62,38 @@ public class IsochroneResource {
     private final GraphHopper graphHopper;
     private final Triangulator triangulator;
     private final ProfileResolver profileResolver;
+    private final IsochroneTriangulationCache triangulationCache;
     private final String osmDate;
+    private final int maxGridCells;
+
+    /**
+     * Request hint to calculate the shortest path tree with PHAST on the CH graph of a node-based CH profile. PHAST
+     * always scans the whole graph, so it only pays off for limits that reach a large part of it.
+     */
+    public static final String PHAST = "phast";
+
+    private static final List<String> ISOCHRONE_PARAMETERS = Arrays.asList("point", "buckets", "time_limit",
+            "distance_limit", "weight_limit", "type", "full_geometry", "reverse_flow", "tolerance", "profile", "mode", "grid_resolution");
 
     @Inject
-    public IsochroneResource(GraphHopperConfig config, GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver) {
+    public IsochroneResource(GraphHopperConfig config, GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver,
+                             IsochroneTriangulationCache triangulationCache) {
         this.config = config;
         this.graphHopper = graphHopper;
         this.triangulator = triangulator;
         this.profileResolver = profileResolver;
+        this.triangulationCache = triangulationCache;
         this.osmDate = graphHopper.getProperties().get("datareader.data.date");
+        this.maxGridCells = config.getInt("isochrone.grid_max_cells", IsochroneRaster.DEFAULT_MAX_CELLS);
     }
 
-    public enum ResponseType {json, geojson}
+    public enum ResponseType {json, geojson, png, binary}
+
+    public enum Mode {triangulation, grid}
 
+    // Annotating this as application/json because errors come out as json
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, "image/png", MediaType.APPLICATION_OCTET_STREAM})
     public Response doGet(
             @Context UriInfo uriInfo,
             @QueryParam("profile") String profileName,
@@ -78,10 +105,13 @@ public class IsochroneResource {
             @QueryParam("weight_limit") @DefaultValue("-1") OptionalLong weightLimit,
             @QueryParam("type") @DefaultValue("json") ResponseType respType,
             @QueryParam("tolerance") @DefaultValue("0") double toleranceInMeter,
-            @QueryParam("full_geometry") @DefaultValue("false") boolean fullGeometry) {
+            @QueryParam("full_geometry") @DefaultValue("false") boolean fullGeometry,
+            @QueryParam("mode") @DefaultValue("triangulation") Mode mode,
+            @QueryParam("grid_resolution") @DefaultValue("50") double gridResolutionInMeter) {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        boolean usePHAST = hintsMap.getBool(PHAST, false);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
 
@@ -102,21 +132,23 @@ public class IsochroneResource {
             throw new IllegalArgumentException("Point not found:" + point);
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         TraversalMode traversalMode = profile.hasTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        RoutingCHGraph chGraph = usePHAST ? getNodeBasedCHGraph(graphHopper, profileName) : null;
+        int[] chNodesByLevel = chGraph == null ? null : graphHopper.getCHNodesByLevel(profileName);
 
-        double limit;
-        ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
+        final double limit;
+        final String limitType;
+        final ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
         if (weightLimit.orElseThrow(() -> new IllegalArgumentException("query param weight_limit is not a number.")) > 0) {
             limit = weightLimit.getAsLong();
-            shortestPathTree.setWeightLimit(limit + Math.max(limit * 0.14, 200));
+            limitType = "weight";
             fz = l -> l.weight;
         } else if (distanceLimitInMeter.orElseThrow(() -> new IllegalArgumentException("query param distance_limit is not a number.")) > 0) {
             limit = distanceLimitInMeter.getAsLong();
-            shortestPathTree.setDistanceLimit(limit + Math.max(limit * 0.14, 2_000));
+            limitType = "distance";
             fz = l -> l.distance;
         } else {
             limit = timeLimitInSeconds.orElseThrow(() -> new IllegalArgumentException("query param time_limit is not a number.")) * 1000d;
-            shortestPathTree.setTimeLimit(limit + Math.max(limit * 0.14, 200_000));
+            limitType = "time";
             fz = l -> l.time;
         }
         ArrayList<Double> zs = new ArrayList<>();
@@ -125,20 +157,84 @@ public class IsochroneResource {
             zs.add((i + 1) * delta);
         }
 
-        Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+        if (mode == Mode.grid || respType == png || respType == binary) {
+            ShortestPathTree shortestPathTree = createShortestPathTree(queryGraph, chGraph, chNodesByLevel, weighting, reverseFlow, traversalMode, limitType, limit);
+            IsochroneRaster raster = IsochroneRaster.rasterize(queryGraph, shortestPathTree, snap.getClosestNode(), fz, gridResolutionInMeter, maxGridCells);
+            raster.fillGaps(1);
+            logger.info("took: " + sw.stop().getSeconds() + ", visited nodes:" + shortestPathTree.getVisitedNodes() + ", grid: " + raster.getWidth() + "x" + raster.getHeight());
+            if (respType == png) {
+                StreamingOutput out = output -> writePng(raster, limit, output);
+                return Response.ok(out).type("image/png").header("X-GH-Took", "" + sw.getSeconds() * 1000).build();
+            } else if (respType == binary) {
+                StreamingOutput out = output -> writeBinary(raster, output);
+                return Response.ok(out).type(MediaType.APPLICATION_OCTET_STREAM).header("X-GH-Took", "" + sw.getSeconds() * 1000).build();
+            }
+            sw.start();
+            GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(1E8));
+            List<Geometry> isochrones = new ArrayList<>(zs.size());
+            for (Double z : zs) {
+                isochrones.add(toIsochrone(raster.computeIsoline(z, geometryFactory), point, fullGeometry));
+            }
+            return createResponse(isochrones, respType, sw, -1);
+        }
+
+        // the parameters that only influence the contours must not be part of the cache key
+        PMap cacheKeyHints = new PMap(hintsMap);
+        for (String param : ISOCHRONE_PARAMETERS) {
+            cacheKeyHints.remove(param);
+        }
+        cacheKeyHints.putObject(PHAST, chGraph != null);
+        IsochroneTriangulationCache.Key cacheKey = new IsochroneTriangulationCache.Key(profileName, cacheKeyHints,
+                point.get().lat, point.get().lon, reverseFlow, limitType, limit, toleranceInMeter);
+        int[] visitedNodes = new int[1];
+        Triangulator.Result result = triangulationCache.get(cacheKey, () -> {
+            ShortestPathTree shortestPathTree = createShortestPathTree(queryGraph, chGraph, chNodesByLevel, weighting, reverseFlow, traversalMode, limitType, limit);
+            Triangulator.Result triangulation = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+            visitedNodes[0] = shortestPathTree.getVisitedNodes();
+            return triangulation;
+        });
 
         ContourBuilder contourBuilder = new ContourBuilder(result.triangulation);
-        ArrayList<Geometry> isochrones = new ArrayList<>();
+        List<Geometry> isochrones = new ArrayList<>(zs.size());
         for (Double z : zs) {
             logger.info("Building contour z={}", z);
-            MultiPolygon isochrone = contourBuilder.computeIsoline(z, result.seedEdges);
-            if (fullGeometry) {
-                isochrones.add(isochrone);
-            } else {
-                Polygon maxPolygon = heuristicallyFindMainConnectedComponent(isochrone, isochrone.getFactory().createPoint(new Coordinate(point.get().lon, point.get().lat)));
-                isochrones.add(isochrone.getFactory().createPolygon(((LinearRing) maxPolygon.getExteriorRing())));
-            }
+            isochrones.add(toIsochrone(contourBuilder.computeIsoline(z, result.seedEdges), point, fullGeometry));
         }
+        return createResponse(isochrones, respType, sw, visitedNodes[0]);
+    }
+
+    /**
+     * @return the CH graph of the given profile if it can be used for one-to-all searches, otherwise null
+     */
+    static RoutingCHGraph getNodeBasedCHGraph(GraphHopper graphHopper, String profileName) {
+        RoutingCHGraph chGraph = graphHopper.getCHGraphs().get(profileName);
+        return chGraph == null || chGraph.isEdgeBased() ? null : chGraph;
+    }
+
+    private static ShortestPathTree createShortestPathTree(QueryGraph queryGraph, RoutingCHGraph chGraph, int[] chNodesByLevel, Weighting weighting,
+                                                           boolean reverseFlow, TraversalMode traversalMode, String limitType, double limit) {
+        ShortestPathTree shortestPathTree = chGraph == null
+                ? new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode)
+                : new ShortestPathTreeCH(queryGraph, new QueryRoutingCHGraph(chGraph, queryGraph), chNodesByLevel, reverseFlow);
+        if (limitType.equals("weight"))
+            shortestPathTree.setWeightLimit(limit + Math.max(limit * 0.14, 200));
+        else if (limitType.equals("distance"))
+            shortestPathTree.setDistanceLimit(limit + Math.max(limit * 0.14, 2_000));
+        else
+            shortestPathTree.setTimeLimit(limit + Math.max(limit * 0.14, 200_000));
+        return shortestPathTree;
+    }
+
+    private Geometry toIsochrone(MultiPolygon isochrone, GHPointParam point, boolean fullGeometry) {
+        if (fullGeometry) {
+            return isochrone;
+        } else {
+            Polygon maxPolygon = heuristicallyFindMainConnectedComponent(isochrone, isochrone.getFactory().createPoint(new Coordinate(point.get().lon, point.get().lat)));
+            return isochrone.getFactory().createPolygon(((LinearRing) maxPolygon.getExteriorRing()));
+        }
+    }
+
+    private Response createResponse(List<Geometry> isochrones, ResponseType respType, StopWatch sw, int visitedNodes) {
         ArrayList<JsonFeature> features = new ArrayList<>();
         for (Geometry isochrone : isochrones) {
             JsonFeature feature = new JsonFeature();
@@ -168,11 +264,50 @@ public class IsochroneResource {
             finalJson = json;
         }
 
-        logger.info("took: " + sw.getSeconds() + ", visited nodes:" + shortestPathTree.getVisitedNodes());
+        if (visitedNodes >= 0)
+            logger.info("took: " + sw.getSeconds() + ", visited nodes:" + visitedNodes);
         return Response.ok(finalJson).header("X-GH-Took", "" + sw.getSeconds() * 1000).
                 build();
     }
 
+    /**
+     * Writes the raster as 8-bit grayscale image, north up. The values are scaled to the limit, unreached grid points
+     * and those beyond the limit are white.
+     */
+    private static void writePng(IsochroneRaster raster, double limit, OutputStream output) throws IOException {
+        BufferedImage image = new BufferedImage(raster.getWidth(), raster.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster pixels = image.getRaster();
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                float value = raster.getValue(x, y);
+                int gray = value > limit ? 255 : (int) Math.min(254, 254 * value / limit);
+                pixels.setSample(x, raster.getHeight() - 1 - y, 0, gray);
+            }
+        }
+        ImageIO.write(image, "png", output);
+    }
+
+    /**
+     * Writes the raster in a simple big-endian binary format: the width and height as int, the longitude and latitude
+     * of the south-western grid point and the cell size in degrees as double, followed by the values as float, row by
+     * row from south to north. Unreached grid points are {@link Float#POSITIVE_INFINITY}.
+     */
+    private static void writeBinary(IsochroneRaster raster, OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(raster.getWidth());
+        out.writeInt(raster.getHeight());
+        out.writeDouble(raster.getMinLon());
+        out.writeDouble(raster.getMinLat());
+        out.writeDouble(raster.getCellLon());
+        out.writeDouble(raster.getCellLat());
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                out.writeFloat(raster.getValue(x, y));
+            }
+        }
+        out.flush();
+    }
+
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
         int maxPoints = 0;
         Polygon maxPolygon = null;
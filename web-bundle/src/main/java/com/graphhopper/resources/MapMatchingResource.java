@@ -30,6 +30,7 @@ import com.graphhopper.gpx.GpxConversions;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.jackson.Gpx;
 import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathBinaryFormat;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.matching.*;
 import com.graphhopper.storage.index.LocationIndexTree;
@@ -41,6 +42,7 @@ import jakarta.inject.Inject;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
@@ -84,10 +86,11 @@ public class MapMatchingResource {
 
     @POST
     @Consumes({MediaType.APPLICATION_XML, "application/gpx+xml"})
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", ResponsePathBinaryFormat.MEDIA_TYPE})
     public Response match(
             @NotNull Gpx gpx,
             @Context UriInfo uriInfo,
+            @Context HttpHeaders headers,
             @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("0.5") double minPathPrecision,
             @QueryParam("type") @DefaultValue("json") String outType,
             @QueryParam(INSTRUCTIONS) @DefaultValue("true") boolean instructions,
@@ -103,12 +106,16 @@ public class MapMatchingResource {
             @QueryParam("traversal_keys") @DefaultValue("false") boolean enableTraversalKeys,
             @QueryParam("gps_accuracy") @DefaultValue("10") double gpsAccuracy) {
         boolean writeGPX = "gpx".equalsIgnoreCase(outType);
+        boolean writeBinary = "binary".equalsIgnoreCase(outType) || "json".equalsIgnoreCase(outType) && RouteResource.acceptsBinary(headers);
         if (gpx.trk.isEmpty()) {
             throw new IllegalArgumentException("No tracks found in GPX document. Are you using waypoints or routes instead?");
         }
         if (gpx.trk.size() > 1) {
             throw new IllegalArgumentException("GPX documents with multiple tracks not supported yet.");
         }
+        if (writeBinary && enableTraversalKeys) {
+            throw new IllegalArgumentException("traversal_keys are not supported for the binary format");
+        }
 
         instructions = writeGPX || instructions;
 
@@ -167,6 +174,15 @@ public class MapMatchingResource {
                 return Response.ok(GpxConversions.createGPX(rsp.getBest().getInstructions(), gpx.trk.get(0).name != null ? gpx.trk.get(0).name : "", time, enableElevation, withRoute, withTrack, false, Constants.VERSION, tr), "application/gpx+xml").
                         header("X-GH-Took", "" + Math.round(sw.getMillisDouble())).
                         build();
+            } else if (writeBinary) {
+                // there is no dedicated field for the match statistics in the binary format, so we use the hints
+                rsp.getHints().putObject("map_matching.distance", matchResult.getMatchLength());
+                rsp.getHints().putObject("map_matching.time", matchResult.getMatchMillis());
+                rsp.getHints().putObject("map_matching.original_distance", matchResult.getGpxEntriesLength());
+                ResponsePathSerializer.Info info = new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(sw.getMillisDouble()), osmDate);
+                return RouteResource.binarySuccessResponseBuilder(rsp, info, instructions, calcPoints, enableElevation, pointsEncodedMultiplier).
+                        header("X-GH-Took", "" + Math.round(sw.getMillisDouble())).
+                        build();
             } else {
                 ObjectNode map = ResponsePathSerializer.jsonObject(rsp, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(sw.getMillisDouble()), osmDate), instructions,
                         calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier);
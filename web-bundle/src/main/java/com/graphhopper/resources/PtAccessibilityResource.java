@@ -0,0 +1,142 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.graphhopper.gtfs.GHLocation;
+import com.graphhopper.gtfs.GtfsStorage;
+import com.graphhopper.gtfs.PtLocationSnapper;
+import com.graphhopper.gtfs.analysis.TravelTimeSurfaces;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.LocationIndex;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Public transit travel times from many origins to all stops, for accessibility analysis. The response is streamed in
+ * the binary format described in {@link TravelTimeSurfaces}.
+ */
+@Path("accessibility-pt")
+public class PtAccessibilityResource {
+
+    public static final int MAX_POINTS = 1000;
+    public static final long MAX_DEPARTURE_WINDOW = 24 * 60 * 60;
+    public static final long MIN_DEPARTURE_STEP = 60;
+    public static final long MAX_TIME_LIMIT = 24 * 60 * 60;
+    /**
+     * Limits the number of points times the number of departures per point, i.e. the number of searches per request
+     */
+    public static final long MAX_SEARCHES = 10_000;
+
+    private final GtfsStorage gtfsStorage;
+    private final EncodingManager encodingManager;
+    private final BaseGraph baseGraph;
+    private final LocationIndex locationIndex;
+    private final ExecutorService executor;
+
+    @Inject
+    public PtAccessibilityResource(GtfsStorage gtfsStorage, EncodingManager encodingManager, BaseGraph baseGraph, LocationIndex locationIndex,
+                                   @Named("ptAccessibility") ExecutorService executor) {
+        this.gtfsStorage = gtfsStorage;
+        this.encodingManager = encodingManager;
+        this.baseGraph = baseGraph;
+        this.locationIndex = locationIndex;
+        this.executor = executor;
+    }
+
+    public static class Request {
+        /**
+         * The origins, as "lat,lon" or "Stop(stop_id)"
+         */
+        @NotNull
+        @Size(max = MAX_POINTS)
+        public List<String> points;
+        @NotNull
+        @JsonProperty("pt.earliest_departure_time")
+        public String earliestDepartureTime;
+        @Min(0)
+        @Max(MAX_DEPARTURE_WINDOW)
+        @JsonProperty("pt.departure_window")
+        public long departureWindowInSeconds = 0;
+        @Min(MIN_DEPARTURE_STEP)
+        @JsonProperty("pt.departure_step")
+        public long departureStepInSeconds = 60;
+        @Min(0)
+        @Max(MAX_TIME_LIMIT)
+        @JsonProperty("pt.limit_street_time")
+        public Long limitStreetTimeInSeconds;
+        @JsonProperty("pt.blocked_route_types")
+        public int blockedRouteTypes = 0;
+        @Min(1)
+        @Max(MAX_TIME_LIMIT)
+        @JsonProperty("time_limit")
+        public long timeLimitInSeconds = 3600;
+    }
+
+    // Annotating this as application/json because errors come out as json
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON})
+    public Response doPost(@NotNull @Valid Request request) {
+        if (request.points == null || request.points.isEmpty())
+            throw new IllegalArgumentException("At least one point has to be specified");
+        if (request.earliestDepartureTime == null)
+            throw new IllegalArgumentException("pt.earliest_departure_time is required");
+        long searches = (long) request.points.size() * (request.departureWindowInSeconds / request.departureStepInSeconds + 1);
+        if (searches > MAX_SEARCHES)
+            throw new IllegalArgumentException("Too many searches: " + searches + ". The number of points times the number of departures (pt.departure_window / pt.departure_step + 1) must not exceed " + MAX_SEARCHES);
+        Instant earliestDepartureTime = OffsetDateTime.parse(request.earliestDepartureTime).toInstant();
+        List<GHLocation> origins = new ArrayList<>(request.points.size());
+        for (String point : request.points) {
+            origins.add(GHLocation.fromString(point));
+        }
+        TravelTimeSurfaces travelTimeSurfaces = new TravelTimeSurfaces(baseGraph, encodingManager, locationIndex, gtfsStorage)
+                .setDepartureWindow(Duration.ofSeconds(request.departureWindowInSeconds), Duration.ofSeconds(request.departureStepInSeconds))
+                .setLimitTripTime(Duration.ofSeconds(request.timeLimitInSeconds))
+                .setBlockedRouteTypes(request.blockedRouteTypes)
+                .setExecutor(executor);
+        if (request.limitStreetTimeInSeconds != null)
+            travelTimeSurfaces.setLimitStreetTime(Duration.ofSeconds(request.limitStreetTimeInSeconds));
+        // snap before streaming, so that unknown stops or points come out as an error and not as a truncated response
+        List<PtLocationSnapper.Result> snappedOrigins = travelTimeSurfaces.snapOrigins(origins);
+        StreamingOutput out = output -> travelTimeSurfaces.writeTo(output, snappedOrigins, earliestDepartureTime);
+        return Response.ok(out).type(MediaType.APPLICATION_OCTET_STREAM).build();
+    }
+
+}
@@ -26,6 +26,7 @@ import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.GHRequestTransformer;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathBinaryFormat;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
@@ -80,10 +81,11 @@ public class RouteResource {
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", ResponsePathBinaryFormat.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
+            @Context HttpHeaders headers,
             @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("0.5") double minPathPrecision,
             @QueryParam(ELEVATION_WAY_POINT_MAX_DISTANCE) Double minPathElevationPrecision,
             @QueryParam("point") @NotNull List<GHPointParam> pointParams,
@@ -109,6 +111,7 @@ public class RouteResource {
         StopWatch sw = new StopWatch().start();
         List<GHPoint> points = pointParams.stream().map(AbstractParam::get).collect(toList());
         boolean writeGPX = "gpx".equalsIgnoreCase(type);
+        boolean writeBinary = !writeGPX && ("binary".equalsIgnoreCase(type) || acceptsBinary(headers));
         instructions = writeGPX || instructions;
         if (enableElevation && !hasElevation)
             throw new IllegalArgumentException("Elevation not supported!");
@@ -169,12 +172,17 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
+            ResponsePathSerializer.Info info = new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate);
+            if (writeBinary)
+                return binarySuccessResponseBuilder(ghResponse, info, instructions, calcPoints, enableElevation, pointsEncodedMultiplier).
+                        header("X-GH-Took", "" + Math.round(took)).
+                        build();
             return writeGPX ?
                     gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
                             header("X-GH-Took", "" + Math.round(took)).
                             build()
                     :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
+                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, info, instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
                             header("X-GH-Took", "" + Math.round(took)).
                             type(MediaType.APPLICATION_JSON).
                             build();
@@ -183,8 +191,8 @@ public class RouteResource {
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
+    @Produces({MediaType.APPLICATION_JSON, ResponsePathBinaryFormat.MEDIA_TYPE})
+    public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq, @Context HttpHeaders headers) {
         if (!request.hasSnapPreventions())
             request.setSnapPreventions(snapPreventionsDefault);
 
@@ -223,7 +231,12 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
+            ResponsePathSerializer.Info info = new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate);
+            if (acceptsBinary(headers))
+                return binarySuccessResponseBuilder(ghResponse, info, instructions, calcPoints, enableElevation, pointsEncodedMultiplier).
+                        header("X-GH-Took", "" + Math.round(took)).
+                        build();
+            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, info, instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
                     header("X-GH-Took", "" + Math.round(took)).
                     type(MediaType.APPLICATION_JSON).
                     build();
@@ -238,6 +251,28 @@ public class RouteResource {
         hints.remove("turn_costs");
     }
 
+    /**
+     * @return true if the client prefers the binary format of {@link ResponsePathBinaryFormat} over JSON
+     */
+    static boolean acceptsBinary(HttpHeaders headers) {
+        // the acceptable media types are sorted by quality, a wildcard means JSON
+        for (MediaType mediaType : headers.getAcceptableMediaTypes()) {
+            if (mediaType.isWildcardType() || mediaType.isWildcardSubtype())
+                return false;
+            if (ResponsePathBinaryFormat.MEDIA_TYPE.equals(mediaType.getType() + "/" + mediaType.getSubtype()))
+                return true;
+            if (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE))
+                return false;
+        }
+        return false;
+    }
+
+    static Response.ResponseBuilder binarySuccessResponseBuilder(GHResponse ghRsp, ResponsePathSerializer.Info info, boolean instructions,
+                                                                 boolean calcPoints, boolean enableElevation, double pointsMultiplier) {
+        StreamingOutput output = out -> ResponsePathBinaryFormat.write(ghRsp, info, instructions, calcPoints, enableElevation, pointsMultiplier, out);
+        return Response.ok(output, ResponsePathBinaryFormat.MEDIA_TYPE);
+    }
+
     private static Response.ResponseBuilder gpxSuccessResponseBuilder(GHResponse ghRsp, String timeString, String
             trackName, boolean enableElevation, boolean withRoute, boolean withTrack, boolean withWayPoints, String version) {
         if (ghRsp.getAll().size() > 1) {
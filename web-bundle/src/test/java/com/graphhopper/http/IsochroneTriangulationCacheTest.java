@@ -0,0 +1,80 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.graphhopper.isochrone.algorithm.Triangulator;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class IsochroneTriangulationCacheTest {
+
+    private static IsochroneTriangulationCache.Key key(double lat, double limit) {
+        return new IsochroneTriangulationCache.Key("car", new PMap(), lat, 1.5, false, "time", limit, 0);
+    }
+
+    private static Supplier<Triangulator.Result> counting(AtomicInteger calls) {
+        return () -> {
+            calls.incrementAndGet();
+            return new Triangulator.Result(null, Collections.emptyList());
+        };
+    }
+
+    @Test
+    public void testReuseForSameLimit() {
+        AtomicInteger calls = new AtomicInteger();
+        IsochroneTriangulationCache cache = new IsochroneTriangulationCache(2);
+        Triangulator.Result result = cache.get(key(42.5, 600_000), counting(calls));
+        assertSame(result, cache.get(key(42.5, 600_000), counting(calls)));
+        assertEquals(1, calls.get());
+
+        // another limit or another origin needs a new triangulation, so the contours do not depend on the cache
+        cache.get(key(42.5, 300_000), counting(calls));
+        assertEquals(2, calls.get());
+        cache.get(key(42.6, 600_000), counting(calls));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testHintsOrder() {
+        AtomicInteger calls = new AtomicInteger();
+        IsochroneTriangulationCache cache = new IsochroneTriangulationCache(2);
+        PMap hints = new PMap().putObject("a", "1").putObject("b", "2");
+        PMap reordered = new PMap().putObject("b", "2").putObject("a", "1");
+        Triangulator.Result result = cache.get(new IsochroneTriangulationCache.Key("car", hints, 42.5, 1.5, false, "time", 600_000, 0), counting(calls));
+        assertSame(result, cache.get(new IsochroneTriangulationCache.Key("car", reordered, 42.5, 1.5, false, "time", 600_000, 0), counting(calls)));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testDisabled() {
+        AtomicInteger calls = new AtomicInteger();
+        IsochroneTriangulationCache cache = new IsochroneTriangulationCache(0);
+        for (int i = 0; i < 3; i++) {
+            cache.get(key(42.5, 600_000), counting(calls));
+        }
+        assertEquals(3, calls.get());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCompressionFilterTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final ResponseCompressionFilter filter = new ResponseCompressionFilter(Set.of("application/json", " text/* "), 100, 6, 512, metrics);
+
+    @Test
+    public void testSelectEncoding() {
+        assertNull(ResponseCompressionFilter.selectEncoding(null));
+        assertNull(ResponseCompressionFilter.selectEncoding("identity"));
+        assertEquals("gzip", ResponseCompressionFilter.selectEncoding("gzip, deflate, br"));
+        assertEquals("gzip", ResponseCompressionFilter.selectEncoding("deflate;q=0.5, GZIP;q=0.8"));
+        assertEquals("deflate", ResponseCompressionFilter.selectEncoding("gzip;q=0, deflate"));
+        assertEquals("gzip", ResponseCompressionFilter.selectEncoding("*"));
+        assertEquals("deflate", ResponseCompressionFilter.selectEncoding("*, gzip;q=0"));
+        assertNull(ResponseCompressionFilter.selectEncoding("*;q=0"));
+    }
+
+    @Test
+    public void testMediaTypes() {
+        assertTrue(filter.isSelected(MediaType.APPLICATION_JSON_TYPE));
+        assertTrue(filter.isSelected(MediaType.valueOf("application/json; charset=utf-8")));
+        assertTrue(filter.isSelected(MediaType.valueOf("text/csv")));
+        assertFalse(filter.isSelected(MediaType.valueOf("image/png")));
+        assertFalse(filter.isSelected(null));
+        assertThrows(IllegalArgumentException.class, () -> new ResponseCompressionFilter(Set.of(), 100, 10, 512, metrics));
+    }
+
+    @Test
+    public void testSmallResponseIsNotCompressed() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicInteger compressed = new AtomicInteger();
+        OutputStream stream = filter.new CompressingOutputStream(out, "gzip", compressed::incrementAndGet);
+        byte[] bytes = "{\"paths\":[]}".getBytes(StandardCharsets.UTF_8);
+        stream.write(bytes);
+        stream.flush();
+        assertEquals(0, out.size(), "the response must be kept back until we know its size");
+        stream.close();
+        assertArrayEquals(bytes, out.toByteArray());
+        assertEquals(0, compressed.get());
+        assertEquals(0, metrics.histogram(MetricRegistry.name(ResponseCompressionFilter.class, "ratio")).getCount());
+    }
+
+    @Test
+    public void testLargeResponseIsCompressed() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("42.5,1.5,").append(i).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (String encoding : new String[]{"gzip", "deflate"}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            AtomicInteger compressed = new AtomicInteger();
+            OutputStream stream = filter.new CompressingOutputStream(out, encoding, compressed::incrementAndGet);
+            // first some small writes that fit into the buffer, then the rest
+            stream.write(bytes, 0, 10);
+            stream.write(bytes[10]);
+            stream.write(bytes, 11, bytes.length - 11);
+            stream.close();
+            assertEquals(1, compressed.get());
+            assertTrue(out.size() < bytes.length / 2);
+            byte[] result = ("gzip".equals(encoding) ? new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))
+                    : new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))).readAllBytes();
+            assertArrayEquals(bytes, result);
+        }
+        assertEquals(2, metrics.histogram(MetricRegistry.name(ResponseCompressionFilter.class, "ratio")).getCount());
+        assertTrue(metrics.histogram(MetricRegistry.name(ResponseCompressionFilter.class, "ratio")).getSnapshot().getMax() < 50);
+        assertEquals(2, metrics.timer(MetricRegistry.name(ResponseCompressionFilter.class, "cpu_time")).getCount());
+        assertEquals(2L * bytes.length, metrics.meter(MetricRegistry.name(ResponseCompressionFilter.class, "uncompressed_bytes")).getCount());
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.cli;
+
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.storage.GraphArchive;
+import io.dropwizard.core.cli.ConfiguredCommand;
+import io.dropwizard.core.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.io.File;
+
+public class ArchiveCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public ArchiveCommand() {
+        super("archive", "packs the imported graphhopper files into a single file (graph.location + .gha), which is unpacked when the graph is loaded");
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace namespace, GraphHopperServerConfiguration configuration) {
+        String location = configuration.getGraphHopperConfiguration().getString("graph.location", "");
+        if (location.isEmpty())
+            throw new IllegalArgumentException("graph.location is not specified");
+        GraphArchive.pack(new File(location), new File(location + ".gha"), Runtime.getRuntime().availableProcessors());
+    }
+
+}
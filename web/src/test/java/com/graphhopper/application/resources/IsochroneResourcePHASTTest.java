@@ -0,0 +1,100 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.application.resources;
+
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.JsonFeatureCollection;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import jakarta.ws.rs.client.WebTarget;
+import java.io.File;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Isochrones calculated with PHAST on a node-based CH profile, see the phast request hint
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class IsochroneResourcePHASTTest {
+    private static final String DIR = "./target/andorra-gh-phast/";
+    public static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.location", DIR).
+                putObject("graph.encoded_values", "car_access, car_average_speed").
+                setProfiles(List.of(TestProfiles.accessAndSpeed("car", "car"))).
+                setCHProfiles(List.of(new CHProfile("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    private WebTarget target() {
+        return clientTarget(app, "/isochrone")
+                .queryParam("profile", "car")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("time_limit", 5 * 60)
+                .queryParam("type", "geojson");
+    }
+
+    @Test
+    public void requestWithPHAST() {
+        Geometry dijkstraPolygon = target().request().get(JsonFeatureCollection.class).getFeatures().get(0).getGeometry();
+        Geometry phastPolygon = target().queryParam("phast", true).request().get(JsonFeatureCollection.class).getFeatures().get(0).getGeometry();
+        assertEquals(dijkstraPolygon.getArea(), phastPolygon.getArea(), dijkstraPolygon.getArea() * 0.01);
+        assertTrue(phastPolygon.contains(geometryFactory.createPoint(new Coordinate(1.587224, 42.5386))));
+        assertFalse(phastPolygon.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
+    }
+
+    @Test
+    public void requestGridWithPHAST() {
+        JsonFeatureCollection featureCollection = target()
+                .queryParam("phast", true)
+                .queryParam("mode", "grid")
+                .request().get(JsonFeatureCollection.class);
+        Geometry polygon = featureCollection.getFeatures().get(0).getGeometry();
+        assertTrue(polygon.contains(geometryFactory.createPoint(new Coordinate(1.587224, 42.5386))));
+        assertFalse(polygon.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
+    }
+}
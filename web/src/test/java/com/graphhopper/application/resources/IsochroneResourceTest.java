@@ -40,7 +40,13 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Polygon;
 
 import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.Response;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 
 import static com.graphhopper.application.resources.Util.getWithStatus;
@@ -161,6 +167,61 @@ public class IsochroneResourceTest {
         assertTrue(weightLimitPolygon.equalsTopo(distanceLimitPolygon));
     }
 
+    @Test
+    public void requestGridMode() {
+        JsonFeatureCollection featureCollection = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("time_limit", 5 * 60)
+                .queryParam("buckets", 2)
+                .queryParam("type", "geojson")
+                .queryParam("mode", "grid")
+                .queryParam("grid_resolution", 50)
+                .request().get(JsonFeatureCollection.class);
+
+        assertEquals(2, featureCollection.getFeatures().size());
+        Geometry polygon0 = featureCollection.getFeatures().get(0).getGeometry();
+        Geometry polygon1 = featureCollection.getFeatures().get(1).getGeometry();
+
+        assertTrue(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.587224, 42.5386))));
+        assertFalse(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+
+        assertTrue(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+        assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
+    }
+
+    @Test
+    public void requestRaster() throws IOException {
+        Response response = clientTarget(app, "/isochrone?profile=fast_car&point=42.531073,1.573792&time_limit=130&type=png").request().get();
+        assertEquals(200, response.getStatus());
+        assertEquals("image/png", response.getMediaType().toString());
+        BufferedImage image = ImageIO.read(response.readEntity(InputStream.class));
+        assertTrue(image.getWidth() > 10 && image.getHeight() > 10);
+
+        response = clientTarget(app, "/isochrone?profile=fast_car&point=42.531073,1.573792&time_limit=130&type=binary&grid_resolution=100").request().get();
+        assertEquals(200, response.getStatus());
+        DataInputStream in = new DataInputStream(response.readEntity(InputStream.class));
+        int width = in.readInt(), height = in.readInt();
+        double minLon = in.readDouble(), minLat = in.readDouble(), cellLon = in.readDouble(), cellLat = in.readDouble();
+        assertTrue(minLon < 1.573792 && minLon + width * cellLon > 1.573792);
+        assertTrue(minLat < 42.531073 && minLat + height * cellLat > 42.531073);
+        int reached = 0;
+        for (int i = 0; i < width * height; i++) {
+            if (in.readFloat() <= 130_000)
+                reached++;
+        }
+        assertTrue(reached > 10, "reached grid points: " + reached);
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void requestRasterWithTooManyCells() {
+        Response response = clientTarget(app, "/isochrone?profile=fast_car&point=42.531073,1.573792&time_limit=600&type=png&grid_resolution=1").request().get();
+        assertEquals(400, response.getStatus());
+        String message = response.readEntity(JsonNode.class).get("message").asText();
+        assertTrue(message.startsWith("Too many grid cells"), message);
+    }
+
     @Test
     public void requestReverseFlow() {
         JsonFeatureCollection featureCollection = clientTarget(app, "/isochrone")
@@ -244,7 +305,7 @@ public class IsochroneResourceTest {
         JsonNode json = response.getBody();
         String message = json.path("message").asText();
 
-        assertEquals("query param type must be one of [json, geojson]", message);
+        assertEquals("query param type must be one of [json, geojson, png, binary]", message);
     }
 
     @Test
@@ -18,8 +18,10 @@
 package com.graphhopper.application.resources;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.GHResponse;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.jackson.ResponsePathBinaryFormat;
 import com.graphhopper.jackson.ResponsePathDeserializerHelper;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.Helper;
@@ -36,6 +38,8 @@ import org.locationtech.jts.io.WKTReader;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
@@ -84,6 +88,22 @@ public class MapMatchingResourceTest {
         assertEquals(812, json.get("map_matching").get("distance").asDouble(), 1);
     }
 
+    @Test
+    public void testBinary() throws IOException {
+        try (Response response = clientTarget(app, "/match?profile=fast_car")
+                .request(ResponsePathBinaryFormat.MEDIA_TYPE)
+                .post(Entity.xml(getClass().getResourceAsStream("/tour2-with-loop.gpx")))) {
+            assertEquals(200, response.getStatus());
+            assertEquals(ResponsePathBinaryFormat.MEDIA_TYPE, response.getMediaType().toString());
+            GHResponse rsp = ResponsePathBinaryFormat.read(response.readEntity(InputStream.class), true);
+            LineString expectedGeometry = readWktLineString("LINESTRING (12.3607 51.34365, 12.36418 51.34443, 12.36379 51.34538, 12.36082 51.34471, 12.36188 51.34278)");
+            assertEquals(0.0, DiscreteHausdorffDistance.distance(expectedGeometry, rsp.getBest().getPoints().toLineString(false)), 1E-4);
+            assertEquals(812, rsp.getBest().getDistance(), 1);
+            assertEquals(812, rsp.getHints().getDouble("map_matching.distance", 0), 1);
+            assertFalse(rsp.getBest().getInstructions().isEmpty());
+        }
+    }
+
     @Test
     public void testBike() throws ParseException {
         WKTReader wktReader = new WKTReader();
@@ -0,0 +1,149 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.gtfs.analysis.TravelTimeSurfaces;
+import com.graphhopper.resources.PtAccessibilityResource;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class PtAccessibilityResourceTest {
+
+    private static final String GRAPH_LOC = "target/PtAccessibilityResourceTest";
+    private static final ZoneId zoneId = ZoneId.of("America/Los_Angeles");
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.location", GRAPH_LOC).
+                putObject("gtfs.file", "../reader-gtfs/files/sample-feed").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.encoded_values", "foot_access, foot_priority, foot_average_speed").
+                setProfiles(List.of(TestProfiles.accessSpeedAndPriority("foot")));
+        Helper.removeDir(new File(GRAPH_LOC));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(GRAPH_LOC));
+    }
+
+    @Test
+    public void testTravelTimes() throws IOException {
+        PtAccessibilityResource.Request request = new PtAccessibilityResource.Request();
+        request.points = Arrays.asList("Stop(NADAV)", "36.914893,-116.76821");
+        request.earliestDepartureTime = LocalDateTime.of(2007, 1, 1, 0, 0, 0).atZone(zoneId).toOffsetDateTime().toString();
+        request.timeLimitInSeconds = 12 * 60 * 60;
+        Response response = clientTarget(app, "/accessibility-pt").request().post(Entity.json(request));
+        assertEquals(200, response.getStatus());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(response.readEntity(byte[].class)));
+        assertEquals(TravelTimeSurfaces.MAGIC, in.readInt());
+        assertEquals(TravelTimeSurfaces.VERSION, in.readInt());
+        assertEquals(2, in.readInt());
+        int nStops = in.readInt();
+        assertEquals(11, nStops);
+        for (int i = 0; i < 2 * nStops; i++) {
+            in.readInt();
+        }
+        for (int origin = 0; origin < 2; origin++) {
+            int reachable = 0;
+            for (int i = 0; i < nStops; i++) {
+                if (in.readInt() != TravelTimeSurfaces.UNREACHABLE)
+                    reachable++;
+            }
+            assertTrue(reachable > 1);
+        }
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void testMissingPoints() {
+        PtAccessibilityResource.Request request = new PtAccessibilityResource.Request();
+        request.points = List.of();
+        request.earliestDepartureTime = LocalDateTime.of(2007, 1, 1, 0, 0, 0).atZone(zoneId).toOffsetDateTime().toString();
+        Response response = clientTarget(app, "/accessibility-pt").request().post(Entity.json(request));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testTooManySearches() {
+        PtAccessibilityResource.Request request = new PtAccessibilityResource.Request();
+        request.points = Collections.nCopies(7, "Stop(NADAV)");
+        request.earliestDepartureTime = LocalDateTime.of(2007, 1, 1, 0, 0, 0).atZone(zoneId).toOffsetDateTime().toString();
+        // 7 points * 1441 departures
+        request.departureWindowInSeconds = PtAccessibilityResource.MAX_DEPARTURE_WINDOW;
+        request.departureStepInSeconds = 60;
+        Response response = clientTarget(app, "/accessibility-pt").request().post(Entity.json(request));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Too many searches"));
+    }
+
+    @Test
+    public void testInvalidDepartureStep() {
+        PtAccessibilityResource.Request request = new PtAccessibilityResource.Request();
+        request.points = List.of("Stop(NADAV)");
+        request.earliestDepartureTime = LocalDateTime.of(2007, 1, 1, 0, 0, 0).atZone(zoneId).toOffsetDateTime().toString();
+        request.departureWindowInSeconds = 600;
+        request.departureStepInSeconds = 1;
+        Response response = clientTarget(app, "/accessibility-pt").request().post(Entity.json(request));
+        assertEquals(422, response.getStatus());
+    }
+
+    @Test
+    public void testUnknownStop() {
+        PtAccessibilityResource.Request request = new PtAccessibilityResource.Request();
+        request.points = List.of("Stop(NADAV)", "Stop(UNKNOWN)");
+        request.earliestDepartureTime = LocalDateTime.of(2007, 1, 1, 0, 0, 0).atZone(zoneId).toOffsetDateTime().toString();
+        Response response = clientTarget(app, "/accessibility-pt").request().post(Entity.json(request));
+        // the origins are snapped before the response is streamed
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Cannot find station: UNKNOWN"));
+    }
+}
@@ -94,16 +94,20 @@ public class RouteResourceClientHCTest {
     // dropwizard extension does not work with @RunWith(Parameterized.class), but we can use an @EnumSource or similar
     // and on each test method. see https://github.com/graphhopper/graphhopper/pull/2003
     private enum TestParam {
-        GET(false, -1),
-        POST_MAX_UNZIPPED_0(true, 0),
-        POST_MAX_UNZIPPED_1000(true, 1000);
+        GET(false, -1, false),
+        GET_BINARY(false, -1, true),
+        POST_MAX_UNZIPPED_0(true, 0, false),
+        POST_MAX_UNZIPPED_1000(true, 1000, false),
+        POST_BINARY(true, 1000, true);
 
         public boolean usePost;
         public int maxUnzippedLength;
+        public boolean binaryResponse;
 
-        TestParam(boolean usePost, int maxUnzippedLength) {
+        TestParam(boolean usePost, int maxUnzippedLength, boolean binaryResponse) {
             this.usePost = usePost;
             this.maxUnzippedLength = maxUnzippedLength;
+            this.binaryResponse = binaryResponse;
         }
     }
 
@@ -112,10 +116,10 @@ public class RouteResourceClientHCTest {
         String externalEndpoint = ExternalEndpointTestUtils.getExternalEndpointWithDefault();
         if (externalEndpoint != null) {
             String routingUrl = ExternalEndpointTestUtils.buildRoutingUrl(externalEndpoint);
-            return new GraphHopperWeb(routingUrl).setPostRequest(p.usePost).setMaxUnzippedLength(p.maxUnzippedLength);
+            return new GraphHopperWeb(routingUrl).setPostRequest(p.usePost).setMaxUnzippedLength(p.maxUnzippedLength).setBinaryResponse(p.binaryResponse);
         }
         // Use local test server
-        return new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).setPostRequest(p.usePost).setMaxUnzippedLength(p.maxUnzippedLength);
+        return new GraphHopperWeb(TestUtils.clientUrl(app, "/route")).setPostRequest(p.usePost).setMaxUnzippedLength(p.maxUnzippedLength).setBinaryResponse(p.binaryResponse);
     }
 
     private boolean isUsingExternalEndpoint() {
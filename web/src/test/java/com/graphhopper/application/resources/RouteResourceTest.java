@@ -26,6 +26,8 @@ import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
 import com.graphhopper.config.CHProfile;
+import com.graphhopper.jackson.ResponsePathBinaryFormat;
+import com.graphhopper.jackson.ResponsePathDeserializerHelper;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.routing.ev.RoadClass;
 import com.graphhopper.routing.ev.RoadClassLink;
@@ -51,6 +53,8 @@ import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 import static com.graphhopper.application.resources.Util.getWithStatus;
@@ -173,6 +177,35 @@ public class RouteResourceTest {
         assertFalse(infoJson.has("errors"));
     }
 
+    @Test
+    public void testBinaryFormat() throws IOException {
+        String url = "/route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128&details=street_name&points_encoded_multiplier=1e6";
+        JsonNode json = clientTarget(app, url).request().get(JsonNode.class).get("paths").get(0);
+        try (Response response = clientTarget(app, url + "&type=binary").request().get()) {
+            assertEquals(200, response.getStatus());
+            assertEquals(ResponsePathBinaryFormat.MEDIA_TYPE, response.getMediaType().toString());
+            ResponsePath path = ResponsePathBinaryFormat.read(response.readEntity(InputStream.class), true).getBest();
+            assertEquals(json.get("distance").asDouble(), path.getDistance(), 1.e-6);
+            assertEquals(json.get("time").asLong(), path.getTime());
+            assertEquals(ResponsePathDeserializerHelper.decodePolyline(json.get("points").asText(), 10, false, 1e6), path.getPoints());
+            assertEquals(json.get("instructions").size(), path.getInstructions().size());
+            assertEquals(json.get("details").get("street_name").size(), path.getPathDetails().get("street_name").size());
+        }
+
+        // the media type can also be requested via the Accept header, the default is still JSON
+        try (Response response = clientTarget(app, url).request(ResponsePathBinaryFormat.MEDIA_TYPE).get()) {
+            assertEquals(ResponsePathBinaryFormat.MEDIA_TYPE, response.getMediaType().toString());
+        }
+        try (Response response = clientTarget(app, url).request().get()) {
+            assertEquals(MediaType.APPLICATION_JSON, response.getMediaType().toString());
+        }
+        // errors are returned as JSON
+        try (Response response = clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&type=binary").request().get()) {
+            assertEquals(400, response.getStatus());
+            assertEquals(MediaType.APPLICATION_JSON, response.getMediaType().toString());
+        }
+    }
+
     @Test
     public void testQueryWithoutInstructions() {
         JsonNode json = clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128&instructions=false").request().get(JsonNode.class);
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.BodyAndStatus;
 import com.graphhopper.util.Helper;
@@ -33,9 +34,17 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static com.graphhopper.application.resources.Util.getWithStatus;
 import static com.graphhopper.application.util.TestUtils.clientTarget;
@@ -54,10 +63,13 @@ public class SPTResourceTest {
                 putObject("import.osm.ignored_highways", "").
                 putObject("graph.location", DIR).
                 putObject("graph.encoded_values", "car_access, car_average_speed").
+                putObject("http.compression.enabled", true).
                 setProfiles(List.of(
                         TestProfiles.accessAndSpeed("car_without_turncosts", "car"),
-                        TestProfiles.accessAndSpeed("car_with_turncosts", "car").setTurnCostsConfig(TurnCostsConfig.car())
-                ));
+                        TestProfiles.accessAndSpeed("car_with_turncosts", "car").setTurnCostsConfig(TurnCostsConfig.car()),
+                        TestProfiles.accessAndSpeed("car_ch", "car")
+                )).
+                setCHProfiles(List.of(new CHProfile("car_ch")));
         return config;
     }
 
@@ -90,6 +102,46 @@ public class SPTResourceTest {
         assertEquals(48, Integer.parseInt(row[prevTimeIndex]) / 1000);
     }
 
+    @Test
+    public void requestCompressed() throws IOException {
+        String url = "/spt?profile=car_without_turncosts&point=42.531073,1.573792&time_limit=300";
+        String expected = clientTarget(app, url).request().get(String.class);
+        try (Response response = clientTarget(app, url).request().header(HttpHeaders.ACCEPT_ENCODING, "gzip").get()) {
+            assertEquals(200, response.getStatus());
+            assertEquals("gzip", response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+            byte[] compressed = response.readEntity(byte[].class);
+            assertTrue(compressed.length < expected.length() / 2, "compressed: " + compressed.length + ", uncompressed: " + expected.length());
+            String result = new String(new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(expected, result);
+        }
+    }
+
+    @Test
+    public void requestSPTWithCH() {
+        Map<Integer, Integer> expected = readTimes(clientTarget(app, "/spt?profile=car_without_turncosts&point=42.531073,1.573792&time_limit=300&columns=node_id,time").request().get(String.class));
+        Map<Integer, Integer> times = readTimes(clientTarget(app, "/spt?profile=car_ch&phast=true&point=42.531073,1.573792&time_limit=300&columns=node_id,time").request().get(String.class));
+        assertEquals(expected.size(), times.size(), expected.size() * 0.01);
+        int compared = 0;
+        for (Map.Entry<Integer, Integer> entry : times.entrySet()) {
+            if (expected.containsKey(entry.getKey())) {
+                assertEquals(expected.get(entry.getKey()), entry.getValue(), 1000, "node " + entry.getKey());
+                compared++;
+            }
+        }
+        assertTrue(compared > 300, "compared: " + compared);
+    }
+
+    private static Map<Integer, Integer> readTimes(String csv) {
+        String[] lines = csv.split("\n");
+        assertEquals("node_id,time", lines[0]);
+        Map<Integer, Integer> times = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] row = lines[i].split(",");
+            times.put(Integer.parseInt(row[0]), Integer.parseInt(row[1]));
+        }
+        return times;
+    }
+
     @Test
     public void requestSPTEdgeBased() {
         String rspCsvString = clientTarget(app, "/spt?profile=car_with_turncosts&point=42.531073,1.573792&time_limit=300&columns=prev_node_id,edge_id,node_id,time,distance").request().get(String.class);